@@ -14,11 +14,12 @@
 package ai.startree.thirdeye;
 
 import ai.startree.thirdeye.config.CacheConfig;
+import ai.startree.thirdeye.config.DataSourceLimiterConfiguration;
 import ai.startree.thirdeye.config.TimeConfiguration;
 import ai.startree.thirdeye.config.UiConfiguration;
 import ai.startree.thirdeye.datalayer.ThirdEyePersistenceModule;
-import ai.startree.thirdeye.datasource.loader.DefaultAggregationLoader;
-import ai.startree.thirdeye.datasource.loader.DefaultMinMaxTimeLoader;
+import ai.startree.thirdeye.datasource.loader.CachedAggregationLoader;
+import ai.startree.thirdeye.datasource.loader.CachedMinMaxTimeLoader;
 import ai.startree.thirdeye.rootcause.configuration.RcaConfiguration;
 import ai.startree.thirdeye.spi.datasource.loader.AggregationLoader;
 import ai.startree.thirdeye.spi.datasource.loader.MinMaxTimeLoader;
@@ -33,30 +34,34 @@ public class ThirdEyeCoreModule extends AbstractModule {
   private final RcaConfiguration rcaConfiguration;
   private final UiConfiguration uiConfiguration;
   private final TimeConfiguration timeConfiguration;
+  private final DataSourceLimiterConfiguration dataSourceLimiterConfiguration;
 
   public ThirdEyeCoreModule(final DataSource dataSource,
       final CacheConfig cacheConfig,
       final RcaConfiguration rcaConfiguration,
       final UiConfiguration uiConfiguration,
-      final TimeConfiguration timeConfiguration) {
+      final TimeConfiguration timeConfiguration,
+      final DataSourceLimiterConfiguration dataSourceLimiterConfiguration) {
     this.dataSource = dataSource;
 
     this.cacheConfig = cacheConfig;
     this.rcaConfiguration = rcaConfiguration;
     this.uiConfiguration = uiConfiguration;
     this.timeConfiguration = timeConfiguration;
+    this.dataSourceLimiterConfiguration = dataSourceLimiterConfiguration;
   }
 
   @Override
   protected void configure() {
     install(new ThirdEyePersistenceModule(dataSource));
 
-    bind(AggregationLoader.class).to(DefaultAggregationLoader.class).in(Scopes.SINGLETON);
-    bind(MinMaxTimeLoader.class).to(DefaultMinMaxTimeLoader.class).in(Scopes.SINGLETON);
+    bind(AggregationLoader.class).to(CachedAggregationLoader.class).in(Scopes.SINGLETON);
+    bind(MinMaxTimeLoader.class).to(CachedMinMaxTimeLoader.class).in(Scopes.SINGLETON);
 
     bind(CacheConfig.class).toInstance(cacheConfig);
     bind(RcaConfiguration.class).toInstance(rcaConfiguration);
     bind(UiConfiguration.class).toInstance(uiConfiguration);
     bind(TimeConfiguration.class).toInstance(timeConfiguration);
+    bind(DataSourceLimiterConfiguration.class).toInstance(dataSourceLimiterConfiguration);
   }
 }
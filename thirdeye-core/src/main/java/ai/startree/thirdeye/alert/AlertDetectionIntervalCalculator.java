@@ -75,14 +75,24 @@ public class AlertDetectionIntervalCalculator {
    */
   public Interval getCorrectedInterval(final AlertDTO alertDTO, final long taskStartMillis,
       final long taskEndMillis) throws IOException, ClassNotFoundException {
-    // render properties - startTime/endTime not important - objective is to get metadata
-    final AlertTemplateDTO templateWithProperties = alertTemplateRenderer.renderAlert(alertDTO,
-        DUMMY_INTERVAL);
+    // only the metadata is needed - the template is not rendered
+    return getCorrectedInterval(alertDTO.getId(),
+        taskStartMillis,
+        taskEndMillis,
+        alertTemplateRenderer.renderMetadata(alertDTO));
+  }
 
+  /**
+   * Same as {@link #getCorrectedInterval(AlertDTO, long, long)}, for an alert template that is
+   * already prepared.
+   */
+  public Interval getCorrectedInterval(final AlertDTO alertDTO,
+      final PreparedAlertTemplate preparedTemplate, final long taskStartMillis,
+      final long taskEndMillis) {
     return getCorrectedInterval(alertDTO.getId(),
         taskStartMillis,
         taskEndMillis,
-        templateWithProperties.getMetadata());
+        preparedTemplate.getMetadata());
   }
 
   @NonNull
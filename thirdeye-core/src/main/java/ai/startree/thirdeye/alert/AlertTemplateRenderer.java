@@ -23,33 +23,64 @@ import ai.startree.thirdeye.spi.api.AlertApi;
 import ai.startree.thirdeye.spi.api.AlertTemplateApi;
 import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
 import ai.startree.thirdeye.spi.datalayer.bao.AlertTemplateManager;
+import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertMetadataDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
 import ai.startree.thirdeye.spi.template.TemplatePropertyMetadata;
 import ai.startree.thirdeye.util.StringTemplateUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import java.io.IOException;
+import java.sql.Timestamp;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.DateTimeZone;
 import org.joda.time.Interval;
 
 @Singleton
 public class AlertTemplateRenderer {
 
+  private static final Interval DUMMY_INTERVAL = new Interval(0L, 0L, DateTimeZone.UTC);
+  private static final int CACHE_MAX_SIZE = 10_000;
+  private static final long CACHE_EXPIRE_MINUTES = 60;
+
   private final AlertManager alertManager;
   private final AlertTemplateManager alertTemplateManager;
 
+  // key is the alert id - entries are checked against the versions of the alert and the template
+  private final Cache<Long, CachedPreparedTemplate> preparedTemplateCache = CacheBuilder.newBuilder()
+      .maximumSize(CACHE_MAX_SIZE)
+      .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+      .build();
+  private final Counter preparedTemplateCacheHitCounter;
+  private final Counter preparedTemplateCacheMissCounter;
+
   @Inject
   public AlertTemplateRenderer(
       final AlertManager alertManager,
       final AlertTemplateManager alertTemplateManager) {
     this.alertManager = alertManager;
     this.alertTemplateManager = alertTemplateManager;
+
+    this.preparedTemplateCacheHitCounter = Counter.builder("thirdeye_alert_template_prepare_cache")
+        .description("Number of alert template preparations. Tag result: hit or miss.")
+        .tag("result", "hit")
+        .register(Metrics.globalRegistry);
+    this.preparedTemplateCacheMissCounter = Counter.builder("thirdeye_alert_template_prepare_cache")
+        .description("Number of alert template preparations. Tag result: hit or miss.")
+        .tag("result", "miss")
+        .register(Metrics.globalRegistry);
   }
 
   /**
@@ -88,11 +119,61 @@ public class AlertTemplateRenderer {
    */
   public AlertTemplateDTO renderAlert(AlertDTO alert, final Interval detectionInterval)
       throws IOException, ClassNotFoundException {
-    return renderAlertInternal(
-        alert.getTemplate(),
+    return render(prepare(alert), detectionInterval);
+  }
+
+  /**
+   * Static phase of the rendering: resolves everything that does not depend on the detection
+   * interval. The result is cached for persisted alerts, and reused as long as the alert and the
+   * template it was prepared from keep the same id, version and updateTime.
+   *
+   * Use {@link #render} to bind a detection interval.
+   */
+  public PreparedAlertTemplate prepare(final AlertDTO alert)
+      throws IOException, ClassNotFoundException {
+    final AlertTemplateDTO template = getTemplate(alert.getTemplate());
+    final Long alertId = alert.getId();
+    if (alertId == null || template == null) {
+      return prepareInternal(template, alert.getTemplateProperties(), alert.getName());
+    }
+
+    final EntityVersion alertVersion = EntityVersion.of(alert);
+    final EntityVersion templateVersion = EntityVersion.of(template);
+    final CachedPreparedTemplate cached = preparedTemplateCache.getIfPresent(alertId);
+    if (cached != null && cached.alertVersion().equals(alertVersion)
+        && Objects.equals(cached.templateVersion(), templateVersion)) {
+      preparedTemplateCacheHitCounter.increment();
+      return cached.preparedTemplate();
+    }
+    preparedTemplateCacheMissCounter.increment();
+
+    final PreparedAlertTemplate prepared = prepareInternal(template,
         alert.getTemplateProperties(),
-        detectionInterval,
         alert.getName());
+    preparedTemplateCache.put(alertId,
+        new CachedPreparedTemplate(alertVersion, templateVersion, prepared));
+    return prepared;
+  }
+
+  /**
+   * Bind phase of the rendering: applies the properties and the detection interval to the
+   * template.
+   */
+  public AlertTemplateDTO render(final PreparedAlertTemplate prepared,
+      final Interval detectionInterval) throws IOException, ClassNotFoundException {
+    final Map<String, Object> properties = new HashMap<>(prepared.getProperties());
+    properties.put("startTime", detectionInterval.getStartMillis());
+    properties.put("endTime", detectionInterval.getEndMillis());
+
+    return StringTemplateUtils.applyContext(prepared.getTemplate(), properties);
+  }
+
+  /**
+   * Renders the metadata of the alert only. Cheaper than a full rendering.
+   */
+  public @Nullable AlertMetadataDTO renderMetadata(final AlertDTO alert)
+      throws IOException, ClassNotFoundException {
+    return prepare(alert).getMetadata();
   }
 
   /**
@@ -131,12 +212,29 @@ public class AlertTemplateRenderer {
       final String alertName)
       throws IOException, ClassNotFoundException {
     final AlertTemplateDTO template = getTemplate(alertTemplateInsideAlertDto);
+    return render(prepareInternal(template, templateProperties, alertName), detectionInterval);
+  }
+
+  private PreparedAlertTemplate prepareInternal(final AlertTemplateDTO template,
+      final Map<String, Object> templateProperties,
+      final String alertName)
+      throws IOException, ClassNotFoundException {
     validate(template);
+    final Map<String, Object> properties = properties(template, templateProperties);
+    // add source metadata to each node
+    if (template.getNodes() != null) {
+      template.getNodes().stream()
+          // TODO spyne remove magic string. This was done to remove dependency of AnomalyDetector.TYPE on the renderer
+          .filter(node -> node.getType().equals("AnomalyDetector"))
+          .forEach(node -> node.getParams()
+              .putValue("anomaly.source", String.format("%s/%s", alertName, node.getName())));
+    }
 
-    return applyContext(template,
-        templateProperties,
-        detectionInterval,
-        alertName);
+    final AlertMetadataDTO metadata = template.getMetadata() == null
+        ? null
+        // startTime/endTime are not expected in the metadata - they are set for compatibility
+        : StringTemplateUtils.applyContext(template.getMetadata(), withDummyInterval(properties));
+    return new PreparedAlertTemplate(template, properties, metadata);
   }
 
   private static void validate(final AlertTemplateDTO template) {
@@ -163,10 +261,8 @@ public class AlertTemplateRenderer {
     return alertTemplateDTO;
   }
 
-  private AlertTemplateDTO applyContext(final AlertTemplateDTO template,
-      final Map<String, Object> templateProperties,
-      final Interval detectionInterval,
-      final String alertName) throws IOException, ClassNotFoundException {
+  private Map<String, Object> properties(final AlertTemplateDTO template,
+      final Map<String, Object> templateProperties) {
     final Map<String, Object> properties = new HashMap<>();
     // legacy properties can be removed once all users have migrated their template to the new propertiesMetadata
     final Map<String, Object> legacyDefaultProperties = optional(
@@ -178,19 +274,14 @@ public class AlertTemplateRenderer {
     if (templateProperties != null) {
       properties.putAll(templateProperties);
     }
+    return properties;
+  }
 
-    properties.put("startTime", detectionInterval.getStartMillis());
-    properties.put("endTime", detectionInterval.getEndMillis());
-    // add source metadata to each node
-    if (template.getNodes() != null) {
-      template.getNodes().stream()
-          // TODO spyne remove magic string. This was done to remove dependency of AnomalyDetector.TYPE on the renderer
-          .filter(node -> node.getType().equals("AnomalyDetector"))
-          .forEach(node -> node.getParams()
-              .putValue("anomaly.source", String.format("%s/%s", alertName, node.getName())));
-    }
-
-    return StringTemplateUtils.applyContext(template, properties);
+  private static Map<String, Object> withDummyInterval(final Map<String, Object> properties) {
+    final Map<String, Object> res = new HashMap<>(properties);
+    res.put("startTime", DUMMY_INTERVAL.getStartMillis());
+    res.put("endTime", DUMMY_INTERVAL.getEndMillis());
+    return res;
   }
 
   private @NonNull Map<String, Object> defaultProperties(
@@ -209,4 +300,18 @@ public class AlertTemplateRenderer {
 
     return res;
   }
+
+  private record EntityVersion(Long id, int version, Timestamp updateTime) {
+
+    private static @Nullable EntityVersion of(final AbstractDTO dto) {
+      // a template embedded in the alert has no id - it is versioned with the alert
+      return dto.getId() == null ? null : new EntityVersion(dto.getId(), dto.getVersion(),
+          dto.getUpdateTime());
+    }
+  }
+
+  private record CachedPreparedTemplate(
+      EntityVersion alertVersion,
+      @Nullable EntityVersion templateVersion,
+      PreparedAlertTemplate preparedTemplate) {}
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.alert;
+
+import ai.startree.thirdeye.spi.datalayer.dto.AlertMetadataDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An alert template with everything that does not depend on the detection interval resolved:
+ * template loaded from the db and validated, properties merged with their defaults, metadata
+ * rendered.
+ *
+ * Binding a detection interval is done by {@link AlertTemplateRenderer#render}. Instances may be
+ * shared between threads and must not be modified.
+ */
+public class PreparedAlertTemplate {
+
+  private final AlertTemplateDTO template;
+  private final Map<String, Object> properties;
+  private final @Nullable AlertMetadataDTO metadata;
+
+  PreparedAlertTemplate(final AlertTemplateDTO template,
+      final Map<String, Object> properties,
+      final @Nullable AlertMetadataDTO metadata) {
+    this.template = template;
+    this.properties = properties;
+    this.metadata = metadata;
+  }
+
+  /**
+   * The template, with properties not applied.
+   */
+  AlertTemplateDTO getTemplate() {
+    return template;
+  }
+
+  /**
+   * The properties of the alert and the default properties of the template, without startTime and
+   * endTime.
+   */
+  Map<String, Object> getProperties() {
+    return properties;
+  }
+
+  /**
+   * The metadata with properties applied. Can be used without binding a detection interval.
+   */
+  public @Nullable AlertMetadataDTO getMetadata() {
+    return metadata;
+  }
+}
@@ -17,27 +17,54 @@ package ai.startree.thirdeye.config;
  * Config file for cache-related stuff.
  * Mapped from cache-config.yml
  */
-@Deprecated  // todo cache needs reimplementation with v2 query system - kept to not break config yaml - can be removed
 public class CacheConfig {
 
+  @Deprecated // not used anymore - kept to not break config yaml - use dataTable
   private boolean useInMemoryCache = true;
+  @Deprecated // not used anymore - kept to not break config yaml - use dataTable
   private boolean useCentralizedCache = false;
 
+  private DataTableCacheConfiguration dataTable = new DataTableCacheConfiguration();
+
+  private TimeBoundsCacheConfiguration timeBounds = new TimeBoundsCacheConfiguration();
+
+  @Deprecated
   public boolean useCentralizedCache() {
     return useCentralizedCache;
   }
 
+  @Deprecated
   public boolean useInMemoryCache() {
     return useInMemoryCache;
   }
 
+  @Deprecated
   public CacheConfig setUseCentralizedCache(boolean useCentralizedCache) {
     this.useCentralizedCache = useCentralizedCache;
     return this;
   }
 
+  @Deprecated
   public CacheConfig setUseInMemoryCache(boolean useInMemoryCache) {
     this.useInMemoryCache = useInMemoryCache;
     return this;
   }
+
+  public DataTableCacheConfiguration getDataTable() {
+    return dataTable;
+  }
+
+  public CacheConfig setDataTable(final DataTableCacheConfiguration dataTable) {
+    this.dataTable = dataTable;
+    return this;
+  }
+
+  public TimeBoundsCacheConfiguration getTimeBounds() {
+    return timeBounds;
+  }
+
+  public CacheConfig setTimeBounds(final TimeBoundsCacheConfiguration timeBounds) {
+    this.timeBounds = timeBounds;
+    return this;
+  }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.config;
+
+import java.time.Duration;
+
+/**
+ * Admission control of the queries sent to a datasource. Each datasource gets its own limiter.
+ * The concurrency limit adapts to the observed latency: it increases slowly while queries are
+ * fast and decreases quickly when they become slower than latencyThreshold.
+ */
+public class DataSourceLimiterConfiguration {
+
+  private boolean enabled = false;
+
+  private int initialLimit = 20;
+  private int minLimit = 2;
+  private int maxLimit = 200;
+
+  /**
+   * A query slower than this is considered a sign of an overloaded datasource.
+   */
+  private Duration latencyThreshold = Duration.ofSeconds(10);
+
+  /**
+   * Multiplicative decrease applied to the limit when a query is too slow.
+   */
+  private double backoffRatio = 0.8;
+
+  /**
+   * Max time a query waits for a slot before being rejected.
+   */
+  private Duration maxWait = Duration.ofMinutes(2);
+
+  /**
+   * Max number of queries waiting for a slot. Queries are rejected when the queue is full.
+   */
+  private int maxQueued = 1000;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public DataSourceLimiterConfiguration setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  public int getInitialLimit() {
+    return initialLimit;
+  }
+
+  public DataSourceLimiterConfiguration setInitialLimit(final int initialLimit) {
+    this.initialLimit = initialLimit;
+    return this;
+  }
+
+  public int getMinLimit() {
+    return minLimit;
+  }
+
+  public DataSourceLimiterConfiguration setMinLimit(final int minLimit) {
+    this.minLimit = minLimit;
+    return this;
+  }
+
+  public int getMaxLimit() {
+    return maxLimit;
+  }
+
+  public DataSourceLimiterConfiguration setMaxLimit(final int maxLimit) {
+    this.maxLimit = maxLimit;
+    return this;
+  }
+
+  public Duration getLatencyThreshold() {
+    return latencyThreshold;
+  }
+
+  public DataSourceLimiterConfiguration setLatencyThreshold(final Duration latencyThreshold) {
+    this.latencyThreshold = latencyThreshold;
+    return this;
+  }
+
+  public double getBackoffRatio() {
+    return backoffRatio;
+  }
+
+  public DataSourceLimiterConfiguration setBackoffRatio(final double backoffRatio) {
+    this.backoffRatio = backoffRatio;
+    return this;
+  }
+
+  public Duration getMaxWait() {
+    return maxWait;
+  }
+
+  public DataSourceLimiterConfiguration setMaxWait(final Duration maxWait) {
+    this.maxWait = maxWait;
+    return this;
+  }
+
+  public int getMaxQueued() {
+    return maxQueued;
+  }
+
+  public DataSourceLimiterConfiguration setMaxQueued(final int maxQueued) {
+    this.maxQueued = maxQueued;
+    return this;
+  }
+}
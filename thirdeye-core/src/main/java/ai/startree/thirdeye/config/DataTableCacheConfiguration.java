@@ -0,0 +1,124 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the cache of query results, shared by all datasources.
+ */
+public class DataTableCacheConfiguration {
+
+  private boolean enabled = false;
+
+  /**
+   * Results are reused only within the same time bucket of this duration.
+   */
+  private Duration ttl = Duration.ofMinutes(15);
+
+  /**
+   * On-heap tier. Bounded by the number of cells (rows x columns) of the cached results.
+   */
+  private boolean inMemoryEnabled = true;
+  private long inMemoryMaxCells = 10_000_000;
+
+  /**
+   * Persistent local tier. Results are written on disk in a columnar format, so that a restart
+   * does not start with a cold cache.
+   */
+  private boolean persistentEnabled = false;
+  private String persistentDirectory = "cache/datatable";
+  private long persistentMaxSizeBytes = 1024L * 1024 * 1024;
+
+  /**
+   * Names of the datasources that opt out of the cache.
+   */
+  private List<String> excludedDataSources = new ArrayList<>();
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public DataTableCacheConfiguration setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  public DataTableCacheConfiguration setTtl(final Duration ttl) {
+    this.ttl = ttl;
+    return this;
+  }
+
+  public boolean isInMemoryEnabled() {
+    return inMemoryEnabled;
+  }
+
+  public DataTableCacheConfiguration setInMemoryEnabled(final boolean inMemoryEnabled) {
+    this.inMemoryEnabled = inMemoryEnabled;
+    return this;
+  }
+
+  public long getInMemoryMaxCells() {
+    return inMemoryMaxCells;
+  }
+
+  public DataTableCacheConfiguration setInMemoryMaxCells(final long inMemoryMaxCells) {
+    this.inMemoryMaxCells = inMemoryMaxCells;
+    return this;
+  }
+
+  public boolean isPersistentEnabled() {
+    return persistentEnabled;
+  }
+
+  public DataTableCacheConfiguration setPersistentEnabled(final boolean persistentEnabled) {
+    this.persistentEnabled = persistentEnabled;
+    return this;
+  }
+
+  public String getPersistentDirectory() {
+    return persistentDirectory;
+  }
+
+  public DataTableCacheConfiguration setPersistentDirectory(final String persistentDirectory) {
+    this.persistentDirectory = persistentDirectory;
+    return this;
+  }
+
+  public long getPersistentMaxSizeBytes() {
+    return persistentMaxSizeBytes;
+  }
+
+  public DataTableCacheConfiguration setPersistentMaxSizeBytes(
+      final long persistentMaxSizeBytes) {
+    this.persistentMaxSizeBytes = persistentMaxSizeBytes;
+    return this;
+  }
+
+  public List<String> getExcludedDataSources() {
+    return excludedDataSources;
+  }
+
+  public DataTableCacheConfiguration setExcludedDataSources(
+      final List<String> excludedDataSources) {
+    this.excludedDataSources = excludedDataSources;
+    return this;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.config;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the cache of dataset min and max times.
+ */
+public class TimeBoundsCacheConfiguration {
+
+  private boolean enabled = true;
+
+  /**
+   * A cached time older than this is refreshed in the background. The cached time is still
+   * returned meanwhile.
+   */
+  private Duration ttl = Duration.ofMinutes(1);
+
+  /**
+   * A cached time older than this is not returned anymore: callers wait for a new query.
+   */
+  private Duration maxStaleness = Duration.ofMinutes(10);
+
+  /**
+   * Number of threads loading and refreshing times.
+   */
+  private int parallelism = 8;
+
+  /**
+   * Max number of loads waiting for a thread. Loads are rejected when the queue is full.
+   */
+  private int queueSize = 1000;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public TimeBoundsCacheConfiguration setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  public TimeBoundsCacheConfiguration setTtl(final Duration ttl) {
+    this.ttl = ttl;
+    return this;
+  }
+
+  public Duration getMaxStaleness() {
+    return maxStaleness;
+  }
+
+  public TimeBoundsCacheConfiguration setMaxStaleness(final Duration maxStaleness) {
+    this.maxStaleness = maxStaleness;
+    return this;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public TimeBoundsCacheConfiguration setParallelism(final int parallelism) {
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  public TimeBoundsCacheConfiguration setQueueSize(final int queueSize) {
+    this.queueSize = queueSize;
+    return this;
+  }
+}
@@ -18,6 +18,7 @@ import static com.google.common.base.Preconditions.checkState;
 
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
 import ai.startree.thirdeye.spi.ThirdEyeStatus;
+import ai.startree.thirdeye.spi.datalayer.UnitOfWork;
 import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
 import ai.startree.thirdeye.spi.datalayer.bao.MetricConfigManager;
 import ai.startree.thirdeye.spi.datalayer.dto.AuthorizationConfigurationDTO;
@@ -49,14 +50,17 @@ public class DataSourceOnboarder {
   private final DataSourceCache dataSourceCache;
   private final DatasetConfigManager datasetConfigManager;
   private final MetricConfigManager metricConfigManager;
+  private final UnitOfWork unitOfWork;
 
   @Inject
   public DataSourceOnboarder(final DataSourceCache dataSourceCache,
       final DatasetConfigManager datasetConfigManager,
-      final MetricConfigManager metricConfigManager) {
+      final MetricConfigManager metricConfigManager,
+      final UnitOfWork unitOfWork) {
     this.dataSourceCache = dataSourceCache;
     this.datasetConfigManager = datasetConfigManager;
     this.metricConfigManager = metricConfigManager;
+    this.unitOfWork = unitOfWork;
   }
 
   public List<DatasetConfigDTO> onboardAll(final DataSourceDTO dataSourceDto) {
@@ -71,10 +75,10 @@ public class DataSourceOnboarder {
         .map(DatasetConfigDTO::getDataset)
         .collect(Collectors.toSet());
 
-    final List<DatasetConfigDTO> datasetsToOnboard = dataSource.getDatasets()
-        .stream()
-        .filter(d -> !alreadyOnboardedDatasets.contains(d.getDataset()))
-        .toList();
+    // already onboarded datasets are not read from the datasource: if an onboarding fails midway,
+    // running it again resumes with the datasets that were not persisted
+    final List<DatasetConfigDTO> datasetsToOnboard = dataSource.getDatasets(
+        datasetName -> !alreadyOnboardedDatasets.contains(datasetName));
 
     final List<DatasetConfigDTO> addedDatasets = datasetsToOnboard.stream()
         .map(datasetConfigDTO -> persist(datasetConfigDTO, dataSourceDto.getAuth()))
@@ -128,6 +132,18 @@ public class DataSourceOnboarder {
    */
   private DatasetConfigDTO persist(final DatasetConfigDTO datasetConfigDTO,
       final AuthorizationConfigurationDTO auth) {
+    // the dataset and its metrics are written in a single transaction
+    try {
+      return unitOfWork.execute(() -> persist0(datasetConfigDTO, auth));
+    } catch (final RuntimeException e) {
+      throw e;
+    } catch (final Exception e) {
+      throw new RuntimeException("Failed creating dataset " + datasetConfigDTO.getDataset(), e);
+    }
+  }
+
+  private DatasetConfigDTO persist0(final DatasetConfigDTO datasetConfigDTO,
+      final AuthorizationConfigurationDTO auth) {
     final List<MetricConfigDTO> metrics = datasetConfigDTO.getMetrics();
     datasetConfigDTO.setAuth(auth);
     datasetConfigDTO.setMetrics(null);
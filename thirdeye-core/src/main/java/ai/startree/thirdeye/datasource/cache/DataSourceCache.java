@@ -25,10 +25,15 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Suppliers.memoizeWithExpiration;
 import static java.util.Collections.emptyList;
 
+import ai.startree.thirdeye.config.CacheConfig;
+import ai.startree.thirdeye.config.DataSourceLimiterConfiguration;
+import ai.startree.thirdeye.config.DataTableCacheConfiguration;
 import ai.startree.thirdeye.datasource.DataSourcesLoader;
+import ai.startree.thirdeye.datasource.limiter.AdaptiveConcurrencyLimiter;
 import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
 import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
+import ai.startree.thirdeye.spi.datasource.cache.DataTableCache;
 import com.codahale.metrics.CachedGauge;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
@@ -63,6 +68,11 @@ public class DataSourceCache {
   private final DataSourceManager dataSourceManager;
   private final DataSourcesLoader dataSourcesLoader;
   private final MetricRegistry metricRegistry;
+  private final DataTableCacheConfiguration dataTableCacheConfiguration;
+  private final TieredDataTableCache dataTableCache;
+  private final DataSourceLimiterConfiguration limiterConfiguration;
+  // limiters outlive the datasource instances: a datasource update does not reset its limit
+  private final Map<String, AdaptiveConcurrencyLimiter> limiters = new HashMap<>();
 
   // fixme cyril - use a guava evicting cache based on time/usage
   private final Map<Long, CachedDataSourceEntry> cache = new HashMap<>();
@@ -77,10 +87,15 @@ public class DataSourceCache {
   public DataSourceCache(
       final DataSourceManager dataSourceManager,
       final DataSourcesLoader dataSourcesLoader,
-      final MetricRegistry metricRegistry) {
+      final MetricRegistry metricRegistry,
+      final CacheConfig cacheConfig,
+      final DataSourceLimiterConfiguration limiterConfiguration) {
     this.dataSourceManager = dataSourceManager;
     this.dataSourcesLoader = dataSourcesLoader;
     this.metricRegistry = metricRegistry;
+    this.dataTableCacheConfiguration = cacheConfig.getDataTable();
+    this.dataTableCache = TieredDataTableCache.from(dataTableCacheConfiguration);
+    this.limiterConfiguration = limiterConfiguration;
 
     io.micrometer.core.instrument.Gauge.builder("thirdeye_healthy_datasources",
             memoizeWithExpiration(this::getHealthyDatasourceCount, METRICS_CACHE_TIMEOUT.toMinutes(),
@@ -140,7 +155,7 @@ public class DataSourceCache {
     final ThirdEyeDataSource dataSource = dataSourcesLoader.loadDataSource(dataSourceDto);
     checkState(dataSource != null,
         "Failed to construct a data source object for datasource %s", dataSourceDto);
-    final DataSourceWrapper wrapped = wrap(dataSource);
+    final DataSourceWrapper wrapped = wrap(dataSource, dataSourceDto);
 
     // remove outdated cached datasource
     removeDataSource(dataSourceDto);
@@ -163,7 +178,9 @@ public class DataSourceCache {
     cache.clear();
   }
 
-  private void close(final ThirdEyeDataSource dataSource) {
+  private void close(final DataSourceWrapper dataSource) {
+    // cached results may not be valid anymore for a new version of the datasource
+    dataSource.invalidateCache();
     try {
       dataSource.close();
     } catch (final Exception e) {
@@ -171,8 +188,21 @@ public class DataSourceCache {
     }
   }
 
-  private DataSourceWrapper wrap(final ThirdEyeDataSource thirdEyeDataSource) {
-    return new DataSourceWrapper(thirdEyeDataSource, metricRegistry);
+  private DataSourceWrapper wrap(final ThirdEyeDataSource thirdEyeDataSource,
+      final DataSourceDTO dataSourceDto) {
+    final boolean cacheEnabled = !dataTableCache.isEmpty()
+        && !dataTableCacheConfiguration.getExcludedDataSources().contains(dataSourceDto.getName());
+    final DataTableCache cache = cacheEnabled ? dataTableCache : null;
+    final AdaptiveConcurrencyLimiter limiter = limiterConfiguration.isEnabled()
+        ? limiters.computeIfAbsent(dataSourceDto.getName(),
+        name -> new AdaptiveConcurrencyLimiter(name, limiterConfiguration, Metrics.globalRegistry))
+        : null;
+    return new DataSourceWrapper(thirdEyeDataSource,
+        dataSourceDto.getName(),
+        metricRegistry,
+        cache,
+        dataTableCacheConfiguration.getTtl(),
+        limiter);
   }
 
   private record CachedDataSourceEntry(DataSourceWrapper dataSource, Timestamp timestamp) {}
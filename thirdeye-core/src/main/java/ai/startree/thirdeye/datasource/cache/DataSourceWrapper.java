@@ -15,19 +15,33 @@ package ai.startree.thirdeye.datasource.cache;
 
 import static ai.startree.thirdeye.spi.Constants.METRICS_TIMER_PERCENTILES;
 
+import ai.startree.thirdeye.datasource.limiter.AdaptiveConcurrencyLimiter;
+import ai.startree.thirdeye.datasource.limiter.AdaptiveConcurrencyLimiter.Permit;
+import ai.startree.thirdeye.datasource.limiter.QueryPriority;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
 import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
 import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSourceContext;
+import ai.startree.thirdeye.spi.datasource.cache.DataTableCache;
+import ai.startree.thirdeye.spi.datasource.cache.DataTableCacheKey;
 import ai.startree.thirdeye.spi.datasource.macro.SqlExpressionBuilder;
 import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.function.Predicate;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * This class intercepts all data source calls and helps with telemetry, etc.
@@ -42,8 +56,28 @@ public class DataSourceWrapper implements ThirdEyeDataSource {
   private final Timer fetchTableTimer;
   private final io.micrometer.core.instrument.Timer fetchTableTimer2;
 
-  public DataSourceWrapper(final ThirdEyeDataSource delegate, final MetricRegistry metricRegistry) {
+  private final String dataSourceName;
+  // null if the cache is disabled for this datasource
+  private final @Nullable DataTableCache dataTableCache;
+  private final Duration cacheTtl;
+  private final Counter cacheHitCounter;
+  private final Counter cacheMissCounter;
+  private final io.micrometer.core.instrument.Timer cacheGetTimer;
+  private final SingleFlight<CoalescingKey, DataTable> singleFlight;
+  // null if the admission control is disabled
+  private final @Nullable AdaptiveConcurrencyLimiter limiter;
+
+  public DataSourceWrapper(final ThirdEyeDataSource delegate,
+      final String dataSourceName,
+      final MetricRegistry metricRegistry,
+      final @Nullable DataTableCache dataTableCache,
+      final Duration cacheTtl,
+      final @Nullable AdaptiveConcurrencyLimiter limiter) {
     this.delegate = delegate;
+    this.dataSourceName = dataSourceName;
+    this.dataTableCache = dataTableCache;
+    this.cacheTtl = cacheTtl;
+    this.limiter = limiter;
     
     // deprecated with no replacement - should not be used anymore - metric should be inside the delegate
     fetchTableExceptionMeter = metricRegistry.meter("fetchTableExceptionMeter");
@@ -54,6 +88,26 @@ public class DataSourceWrapper implements ThirdEyeDataSource {
         .description("Start: an input SQL query string is passed to the DataSource implementation. End: the result of the query is returned as a dataframe OR an exception is thrown.")
         .publishPercentiles(METRICS_TIMER_PERCENTILES)
         .register(Metrics.globalRegistry);
+    cacheHitCounter = Counter.builder("thirdeye_datasource_cache")
+        .description("Number of lookups in the query results cache. Tag result: hit or miss.")
+        .tag("datasource", dataSourceName)
+        .tag("result", "hit")
+        .register(Metrics.globalRegistry);
+    cacheMissCounter = Counter.builder("thirdeye_datasource_cache")
+        .description("Number of lookups in the query results cache. Tag result: hit or miss.")
+        .tag("datasource", dataSourceName)
+        .tag("result", "miss")
+        .register(Metrics.globalRegistry);
+    cacheGetTimer = io.micrometer.core.instrument.Timer.builder("thirdeye_datasource_cache_get")
+        .description("Start: a query is looked up in the query results cache. End: the cached result is returned or the lookup misses.")
+        .tag("datasource", dataSourceName)
+        .publishPercentiles(METRICS_TIMER_PERCENTILES)
+        .register(Metrics.globalRegistry);
+    final Counter coalescedCounter = Counter.builder("thirdeye_datasource_coalesced_queries")
+        .description("Number of queries that joined an identical in-flight query instead of being sent to the datasource.")
+        .tag("datasource", dataSourceName)
+        .register(Metrics.globalRegistry);
+    singleFlight = new SingleFlight<>(DataSourceWrapper::shallowCopy, coalescedCounter::increment);
   }
 
   @Override
@@ -71,6 +125,11 @@ public class DataSourceWrapper implements ThirdEyeDataSource {
     return delegate.getDatasets();
   }
 
+  @Override
+  public List<DatasetConfigDTO> getDatasets(final Predicate<String> datasetNameFilter) {
+    return delegate.getDatasets(datasetNameFilter);
+  }
+
   @Override
   public DatasetConfigDTO getDataset(final String datasetName) {
     return delegate.getDataset(datasetName);
@@ -82,6 +141,92 @@ public class DataSourceWrapper implements ThirdEyeDataSource {
   }
 
   private DataTable fetchDataTable0(final DataSourceRequest request) throws Exception {
+    if (dataTableCache == null) {
+      return fetchCoalesced(request);
+    }
+    final DataTableCacheKey key = DataTableCacheKey.from(dataSourceName,
+        request,
+        System.currentTimeMillis() / cacheTtl.toMillis());
+    final DataTable cached = cacheGetTimer.record(() -> dataTableCache.get(key));
+    if (cached != null) {
+      cacheHitCounter.increment();
+      return shallowCopy(cached);
+    }
+    cacheMissCounter.increment();
+    final DataTable dataTable = fetchCoalesced(request);
+    dataTableCache.put(key, shallowCopy(dataTable));
+    return dataTable;
+  }
+
+  /**
+   * Identical queries are often sent concurrently: by the enumeration items of an alert, or by
+   * alerts sharing the same dataset. Only one of them is sent to the datasource, the others wait
+   * for its result.
+   *
+   * <p>Only queries of the same {@link QueryPriority} are coalesced: the leader takes the limiter
+   * slot at its own priority, a higher priority caller must not wait behind it.
+   */
+  private DataTable fetchCoalesced(final DataSourceRequest request) throws Exception {
+    final DataTableCacheKey query = new DataTableCacheKey(dataSourceName,
+        request.getTable(),
+        normalize(request.getQuery()),
+        request.getOptions() == null ? Map.of() : new TreeMap<>(request.getOptions()),
+        0);
+    final QueryPriority priority = QueryPriority.current();
+    return singleFlight.execute(new CoalescingKey(query, priority),
+        () -> fetchFromDelegate(request, priority));
+  }
+
+  /**
+   * Collapses whitespace outside of quoted literals, so that queries only differing in formatting
+   * are coalesced.
+   */
+  @VisibleForTesting
+  static String normalize(final String query) {
+    final StringBuilder sb = new StringBuilder(query.length());
+    char quote = 0;
+    boolean pendingSpace = false;
+    for (int i = 0; i < query.length(); i++) {
+      final char c = query.charAt(i);
+      if (quote == 0 && Character.isWhitespace(c)) {
+        pendingSpace = true;
+        continue;
+      }
+      if (pendingSpace && !sb.isEmpty()) {
+        sb.append(' ');
+      }
+      pendingSpace = false;
+      if (quote == 0 && (c == '\'' || c == '"')) {
+        quote = c;
+      } else if (c == quote) {
+        quote = 0;
+      }
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Consumers can add or replace columns of the returned DataFrame. Series are immutable so
+   * a shallow copy is enough to protect the cached result.
+   */
+  private static DataTable shallowCopy(final DataTable dataTable) {
+    final DataTable copy = SimpleDataTable.fromDataFrame(new DataFrame(dataTable.getDataFrame()));
+    copy.addProperties(dataTable.getProperties());
+    return copy;
+  }
+
+  private DataTable fetchFromDelegate(final DataSourceRequest request,
+      final QueryPriority priority) throws Exception {
+    if (limiter == null) {
+      return fetchFromDelegate0(request);
+    }
+    try (final Permit ignored = limiter.acquire(priority)) {
+      return fetchFromDelegate0(request);
+    }
+  }
+
+  private DataTable fetchFromDelegate0(final DataSourceRequest request) throws Exception {
     try {
       return delegate.fetchDataTable(request);
     } catch (Exception e) {
@@ -108,11 +253,20 @@ public class DataSourceWrapper implements ThirdEyeDataSource {
 
   @Override
   public void clear() throws Exception {
+    invalidateCache();
     delegate.clear();
   }
 
+  public void invalidateCache() {
+    if (dataTableCache != null) {
+      dataTableCache.invalidate(dataSourceName);
+    }
+  }
+
   @Override
   public void close() throws Exception {
     delegate.close();
   }
+
+  private record CoalescingKey(DataTableCacheKey query, QueryPriority priority) {}
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import ai.startree.thirdeye.spi.datasource.cache.DataTableCache;
+import ai.startree.thirdeye.spi.datasource.cache.DataTableCacheKey;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * On-heap tier of the query results cache. Weighted by the number of cells of the results.
+ */
+public class InMemoryDataTableCache implements DataTableCache {
+
+  private final Cache<DataTableCacheKey, DataTable> cache;
+
+  public InMemoryDataTableCache(final long maxCells, final Duration ttl) {
+    cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxCells)
+        .weigher((DataTableCacheKey k, DataTable v) -> weight(v))
+        .expireAfterWrite(ttl)
+        .build();
+  }
+
+  private static int weight(final DataTable dataTable) {
+    final long cells = (long) dataTable.getDataFrame().size()
+        * Math.max(1, dataTable.getDataFrame().getSeriesCount());
+    return (int) Math.min(Math.max(1, cells), Integer.MAX_VALUE);
+  }
+
+  @Override
+  public @Nullable DataTable get(final DataTableCacheKey key) {
+    return cache.getIfPresent(key);
+  }
+
+  @Override
+  public void put(final DataTableCacheKey key, final DataTable dataTable) {
+    cache.put(key, dataTable);
+  }
+
+  @Override
+  public void invalidate(final String dataSource) {
+    cache.asMap().keySet().removeIf(k -> k.dataSource().equals(dataSource));
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import ai.startree.thirdeye.spi.datasource.cache.DataTableCache;
+import ai.startree.thirdeye.spi.datasource.cache.DataTableCacheKey;
+import ai.startree.thirdeye.spi.datasource.cache.DataTableCodec;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent local tier of the query results cache.
+ *
+ * Each entry is a file: the key, followed by the result encoded with {@link DataTableCodec}.
+ * Files are grouped in one directory per datasource. Entries survive a restart of the server.
+ * The key is stored in the file and checked on read, so a hash collision is a cache miss.
+ * IO errors are logged and treated as cache misses.
+ */
+public class LocalDiskDataTableCache implements DataTableCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalDiskDataTableCache.class);
+  private static final String FILE_EXTENSION = ".bin";
+  private static final String TMP_FILE_EXTENSION = ".tmp";
+  // when the max size is reached, evict down to this ratio of the max size
+  private static final double EVICTION_TARGET_RATIO = 0.9;
+
+  private final Path directory;
+  private final Duration ttl;
+  private final long maxSizeBytes;
+  private final AtomicLong sizeBytes = new AtomicLong();
+
+  public LocalDiskDataTableCache(final Path directory, final Duration ttl,
+      final long maxSizeBytes) {
+    this.directory = directory;
+    this.ttl = ttl;
+    this.maxSizeBytes = maxSizeBytes;
+    try {
+      Files.createDirectories(directory);
+    } catch (final IOException e) {
+      throw new IllegalStateException("Could not create the cache directory " + directory, e);
+    }
+    evict();
+  }
+
+  @Override
+  public @Nullable DataTable get(final DataTableCacheKey key) {
+    final Path file = fileOf(key);
+    try {
+      if (isExpired(file)) {
+        delete(file);
+        return null;
+      }
+      final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+      if (!key.equals(readKey(buffer))) {
+        // hash collision
+        return null;
+      }
+      return DataTableCodec.decode(buffer);
+    } catch (final NoSuchFileException e) {
+      return null;
+    } catch (final Exception e) {
+      LOG.warn("Could not read cache file {}. Deleting it.", file, e);
+      delete(file);
+      return null;
+    }
+  }
+
+  @Override
+  public void put(final DataTableCacheKey key, final DataTable dataTable) {
+    if (!DataTableCodec.isSupported(dataTable)) {
+      return;
+    }
+    final Path file = fileOf(key);
+    final Path tmpFile = file.resolveSibling(file.getFileName() + TMP_FILE_EXTENSION);
+    try {
+      Files.createDirectories(file.getParent());
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (final DataOutputStream out = new DataOutputStream(bytes)) {
+        writeKey(out, key);
+        out.write(DataTableCodec.encode(dataTable));
+      }
+      final long previousSize = sizeOf(file);
+      Files.write(tmpFile, bytes.toByteArray());
+      Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      if (sizeBytes.addAndGet(bytes.size() - previousSize) > maxSizeBytes) {
+        evict();
+      }
+    } catch (final Exception e) {
+      LOG.warn("Could not write cache file {}.", file, e);
+      delete(tmpFile);
+    }
+  }
+
+  @Override
+  public void invalidate(final String dataSource) {
+    final Path dataSourceDirectory = directory.resolve(directoryName(dataSource));
+    if (!Files.isDirectory(dataSourceDirectory)) {
+      return;
+    }
+    try (final Stream<Path> walk = Files.walk(dataSourceDirectory)) {
+      walk.filter(Files::isRegularFile).forEach(file -> {
+        sizeBytes.addAndGet(-sizeOf(file));
+        delete(file);
+      });
+    } catch (final IOException e) {
+      LOG.warn("Could not invalidate cache directory {}.", dataSourceDirectory, e);
+    }
+  }
+
+  /**
+   * Removes expired entries, then the least recently written entries until the size of the
+   * cache is below the max size.
+   */
+  private synchronized void evict() {
+    final List<Path> files;
+    try (final Stream<Path> walk = Files.walk(directory)) {
+      files = walk.filter(Files::isRegularFile)
+          .sorted(Comparator.comparingLong(LocalDiskDataTableCache::lastModified))
+          .toList();
+    } catch (final IOException e) {
+      LOG.warn("Could not list cache directory {}.", directory, e);
+      return;
+    }
+    long totalSize = 0;
+    for (final Path file : files) {
+      if (isExpired(file) || file.toString().endsWith(TMP_FILE_EXTENSION)) {
+        delete(file);
+      } else {
+        totalSize += sizeOf(file);
+      }
+    }
+    final long targetSize = (long) (maxSizeBytes * EVICTION_TARGET_RATIO);
+    for (final Path file : files) {
+      if (totalSize <= targetSize) {
+        break;
+      }
+      if (Files.exists(file)) {
+        totalSize -= sizeOf(file);
+        delete(file);
+      }
+    }
+    sizeBytes.set(totalSize);
+  }
+
+  private Path fileOf(final DataTableCacheKey key) {
+    return directory.resolve(directoryName(key.dataSource())).resolve(key.hash() + FILE_EXTENSION);
+  }
+
+  private static String directoryName(final String dataSource) {
+    return dataSource.replaceAll("[^a-zA-Z0-9_-]", "_");
+  }
+
+  private boolean isExpired(final Path file) {
+    return lastModified(file) < System.currentTimeMillis() - ttl.toMillis();
+  }
+
+  private static long lastModified(final Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (final IOException e) {
+      return 0;
+    }
+  }
+
+  private static long sizeOf(final Path file) {
+    try {
+      return Files.size(file);
+    } catch (final IOException e) {
+      return 0;
+    }
+  }
+
+  private static void delete(final Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (final IOException e) {
+      LOG.warn("Could not delete cache file {}.", file, e);
+    }
+  }
+
+  private static void writeKey(final DataOutputStream out, final DataTableCacheKey key)
+      throws IOException {
+    writeString(out, key.dataSource());
+    writeString(out, key.table());
+    writeString(out, key.query());
+    out.writeInt(key.options().size());
+    for (final Map.Entry<String, String> e : key.options().entrySet()) {
+      writeString(out, e.getKey());
+      writeString(out, e.getValue());
+    }
+    out.writeLong(key.timeBucket());
+  }
+
+  private static DataTableCacheKey readKey(final ByteBuffer buffer) {
+    final String dataSource = readString(buffer);
+    final String table = readString(buffer);
+    final String query = readString(buffer);
+    final int optionsCount = buffer.getInt();
+    final Map<String, String> options = new TreeMap<>();
+    for (int i = 0; i < optionsCount; i++) {
+      options.put(readString(buffer), readString(buffer));
+    }
+    final long timeBucket = buffer.getLong();
+    return new DataTableCacheKey(dataSource, table, query, options, timeBucket);
+  }
+
+  private static void writeString(final DataOutputStream out, final @Nullable String value)
+      throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static @Nullable String readString(final ByteBuffer buffer) {
+    final int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    final byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges concurrent calls that share a key and only differ by a value into a single call.
+ *
+ * <p>The first caller of a key - the leader - opens a batch and waits for the batch window or
+ * for the batch to be full. Callers of the same key arriving meanwhile - the followers - add their
+ * value to the batch and wait. The leader then runs one batch call for all the values and each
+ * caller gets the result of its value.
+ * A batch with a single value runs the caller's own call: a call that is not concurrent with
+ * others behaves as if there was no batcher, apart from the window wait.
+ * If the batch call fails, or if the leader is interrupted before it, every follower falls back
+ * to its own call.
+ */
+public class RequestBatcher<K, V, R> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RequestBatcher.class);
+
+  private final Duration window;
+  private final int maxBatchSize;
+  private final UnaryOperator<R> followerCopy;
+  private final IntConsumer onBatchCall;
+  // guarded by this
+  private final Map<K, Batch<V, R>> openBatches = new HashMap<>();
+
+  /**
+   * @param window max time the leader waits for followers
+   * @param maxBatchSize max number of distinct values in a batch. A full batch is closed and
+   *     runs without waiting for the end of the window.
+   * @param followerCopy applied to the result returned to each follower. Use it if the result
+   *     is mutable, so that callers of the same value don't share the same instance.
+   * @param onBatchCall called with the number of distinct values each time a batch call runs
+   */
+  public RequestBatcher(final Duration window, final int maxBatchSize,
+      final UnaryOperator<R> followerCopy, final IntConsumer onBatchCall) {
+    checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+    this.window = window;
+    this.maxBatchSize = maxBatchSize;
+    this.followerCopy = followerCopy;
+    this.onBatchCall = onBatchCall;
+  }
+
+  /**
+   * @param key calls with the same key can be batched together
+   * @param value what differs between the calls of a key
+   * @param call the call for this value only
+   * @param batchCall the call for several values. Must return a result for each value.
+   */
+  public R execute(final K key, final V value, final Callable<R> call,
+      final BatchCall<V, R> batchCall) throws Exception {
+    final Batch<V, R> batch;
+    final boolean leader;
+    synchronized (this) {
+      final Batch<V, R> openBatch = openBatches.get(key);
+      leader = openBatch == null;
+      batch = leader ? new Batch<>() : openBatch;
+      if (leader) {
+        openBatches.put(key, batch);
+      }
+      batch.values.add(value);
+      if (batch.values.size() >= maxBatchSize) {
+        openBatches.remove(key);
+        batch.full.countDown();
+      }
+    }
+
+    if (!leader) {
+      final Map<V, R> results = await(batch.results);
+      if (results == null) {
+        // the batch call failed or the leader was interrupted
+        return call.call();
+      }
+      return followerCopy.apply(results.get(value));
+    }
+
+    try {
+      return lead(key, value, batch, call, batchCall);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw e;
+    } finally {
+      // the leader may be interrupted before the batch call: close the batch and let the
+      // followers run their own call instead of waiting forever
+      synchronized (this) {
+        openBatches.remove(key, batch);
+      }
+      batch.results.complete(null);
+    }
+  }
+
+  private R lead(final K key, final V value, final Batch<V, R> batch, final Callable<R> call,
+      final BatchCall<V, R> batchCall) throws Exception {
+    final boolean full = batch.full.await(window.toMillis(), TimeUnit.MILLISECONDS);
+    final List<V> values;
+    synchronized (this) {
+      if (!full) {
+        openBatches.remove(key, batch);
+      }
+      // the batch is closed: no value can be added anymore
+      values = new ArrayList<>(batch.values);
+    }
+
+    if (values.size() == 1) {
+      try {
+        final R result = call.call();
+        batch.results.complete(Collections.singletonMap(value, result));
+        return result;
+      } catch (final InterruptedException e) {
+        // the leader is interrupted, not its followers: they run their own call
+        throw e;
+      } catch (final Exception | Error e) {
+        batch.results.completeExceptionally(e);
+        throw e;
+      }
+    }
+
+    final Map<V, R> results;
+    try {
+      onBatchCall.accept(values.size());
+      results = batchCall.call(values);
+      checkArgument(results.keySet().containsAll(values),
+          "Batch call did not return a result for every value.");
+    } catch (final InterruptedException e) {
+      throw e;
+    } catch (final Exception e) {
+      LOG.warn("Batch call of {} values failed. Running the calls one by one. Key: {}",
+          values.size(), key, e);
+      batch.results.complete(null);
+      return call.call();
+    } catch (final Error e) {
+      batch.results.completeExceptionally(e);
+      throw e;
+    }
+    batch.results.complete(results);
+    return results.get(value);
+  }
+
+  private static <V, R> Map<V, R> await(final CompletableFuture<Map<V, R>> future)
+      throws Exception {
+    try {
+      return future.get();
+    } catch (final ExecutionException e) {
+      // followers of a single value batch see the same exception as the leader
+      if (e.getCause() instanceof Exception cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+
+  @FunctionalInterface
+  public interface BatchCall<V, R> {
+
+    Map<V, R> call(List<V> values) throws Exception;
+  }
+
+  private static class Batch<V, R> {
+
+    private final Set<V> values = new LinkedHashSet<>();
+    private final CountDownLatch full = new CountDownLatch(1);
+    /**
+     * Completed with null if the batch call failed or if the leader was interrupted.
+     */
+    private final CompletableFuture<Map<V, R>> results = new CompletableFuture<>();
+  }
+}
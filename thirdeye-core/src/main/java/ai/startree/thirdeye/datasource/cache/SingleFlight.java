@@ -0,0 +1,111 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Deduplicates concurrent calls for the same key.
+ *
+ * <p>The first caller of a key - the leader - runs the call. Callers arriving while the call is in
+ * flight - the followers - wait for the leader's result instead of running the call again.
+ * Nothing is kept once the call completes: this is not a cache.
+ *
+ * <p>Followers get the exception of a failed leader, except if the leader was interrupted or
+ * cancelled - eg its own caller timed out. That failure belongs to the leader's caller only: the
+ * followers run the call again, one of them becoming the new leader.
+ */
+public class SingleFlight<K, V> {
+
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final UnaryOperator<V> followerCopy;
+  private final Runnable onCoalesced;
+
+  /**
+   * @param followerCopy applied to the result returned to each follower. Use it if the result
+   *     is mutable, so that callers don't share the same instance.
+   * @param onCoalesced called each time a follower joins an in-flight call
+   */
+  public SingleFlight(final UnaryOperator<V> followerCopy, final Runnable onCoalesced) {
+    this.followerCopy = followerCopy;
+    this.onCoalesced = onCoalesced;
+  }
+
+  public V execute(final K key, final Callable<V> callable) throws Exception {
+    while (true) {
+      final CompletableFuture<V> future = new CompletableFuture<>();
+      final CompletableFuture<V> leaderFuture = inFlight.putIfAbsent(key, future);
+      if (leaderFuture == null) {
+        return lead(key, future, callable);
+      }
+      onCoalesced.run();
+      final V value;
+      try {
+        value = leaderFuture.get();
+      } catch (final ExecutionException e) {
+        if (isInterruption(e.getCause())) {
+          // only the leader's caller gave up - run the call again
+          continue;
+        }
+        throw followerException(e);
+      }
+      return followerCopy.apply(value);
+    }
+  }
+
+  private V lead(final K key, final CompletableFuture<V> future, final Callable<V> callable)
+      throws Exception {
+    try {
+      final V value = callable.call();
+      future.complete(value);
+      return value;
+    } catch (final Exception | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, future);
+    }
+  }
+
+  public int inFlightCount() {
+    return inFlight.size();
+  }
+
+  private static Exception followerException(final ExecutionException e) {
+    // followers see the same exception as the leader
+    if (e.getCause() instanceof Exception cause) {
+      return cause;
+    }
+    if (e.getCause() instanceof Error error) {
+      throw error;
+    }
+    return e;
+  }
+
+  private static boolean isInterruption(final Throwable throwable) {
+    // datasource clients may wrap the interruption
+    for (Throwable t = throwable; t != null; t = t.getCause()) {
+      if (t instanceof InterruptedException || t instanceof CancellationException) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import ai.startree.thirdeye.config.DataTableCacheConfiguration;
+import ai.startree.thirdeye.spi.datasource.cache.DataTableCache;
+import ai.startree.thirdeye.spi.datasource.cache.DataTableCacheKey;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Chains cache tiers, from the fastest to the slowest.
+ * A hit in a tier is written back in the faster tiers. Puts are written in all tiers.
+ */
+public class TieredDataTableCache implements DataTableCache {
+
+  private final List<DataTableCache> tiers;
+
+  public TieredDataTableCache(final List<DataTableCache> tiers) {
+    this.tiers = List.copyOf(tiers);
+  }
+
+  public static TieredDataTableCache from(final DataTableCacheConfiguration configuration) {
+    final List<DataTableCache> tiers = new ArrayList<>();
+    if (configuration.isEnabled() && configuration.isInMemoryEnabled()) {
+      tiers.add(new InMemoryDataTableCache(configuration.getInMemoryMaxCells(),
+          configuration.getTtl()));
+    }
+    if (configuration.isEnabled() && configuration.isPersistentEnabled()) {
+      tiers.add(new LocalDiskDataTableCache(Path.of(configuration.getPersistentDirectory()),
+          configuration.getTtl(),
+          configuration.getPersistentMaxSizeBytes()));
+    }
+    return new TieredDataTableCache(tiers);
+  }
+
+  public boolean isEmpty() {
+    return tiers.isEmpty();
+  }
+
+  @Override
+  public @Nullable DataTable get(final DataTableCacheKey key) {
+    for (int i = 0; i < tiers.size(); i++) {
+      final DataTable dataTable = tiers.get(i).get(key);
+      if (dataTable != null) {
+        for (int j = 0; j < i; j++) {
+          tiers.get(j).put(key, dataTable);
+        }
+        return dataTable;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void put(final DataTableCacheKey key, final DataTable dataTable) {
+    for (final DataTableCache tier : tiers) {
+      tier.put(key, dataTable);
+    }
+  }
+
+  @Override
+  public void invalidate(final String dataSource) {
+    for (final DataTableCache tier : tiers) {
+      tier.invalidate(dataSource);
+    }
+  }
+
+  @Override
+  public void close() {
+    for (final DataTableCache tier : tiers) {
+      tier.close();
+    }
+  }
+}
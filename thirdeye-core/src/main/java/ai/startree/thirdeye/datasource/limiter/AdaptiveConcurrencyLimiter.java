@@ -0,0 +1,233 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.limiter;
+
+import static ai.startree.thirdeye.spi.ThirdEyeStatus.ERR_DATASOURCE_OVERLOADED;
+
+import ai.startree.thirdeye.config.DataSourceLimiterConfiguration;
+import ai.startree.thirdeye.spi.ThirdEyeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounds the number of concurrent queries sent to a datasource.
+ *
+ * <p>The limit follows an AIMD policy on the observed latency: it grows by one every limit
+ * fast queries, and is multiplied by the backoff ratio when a query is slower than the latency
+ * threshold. Only queries started after the last decrease can decrease the limit again, so a
+ * burst of slow queries sent under the old limit counts once.
+ *
+ * <p>When the limit is reached, queries wait in a queue per {@link QueryPriority}. A freed slot
+ * always goes to the highest priority waiting.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+  private static final QueryPriority[] PRIORITIES = QueryPriority.values();
+
+  private final String dataSourceName;
+  private final DataSourceLimiterConfiguration config;
+  private final LongSupplier nanoClock;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<QueryPriority, Condition> slotAvailable = new EnumMap<>(QueryPriority.class);
+  private final int[] waiting = new int[PRIORITIES.length];
+  private int totalWaiting = 0;
+  private int inFlight = 0;
+  private double limit;
+  private long lastDecreaseNanos;
+
+  private final Map<QueryPriority, Counter> rejectedCounters = new EnumMap<>(QueryPriority.class);
+  private final Map<QueryPriority, Timer> waitTimers = new EnumMap<>(QueryPriority.class);
+
+  public AdaptiveConcurrencyLimiter(final String dataSourceName,
+      final DataSourceLimiterConfiguration config,
+      final MeterRegistry meterRegistry) {
+    this(dataSourceName, config, meterRegistry, System::nanoTime);
+  }
+
+  AdaptiveConcurrencyLimiter(final String dataSourceName,
+      final DataSourceLimiterConfiguration config,
+      final MeterRegistry meterRegistry,
+      final LongSupplier nanoClock) {
+    this.dataSourceName = dataSourceName;
+    this.config = config;
+    this.nanoClock = nanoClock;
+    limit = config.getInitialLimit();
+    lastDecreaseNanos = nanoClock.getAsLong();
+
+    for (final QueryPriority priority : PRIORITIES) {
+      slotAvailable.put(priority, lock.newCondition());
+      rejectedCounters.put(priority, Counter.builder("thirdeye_datasource_limiter_rejected")
+          .description("Number of queries rejected by the admission control of the datasource.")
+          .tag("datasource", dataSourceName)
+          .tag("priority", priority.name())
+          .register(meterRegistry));
+      waitTimers.put(priority, Timer.builder("thirdeye_datasource_limiter_wait")
+          .description("Start: a query asks for a slot. End: the query is admitted or rejected.")
+          .tag("datasource", dataSourceName)
+          .tag("priority", priority.name())
+          .register(meterRegistry));
+    }
+    Gauge.builder("thirdeye_datasource_limiter_limit", this, AdaptiveConcurrencyLimiter::limit)
+        .tag("datasource", dataSourceName)
+        .register(meterRegistry);
+    Gauge.builder("thirdeye_datasource_limiter_in_flight", this,
+            AdaptiveConcurrencyLimiter::inFlight)
+        .tag("datasource", dataSourceName)
+        .register(meterRegistry);
+    Gauge.builder("thirdeye_datasource_limiter_queued", this, AdaptiveConcurrencyLimiter::queued)
+        .tag("datasource", dataSourceName)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Waits for a slot. The returned permit must be closed once the query completes.
+   *
+   * @throws ThirdEyeException if the queue is full or no slot was available within maxWait
+   */
+  public Permit acquire(final QueryPriority priority) throws InterruptedException {
+    final long start = nanoClock.getAsLong();
+    lock.lock();
+    try {
+      if (!canRun(priority)) {
+        await(priority, start);
+      }
+      inFlight++;
+      waitTimers.get(priority).record(nanoClock.getAsLong() - start, TimeUnit.NANOSECONDS);
+      return new Permit(nanoClock.getAsLong());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void await(final QueryPriority priority, final long start)
+      throws InterruptedException {
+    if (totalWaiting >= config.getMaxQueued()) {
+      throw reject(priority, start, "too many queued queries: " + totalWaiting);
+    }
+    waiting[priority.ordinal()]++;
+    totalWaiting++;
+    try {
+      long remainingNanos = config.getMaxWait().toNanos();
+      while (!canRun(priority)) {
+        if (remainingNanos <= 0) {
+          throw reject(priority, start, "no slot available after " + config.getMaxWait());
+        }
+        remainingNanos = slotAvailable.get(priority).awaitNanos(remainingNanos);
+      }
+    } finally {
+      waiting[priority.ordinal()]--;
+      totalWaiting--;
+    }
+  }
+
+  private ThirdEyeException reject(final QueryPriority priority, final long start,
+      final String reason) {
+    waitTimers.get(priority).record(nanoClock.getAsLong() - start, TimeUnit.NANOSECONDS);
+    rejectedCounters.get(priority).increment();
+    return new ThirdEyeException(ERR_DATASOURCE_OVERLOADED, dataSourceName, priority, reason);
+  }
+
+  private boolean canRun(final QueryPriority priority) {
+    for (int i = 0; i < priority.ordinal(); i++) {
+      if (waiting[i] > 0) {
+        return false;
+      }
+    }
+    final int maxInFlight = Math.max(1, (int) (limit * priority.maxShareOfLimit()));
+    return inFlight < maxInFlight;
+  }
+
+  private void release(final Permit permit) {
+    final long now = nanoClock.getAsLong();
+    lock.lock();
+    try {
+      final int inFlightBefore = inFlight;
+      inFlight--;
+      if (now - permit.startNanos > config.getLatencyThreshold().toNanos()) {
+        if (permit.startNanos > lastDecreaseNanos) {
+          limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+          lastDecreaseNanos = now;
+        }
+      } else if (inFlightBefore >= limit / 2) {
+        // only grow when the limit is actually used
+        limit = Math.min(config.getMaxLimit(), limit + 1 / limit);
+      }
+      signalWaiters();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void signalWaiters() {
+    for (final QueryPriority priority : PRIORITIES) {
+      if (waiting[priority.ordinal()] > 0) {
+        slotAvailable.get(priority).signalAll();
+      }
+    }
+  }
+
+  public double limit() {
+    lock.lock();
+    try {
+      return limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int inFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int queued() {
+    lock.lock();
+    try {
+      return totalWaiting;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public class Permit implements AutoCloseable {
+
+    private final long startNanos;
+    private boolean closed = false;
+
+    private Permit(final long startNanos) {
+      this.startNanos = startNanos;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        release(this);
+      }
+    }
+  }
+}
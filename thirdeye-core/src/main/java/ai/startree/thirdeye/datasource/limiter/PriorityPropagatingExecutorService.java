@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.limiter;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor service that runs each task with the {@link QueryPriority} of the thread that submitted
+ * it. Lifecycle methods are delegated: shutting down the wrapper shuts down the delegate.
+ */
+public class PriorityPropagatingExecutorService extends AbstractExecutorService {
+
+  private final ExecutorService delegate;
+
+  public PriorityPropagatingExecutorService(final ExecutorService delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void execute(final Runnable command) {
+    // submit and invoke methods all go through execute, on the submitting thread
+    delegate.execute(QueryPriority.propagate(command));
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return delegate.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(final long timeout, final TimeUnit unit)
+      throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+}
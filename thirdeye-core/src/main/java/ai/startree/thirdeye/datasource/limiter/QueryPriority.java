@@ -0,0 +1,94 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.limiter;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Priority of the queries sent to a datasource, from highest to lowest.
+ *
+ * <p>The priority is attached to the current thread. Code that hands work over to another thread
+ * should wrap it with {@link #propagate(Callable)}, or submit it to a
+ * {@link PriorityPropagatingExecutorService}. Threads without a priority - for instance
+ * API request threads - run {@link #INTERACTIVE} queries.
+ */
+public enum QueryPriority {
+  /**
+   * Scheduled detection tasks.
+   */
+  DETECTION(1.0),
+  /**
+   * Interactive usage: RCA, alert previews, etc.
+   */
+  INTERACTIVE(1.0),
+  /**
+   * Replays of a detection on a long period: onboarding, reset, manual runs.
+   * Can use at most half of the concurrency limit, so it never starves the other classes.
+   */
+  BACKFILL(0.5);
+
+  private static final ThreadLocal<QueryPriority> CURRENT = ThreadLocal.withInitial(
+      () -> INTERACTIVE);
+
+  private final double maxShareOfLimit;
+
+  QueryPriority(final double maxShareOfLimit) {
+    this.maxShareOfLimit = maxShareOfLimit;
+  }
+
+  public double maxShareOfLimit() {
+    return maxShareOfLimit;
+  }
+
+  public static QueryPriority current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Runs the callable with this priority on the current thread.
+   */
+  public <T> T call(final Callable<T> callable) throws Exception {
+    final QueryPriority previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      return callable.call();
+    } finally {
+      CURRENT.set(previous);
+    }
+  }
+
+  /**
+   * Returns a callable that runs with the priority of the calling thread, wherever it is run.
+   */
+  public static <T> Callable<T> propagate(final Callable<T> callable) {
+    final QueryPriority priority = current();
+    return () -> priority.call(callable);
+  }
+
+  /**
+   * Returns a runnable that runs with the priority of the calling thread, wherever it is run.
+   */
+  public static Runnable propagate(final Runnable runnable) {
+    final QueryPriority priority = current();
+    return () -> {
+      final QueryPriority previous = CURRENT.get();
+      CURRENT.set(priority);
+      try {
+        runnable.run();
+      } finally {
+        CURRENT.set(previous);
+      }
+    };
+  }
+}
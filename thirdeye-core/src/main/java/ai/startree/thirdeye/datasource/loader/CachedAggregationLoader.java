@@ -0,0 +1,244 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.loader;
+
+import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
+
+import ai.startree.thirdeye.rootcause.configuration.AggregationCacheConfiguration;
+import ai.startree.thirdeye.rootcause.configuration.RcaConfiguration;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.Templatable;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.MetricConfigDTO;
+import ai.startree.thirdeye.spi.datasource.loader.AggregationLoader;
+import ai.startree.thirdeye.spi.datasource.loader.MinMaxTimeLoader;
+import ai.startree.thirdeye.spi.metric.MetricSlice;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Interval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the breakdown and aggregate results of RCA.
+ *
+ * <p>Results are cached per slice - metric, filters, interval - and per data version for a TTL.
+ * The heatmap and the top contributors of an anomaly load the same slices: opening one after
+ * the other, or the same one again, is answered from memory. Concurrent loads of the same
+ * breakdown wait for a single computation.
+ *
+ * <p>The data version of a slice is the max time of its dataset, capped at the end of the slice:
+ * the results of a slice that is still being ingested are queried again when new data arrives.
+ * Changes to data already ingested are only visible after the TTL.
+ *
+ * <p>Cached data frames are never returned: callers get a copy they are free to mutate.
+ */
+@Singleton
+public class CachedAggregationLoader implements AggregationLoader {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CachedAggregationLoader.class);
+
+  private final DefaultAggregationLoader delegate;
+  private final MinMaxTimeLoader minMaxTimeLoader;
+  private final boolean enabled;
+  private final Cache<CacheKey, DataFrame> cache;
+
+  private final Counter hitCounter;
+  private final Counter missCounter;
+
+  @Inject
+  public CachedAggregationLoader(final DefaultAggregationLoader delegate,
+      final MinMaxTimeLoader minMaxTimeLoader,
+      final RcaConfiguration rcaConfiguration) {
+    this(delegate,
+        minMaxTimeLoader,
+        rcaConfiguration.getAggregationCache(),
+        Ticker.systemTicker(),
+        Metrics.globalRegistry);
+  }
+
+  @VisibleForTesting
+  CachedAggregationLoader(final DefaultAggregationLoader delegate,
+      final MinMaxTimeLoader minMaxTimeLoader,
+      final AggregationCacheConfiguration configuration,
+      final Ticker ticker,
+      final MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.minMaxTimeLoader = minMaxTimeLoader;
+    this.enabled = configuration.isEnabled();
+    cache = CacheBuilder.newBuilder()
+        .expireAfterWrite(configuration.getTtl().toNanos(), TimeUnit.NANOSECONDS)
+        .maximumSize(configuration.getMaxEntries())
+        .ticker(ticker)
+        .build();
+
+    hitCounter = Counter.builder("thirdeye_rca_aggregation_cache")
+        .description("Number of breakdown and aggregate loads of RCA. Tag result: hit or miss.")
+        .tag("result", "hit")
+        .register(meterRegistry);
+    missCounter = Counter.builder("thirdeye_rca_aggregation_cache")
+        .tag("result", "miss")
+        .register(meterRegistry);
+    Gauge.builder("thirdeye_rca_aggregation_cache_entries", cache, Cache::size)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public DataFrame loadBreakdown(final MetricSlice slice, final int limit) throws Exception {
+    final CacheKey key = enabled ? cacheKey(Kind.BREAKDOWN, slice, List.of(), limit) : null;
+    if (key == null) {
+      return delegate.loadBreakdown(slice, limit);
+    }
+    final DataFrame cached = cache.getIfPresent(key);
+    if (cached != null) {
+      hitCounter.increment();
+      return new DataFrame(cached);
+    }
+    missCounter.increment();
+    // concurrent loads of the same key wait for a single breakdown
+    return new DataFrame(get(key, () -> delegate.loadBreakdown(slice, limit)));
+  }
+
+  @Override
+  public Future<DataFrame> loadAggregateAsync(final MetricSlice slice,
+      final List<String> dimensions, final int limit) throws Exception {
+    final CacheKey key = enabled ? cacheKey(Kind.AGGREGATE, slice, dimensions, limit) : null;
+    if (key == null) {
+      return delegate.loadAggregateAsync(slice, dimensions, limit);
+    }
+    final DataFrame cached = cache.getIfPresent(key);
+    if (cached != null) {
+      hitCounter.increment();
+      return CompletableFuture.completedFuture(new DataFrame(cached));
+    }
+    missCounter.increment();
+    // cancelling the returned future cancels the query
+    return Futures.lazyTransform(delegate.loadAggregateAsync(slice, dimensions, limit), df -> {
+      cache.put(key, df);
+      return new DataFrame(df);
+    });
+  }
+
+  /**
+   * Returns null if the key cannot be built. The load is not cached.
+   */
+  private @Nullable CacheKey cacheKey(final Kind kind, final MetricSlice slice,
+      final List<String> dimensions, final int limit) {
+    try {
+      return new CacheKey(kind,
+          SliceKey.of(slice, dataVersion(slice)),
+          List.copyOf(dimensions),
+          limit);
+    } catch (final Exception e) {
+      LOG.warn("Could not get the data version of {}. Loading without cache.", slice, e);
+      return null;
+    }
+  }
+
+  private @Nullable Long dataVersion(final MetricSlice slice) throws Exception {
+    // the max time is cached - see CachedMinMaxTimeLoader
+    final Long maxTime = minMaxTimeLoader.fetchMaxTimeAsync(slice.getDataSourceDto(),
+        slice.getDatasetConfigDTO(),
+        null).get();
+    if (maxTime == null) {
+      return null;
+    }
+    // once data past the end of the slice is ingested, the version of the slice does not change
+    return Math.min(maxTime, slice.getInterval().getEndMillis());
+  }
+
+  private DataFrame get(final CacheKey key, final Callable<DataFrame> loader) throws Exception {
+    try {
+      return cache.get(key, loader);
+    } catch (final ExecutionException | UncheckedExecutionException | ExecutionError e) {
+      if (e.getCause() instanceof Exception cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+
+  private enum Kind {
+    BREAKDOWN,
+    AGGREGATE
+  }
+
+  private record CacheKey(Kind kind, SliceKey slice, List<String> dimensions, int limit) {}
+
+  /**
+   * The fields of a slice used to build its queries. DTOs are mutable and cannot be used as keys.
+   */
+  private record SliceKey(String dataSource,
+                          String dataset,
+                          @Nullable Long datasetId,
+                          @Nullable Timestamp datasetUpdateTime,
+                          @Nullable String timeColumn,
+                          @Nullable String timeFormat,
+                          List<String> datasetDimensions,
+                          @Nullable Long metricId,
+                          @Nullable Timestamp metricUpdateTime,
+                          String metric,
+                          @Nullable String aggregationColumn,
+                          @Nullable String aggregationFunction,
+                          @Nullable String where,
+                          Interval interval,
+                          List<Predicate> predicates,
+                          @Nullable Long dataVersion) {
+
+    private static SliceKey of(final MetricSlice slice, final @Nullable Long dataVersion) {
+      final DatasetConfigDTO dataset = slice.getDatasetConfigDTO();
+      final MetricConfigDTO metric = slice.getMetricConfigDTO();
+      return new SliceKey(slice.getDataSourceDto().getName(),
+          dataset.getDataset(),
+          dataset.getId(),
+          dataset.getUpdateTime(),
+          dataset.getTimeColumn(),
+          dataset.getTimeFormat(),
+          List.copyOf(optional(dataset.getDimensions()).map(Templatable::getValue)
+              .orElse(List.of())),
+          metric.getId(),
+          metric.getUpdateTime(),
+          metric.getName(),
+          metric.getAggregationColumn(),
+          metric.getDefaultAggFunction(),
+          metric.getWhere(),
+          slice.getInterval(),
+          List.copyOf(slice.getPredicates()),
+          dataVersion);
+    }
+  }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.loader;
+
+import static ai.startree.thirdeye.spi.util.ExecutorUtils.threadsNamed;
+import static java.util.Collections.emptyList;
+
+import ai.startree.thirdeye.config.CacheConfig;
+import ai.startree.thirdeye.config.TimeBoundsCacheConfiguration;
+import ai.startree.thirdeye.datasource.limiter.QueryPriority;
+import ai.startree.thirdeye.datasource.loader.DefaultMinMaxTimeLoader.Extremum;
+import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datasource.loader.MinMaxTimeLoader;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.sql.Timestamp;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Interval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the min and max time of datasets.
+ *
+ * <p>Times are cached per dataset. A time older than the TTL is refreshed in the background and
+ * returned meanwhile. A time older than the max staleness is not returned: callers wait for a new
+ * query. Concurrent callers of a dataset share the same query.
+ * The max time of a dataset never moves backwards within a TTL window: a lower max time is only
+ * accepted if it is still lower one TTL after it was first seen. This hides brokers or replicas
+ * that lag behind.
+ *
+ * <p>Queries with a time filter are not cached. They are answered from the cache if the cached
+ * time is fresh and inside the filter interval, which is exact for min and max.
+ */
+@Singleton
+public class CachedMinMaxTimeLoader implements MinMaxTimeLoader {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CachedMinMaxTimeLoader.class);
+
+  private final DefaultMinMaxTimeLoader delegate;
+  private final boolean enabled;
+  private final long ttlNanos;
+  private final Ticker ticker;
+  private final ExecutorService executorService;
+  private final LoadingCache<TimeBoundKey, TimeBound> cache;
+
+  private final Counter hitCounter;
+  private final Counter staleCounter;
+  private final Counter missCounter;
+  private final Counter regressionCounter;
+  private final Timer stalenessTimer;
+
+  @Inject
+  public CachedMinMaxTimeLoader(final DefaultMinMaxTimeLoader delegate,
+      final CacheConfig cacheConfig) {
+    this(delegate,
+        cacheConfig.getTimeBounds(),
+        newExecutorService(cacheConfig.getTimeBounds()),
+        Ticker.systemTicker(),
+        Metrics.globalRegistry);
+    new ExecutorServiceMetrics(executorService, "minmax-cache", emptyList()).bindTo(
+        Metrics.globalRegistry);
+  }
+
+  /**
+   * Runs the misses and the background refreshes. A rejected refresh keeps the cached time.
+   */
+  private static ExecutorService newExecutorService(
+      final TimeBoundsCacheConfiguration configuration) {
+    final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(configuration.getParallelism(),
+        configuration.getParallelism(),
+        60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(configuration.getQueueSize()),
+        threadsNamed("minmax-cache-%d"));
+    threadPool.allowCoreThreadTimeOut(true);
+    return threadPool;
+  }
+
+  @VisibleForTesting
+  CachedMinMaxTimeLoader(final DefaultMinMaxTimeLoader delegate,
+      final TimeBoundsCacheConfiguration configuration,
+      final ExecutorService executorService,
+      final Ticker ticker,
+      final MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.enabled = configuration.isEnabled();
+    this.ttlNanos = configuration.getTtl().toNanos();
+    this.ticker = ticker;
+    this.executorService = executorService;
+    cache = CacheBuilder.newBuilder()
+        .refreshAfterWrite(configuration.getTtl().toNanos(), TimeUnit.NANOSECONDS)
+        .expireAfterWrite(configuration.getMaxStaleness().toNanos(), TimeUnit.NANOSECONDS)
+        .maximumSize(10_000)
+        .ticker(ticker)
+        .build(new TimeBoundLoader());
+
+    hitCounter = Counter.builder("thirdeye_time_bounds_cache")
+        .description("Number of dataset min or max time lookups. Tag result: hit, stale or miss. "
+            + "A stale lookup returns the cached time and refreshes it in the background.")
+        .tag("result", "hit")
+        .register(meterRegistry);
+    staleCounter = Counter.builder("thirdeye_time_bounds_cache")
+        .tag("result", "stale")
+        .register(meterRegistry);
+    missCounter = Counter.builder("thirdeye_time_bounds_cache")
+        .tag("result", "miss")
+        .register(meterRegistry);
+    regressionCounter = Counter.builder("thirdeye_time_bounds_max_regressions")
+        .description("Number of refreshes that returned a lower max time than the cached one.")
+        .register(meterRegistry);
+    stalenessTimer = Timer.builder("thirdeye_time_bounds_staleness")
+        .description("Age of the min or max time returned by the cache.")
+        .register(meterRegistry);
+    Gauge.builder("thirdeye_time_bounds_cache_entries", cache, LoadingCache::size)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public Future<@Nullable Long> fetchMinTimeAsync(final DataSourceDTO dataSourceDto,
+      final DatasetConfigDTO datasetConfigDTO, final @Nullable Interval timeFilterInterval)
+      throws Exception {
+    return fetch(Extremum.MIN, dataSourceDto, datasetConfigDTO, timeFilterInterval);
+  }
+
+  @Override
+  public Future<@Nullable Long> fetchMaxTimeAsync(final DataSourceDTO dataSourceDto,
+      final DatasetConfigDTO datasetConfigDTO, final @Nullable Interval timeFilterInterval)
+      throws Exception {
+    return fetch(Extremum.MAX, dataSourceDto, datasetConfigDTO, timeFilterInterval);
+  }
+
+  private Future<@Nullable Long> fetch(final Extremum extremum,
+      final DataSourceDTO dataSourceDto,
+      final DatasetConfigDTO datasetConfigDTO,
+      final @Nullable Interval timeFilterInterval) throws Exception {
+    if (!enabled || dataSourceDto.getId() == null || datasetConfigDTO.getId() == null) {
+      return fetchFromDelegate(extremum, dataSourceDto, datasetConfigDTO, timeFilterInterval);
+    }
+    final TimeBoundKey key = new TimeBoundKey(extremum, dataSourceDto, datasetConfigDTO);
+    final TimeBound cached = cache.getIfPresent(key);
+
+    if (timeFilterInterval != null) {
+      if (cached != null && cached.value() != null && !isStale(cached)
+          && timeFilterInterval.contains(cached.value())) {
+        return served(cached);
+      }
+      return fetchFromDelegate(extremum, dataSourceDto, datasetConfigDTO, timeFilterInterval);
+    }
+
+    if (cached != null) {
+      // getIfPresent started a refresh in the background if the cached value is stale
+      (isStale(cached) ? staleCounter : hitCounter).increment();
+      return served(cached);
+    }
+    missCounter.increment();
+    // concurrent loads of the same key wait for a single query
+    return executorService.submit(QueryPriority.propagate(() -> cache.get(key).value()));
+  }
+
+  private Future<@Nullable Long> fetchFromDelegate(final Extremum extremum,
+      final DataSourceDTO dataSourceDto, final DatasetConfigDTO datasetConfigDTO,
+      final @Nullable Interval timeFilterInterval) throws Exception {
+    return switch (extremum) {
+      case MIN -> delegate.fetchMinTimeAsync(dataSourceDto, datasetConfigDTO, timeFilterInterval);
+      case MAX -> delegate.fetchMaxTimeAsync(dataSourceDto, datasetConfigDTO, timeFilterInterval);
+    };
+  }
+
+  private Future<@Nullable Long> served(final TimeBound timeBound) {
+    stalenessTimer.record(ticker.read() - timeBound.loadedAtNanos(), TimeUnit.NANOSECONDS);
+    return CompletableFuture.completedFuture(timeBound.value());
+  }
+
+  private boolean isStale(final TimeBound timeBound) {
+    return ticker.read() - timeBound.loadedAtNanos() >= ttlNanos;
+  }
+
+  private TimeBound load(final TimeBoundKey key) throws Exception {
+    final Long value = delegate.fetchExtremumTime(key.extremum(),
+        key.dataSourceDto(),
+        key.datasetConfigDTO(),
+        null);
+    return new TimeBound(value, ticker.read(), null);
+  }
+
+  /**
+   * A lower max time is kept out for one TTL after it is first seen.
+   */
+  @VisibleForTesting
+  TimeBound guard(final TimeBoundKey key, final TimeBound previous, final TimeBound loaded) {
+    if (key.extremum() != Extremum.MAX || previous.value() == null
+        || (loaded.value() != null && loaded.value() >= previous.value())) {
+      return loaded;
+    }
+    regressionCounter.increment();
+    final long regressionSince = Objects.requireNonNullElse(previous.regressionSinceNanos(),
+        loaded.loadedAtNanos());
+    if (loaded.loadedAtNanos() - regressionSince >= ttlNanos) {
+      LOG.warn("Max time of dataset {} moved backwards from {} to {}.",
+          key.datasetConfigDTO().getDataset(), previous.value(), loaded.value());
+      return loaded;
+    }
+    return new TimeBound(previous.value(), loaded.loadedAtNanos(), regressionSince);
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Ids identify the dataset. The update time of the dataset is part of the key: a dataset
+   * update - for instance of its time column - invalidates the cached times.
+   */
+  @VisibleForTesting
+  static final class TimeBoundKey {
+
+    private final Extremum extremum;
+    private final DataSourceDTO dataSourceDto;
+    private final DatasetConfigDTO datasetConfigDTO;
+    private final @Nullable Timestamp datasetUpdateTime;
+
+    TimeBoundKey(final Extremum extremum, final DataSourceDTO dataSourceDto,
+        final DatasetConfigDTO datasetConfigDTO) {
+      this.extremum = extremum;
+      this.dataSourceDto = dataSourceDto;
+      this.datasetConfigDTO = datasetConfigDTO;
+      this.datasetUpdateTime = datasetConfigDTO.getUpdateTime();
+    }
+
+    Extremum extremum() {
+      return extremum;
+    }
+
+    DataSourceDTO dataSourceDto() {
+      return dataSourceDto;
+    }
+
+    DatasetConfigDTO datasetConfigDTO() {
+      return datasetConfigDTO;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof TimeBoundKey that)) {
+        return false;
+      }
+      return extremum == that.extremum
+          && Objects.equals(dataSourceDto.getId(), that.dataSourceDto.getId())
+          && Objects.equals(datasetConfigDTO.getId(), that.datasetConfigDTO.getId())
+          && Objects.equals(datasetUpdateTime, that.datasetUpdateTime);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(extremum, dataSourceDto.getId(), datasetConfigDTO.getId(),
+          datasetUpdateTime);
+    }
+
+    @Override
+    public String toString() {
+      return extremum + " time of dataset " + datasetConfigDTO.getDataset();
+    }
+  }
+
+  /**
+   * @param value null if the dataset is empty
+   * @param regressionSinceNanos when a lower max time was first seen, null if the last refresh
+   *     did not return a lower max time
+   */
+  @VisibleForTesting
+  record TimeBound(@Nullable Long value, long loadedAtNanos, @Nullable Long regressionSinceNanos) {}
+
+  private class TimeBoundLoader extends CacheLoader<TimeBoundKey, TimeBound> {
+
+    @Override
+    public TimeBound load(final TimeBoundKey key) throws Exception {
+      return CachedMinMaxTimeLoader.this.load(key);
+    }
+
+    @Override
+    public ListenableFuture<TimeBound> reload(final TimeBoundKey key, final TimeBound previous) {
+      final ListenableFutureTask<TimeBound> task = ListenableFutureTask.create(
+          () -> guard(key, previous, CachedMinMaxTimeLoader.this.load(key)));
+      executorService.execute(task);
+      return task;
+    }
+  }
+}
@@ -16,13 +16,17 @@ package ai.startree.thirdeye.datasource.loader;
 import static ai.startree.thirdeye.datasource.query.AggregateProjections.aggProjection;
 import static ai.startree.thirdeye.datasource.query.AggregateProjections.countStar;
 import static ai.startree.thirdeye.datasource.query.QueryProjection.getColName;
+import static ai.startree.thirdeye.spi.util.ExecutorUtils.threadsNamed;
 import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 import static ai.startree.thirdeye.util.CalciteUtils.identifierDescOf;
 import static ai.startree.thirdeye.util.CalciteUtils.identifierOf;
 
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.datasource.limiter.QueryPriority;
 import ai.startree.thirdeye.datasource.query.SelectQuery;
 import ai.startree.thirdeye.datasource.query.SelectQueryTranslator;
+import ai.startree.thirdeye.rootcause.configuration.AggregationLoaderConfiguration;
+import ai.startree.thirdeye.rootcause.configuration.RcaConfiguration;
 import ai.startree.thirdeye.spi.Constants;
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
 import ai.startree.thirdeye.spi.dataframe.LongSeries;
@@ -35,18 +39,27 @@ import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
 import ai.startree.thirdeye.spi.datasource.loader.AggregationLoader;
 import ai.startree.thirdeye.spi.metric.MetricSlice;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.calcite.sql.SqlIdentifier;
 import org.apache.commons.collections4.MapUtils;
 import org.slf4j.Logger;
@@ -57,17 +70,43 @@ public class DefaultAggregationLoader implements AggregationLoader {
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultAggregationLoader.class);
 
-  private static final long TIMEOUT = 600000;
   private static final String ROLLUP_NAME = "OTHER";
 
   private final DataSourceCache dataSourceCache;
   private final ExecutorService executorService;
+  private final int maxConcurrentQueriesPerRequest;
+  private final Duration timeout;
+  private final Counter timeoutCounter;
 
   @Inject
-  public DefaultAggregationLoader(final DataSourceCache dataSourceCache) {
+  public DefaultAggregationLoader(final DataSourceCache dataSourceCache,
+      final RcaConfiguration rcaConfiguration) {
     this.dataSourceCache = dataSourceCache;
-    executorService = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat(
-        "aggregation-loader-%d").build());
+    final AggregationLoaderConfiguration configuration = rcaConfiguration.getAggregationLoader();
+    maxConcurrentQueriesPerRequest = configuration.getMaxConcurrentQueriesPerRequest();
+    timeout = configuration.getTimeout();
+
+    final Counter rejectedCounter = Counter.builder("thirdeye_aggregation_loader_rejected")
+        .description("Number of queries rejected because the aggregation loader queue is full.")
+        .register(Metrics.globalRegistry);
+    timeoutCounter = Counter.builder("thirdeye_aggregation_loader_timeouts")
+        .description("Number of breakdown requests that reached their deadline. Their outstanding queries are cancelled.")
+        .register(Metrics.globalRegistry);
+    final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(configuration.getParallelism(),
+        configuration.getParallelism(),
+        60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(configuration.getQueueSize()),
+        threadsNamed("aggregation-loader-%d"),
+        (runnable, executor) -> {
+          rejectedCounter.increment();
+          throw new RejectedExecutionException(
+              "Aggregation loader queue is full. Too many concurrent RCA queries.");
+        });
+    threadPool.allowCoreThreadTimeOut(true);
+    // exports active threads, queued tasks, and the time tasks wait in the queue
+    executorService = ExecutorServiceMetrics.monitor(Metrics.globalRegistry,
+        threadPool,
+        "aggregation-loader");
   }
 
   /**
@@ -136,9 +175,7 @@ public class DefaultAggregationLoader implements AggregationLoader {
         .build()
         .setIndex(COL_DIMENSION_NAME, COL_DIMENSION_VALUE);
 
-    final Map<String, Future<DataFrame>> responses = new HashMap<>();
-
-    // submit requests
+    final List<Callable<DataFrame>> queries = new ArrayList<>();
     for (final String dimension : dimensions) {
       final SqlIdentifier dimensionIdentifier = identifierOf(dimension);
       final SelectQueryTranslator request = SelectQuery.from(slice)
@@ -148,15 +185,20 @@ public class DefaultAggregationLoader implements AggregationLoader {
           .orderBy(identifierDescOf(Constants.COL_VALUE))
           .limit(limit)
           .build();
-      final Future<DataFrame> res = getQueryResultAsync(request, slice.getDataSourceDto());
-
-      responses.put(dimension, res);
+      queries.add(() -> getQueryResult(request, slice.getDataSourceDto()));
+    }
+    final List<DataFrame> responses;
+    try {
+      responses = runAll(queries);
+    } catch (final TimeoutException e) {
+      throw new TimeoutException("Breakdown of %s did not complete in %s".formatted(slice,
+          timeout));
     }
 
-    // collect responses
     final List<DataFrame> results = new ArrayList<>();
-    for (final String dimension : dimensions) {
-      final DataFrame res = responses.get(dimension).get(TIMEOUT, TimeUnit.MILLISECONDS);
+    for (int i = 0; i < dimensions.size(); i++) {
+      final String dimension = dimensions.get(i);
+      final DataFrame res = responses.get(i);
       final DataFrame dfResult = new DataFrame()
           .addSeries(COL_DIMENSION_NAME, StringSeries.fillValues(res.size(), dimension))
           .addSeries(COL_DIMENSION_VALUE, res.get(dimension))
@@ -199,9 +241,59 @@ public class DefaultAggregationLoader implements AggregationLoader {
     return getQueryResultAsync(selectQuery.build(), slice.getDataSourceDto());
   }
 
+  /**
+   * Runs the queries of a request, with at most maxConcurrentQueriesPerRequest queries in flight
+   * and a single deadline. Results are in the order of the queries.
+   *
+   * <p>If a query fails or the deadline is reached, the outstanding queries are cancelled. This
+   * interrupts their threads: a cancelled query that leads identical coalesced queries makes
+   * them run again, it does not fail them.
+   */
+  @VisibleForTesting
+  <T> List<T> runAll(final List<Callable<T>> queries) throws Exception {
+    final long deadlineNanos = System.nanoTime() + timeout.toNanos();
+    final Semaphore inFlight = new Semaphore(maxConcurrentQueriesPerRequest);
+    final List<Future<T>> futures = new ArrayList<>(queries.size());
+    try {
+      for (final Callable<T> query : queries) {
+        if (!inFlight.tryAcquire(remainingNanos(deadlineNanos), TimeUnit.NANOSECONDS)) {
+          throw new TimeoutException();
+        }
+        futures.add(submit(() -> {
+          try {
+            return query.call();
+          } finally {
+            inFlight.release();
+          }
+        }));
+      }
+
+      final List<T> results = new ArrayList<>(futures.size());
+      for (final Future<T> future : futures) {
+        results.add(future.get(remainingNanos(deadlineNanos), TimeUnit.NANOSECONDS));
+      }
+      return results;
+    } catch (final TimeoutException e) {
+      timeoutCounter.increment();
+      throw e;
+    } finally {
+      // no-op for completed queries - frees the threads of the others if the request failed
+      futures.forEach(f -> f.cancel(true));
+    }
+  }
+
   private Future<DataFrame> getQueryResultAsync(final SelectQueryTranslator request,
       final DataSourceDTO dataSourceDto) {
-    return executorService.submit(() -> getQueryResult(request, dataSourceDto));
+    return submit(() -> getQueryResult(request, dataSourceDto));
+  }
+
+  @VisibleForTesting
+  <T> Future<T> submit(final Callable<T> callable) {
+    return executorService.submit(QueryPriority.propagate(callable));
+  }
+
+  private static long remainingNanos(final long deadlineNanos) {
+    return Math.max(0, deadlineNanos - System.nanoTime());
   }
 
   private DataFrame getQueryResult(final SelectQueryTranslator request, final DataSourceDTO dataSourceDto)
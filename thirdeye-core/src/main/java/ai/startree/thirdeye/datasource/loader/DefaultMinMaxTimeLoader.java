@@ -19,6 +19,7 @@ import static ai.startree.thirdeye.util.CalciteUtils.identifierOf;
 import static java.util.Collections.emptyList;
 
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.datasource.limiter.QueryPriority;
 import ai.startree.thirdeye.datasource.query.SelectQuery;
 import ai.startree.thirdeye.detectionpipeline.sql.SqlLanguageTranslator;
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
@@ -74,19 +75,20 @@ public class DefaultMinMaxTimeLoader implements MinMaxTimeLoader {
   public Future<@Nullable Long> fetchMinTimeAsync(final DataSourceDTO dataSourceDto,
       final DatasetConfigDTO datasetConfigDTO, final @Nullable Interval timeFilterInterval)
       throws Exception {
-    return executorService.submit(
-        () -> fetchExtremumTime(Extremum.MIN, dataSourceDto, datasetConfigDTO, timeFilterInterval));
+    return executorService.submit(QueryPriority.propagate(
+        () -> fetchExtremumTime(Extremum.MIN, dataSourceDto, datasetConfigDTO, timeFilterInterval)));
   }
 
   @Override
   public Future<@Nullable Long> fetchMaxTimeAsync(final DataSourceDTO dataSourceDto,
       final DatasetConfigDTO datasetConfigDTO, final @Nullable Interval timeFilterInterval)
       throws Exception {
-    return executorService.submit(
-        () -> fetchExtremumTime(Extremum.MAX, dataSourceDto, datasetConfigDTO, timeFilterInterval));
+    return executorService.submit(QueryPriority.propagate(
+        () -> fetchExtremumTime(Extremum.MAX, dataSourceDto, datasetConfigDTO, timeFilterInterval)));
   }
 
-  private @Nullable Long fetchExtremumTime(final Extremum extremum,
+  // package-private for CachedMinMaxTimeLoader
+  @Nullable Long fetchExtremumTime(final Extremum extremum,
       final DataSourceDTO dataSourceDTO, final DatasetConfigDTO datasetConfigDTO,
       final @Nullable Interval timeFilterInterval) throws Exception {
     final @NonNull ThirdEyeDataSource dataSource = dataSourceCache.getDataSource(dataSourceDTO);
@@ -167,7 +169,7 @@ public class DefaultMinMaxTimeLoader implements MinMaxTimeLoader {
     return addAlias(timeGroupNode, TIME_ALIAS);
   }
 
-  private enum Extremum {
+  enum Extremum {
     MIN {
       @Override
       @NonNull SqlNode orderByNode(final String timeColumn) {
@@ -71,7 +71,7 @@ public class QueryPredicate {
   }
 
   public SqlNode toSqlNode() {
-    final SqlIdentifier leftOperand = prepareLeftOperand();
+    final SqlIdentifier leftOperand = toIdentifier();
     final SqlNode rightOperand = prepareRightOperand();
     final List<SqlNode> operands = List.of(leftOperand, rightOperand);
 
@@ -116,8 +116,11 @@ public class QueryPredicate {
     }
   }
 
+  /**
+   * Returns the identifier of the filtered column, prefixed by the dataset if it is set.
+   */
   @NonNull
-  private SqlIdentifier prepareLeftOperand() {
+  public SqlIdentifier toIdentifier() {
     List<String> identifiers = new ArrayList<>();
     optional(dataset).ifPresent(identifiers::add);
     identifiers.add(predicate.getLhs());
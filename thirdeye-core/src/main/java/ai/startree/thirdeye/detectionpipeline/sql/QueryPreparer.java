@@ -0,0 +1,302 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.sql;
+
+import static ai.startree.thirdeye.util.CalciteUtils.addAlias;
+import static ai.startree.thirdeye.util.CalciteUtils.numericLiteralOf;
+import static ai.startree.thirdeye.util.CalciteUtils.queryToNode;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import ai.startree.thirdeye.datasource.query.QueryPredicate;
+import ai.startree.thirdeye.detectionpipeline.sql.filter.FilterEngine;
+import ai.startree.thirdeye.detectionpipeline.sql.macro.MacroEngine;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.Predicate.OPER;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
+import ai.startree.thirdeye.spi.datasource.macro.SqlExpressionBuilder;
+import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
+import ai.startree.thirdeye.spi.datasource.macro.ThirdEyeSqlParserConfig;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlIdentifier;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlNodeList;
+import org.apache.calcite.sql.SqlNumericLiteral;
+import org.apache.calcite.sql.SqlOrderBy;
+import org.apache.calcite.sql.SqlSelect;
+import org.apache.calcite.sql.util.SqlBasicVisitor;
+import org.apache.calcite.sql.util.SqlShuttle;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Interval;
+
+/**
+ * Prepares the query of a data fetch: filter injection, then macro expansion.
+ *
+ * <p>The query is parsed once and both rewrites are applied on the same tree, which is unparsed
+ * once. Parsed queries are cached by query text and parser config: the query of an alert is the
+ * same for all its enumeration items and runs, only the detection interval and the filters
+ * change. Each prepare works on a deep copy of the cached tree, because the rewrites are not
+ * free of side effects.
+ */
+public class QueryPreparer {
+
+  /**
+   * Alias of the column added by {@link #prepareBatchRequest} to tell the rows of each value
+   * apart.
+   */
+  public static final String BATCH_KEY_COLUMN = "__batch_key";
+  /**
+   * Aggregation functions that may not be known by the parser. Used to know if a query without
+   * GROUP BY is an aggregation.
+   */
+  private static final Set<String> AGGREGATION_FUNCTIONS = Set.of("COUNT", "SUM", "AVG", "MIN",
+      "MAX", "DISTINCTCOUNT", "DISTINCTCOUNTHLL", "PERCENTILE", "PERCENTILETDIGEST");
+
+  private static final Cache<ParsedQueryKey, SqlNode> PARSED_QUERIES = CacheBuilder.newBuilder()
+      .maximumSize(10_000)
+      .expireAfterAccess(1, TimeUnit.HOURS)
+      .build();
+
+  public static DataSourceRequest prepareRequest(final SqlLanguage sqlLanguage,
+      final SqlExpressionBuilder sqlExpressionBuilder,
+      final Interval detectionInterval,
+      final @Nullable DatasetConfigDTO datasetConfigDTO,
+      final String query,
+      final List<QueryPredicate> filters) {
+    SqlNode rootNode = parse(query, sqlLanguage);
+    if (!filters.isEmpty()) {
+      rootNode = new FilterEngine(sqlLanguage, query, filters).injectFilters(rootNode);
+    }
+    return new MacroEngine(sqlLanguage,
+        sqlExpressionBuilder,
+        detectionInterval,
+        datasetConfigDTO,
+        query).prepareRequest(rootNode);
+  }
+
+  /**
+   * Returns true if {@link #prepareBatchRequest} can rewrite the query.
+   *
+   * <p>Batchable queries are a single SELECT with a LIMIT, and an optional ORDER BY. SELECT *,
+   * OFFSET and aggregations without GROUP BY are not supported: an aggregation without GROUP BY
+   * returns one row even if no row matches, a batched one would return no row for such a value.
+   * Queries without LIMIT are not supported either: the data source may apply a default limit,
+   * that would truncate the batched result without notice.
+   */
+  public static boolean isBatchable(final String query, final SqlLanguage sqlLanguage) {
+    try {
+      return batchableSelect(parse(query, sqlLanguage)) != null;
+    } catch (final RuntimeException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Prepares a single request for several values of an equality filter.
+   *
+   * <p>The equality filter on the column of {@code batchedFilter} is replaced by an IN filter on
+   * all the values. The column is added to the select list with the alias
+   * {@link #BATCH_KEY_COLUMN}, and to the GROUP BY if any. The LIMIT is multiplied by the number
+   * of values: the caller must check that the result is not truncated, and keep only the first
+   * {@code limit} rows of each value.
+   *
+   * @param filters filters that apply to all the values
+   * @param batchedFilter the equality filter of one of the values
+   * @param values the values of the equality filter
+   */
+  public static BatchRequest prepareBatchRequest(final SqlLanguage sqlLanguage,
+      final SqlExpressionBuilder sqlExpressionBuilder,
+      final Interval detectionInterval,
+      final @Nullable DatasetConfigDTO datasetConfigDTO,
+      final String query,
+      final List<QueryPredicate> filters,
+      final QueryPredicate batchedFilter,
+      final List<String> values) {
+    checkArgument(batchedFilter.getPredicate().getOper() == OPER.EQ,
+        "Only equality filters can be batched. Got: %s", batchedFilter.getPredicate().getOper());
+    SqlNode rootNode = parse(query, sqlLanguage);
+    final SqlSelect selectNode = batchableSelect(rootNode);
+    checkArgument(selectNode != null, "Query cannot be batched: %s", query);
+    final long limit = ((SqlNumericLiteral) requireNonNull(fetch(rootNode, selectNode)))
+        .longValue(true);
+
+    final List<QueryPredicate> batchFilters = new ArrayList<>(filters);
+    batchFilters.add(QueryPredicate.of(
+        Predicate.IN(batchedFilter.getPredicate().getLhs(), values.toArray(new String[0])),
+        batchedFilter.getMetricType(),
+        batchedFilter.getDataset()));
+    rootNode = new FilterEngine(sqlLanguage, query, batchFilters).injectFilters(rootNode);
+
+    final SqlIdentifier batchColumn = batchedFilter.toIdentifier();
+    selectNode.getSelectList().add(addAlias(batchColumn, BATCH_KEY_COLUMN));
+    if (selectNode.getGroup() != null) {
+      selectNode.getGroup().add(batchColumn);
+    }
+
+    if (rootNode instanceof SqlOrderBy orderByNode && orderByNode.fetch != null) {
+      rootNode = new SqlOrderBy(orderByNode.getParserPosition(),
+          orderByNode.query,
+          orderByNode.orderList,
+          orderByNode.offset,
+          numericLiteralOf(limit * values.size()));
+    } else {
+      selectNode.setFetch(numericLiteralOf(limit * values.size()));
+    }
+
+    final DataSourceRequest request = new MacroEngine(sqlLanguage,
+        sqlExpressionBuilder,
+        detectionInterval,
+        datasetConfigDTO,
+        query).prepareRequest(rootNode);
+    return new BatchRequest(request, limit);
+  }
+
+  private static @Nullable SqlSelect batchableSelect(final SqlNode rootNode) {
+    final SqlSelect selectNode;
+    if (rootNode instanceof SqlSelect select) {
+      selectNode = select;
+    } else if (rootNode instanceof SqlOrderBy orderBy && orderBy.query instanceof SqlSelect select) {
+      if (orderBy.offset != null || !isNullOrNumericLiteral(orderBy.fetch)) {
+        return null;
+      }
+      selectNode = select;
+    } else {
+      return null;
+    }
+    if (selectNode.getWhere() == null
+        || selectNode.getOffset() != null
+        || !isNullOrNumericLiteral(selectNode.getFetch())) {
+      return null;
+    }
+    for (final SqlNode node : selectNode.getSelectList()) {
+      if (node instanceof SqlIdentifier identifier && identifier.isStar()) {
+        return null;
+      }
+    }
+    if (selectNode.getGroup() == null && isAggregation(selectNode.getSelectList())) {
+      return null;
+    }
+    if (fetch(rootNode, selectNode) == null) {
+      return null;
+    }
+    return selectNode;
+  }
+
+  /**
+   * Returns the LIMIT of the query: on the ORDER BY node if any, else on the SELECT node.
+   */
+  private static @Nullable SqlNode fetch(final SqlNode rootNode, final SqlSelect selectNode) {
+    if (rootNode instanceof SqlOrderBy orderBy && orderBy.fetch != null) {
+      return orderBy.fetch;
+    }
+    return selectNode.getFetch();
+  }
+
+  private static boolean isNullOrNumericLiteral(final @Nullable SqlNode node) {
+    return node == null || node instanceof SqlNumericLiteral;
+  }
+
+  private static boolean isAggregation(final SqlNodeList selectList) {
+    final AggregationFinder finder = new AggregationFinder();
+    selectList.accept(finder);
+    return finder.found;
+  }
+
+  /**
+   * Returns a parsed copy of the query. The returned tree can be modified.
+   */
+  public static SqlNode parse(final String query, final SqlLanguage sqlLanguage) {
+    try {
+      final ThirdEyeSqlParserConfig parserConfig = sqlLanguage.getSqlParserConfig();
+      final SqlNode parsed = PARSED_QUERIES.get(new ParsedQueryKey(query, parserConfig),
+          () -> queryToNode(query, SqlLanguageTranslator.translate(parserConfig)));
+      return deepCopy(parsed);
+    } catch (final UncheckedExecutionException | ExecutionException e) {
+      // keep the ThirdEyeException of invalid queries
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  @VisibleForTesting
+  static SqlNode deepCopy(final SqlNode node) {
+    return node.accept(new DeepCopyShuttle());
+  }
+
+  @VisibleForTesting
+  static void invalidateAll() {
+    PARSED_QUERIES.invalidateAll();
+  }
+
+  /**
+   * @param limit the LIMIT of the original query. A batch result with limit * number of values
+   *     rows may be truncated.
+   */
+  public record BatchRequest(DataSourceRequest request, long limit) {}
+
+  /**
+   * The parser config is compared by identity: sql languages keep it in a constant.
+   */
+  private record ParsedQueryKey(String query, ThirdEyeSqlParserConfig parserConfig) {}
+
+  private static class AggregationFinder extends SqlBasicVisitor<Void> {
+
+    private boolean found = false;
+
+    @Override
+    public Void visit(final SqlCall call) {
+      if (call.getOperator().isAggregator() || AGGREGATION_FUNCTIONS.contains(
+          call.getOperator().getName().toUpperCase(Locale.ENGLISH))) {
+        found = true;
+      }
+      return super.visit(call);
+    }
+  }
+
+  /**
+   * Copies every call and node list. Leaves - identifiers and literals - are shared: the
+   * rewrites never modify them.
+   */
+  private static class DeepCopyShuttle extends SqlShuttle {
+
+    @Override
+    public SqlNode visit(final SqlCall call) {
+      final CallCopyingArgHandler argHandler = new CallCopyingArgHandler(call, true);
+      call.getOperator().acceptCall(this, call, false, argHandler);
+      return argHandler.result();
+    }
+
+    @Override
+    public SqlNode visit(final SqlNodeList nodeList) {
+      final List<@Nullable SqlNode> copies = new ArrayList<>(nodeList.size());
+      for (final SqlNode node : nodeList) {
+        copies.add(node == null ? null : node.accept(this));
+      }
+      return new SqlNodeList(copies, nodeList.getParserPosition());
+    }
+  }
+}
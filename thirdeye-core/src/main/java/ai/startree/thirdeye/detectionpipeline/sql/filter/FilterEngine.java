@@ -62,12 +62,20 @@ public class FilterEngine {
 
   public String prepareQuery() {
     final SqlNode rootNode = queryToNode(query, sqlParserConfig);
-    final SqlNode rootNodeWithFilters = rootNode.accept(new FilterVisitor());
+    final SqlNode rootNodeWithFilters = injectFilters(rootNode);
     final String preparedQuery = nodeToQuery(rootNodeWithFilters, sqlDialect, QUOTE_IDENTIFIERS);
 
     return preparedQuery;
   }
 
+  /**
+   * Injects the filters in a parsed query. The query passed at construction is not used.
+   * Warning: the WHERE clause of the input node is replaced in place.
+   */
+  public SqlNode injectFilters(final SqlNode rootNode) {
+    return rootNode.accept(new FilterVisitor());
+  }
+
   private List<SqlNode> getCalcitePredicates() {
     return filters.stream()
         .peek(f -> checkArgument(SUPPORTED_FILTER_OPERATIONS.contains(f.getPredicate().getOper()),
@@ -85,7 +85,13 @@ public class MacroEngine {
   }
 
   public DataSourceRequest prepareRequest() {
-    final SqlNode rootNode = queryToNode(query, sqlParserConfig);
+    return prepareRequest(queryToNode(query, sqlParserConfig));
+  }
+
+  /**
+   * Applies the macros on an already parsed query. The query passed at construction is not used.
+   */
+  public DataSourceRequest prepareRequest(final SqlNode rootNode) {
     final SqlNode appliedMacrosNode = applyMacros(rootNode);
     final String preparedQuery = nodeToQuery(appliedMacrosNode, sqlDialect, QUOTE_IDENTIFIERS);
 
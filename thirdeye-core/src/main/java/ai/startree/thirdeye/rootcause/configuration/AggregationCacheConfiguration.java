@@ -0,0 +1,60 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.rootcause.configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the cache of the breakdown and aggregate results of RCA.
+ */
+public class AggregationCacheConfiguration {
+
+  private boolean enabled = true;
+  /**
+   * Results older than this are queried again. Bounds how late a change in data already
+   * ingested - eg a backfill - is visible in RCA.
+   */
+  private Duration ttl = Duration.ofMinutes(10);
+  /**
+   * Max number of cached results. A breakdown is a single result.
+   */
+  private int maxEntries = 1000;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public AggregationCacheConfiguration setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  public AggregationCacheConfiguration setTtl(final Duration ttl) {
+    this.ttl = ttl;
+    return this;
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public AggregationCacheConfiguration setMaxEntries(final int maxEntries) {
+    this.maxEntries = maxEntries;
+    return this;
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.rootcause.configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the executor running the breakdown and aggregate queries of RCA.
+ */
+public class AggregationLoaderConfiguration {
+
+  /**
+   * Number of threads. Bounds the number of concurrent RCA queries of the server.
+   */
+  private int parallelism = 16;
+  /**
+   * Max number of queries waiting for a thread. Queries are rejected when the queue is full.
+   */
+  private int queueSize = 1000;
+  /**
+   * Max number of concurrent queries of a single request. Ensures a request on a wide dataset
+   * does not take all the threads.
+   */
+  private int maxConcurrentQueriesPerRequest = 4;
+  /**
+   * Deadline of a request. Outstanding queries are cancelled when it is reached.
+   */
+  private Duration timeout = Duration.ofMinutes(10);
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public AggregationLoaderConfiguration setParallelism(final int parallelism) {
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  public AggregationLoaderConfiguration setQueueSize(final int queueSize) {
+    this.queueSize = queueSize;
+    return this;
+  }
+
+  public int getMaxConcurrentQueriesPerRequest() {
+    return maxConcurrentQueriesPerRequest;
+  }
+
+  public AggregationLoaderConfiguration setMaxConcurrentQueriesPerRequest(
+      final int maxConcurrentQueriesPerRequest) {
+    this.maxConcurrentQueriesPerRequest = maxConcurrentQueriesPerRequest;
+    return this;
+  }
+
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  public AggregationLoaderConfiguration setTimeout(final Duration timeout) {
+    this.timeout = timeout;
+    return this;
+  }
+}
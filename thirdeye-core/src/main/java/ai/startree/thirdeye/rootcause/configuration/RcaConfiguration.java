@@ -28,6 +28,8 @@ public class RcaConfiguration {
   private int parallelism = 1;
   @JsonProperty("topContributors")
   private ContributorsFinderConfiguration contributorsFinderConfiguration = new ContributorsFinderConfiguration();
+  private AggregationLoaderConfiguration aggregationLoader = new AggregationLoaderConfiguration();
+  private AggregationCacheConfiguration aggregationCache = new AggregationCacheConfiguration();
 
   public int getParallelism() {
     return parallelism;
@@ -56,4 +58,24 @@ public class RcaConfiguration {
     this.contributorsFinderConfiguration = contributorsFinderConfiguration;
     return this;
   }
+
+  public AggregationLoaderConfiguration getAggregationLoader() {
+    return aggregationLoader;
+  }
+
+  public RcaConfiguration setAggregationLoader(
+      final AggregationLoaderConfiguration aggregationLoader) {
+    this.aggregationLoader = aggregationLoader;
+    return this;
+  }
+
+  public AggregationCacheConfiguration getAggregationCache() {
+    return aggregationCache;
+  }
+
+  public RcaConfiguration setAggregationCache(
+      final AggregationCacheConfiguration aggregationCache) {
+    this.aggregationCache = aggregationCache;
+    return this;
+  }
 }
@@ -48,8 +48,8 @@ public class AlertDetectionIntervalCalculatorTest {
   @BeforeMethod
   public void setUp() throws IOException, ClassNotFoundException {
     final AlertTemplateRenderer alertTemplateRenderer = mock(AlertTemplateRenderer.class);
-    when(alertTemplateRenderer.renderAlert(any(AlertDTO.class), any())).then(
-        i -> ((AlertDTO) i.getArguments()[0]).getTemplate());
+    when(alertTemplateRenderer.renderMetadata(any(AlertDTO.class))).then(
+        i -> ((AlertDTO) i.getArguments()[0]).getTemplate().getMetadata());
     intervalCalculator = new AlertDetectionIntervalCalculator(alertTemplateRenderer);
   }
 
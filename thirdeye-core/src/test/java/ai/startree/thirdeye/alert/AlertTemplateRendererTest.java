@@ -0,0 +1,118 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.alert;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.spi.datalayer.TemplatableMap;
+import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
+import ai.startree.thirdeye.spi.datalayer.bao.AlertTemplateManager;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertMetadataDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean;
+import java.util.List;
+import java.util.Map;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.testng.annotations.Test;
+
+public class AlertTemplateRendererTest {
+
+  private static final long TEMPLATE_ID = 2L;
+
+  private static AlertTemplateDTO template() {
+    final PlanNodeBean dataFetcher = new PlanNodeBean()
+        .setName("currentDataFetcher")
+        .setType("DataFetcher")
+        .setParams(TemplatableMap.fromValueMap(Map.<String, Object>of(
+            "component.query", "SELECT * FROM ${dataset} WHERE ts >= ${startTime} AND ts < ${endTime}")));
+    return (AlertTemplateDTO) new AlertTemplateDTO()
+        .setNodes(List.of(dataFetcher))
+        .setMetadata(new AlertMetadataDTO().setGranularity("${granularity}"))
+        .setDefaultProperties(Map.of("granularity", "P1D"))
+        .setId(TEMPLATE_ID);
+  }
+
+  private static AlertDTO alert() {
+    return (AlertDTO) new AlertDTO()
+        .setName("alert")
+        .setTemplate((AlertTemplateDTO) new AlertTemplateDTO().setId(TEMPLATE_ID))
+        .setTemplateProperties(Map.of("dataset", "myTable"))
+        .setId(1L);
+  }
+
+  @Test
+  public void testRenderBindsTheDetectionInterval() throws Exception {
+    final AlertTemplateManager alertTemplateManager = mock(AlertTemplateManager.class);
+    when(alertTemplateManager.findById(TEMPLATE_ID)).thenReturn(template());
+    final AlertTemplateRenderer renderer = new AlertTemplateRenderer(mock(AlertManager.class),
+        alertTemplateManager);
+
+    final PreparedAlertTemplate prepared = renderer.prepare(alert());
+    assertThat(prepared.getMetadata().getGranularity()).isEqualTo("P1D");
+
+    final AlertTemplateDTO first = renderer.render(prepared,
+        new Interval(10L, 20L, DateTimeZone.UTC));
+    final AlertTemplateDTO second = renderer.render(prepared,
+        new Interval(30L, 40L, DateTimeZone.UTC));
+
+    assertThat(first.getNodes().get(0).getParams().getValue("component.query"))
+        .isEqualTo("SELECT * FROM myTable WHERE ts >= 10 AND ts < 20");
+    assertThat(second.getNodes().get(0).getParams().getValue("component.query"))
+        .isEqualTo("SELECT * FROM myTable WHERE ts >= 30 AND ts < 40");
+    // the prepared template is not modified by the bind phase
+    assertThat(prepared.getTemplate().getNodes().get(0).getParams().get("component.query")
+        .getValue()).isEqualTo(
+        "SELECT * FROM ${dataset} WHERE ts >= ${startTime} AND ts < ${endTime}");
+  }
+
+  @Test
+  public void testPrepareIsCachedByVersion() throws Exception {
+    final AlertTemplateManager alertTemplateManager = mock(AlertTemplateManager.class);
+    when(alertTemplateManager.findById(TEMPLATE_ID)).thenAnswer(i -> template());
+    final AlertTemplateRenderer renderer = new AlertTemplateRenderer(mock(AlertManager.class),
+        alertTemplateManager);
+
+    final PreparedAlertTemplate prepared = renderer.prepare(alert());
+    assertThat(renderer.prepare(alert())).isSameAs(prepared);
+
+    // alert updated
+    final AlertDTO updatedAlert = (AlertDTO) alert().setVersion(1);
+    assertThat(renderer.prepare(updatedAlert)).isNotSameAs(prepared);
+
+    // template updated
+    final AlertTemplateDTO updatedTemplate = (AlertTemplateDTO) template().setVersion(1);
+    when(alertTemplateManager.findById(TEMPLATE_ID)).thenReturn(updatedTemplate);
+    assertThat(renderer.prepare(updatedAlert)).isNotSameAs(prepared);
+  }
+
+  @Test
+  public void testRenderAlertIsEquivalentToPrepareAndRender() throws Exception {
+    final AlertTemplateManager alertTemplateManager = mock(AlertTemplateManager.class);
+    when(alertTemplateManager.findById(TEMPLATE_ID)).thenAnswer(i -> template());
+    final AlertTemplateRenderer renderer = new AlertTemplateRenderer(mock(AlertManager.class),
+        alertTemplateManager);
+    final Interval interval = new Interval(10L, 20L, DateTimeZone.UTC);
+
+    final AlertTemplateDTO rendered = renderer.renderAlert(alert(), interval);
+
+    assertThat(rendered.getMetadata().getGranularity()).isEqualTo("P1D");
+    assertThat(rendered.getNodes().get(0).getParams().getValue("component.query"))
+        .isEqualTo("SELECT * FROM myTable WHERE ts >= 10 AND ts < 20");
+    assertThat(renderer.renderMetadata(alert()).getGranularity()).isEqualTo("P1D");
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.testng.annotations.Test;
+
+public class DataSourceWrapperTest {
+
+  @Test
+  public void testNormalizeCollapsesWhitespace() {
+    assertThat(DataSourceWrapper.normalize("  SELECT a,\n\t b  FROM t  "))
+        .isEqualTo("SELECT a, b FROM t");
+  }
+
+  @Test
+  public void testNormalizeKeepsQuotedLiterals() {
+    assertThat(DataSourceWrapper.normalize("SELECT a FROM t WHERE b = 'x   y'  AND \"c  d\" = 1"))
+        .isEqualTo("SELECT a FROM t WHERE b = 'x   y' AND \"c  d\" = 1");
+  }
+}
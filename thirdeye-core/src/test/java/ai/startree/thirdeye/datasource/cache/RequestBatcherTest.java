@@ -0,0 +1,159 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import org.testng.annotations.Test;
+
+public class RequestBatcherTest {
+
+  private static final int BATCH_SIZE = 8;
+
+  @Test(timeOut = 10_000)
+  public void testConcurrentCallsAreBatched() throws Exception {
+    final List<Integer> batchSizes = new ArrayList<>();
+    // a long window: the batch is closed because it is full
+    final RequestBatcher<String, String, String> batcher = new RequestBatcher<>(
+        Duration.ofSeconds(30), BATCH_SIZE, UnaryOperator.identity(), batchSizes::add);
+    final AtomicInteger singleCalls = new AtomicInteger();
+    final AtomicInteger batchCalls = new AtomicInteger();
+
+    final ExecutorService executor = Executors.newFixedThreadPool(BATCH_SIZE);
+    try {
+      final List<Future<String>> futures = new ArrayList<>();
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        final String value = "v" + i;
+        futures.add(executor.submit(() -> batcher.execute("SELECT 1", value, () -> {
+          singleCalls.incrementAndGet();
+          return value + "-single";
+        }, values -> {
+          batchCalls.incrementAndGet();
+          return values.stream().collect(Collectors.toMap(Function.identity(), v -> v + "-batch"));
+        })));
+      }
+
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        assertThat(futures.get(i).get()).isEqualTo("v" + i + "-batch");
+      }
+      assertThat(batchCalls.get()).isEqualTo(1);
+      assertThat(singleCalls.get()).isEqualTo(0);
+      assertThat(batchSizes).containsExactly(BATCH_SIZE);
+    } finally {
+      executor.shutdownNow();
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void testSingleCallIsNotBatched() throws Exception {
+    final List<Integer> batchSizes = new ArrayList<>();
+    final RequestBatcher<String, String, String> batcher = new RequestBatcher<>(
+        Duration.ofMillis(1), BATCH_SIZE, UnaryOperator.identity(), batchSizes::add);
+
+    final String result = batcher.execute("SELECT 1", "v", () -> "single",
+        values -> Map.of("v", "batch"));
+
+    assertThat(result).isEqualTo("single");
+    assertThat(batchSizes).isEmpty();
+  }
+
+  @Test(timeOut = 10_000)
+  public void testFailedBatchFallsBackToSingleCalls() throws Exception {
+    final RequestBatcher<String, String, String> batcher = new RequestBatcher<>(
+        Duration.ofSeconds(30), 2, UnaryOperator.identity(), size -> {});
+    final AtomicInteger singleCalls = new AtomicInteger();
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final List<Future<String>> futures = new ArrayList<>();
+      for (final String value : List.of("a", "b")) {
+        futures.add(executor.submit(() -> batcher.execute("SELECT 1", value, () -> {
+          singleCalls.incrementAndGet();
+          return value + "-single";
+        }, values -> {
+          throw new IllegalStateException("batch failed");
+        })));
+      }
+
+      assertThat(futures.get(0).get()).isEqualTo("a-single");
+      assertThat(futures.get(1).get()).isEqualTo("b-single");
+      assertThat(singleCalls.get()).isEqualTo(2);
+    } finally {
+      executor.shutdownNow();
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test(timeOut = 10_000)
+  public void testInterruptedLeaderReleasesFollowers() throws Exception {
+    final RequestBatcher<String, String, String> batcher = new RequestBatcher<>(
+        Duration.ofSeconds(30), BATCH_SIZE, UnaryOperator.identity(), size -> {});
+
+    final FutureTask<String> leader = singleCall(batcher, "a");
+    final Thread leaderThread = new Thread(leader);
+    leaderThread.start();
+    // the leader waits for the end of the window
+    awaitState(leaderThread, Thread.State.TIMED_WAITING);
+    final FutureTask<String> follower = singleCall(batcher, "b");
+    final Thread followerThread = new Thread(follower);
+    followerThread.start();
+    // the follower waits for the results of the batch
+    awaitState(followerThread, Thread.State.WAITING);
+
+    leaderThread.interrupt();
+
+    assertThatThrownBy(leader::get).isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(InterruptedException.class);
+    assertThat(follower.get()).isEqualTo("b-single");
+
+    // the batch is closed: the next caller leads a new batch instead of joining the old one
+    final FutureTask<String> next = singleCall(batcher, "c");
+    final Thread nextThread = new Thread(next);
+    nextThread.start();
+    awaitState(nextThread, Thread.State.TIMED_WAITING);
+    nextThread.interrupt();
+    nextThread.join();
+  }
+
+  private static FutureTask<String> singleCall(
+      final RequestBatcher<String, String, String> batcher, final String value) {
+    return new FutureTask<>(() -> batcher.execute("SELECT 1", value, () -> value + "-single",
+        values -> {
+          throw new IllegalStateException("batch call not expected");
+        }));
+  }
+
+  private static void awaitState(final Thread thread, final Thread.State state)
+      throws InterruptedException {
+    while (thread.getState() != state) {
+      Thread.sleep(1);
+    }
+  }
+}
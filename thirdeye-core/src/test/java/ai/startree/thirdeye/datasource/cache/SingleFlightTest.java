@@ -0,0 +1,144 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import org.testng.annotations.Test;
+
+public class SingleFlightTest {
+
+  private static final int BURST_SIZE = 16;
+
+  @Test(timeOut = 10_000)
+  public void testBurstOfIdenticalCallsRunsOnce() throws Exception {
+    final AtomicInteger coalesced = new AtomicInteger();
+    final SingleFlight<String, List<String>> singleFlight = new SingleFlight<>(ArrayList::new,
+        coalesced::incrementAndGet);
+    final AtomicInteger brokerCalls = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(BURST_SIZE);
+    try {
+      final List<Future<List<String>>> futures = new ArrayList<>();
+      for (int i = 0; i < BURST_SIZE; i++) {
+        futures.add(executor.submit(() -> singleFlight.execute("SELECT 1", () -> {
+          brokerCalls.incrementAndGet();
+          release.await();
+          return new ArrayList<>(List.of("result"));
+        })));
+      }
+      // keep the leader in flight until every follower joined it
+      while (coalesced.get() < BURST_SIZE - 1) {
+        Thread.sleep(5);
+      }
+      release.countDown();
+
+      final List<List<String>> results = new ArrayList<>();
+      for (final Future<List<String>> future : futures) {
+        results.add(future.get());
+      }
+      assertThat(brokerCalls.get()).isEqualTo(1);
+      assertThat(results).allSatisfy(r -> assertThat(r).containsExactly("result"));
+      // followers get their own copy
+      assertThat(results.stream().map(System::identityHashCode).distinct()).hasSize(BURST_SIZE);
+      assertThat(singleFlight.inFlightCount()).isEqualTo(0);
+    } finally {
+      executor.shutdownNow();
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test(timeOut = 10_000)
+  public void testFollowersGetLeaderException() throws Exception {
+    final AtomicInteger coalesced = new AtomicInteger();
+    final SingleFlight<String, String> singleFlight = new SingleFlight<>(UnaryOperator.identity(),
+        coalesced::incrementAndGet);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<String> leader = executor.submit(() -> singleFlight.execute("q", () -> {
+        release.await();
+        throw new IllegalStateException("broker down");
+      }));
+      while (singleFlight.inFlightCount() == 0) {
+        Thread.sleep(5);
+      }
+      final Future<String> follower = executor.submit(
+          () -> singleFlight.execute("q", () -> "not called"));
+      while (coalesced.get() < 1) {
+        Thread.sleep(5);
+      }
+      release.countDown();
+
+      assertThatThrownBy(leader::get).hasCauseInstanceOf(IllegalStateException.class);
+      assertThatThrownBy(follower::get).hasCauseInstanceOf(IllegalStateException.class);
+    } finally {
+      executor.shutdownNow();
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test(timeOut = 10_000)
+  public void testFollowersRunAgainWhenLeaderIsInterrupted() throws Exception {
+    final AtomicInteger coalesced = new AtomicInteger();
+    final SingleFlight<String, String> singleFlight = new SingleFlight<>(UnaryOperator.identity(),
+        coalesced::incrementAndGet);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<String> leader = executor.submit(() -> singleFlight.execute("q", () -> {
+        new CountDownLatch(1).await();
+        return "leader";
+      }));
+      while (singleFlight.inFlightCount() == 0) {
+        Thread.sleep(5);
+      }
+      final Future<String> follower = executor.submit(
+          () -> singleFlight.execute("q", () -> "follower"));
+      while (coalesced.get() < 1) {
+        Thread.sleep(5);
+      }
+      // eg the caller of the leader reached its deadline
+      leader.cancel(true);
+
+      assertThat(follower.get()).isEqualTo("follower");
+      assertThat(singleFlight.inFlightCount()).isEqualTo(0);
+    } finally {
+      executor.shutdownNow();
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void testSequentialCallsAreNotCoalesced() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final SingleFlight<String, Integer> singleFlight = new SingleFlight<>(UnaryOperator.identity(),
+        () -> {});
+
+    assertThat(singleFlight.execute("q", calls::incrementAndGet)).isEqualTo(1);
+    assertThat(singleFlight.execute("q", calls::incrementAndGet)).isEqualTo(2);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.datasource.cache.DataTableCacheKey;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.testng.annotations.Test;
+
+public class TieredDataTableCacheTest {
+
+  private static final Duration TTL = Duration.ofMinutes(15);
+  private static final DataTableCacheKey KEY = new DataTableCacheKey("pinot",
+      "table",
+      "SELECT ts, value FROM table",
+      Map.of("timeoutMs", "1000"),
+      1L);
+  private static final DataFrame DF = new DataFrame()
+      .addSeries("ts", 1000L, 2000L)
+      .addSeries("value", 1., 2.);
+
+  @Test
+  public void testPersistentTierSurvivesRestart() throws IOException {
+    final Path directory = Files.createTempDirectory("datatable-cache");
+    new TieredDataTableCache(List.of(new InMemoryDataTableCache(1000, TTL),
+        new LocalDiskDataTableCache(directory, TTL, 1024 * 1024)))
+        .put(KEY, SimpleDataTable.fromDataFrame(DF));
+
+    // simulate a restart: empty on-heap tier, same directory
+    final InMemoryDataTableCache inMemory = new InMemoryDataTableCache(1000, TTL);
+    final TieredDataTableCache restarted = new TieredDataTableCache(List.of(inMemory,
+        new LocalDiskDataTableCache(directory, TTL, 1024 * 1024)));
+    final DataTable cached = restarted.get(KEY);
+
+    assertThat(cached).isNotNull();
+    assertThat(cached.getDataFrame()).isEqualTo(DF);
+    // the hit is promoted to the on-heap tier
+    assertThat(inMemory.get(KEY)).isNotNull();
+  }
+
+  @Test
+  public void testMissOnOtherTimeBucket() throws IOException {
+    final Path directory = Files.createTempDirectory("datatable-cache");
+    final LocalDiskDataTableCache cache = new LocalDiskDataTableCache(directory, TTL, 1024 * 1024);
+    cache.put(KEY, SimpleDataTable.fromDataFrame(DF));
+
+    final DataTableCacheKey nextBucket = new DataTableCacheKey(KEY.dataSource(), KEY.table(),
+        KEY.query(), KEY.options(), KEY.timeBucket() + 1);
+    assertThat(cache.get(nextBucket)).isNull();
+  }
+
+  @Test
+  public void testInvalidateDataSource() throws IOException {
+    final Path directory = Files.createTempDirectory("datatable-cache");
+    final TieredDataTableCache cache = new TieredDataTableCache(List.of(
+        new InMemoryDataTableCache(1000, TTL),
+        new LocalDiskDataTableCache(directory, TTL, 1024 * 1024)));
+    cache.put(KEY, SimpleDataTable.fromDataFrame(DF));
+
+    cache.invalidate("pinot");
+
+    assertThat(cache.get(KEY)).isNull();
+  }
+}
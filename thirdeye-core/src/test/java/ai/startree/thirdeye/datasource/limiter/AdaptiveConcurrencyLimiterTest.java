@@ -0,0 +1,259 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.limiter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import ai.startree.thirdeye.config.DataSourceLimiterConfiguration;
+import ai.startree.thirdeye.datasource.cache.DataSourceWrapper;
+import ai.startree.thirdeye.datasource.limiter.AdaptiveConcurrencyLimiter.Permit;
+import ai.startree.thirdeye.spi.ThirdEyeException;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
+import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
+import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSourceContext;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
+import com.codahale.metrics.MetricRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.annotations.Test;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+  private static DataSourceLimiterConfiguration config(final int initialLimit) {
+    return new DataSourceLimiterConfiguration()
+        .setEnabled(true)
+        .setInitialLimit(initialLimit)
+        .setMinLimit(1)
+        .setMaxLimit(100)
+        .setLatencyThreshold(Duration.ofSeconds(1))
+        .setBackoffRatio(0.5)
+        .setMaxWait(Duration.ofSeconds(5));
+  }
+
+  @Test
+  public void testSlowQueriesDecreaseLimitOnce() throws Exception {
+    final AtomicLong clock = new AtomicLong();
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("ds", config(10),
+        new SimpleMeterRegistry(), clock::get);
+    clock.addAndGet(1);
+
+    final Permit first = limiter.acquire(QueryPriority.DETECTION);
+    final Permit second = limiter.acquire(QueryPriority.DETECTION);
+    clock.addAndGet(Duration.ofSeconds(2).toNanos());
+    first.close();
+    second.close();
+
+    // both queries were sent under the old limit: only one decrease
+    assertThat(limiter.limit()).isEqualTo(5);
+    assertThat(limiter.inFlight()).isEqualTo(0);
+  }
+
+  @Test
+  public void testFastQueriesIncreaseLimitWhenSaturated() throws Exception {
+    final AtomicLong clock = new AtomicLong();
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("ds", config(2),
+        new SimpleMeterRegistry(), clock::get);
+
+    final Permit first = limiter.acquire(QueryPriority.DETECTION);
+    final Permit second = limiter.acquire(QueryPriority.DETECTION);
+    first.close();
+
+    assertThat(limiter.limit()).isEqualTo(2.5);
+    second.close();
+  }
+
+  @Test
+  public void testRejectWhenQueueIsFull() throws Exception {
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("ds",
+        config(1).setMaxQueued(0), new SimpleMeterRegistry());
+
+    try (final Permit ignored = limiter.acquire(QueryPriority.DETECTION)) {
+      assertThatThrownBy(() -> limiter.acquire(QueryPriority.INTERACTIVE))
+          .isInstanceOf(ThirdEyeException.class);
+    }
+  }
+
+  @Test
+  public void testBackfillUsesAtMostHalfOfTheLimit() throws Exception {
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("ds",
+        config(4).setMaxWait(Duration.ofMillis(10)), new SimpleMeterRegistry());
+
+    try (final Permit p1 = limiter.acquire(QueryPriority.BACKFILL);
+        final Permit p2 = limiter.acquire(QueryPriority.BACKFILL)) {
+      assertThatThrownBy(() -> limiter.acquire(QueryPriority.BACKFILL))
+          .isInstanceOf(ThirdEyeException.class);
+      // other classes can still use the rest of the limit
+      limiter.acquire(QueryPriority.INTERACTIVE).close();
+    }
+  }
+
+  @Test(timeOut = 10_000)
+  public void testHighestPriorityGetsTheFreedSlot() throws Exception {
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("ds", config(1),
+        new SimpleMeterRegistry());
+    final List<QueryPriority> admissionOrder = new ArrayList<>();
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Permit running = limiter.acquire(QueryPriority.DETECTION);
+      final Future<?> interactive = executor.submit(() -> admit(limiter,
+          QueryPriority.INTERACTIVE, admissionOrder));
+      waitUntilQueued(limiter, 1);
+      final Future<?> detection = executor.submit(() -> admit(limiter,
+          QueryPriority.DETECTION, admissionOrder));
+      waitUntilQueued(limiter, 2);
+
+      running.close();
+      interactive.get();
+      detection.get();
+
+      assertThat(admissionOrder).containsExactly(QueryPriority.DETECTION,
+          QueryPriority.INTERACTIVE);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(timeOut = 30_000)
+  public void testSyntheticSlowDataSource() throws Exception {
+    final SlowDataSource slowDataSource = new SlowDataSource(Duration.ofMillis(50));
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("slow",
+        config(8).setLatencyThreshold(Duration.ofMillis(20)).setMaxWait(Duration.ofSeconds(20)),
+        new SimpleMeterRegistry());
+    final DataSourceWrapper wrapper = new DataSourceWrapper(slowDataSource, "slow",
+        new MetricRegistry(), null, Duration.ofMinutes(15), limiter);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(32);
+    try {
+      final List<Future<DataTable>> futures = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        // distinct queries: not coalesced
+        final DataSourceRequest request = new DataSourceRequest(null, "SELECT " + i, Map.of(),
+            Map.of());
+        futures.add(executor.submit(() -> wrapper.fetchDataTable(request)));
+      }
+      for (final Future<DataTable> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(slowDataSource.calls.get()).isEqualTo(64);
+    assertThat(slowDataSource.maxConcurrentCalls.get()).isLessThanOrEqualTo(8);
+    // every query is slower than the threshold: the limit goes down
+    assertThat(limiter.limit()).isLessThan(8);
+  }
+
+  @Test(timeOut = 10_000)
+  public void testInteractiveQueryDoesNotWaitBehindIdenticalBackfillQuery() throws Exception {
+    final SlowDataSource slowDataSource = new SlowDataSource(Duration.ofMillis(1));
+    // backfill can use 1 of the 2 slots
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("slow", config(2),
+        new SimpleMeterRegistry());
+    final DataSourceWrapper wrapper = new DataSourceWrapper(slowDataSource, "slow",
+        new MetricRegistry(), null, Duration.ofMinutes(15), limiter);
+    final DataSourceRequest request = new DataSourceRequest(null, "SELECT 1", Map.of(), Map.of());
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<DataTable> backfill;
+      try (final Permit ignored = limiter.acquire(QueryPriority.BACKFILL)) {
+        backfill = executor.submit(() -> QueryPriority.BACKFILL.call(
+            () -> wrapper.fetchDataTable(request)));
+        waitUntilQueued(limiter, 1);
+
+        final Future<DataTable> interactive = executor.submit(
+            () -> QueryPriority.INTERACTIVE.call(() -> wrapper.fetchDataTable(request)));
+
+        // the interactive query is not coalesced with the queued backfill query
+        interactive.get(2, TimeUnit.SECONDS);
+        assertThat(backfill.isDone()).isFalse();
+      }
+      backfill.get();
+      assertThat(slowDataSource.calls.get()).isEqualTo(2);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void admit(final AdaptiveConcurrencyLimiter limiter,
+      final QueryPriority priority, final List<QueryPriority> admissionOrder) {
+    try (final Permit ignored = limiter.acquire(priority)) {
+      synchronized (admissionOrder) {
+        admissionOrder.add(priority);
+      }
+      // hold the slot so that the other waiter is admitted after this one
+      Thread.sleep(20);
+    } catch (final InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void waitUntilQueued(final AdaptiveConcurrencyLimiter limiter, final int queued)
+      throws InterruptedException {
+    while (limiter.queued() < queued) {
+      TimeUnit.MILLISECONDS.sleep(5);
+    }
+  }
+
+  private static class SlowDataSource implements ThirdEyeDataSource {
+
+    private final Duration latency;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger concurrentCalls = new AtomicInteger();
+    private final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+
+    private SlowDataSource(final Duration latency) {
+      this.latency = latency;
+    }
+
+    @Override
+    public String getName() {
+      return "slow";
+    }
+
+    @Override
+    public void init(final ThirdEyeDataSourceContext context) {
+    }
+
+    @Override
+    public DataTable fetchDataTable(final DataSourceRequest request) throws Exception {
+      calls.incrementAndGet();
+      maxConcurrentCalls.accumulateAndGet(concurrentCalls.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(latency.toMillis());
+        return SimpleDataTable.fromDataFrame(new DataFrame().addSeries("value", 1L));
+      } finally {
+        concurrentCalls.decrementAndGet();
+      }
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.limiter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+
+public class PriorityPropagatingExecutorServiceTest {
+
+  @Test(timeOut = 10_000)
+  public void testTasksRunWithThePriorityOfTheSubmitter() throws Exception {
+    final ExecutorService executor = new PriorityPropagatingExecutorService(
+        Executors.newSingleThreadExecutor());
+    try {
+      assertThat(QueryPriority.BACKFILL.call(
+          () -> executor.submit(QueryPriority::current).get())).isEqualTo(QueryPriority.BACKFILL);
+      final CompletableFuture<QueryPriority> runnablePriority = new CompletableFuture<>();
+      QueryPriority.DETECTION.call(() -> {
+        executor.execute(() -> runnablePriority.complete(QueryPriority.current()));
+        return null;
+      });
+      assertThat(runnablePriority.get()).isEqualTo(QueryPriority.DETECTION);
+
+      // the priority of the pool thread is restored after each task
+      assertThat(executor.submit(QueryPriority::current).get())
+          .isEqualTo(QueryPriority.INTERACTIVE);
+    } finally {
+      executor.shutdownNow();
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.loader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.rootcause.configuration.AggregationCacheConfiguration;
+import ai.startree.thirdeye.spi.Constants;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.Templatable;
+import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.MetricConfigDTO;
+import ai.startree.thirdeye.spi.datasource.loader.MinMaxTimeLoader;
+import ai.startree.thirdeye.spi.metric.MetricSlice;
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class CachedAggregationLoaderTest {
+
+  private static final Duration TTL = Duration.ofMinutes(10);
+  private static final Interval INTERVAL = new Interval(1000L, 2000L, DateTimeZone.UTC);
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final Ticker ticker = new Ticker() {
+    @Override
+    public long read() {
+      return nanos.get();
+    }
+  };
+
+  private DefaultAggregationLoader delegate;
+  private MinMaxTimeLoader minMaxTimeLoader;
+  private SimpleMeterRegistry registry;
+  private CachedAggregationLoader loader;
+  private DatasetConfigDTO datasetConfigDTO;
+  private MetricSlice slice;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    nanos.set(0);
+    delegate = mock(DefaultAggregationLoader.class);
+    when(delegate.loadBreakdown(any(), anyInt())).thenAnswer(i -> breakdown());
+    when(delegate.loadAggregateAsync(any(), any(), anyInt()))
+        .thenAnswer(i -> CompletableFuture.completedFuture(breakdown()));
+    minMaxTimeLoader = mock(MinMaxTimeLoader.class);
+    setMaxTime(1500L);
+    registry = new SimpleMeterRegistry();
+    loader = new CachedAggregationLoader(delegate,
+        minMaxTimeLoader,
+        new AggregationCacheConfiguration().setTtl(TTL),
+        ticker,
+        registry);
+
+    final DataSourceDTO dataSourceDto = new DataSourceDTO().setName("pinot");
+    datasetConfigDTO = new DatasetConfigDTO()
+        .setDataset("dataset")
+        .setDimensions(Templatable.of(List.of("country", "browser")));
+    final MetricConfigDTO metricConfigDTO = new MetricConfigDTO()
+        .setName("views")
+        .setDefaultAggFunction("SUM");
+    slice = MetricSlice.from(metricConfigDTO,
+        INTERVAL,
+        List.of(Predicate.EQ("os", "linux")),
+        datasetConfigDTO,
+        dataSourceDto);
+  }
+
+  private static DataFrame breakdown() {
+    return new DataFrame()
+        .addSeries(Constants.COL_VALUE, 1., 2.);
+  }
+
+  private void setMaxTime(final Long maxTime) throws Exception {
+    when(minMaxTimeLoader.fetchMaxTimeAsync(any(), any(), isNull()))
+        .thenReturn(CompletableFuture.completedFuture(maxTime));
+  }
+
+  private double loads(final String result) {
+    return registry.get("thirdeye_rca_aggregation_cache").tag("result", result).counter().count();
+  }
+
+  @Test
+  public void testBreakdownIsLoadedOnce() throws Exception {
+    loader.loadBreakdown(slice, 100);
+    loader.loadBreakdown(slice, 100);
+
+    verify(delegate, times(1)).loadBreakdown(slice, 100);
+    assertThat(loads("hit")).isEqualTo(1);
+    assertThat(loads("miss")).isEqualTo(1);
+  }
+
+  @Test
+  public void testBreakdownIsLoadedAgainForAnotherLimitOrDimensions() throws Exception {
+    loader.loadBreakdown(slice, 100);
+    loader.loadBreakdown(slice, 10);
+    datasetConfigDTO.setDimensions(Templatable.of(List.of("country")));
+    loader.loadBreakdown(slice, 100);
+
+    verify(delegate, times(3)).loadBreakdown(any(), anyInt());
+  }
+
+  @Test
+  public void testCallersGetACopy() throws Exception {
+    final DataFrame first = loader.loadBreakdown(slice, 100);
+    first.dropSeries(Constants.COL_VALUE);
+
+    final DataFrame second = loader.loadBreakdown(slice, 100);
+
+    assertThat(second.contains(Constants.COL_VALUE)).isTrue();
+  }
+
+  @Test
+  public void testNewDataInTheSliceIsLoaded() throws Exception {
+    loader.loadBreakdown(slice, 100);
+    setMaxTime(1800L);
+    loader.loadBreakdown(slice, 100);
+
+    verify(delegate, times(2)).loadBreakdown(slice, 100);
+  }
+
+  @Test
+  public void testNewDataAfterTheSliceIsIgnored() throws Exception {
+    setMaxTime(2500L);
+    loader.loadBreakdown(slice, 100);
+    setMaxTime(3000L);
+    loader.loadBreakdown(slice, 100);
+
+    verify(delegate, times(1)).loadBreakdown(slice, 100);
+  }
+
+  @Test
+  public void testBreakdownIsLoadedAgainAfterTtl() throws Exception {
+    loader.loadBreakdown(slice, 100);
+    nanos.addAndGet(TTL.toNanos());
+    loader.loadBreakdown(slice, 100);
+
+    verify(delegate, times(2)).loadBreakdown(slice, 100);
+  }
+
+  @Test
+  public void testBreakdownIsNotCachedIfTheDataVersionFails() throws Exception {
+    when(minMaxTimeLoader.fetchMaxTimeAsync(any(), any(), isNull()))
+        .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("down")));
+    loader.loadBreakdown(slice, 100);
+    loader.loadBreakdown(slice, 100);
+
+    verify(delegate, times(2)).loadBreakdown(slice, 100);
+  }
+
+  @Test
+  public void testAggregateIsLoadedOnce() throws Exception {
+    final DataFrame first = loader.loadAggregateAsync(slice, List.of(), -1).get();
+    final DataFrame second = loader.loadAggregateAsync(slice, List.of(), -1).get();
+
+    verify(delegate, times(1)).loadAggregateAsync(slice, List.of(), -1);
+    assertThat(second).isNotSameAs(first);
+    assertThat(second.getDoubles(Constants.COL_VALUE).toList()).containsExactly(1., 2.);
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    loader = new CachedAggregationLoader(delegate,
+        minMaxTimeLoader,
+        new AggregationCacheConfiguration().setEnabled(false),
+        ticker,
+        registry);
+    loader.loadBreakdown(slice, 100);
+    loader.loadBreakdown(slice, 100);
+
+    verify(delegate, times(2)).loadBreakdown(slice, 100);
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.loader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.config.TimeBoundsCacheConfiguration;
+import ai.startree.thirdeye.datasource.loader.DefaultMinMaxTimeLoader.Extremum;
+import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.joda.time.Interval;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class CachedMinMaxTimeLoaderTest {
+
+  private static final Duration TTL = Duration.ofMinutes(1);
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final Ticker ticker = new Ticker() {
+    @Override
+    public long read() {
+      return nanos.get();
+    }
+  };
+
+  private DefaultMinMaxTimeLoader delegate;
+  private SimpleMeterRegistry registry;
+  private CachedMinMaxTimeLoader loader;
+  private DataSourceDTO dataSourceDto;
+  private DatasetConfigDTO datasetConfigDTO;
+
+  @BeforeMethod
+  public void setUp() {
+    nanos.set(0);
+    delegate = mock(DefaultMinMaxTimeLoader.class);
+    registry = new SimpleMeterRegistry();
+    loader = new CachedMinMaxTimeLoader(delegate,
+        new TimeBoundsCacheConfiguration().setTtl(TTL).setMaxStaleness(Duration.ofMinutes(10)),
+        // refreshes run synchronously
+        MoreExecutors.newDirectExecutorService(),
+        ticker,
+        registry);
+    dataSourceDto = new DataSourceDTO();
+    dataSourceDto.setId(1L);
+    datasetConfigDTO = new DatasetConfigDTO().setDataset("dataset");
+    datasetConfigDTO.setId(2L);
+  }
+
+  private Long maxTime() throws Exception {
+    return loader.fetchMaxTimeAsync(dataSourceDto, datasetConfigDTO, null).get();
+  }
+
+  private void advance(final Duration duration) {
+    nanos.addAndGet(duration.toNanos());
+  }
+
+  private double lookups(final String result) {
+    return registry.get("thirdeye_time_bounds_cache").tag("result", result).counter().count();
+  }
+
+  @Test
+  public void testMaxTimeIsCached() throws Exception {
+    when(delegate.fetchExtremumTime(eq(Extremum.MAX), any(), any(), isNull())).thenReturn(1000L);
+
+    assertThat(maxTime()).isEqualTo(1000L);
+    assertThat(maxTime()).isEqualTo(1000L);
+
+    verify(delegate, times(1)).fetchExtremumTime(eq(Extremum.MAX), any(), any(), isNull());
+    assertThat(lookups("miss")).isEqualTo(1);
+    assertThat(lookups("hit")).isEqualTo(1);
+  }
+
+  @Test(timeOut = 10_000)
+  public void testStaleMaxTimeIsRefreshedInBackground() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final CachedMinMaxTimeLoader asyncLoader = new CachedMinMaxTimeLoader(delegate,
+          new TimeBoundsCacheConfiguration().setTtl(TTL),
+          executor,
+          ticker,
+          registry);
+      final CountDownLatch release = new CountDownLatch(1);
+      when(delegate.fetchExtremumTime(eq(Extremum.MAX), any(), any(), isNull()))
+          .thenReturn(1000L)
+          .thenAnswer(invocation -> {
+            release.await();
+            return 2000L;
+          });
+
+      assertThat(asyncLoader.fetchMaxTimeAsync(dataSourceDto, datasetConfigDTO, null).get())
+          .isEqualTo(1000L);
+      advance(TTL);
+      // the stale value is returned while the refresh is blocked
+      assertThat(asyncLoader.fetchMaxTimeAsync(dataSourceDto, datasetConfigDTO, null).get())
+          .isEqualTo(1000L);
+      assertThat(lookups("stale")).isEqualTo(1);
+      assertThat(registry.get("thirdeye_time_bounds_staleness").timer()
+          .max(TimeUnit.NANOSECONDS)).isEqualTo((double) TTL.toNanos());
+
+      release.countDown();
+      while (asyncLoader.fetchMaxTimeAsync(dataSourceDto, datasetConfigDTO, null).get()
+          != 2000L) {
+        Thread.sleep(5);
+      }
+      verify(delegate, times(2)).fetchExtremumTime(eq(Extremum.MAX), any(), any(), isNull());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testMaxTimeDoesNotMoveBackwardsWithinTtl() throws Exception {
+    when(delegate.fetchExtremumTime(eq(Extremum.MAX), any(), any(), isNull()))
+        .thenReturn(2000L, 1000L, 1000L);
+
+    assertThat(maxTime()).isEqualTo(2000L);
+    advance(TTL);
+    maxTime();
+    // the lower max time is kept out
+    assertThat(maxTime()).isEqualTo(2000L);
+    assertThat(registry.get("thirdeye_time_bounds_max_regressions").counter().count())
+        .isEqualTo(1);
+
+    advance(TTL);
+    maxTime();
+    // still lower one TTL later: accepted
+    assertThat(maxTime()).isEqualTo(1000L);
+  }
+
+  @Test
+  public void testTimeFilterIsAnsweredFromCache() throws Exception {
+    when(delegate.fetchExtremumTime(eq(Extremum.MAX), any(), any(), isNull())).thenReturn(1000L);
+    maxTime();
+
+    final Interval interval = new Interval(0L, 5000L);
+    assertThat(loader.fetchMaxTimeAsync(dataSourceDto, datasetConfigDTO, interval).get())
+        .isEqualTo(1000L);
+    verify(delegate, never()).fetchMaxTimeAsync(any(), any(), any());
+  }
+
+  @Test
+  public void testDisabledCacheDelegates() throws Exception {
+    final CachedMinMaxTimeLoader disabled = new CachedMinMaxTimeLoader(delegate,
+        new TimeBoundsCacheConfiguration().setEnabled(false),
+        MoreExecutors.newDirectExecutorService(),
+        ticker,
+        new SimpleMeterRegistry());
+
+    disabled.fetchMinTimeAsync(dataSourceDto, datasetConfigDTO, null);
+
+    verify(delegate, times(1)).fetchMinTimeAsync(dataSourceDto, datasetConfigDTO, null);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.loader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.rootcause.configuration.AggregationLoaderConfiguration;
+import ai.startree.thirdeye.rootcause.configuration.RcaConfiguration;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+public class DefaultAggregationLoaderTest {
+
+  private static DefaultAggregationLoader loader(
+      final AggregationLoaderConfiguration configuration) {
+    return new DefaultAggregationLoader(mock(DataSourceCache.class),
+        new RcaConfiguration().setAggregationLoader(configuration));
+  }
+
+  /**
+   * Blocks until interrupted, then counts down {@code interrupted}.
+   */
+  private static Callable<Integer> blockingQuery(final CountDownLatch interrupted) {
+    return () -> {
+      try {
+        new CountDownLatch(1).await();
+        return 0;
+      } catch (final InterruptedException e) {
+        interrupted.countDown();
+        throw e;
+      }
+    };
+  }
+
+  @Test(timeOut = 10_000)
+  public void testRunAllCapsConcurrentQueriesPerRequest() throws Exception {
+    // default: 4 queries per request, on 16 threads
+    final DefaultAggregationLoader loader = loader(new AggregationLoaderConfiguration());
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final List<Callable<Integer>> queries = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      final int result = i;
+      queries.add(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        Thread.sleep(20);
+        running.decrementAndGet();
+        return result;
+      });
+    }
+
+    final List<Integer> results = loader.runAll(queries);
+
+    assertThat(maxRunning.get()).isEqualTo(4);
+    // results are in the order of the queries
+    assertThat(results).hasSize(20).isSorted();
+  }
+
+  @Test(timeOut = 10_000)
+  public void testRunAllCancelsOutstandingQueriesAtDeadline() throws Exception {
+    final DefaultAggregationLoader loader = loader(new AggregationLoaderConfiguration()
+        .setTimeout(Duration.ofMillis(200)));
+    final CountDownLatch interrupted = new CountDownLatch(2);
+
+    assertThatThrownBy(() -> loader.runAll(List.of(blockingQuery(interrupted),
+        blockingQuery(interrupted))))
+        .isInstanceOf(TimeoutException.class);
+    assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test(timeOut = 10_000)
+  public void testRunAllCancelsOutstandingQueriesOnFailure() throws Exception {
+    final DefaultAggregationLoader loader = loader(new AggregationLoaderConfiguration());
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    final Callable<Integer> failingQuery = () -> {
+      throw new IllegalStateException("broker down");
+    };
+
+    assertThatThrownBy(() -> loader.runAll(List.of(failingQuery, blockingQuery(interrupted))))
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test(timeOut = 10_000)
+  public void testQueriesAreRejectedWhenTheQueueIsFull() throws Exception {
+    // default: 16 threads and 1000 queued queries
+    final DefaultAggregationLoader loader = loader(new AggregationLoaderConfiguration());
+    final CountDownLatch release = new CountDownLatch(1);
+    final Callable<Integer> query = () -> {
+      release.await();
+      return 0;
+    };
+    try {
+      for (int i = 0; i < 16 + 1000; i++) {
+        loader.submit(query);
+      }
+      assertThatThrownBy(() -> loader.submit(query))
+          .isInstanceOf(RejectedExecutionException.class);
+    } finally {
+      release.countDown();
+    }
+  }
+}
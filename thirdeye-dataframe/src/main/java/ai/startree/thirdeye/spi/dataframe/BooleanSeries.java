@@ -348,6 +348,24 @@ public final class BooleanSeries extends TypedSeries<BooleanSeries> {
     return this.values;
   }
 
+  /**
+   * Returns the indices of the {@code true} values in ascending order.
+   */
+  int[] selection() {
+    int count = 0;
+    for (final byte value : this.values) {
+      count += isTrue(value) ? 1 : 0;
+    }
+    final int[] rows = new int[count];
+    int j = 0;
+    for (int i = 0; i < this.values.length; i++) {
+      if (isTrue(this.values[i])) {
+        rows[j++] = i;
+      }
+    }
+    return rows;
+  }
+
   public boolean[] valuesBoolean() {
     boolean[] values = new boolean[this.values.length];
     int i = 0;
@@ -55,6 +55,11 @@ public class DataFrame {
   public static final int DEFAULT_MAX_COLUMN_WIDTH = 30;
   final List<String> indexNames = new ArrayList<>();
   final Map<String, Series> series = new LinkedHashMap<>();
+  /**
+   * Last known sort order of the rows, see {@code sortedBy()}. Only valid while the sort series
+   * are still in the DataFrame: series are immutable, a replaced series invalidates it.
+   */
+  private SortOrder sortOrder;
 
   /**
    * Creates a new DataFrame with a column "index" (as determined by {@code COLUMN_INDEX_DEFAULT})
@@ -117,6 +122,7 @@ public class DataFrame {
   public DataFrame(DataFrame df) {
     this.indexNames.addAll(df.indexNames);
     this.series.putAll(df.series);
+    this.sortOrder = df.sortOrder;
   }
 
   /**
@@ -408,9 +414,12 @@ public class DataFrame {
       rightSeries[i] = right.get(onSeriesRight.get(i));
     }
 
-    // perform join, generate row pairs
-    Series.JoinPairs pairs = filterJoinPairs(Series.hashJoinOuter(leftSeries, rightSeries),
-        joinType);
+    // perform join, generate row pairs. merge if both sides are sorted on the join series
+    final boolean merge = numSeries > 0 && haveSameTypes(leftSeries, rightSeries)
+        && isMergeJoinable(left, onSeriesLeft, leftSeries)
+        && isMergeJoinable(right, onSeriesRight, rightSeries);
+    Series.JoinPairs pairs = filterJoinPairs(merge ? Series.mergeJoinOuter(leftSeries, rightSeries)
+        : Series.hashJoinOuter(leftSeries, rightSeries), joinType);
 
     // extract projection indices
     int[] fromIndexLeft = new int[pairs.size()];
@@ -483,9 +492,38 @@ public class DataFrame {
       }
     }
 
+    // a merge keeps the order of the left side. right-only rows of outer joins come last
+    if (merge && (joinType == Series.JoinType.INNER || joinType == Series.JoinType.LEFT)) {
+      joined.sortOrder = ascendingOrderOf(joinKeyNames, joinKeys).projectedFrom(joined);
+    }
+
     return joined;
   }
 
+  private static boolean isMergeJoinable(DataFrame df, List<String> seriesNames,
+      Series[] series) {
+    for (Series s : series) {
+      // objects are joined with equals(), which may not be consistent with compareTo()
+      if (s.type() == SeriesType.OBJECT) {
+        return false;
+      }
+    }
+    return df.isSortedBy(ascendingOrderOf(seriesNames, series));
+  }
+
+  private static boolean haveSameTypes(Series[] left, Series[] right) {
+    for (int i = 0; i < left.length; i++) {
+      if (left[i].type() != right[i].type()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static SortOrder ascendingOrderOf(List<String> seriesNames, Series[] series) {
+    return new SortOrder(seriesNames.toArray(new String[0]), new boolean[series.length], series);
+  }
+
   private static Series.JoinPairs filterJoinPairs(Series.JoinPairs pairs, Series.JoinType type) {
     Series.JoinPairs output = new Series.JoinPairs(pairs.size());
     switch (type) {
@@ -1542,8 +1580,9 @@ public class DataFrame {
 
   /**
    * Returns a copy of the DataFrame sorted by series values referenced by {@code seriesNames}.
-   * The resulting sorted order is the equivalent of applying a stable sort to the nth series
-   * first, and then sorting iteratively by series until the 1st series.
+   * Rows are ordered by the 1st series, rows with equal values by the 2nd series, and so on.
+   * The sort is stable. A series name prefixed with {@code "-"} sorts in descending order, with
+   * null values last.
    *
    * @param seriesNames 1st series, 2nd series, ..., nth series
    * @return sorted DataFrame copy
@@ -1555,22 +1594,62 @@ public class DataFrame {
 
   /**
    * Returns a copy of the DataFrame sorted by series values referenced by {@code seriesNames}.
-   * The resulting sorted order is the equivalent of applying a stable sort to the nth series
-   * first, and then sorting iteratively by series until the 1st series.
+   * Rows are ordered by the 1st series, rows with equal values by the 2nd series, and so on.
+   * The sort is stable. A series name prefixed with {@code "-"} sorts in descending order, with
+   * null values last.
+   *
+   * <br/><b>NOTE:</b> the row permutation is computed once and applied once. If the rows are
+   * already in order, the series are not copied.
    *
    * @param seriesNames 1st series, 2nd series, ..., nth series
    * @return sorted DataFrame copy
    * @throws IllegalArgumentException if the series does not exist
    */
   public DataFrame sortedBy(List<String> seriesNames) {
-    DataFrame df = this;
-    for (int i = seriesNames.size() - 1; i >= 0; i--) {
-      // TODO support "-series" order inversion
-      df = df.project(df.get(seriesNames.get(i)).sortedIndex());
+    if (seriesNames.isEmpty()) {
+      return this;
     }
+
+    final SortOrder order = this.sortOrderOf(seriesNames);
+    if (this.isSortedBy(order)) {
+      return new DataFrame(this);
+    }
+
+    final DataFrame df = this.project(order.sortedIndex());
+    df.sortOrder = order.projectedFrom(df);
     return df;
   }
 
+  /**
+   * Returns {@code true} if the rows are known to be in {@code order}, or are found to be in order
+   * by a linear scan. The result of the scan is remembered until the series are replaced.
+   */
+  private boolean isSortedBy(SortOrder order) {
+    if (order.isSatisfiedBy(this.sortOrder)) {
+      return true;
+    }
+    if (order.isSorted()) {
+      this.sortOrder = order;
+      return true;
+    }
+    return false;
+  }
+
+  private SortOrder sortOrderOf(List<String> seriesNames) {
+    final String[] names = new String[seriesNames.size()];
+    final boolean[] descending = new boolean[seriesNames.size()];
+    final Series[] keys = new Series[seriesNames.size()];
+    for (int i = 0; i < seriesNames.size(); i++) {
+      final String name = seriesNames.get(i);
+      // an existing series named "-x" takes precedence over the descending order of "x"
+      descending[i] = !this.series.containsKey(name) && name.startsWith("-")
+          && this.series.containsKey(name.substring(1));
+      names[i] = descending[i] ? name.substring(1) : name;
+      keys[i] = this.get(names[i]);
+    }
+    return new SortOrder(names, descending, keys);
+  }
+
   /**
    * Returns a copy of the DataFrame with the order of values in the series reversed.
    *
@@ -1651,6 +1730,54 @@ public class DataFrame {
     return this.filter(this.get(seriesName).getObjects().eq(value));
   }
 
+  /**
+   * Returns a copy of the DataFrame with only the rows for which {@code series} is {@code true},
+   * in their original order. Equivalent to {@code filter(series)} followed by dropping the
+   * rejected rows, but copies each series once and keeps {@code null} values in selected rows.
+   *
+   * @param series filter series
+   * @return filtered and compacted DataFrame copy
+   * @see DataFrame#select(BooleanSeries)
+   */
+  public DataFrame filterCompact(BooleanSeries series) {
+    return this.select(series).toDataFrame();
+  }
+
+  public DataFrame filterCompact(String seriesName) {
+    return this.filterCompact(this.getBooleans(seriesName));
+  }
+
+  public DataFrame filterCompact(Series.Conditional conditional, String... seriesNames) {
+    return this.select(conditional, seriesNames).toDataFrame();
+  }
+
+  public DataFrame filterCompact(Series.Conditional conditional, Series... series) {
+    return this.filterCompact((BooleanSeries) Series.map(conditional, series));
+  }
+
+  /**
+   * Returns a lazy selection of the rows for which {@code series} is {@code true}. The selection
+   * holds the row indices only. Series are copied when the selection is materialized.
+   *
+   * @param series filter series
+   * @return selection of rows
+   * @throws IllegalArgumentException if the series size is not equal to the index size
+   */
+  public Selection select(BooleanSeries series) {
+    if (series.size() != this.size()) {
+      throw new IllegalArgumentException("Series size must be equal to index size");
+    }
+    return new Selection(new DataFrame(this), series.selection());
+  }
+
+  public Selection select(String seriesName) {
+    return this.select(this.getBooleans(seriesName));
+  }
+
+  public Selection select(Series.Conditional conditional, String... seriesNames) {
+    return this.select((BooleanSeries) Series.map(conditional, names2series(seriesNames)));
+  }
+
   /**
    * Sets the values of the series references by {@code seriesName} and masked by {@code mask}
    * to the corresponding values in {@code values}. Uses a copy of the affected series.
@@ -1855,20 +1982,42 @@ public class DataFrame {
    * @return DataFrame copy without null rows
    */
   public DataFrame dropNull(List<String> seriesNames) {
-    BooleanSeries isNull = BooleanSeries.fillValues(this.size(), false);
+    // combine the validity bitmaps of the series with null values
+    long[] valid = null;
     for (Series s : assertSeriesExist(seriesNames)) {
-      isNull = isNull.or(s.isNull());
+      long[] validity = s.validity();
+      if (validity == null) {
+        continue;
+      }
+      if (valid == null) {
+        valid = validity;
+      } else {
+        for (int w = 0; w < valid.length; w++) {
+          valid[w] &= validity[w];
+        }
+      }
+    }
+
+    if (valid == null) {
+      return new DataFrame(this);
     }
 
-    int[] fromIndex = new int[isNull.count(false)];
     int countNotNull = 0;
-    for (int i = 0; i < this.size(); i++) {
-      if (BooleanSeries.isFalse(isNull.getBoolean(i))) {
-        fromIndex[countNotNull++] = i;
+    for (long word : valid) {
+      countNotNull += Long.bitCount(word);
+    }
+
+    int[] fromIndex = new int[countNotNull];
+    int j = 0;
+    for (int w = 0; w < valid.length; w++) {
+      long word = valid[w];
+      while (word != 0) {
+        fromIndex[j++] = (w << 6) + Long.numberOfTrailingZeros(word);
+        word &= word - 1;
       }
     }
 
-    return this.project(Arrays.copyOf(fromIndex, countNotNull));
+    return this.project(fromIndex);
   }
 
   /* **************************************************************************
@@ -2427,6 +2576,307 @@ public class DataFrame {
     return variables;
   }
 
+  /**
+   * Lazy selection of rows of a DataFrame, as ascending row indices. Filters on a selection
+   * intersect the selected rows and only read the series they are applied to. Series are copied
+   * when the selection is materialized, with {@link #get(String)} or {@link #toDataFrame()}.
+   *
+   * <br/><b>NOTE:</b> the selection refers to the series of the DataFrame at the time it was
+   * created. Later changes to the DataFrame are not reflected.
+   */
+  public static final class Selection {
+
+    private final DataFrame source;
+    private final int[] rows;
+
+    private Selection(DataFrame source, int[] rows) {
+      this.source = source;
+      this.rows = rows;
+    }
+
+    /**
+     * Returns the number of selected rows.
+     */
+    public int size() {
+      return this.rows.length;
+    }
+
+    public boolean isEmpty() {
+      return this.rows.length == 0;
+    }
+
+    /**
+     * Returns the indices of the selected rows in the DataFrame, in ascending order.
+     */
+    public int[] rows() {
+      return Arrays.copyOf(this.rows, this.rows.length);
+    }
+
+    /**
+     * Returns the selected rows for which {@code series} is {@code true}. {@code series} is
+     * aligned with the rows of the DataFrame, not with the selection.
+     *
+     * @param series filter series
+     * @return selection of rows
+     * @throws IllegalArgumentException if the series size is not equal to the index size
+     */
+    public Selection filter(BooleanSeries series) {
+      if (series.size() != this.source.size()) {
+        throw new IllegalArgumentException("Series size must be equal to index size");
+      }
+      final byte[] values = series.values();
+      int count = 0;
+      final int[] rows = new int[this.rows.length];
+      for (final int row : this.rows) {
+        if (BooleanSeries.isTrue(values[row])) {
+          rows[count++] = row;
+        }
+      }
+      return new Selection(this.source, Arrays.copyOf(rows, count));
+    }
+
+    public Selection filter(String seriesName) {
+      return this.filter(this.source.getBooleans(seriesName));
+    }
+
+    /**
+     * Returns the selected rows for which the result of applying {@code conditional} to the
+     * series referenced by {@code seriesNames} is {@code true}. The conditional is applied to the
+     * selected rows only.
+     *
+     * @param conditional conditional to apply and filter by
+     * @param seriesNames series names
+     * @return selection of rows
+     */
+    public Selection filter(Series.Conditional conditional, String... seriesNames) {
+      final Series[] series = new Series[seriesNames.length];
+      for (int i = 0; i < seriesNames.length; i++) {
+        series[i] = this.get(seriesNames[i]);
+      }
+      final int[] selected = ((BooleanSeries) Series.map(conditional, series)).selection();
+      final int[] rows = new int[selected.length];
+      for (int i = 0; i < selected.length; i++) {
+        rows[i] = this.rows[selected[i]];
+      }
+      return new Selection(this.source, rows);
+    }
+
+    /**
+     * Returns the rows selected by both this selection and {@code other}.
+     *
+     * @param other selection on the same DataFrame
+     * @return selection of rows
+     * @throws IllegalArgumentException if the selections have different sizes of DataFrames
+     */
+    public Selection and(Selection other) {
+      if (other.source.size() != this.source.size()) {
+        throw new IllegalArgumentException("Selections must be on DataFrames of same size");
+      }
+      final int[] rows = new int[Math.min(this.rows.length, other.rows.length)];
+      int count = 0;
+      int i = 0;
+      int j = 0;
+      while (i < this.rows.length && j < other.rows.length) {
+        if (this.rows[i] < other.rows[j]) {
+          i++;
+        } else if (this.rows[i] > other.rows[j]) {
+          j++;
+        } else {
+          rows[count++] = this.rows[i];
+          i++;
+          j++;
+        }
+      }
+      return new Selection(this.source, Arrays.copyOf(rows, count));
+    }
+
+    /**
+     * Returns a copy of the selected rows of series {@code seriesName}.
+     *
+     * @param seriesName series name
+     * @return series copy
+     * @throws IllegalArgumentException if the series does not exist
+     */
+    public Series get(String seriesName) {
+      return this.source.get(seriesName).project(this.rows);
+    }
+
+    /**
+     * Returns a DataFrame with the selected rows of all series. Selected rows keep their order,
+     * so a known sort order of the DataFrame is kept as well.
+     *
+     * @return DataFrame copy
+     */
+    public DataFrame toDataFrame() {
+      final DataFrame df = this.source.project(this.rows);
+      final SortOrder order = this.source.sortOrder;
+      if (order != null && order.isOrderOf(this.source)) {
+        df.sortOrder = order.projectedFrom(df);
+      }
+      return df;
+    }
+  }
+
+  /**
+   * Sort series of a DataFrame, from the 1st to the nth. Holds the series instances it was
+   * computed from.
+   */
+  private static final class SortOrder {
+
+    private final String[] names;
+    private final boolean[] descending;
+    private final Series[] keys;
+
+    private SortOrder(String[] names, boolean[] descending, Series[] keys) {
+      this.names = names;
+      this.descending = descending;
+      this.keys = keys;
+    }
+
+    /**
+     * Returns {@code true} if rows sorted by {@code known} are also sorted by this order,
+     * i.e. this order is a prefix of {@code known} and the series were not replaced since.
+     */
+    private boolean isSatisfiedBy(SortOrder known) {
+      if (known == null || known.names.length < this.names.length) {
+        return false;
+      }
+      for (int i = 0; i < this.names.length; i++) {
+        if (!known.names[i].equals(this.names[i])
+            || known.descending[i] != this.descending[i]
+            || known.keys[i] != this.keys[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private int compare(int a, int b) {
+      for (int i = 0; i < this.keys.length; i++) {
+        final int result = this.keys[i].compare(this.keys[i], a, b);
+        if (result != 0) {
+          return this.descending[i] ? -result : result;
+        }
+      }
+      return 0;
+    }
+
+    private boolean isSorted() {
+      final int size = this.keys[0].size();
+      for (int i = 1; i < size; i++) {
+        if (this.compare(i - 1, i) > 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Sorts each series on its own, replaces its values by their dense rank, and sorts the rows
+     * once on the ranks. If the ranks of all the series fit in a long, the rows are radix sorted
+     * on the combined rank.
+     */
+    private int[] sortedIndex() {
+      if (this.keys.length == 1) {
+        return this.sortedIndex(0);
+      }
+
+      final int size = this.keys[0].size();
+      final int[][] ranks = new int[this.keys.length][];
+      final int[] rankBits = new int[this.keys.length];
+      int bits = 0;
+      for (int i = 0; i < this.keys.length; i++) {
+        ranks[i] = this.ranks(i);
+        rankBits[i] = Integer.SIZE - Integer.numberOfLeadingZeros(max(ranks[i]));
+        bits += rankBits[i];
+      }
+
+      if (bits < Long.SIZE) {
+        final long[] combined = new long[size];
+        for (int i = 0; i < this.keys.length; i++) {
+          final int[] rank = ranks[i];
+          for (int j = 0; j < size; j++) {
+            combined[j] = (combined[j] << rankBits[i]) | rank[j];
+          }
+        }
+        return IndexSort.sortLongs(combined);
+      }
+
+      return IndexSort.sort(size, (a, b) -> {
+        for (final int[] rank : ranks) {
+          final int result = Integer.compare(rank[a], rank[b]);
+          if (result != 0) {
+            return result;
+          }
+        }
+        return 0;
+      });
+    }
+
+    private int[] sortedIndex(int key) {
+      if (!this.descending[key]) {
+        return this.keys[key].sortedIndex();
+      }
+      // stable descending sort: the reverse of the ascending sort of the reversed series
+      final int[] reversed = this.keys[key].reverse().sortedIndex();
+      final int last = reversed.length - 1;
+      final int[] index = new int[reversed.length];
+      for (int i = 0; i < reversed.length; i++) {
+        index[i] = last - reversed[last - i];
+      }
+      return index;
+    }
+
+    /**
+     * Returns the rank of each value of the key in the sort order: 0 for the first value, equal
+     * values share a rank.
+     */
+    private int[] ranks(int key) {
+      final Series series = this.keys[key];
+      final int[] index = this.sortedIndex(key);
+      final int[] ranks = new int[index.length];
+      int rank = 0;
+      for (int i = 1; i < index.length; i++) {
+        if (series.compare(series, index[i - 1], index[i]) != 0) {
+          rank++;
+        }
+        ranks[index[i]] = rank;
+      }
+      return ranks;
+    }
+
+    private static int max(int[] values) {
+      int max = 0;
+      for (final int value : values) {
+        max = Math.max(max, value);
+      }
+      return max;
+    }
+
+    /**
+     * Returns {@code true} if this order was computed from the current series of {@code df}.
+     */
+    private boolean isOrderOf(DataFrame df) {
+      for (int i = 0; i < this.names.length; i++) {
+        if (df.series.get(this.names[i]) != this.keys[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns the same order on the series of {@code df}, sorted by this order.
+     */
+    private SortOrder projectedFrom(DataFrame df) {
+      final Series[] sortedKeys = new Series[this.names.length];
+      for (int i = 0; i < this.names.length; i++) {
+        sortedKeys[i] = df.get(this.names[i]);
+      }
+      return new SortOrder(this.names, this.descending, sortedKeys);
+    }
+  }
+
   /**
    * Builder for DataFrame in row-by-row sequence. Constructs each column as a StringSeries
    * and attempts to infer a tighter native type on completion.
@@ -2516,7 +2966,11 @@ public class DataFrame {
           // dynamic type
           ObjectSeries series = buildObjectSeries(i);
           Series.SeriesType type = series.inferType();
-          df.addSeries(rawName, series.get(type));
+          if (type == SeriesType.STRING) {
+            df.addSeries(rawName, StringSeries.buildCompressed(series.getStrings().values()));
+          } else {
+            df.addSeries(rawName, series.get(type));
+          }
         }
       }
 
@@ -2565,7 +3019,7 @@ public class DataFrame {
       for (Object[] r : this.rows) {
         values[i++] = toString(r[columnIndex]);
       }
-      return StringSeries.buildFrom(values);
+      return StringSeries.buildCompressed(values);
     }
 
     private BooleanSeries buildBooleanSeries(int columnIndex) {
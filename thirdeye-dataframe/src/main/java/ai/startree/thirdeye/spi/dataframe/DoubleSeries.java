@@ -13,11 +13,11 @@
  */
 package ai.startree.thirdeye.spi.dataframe;
 
+import ai.startree.thirdeye.spi.dataframe.Kernels.Comparison;
+import ai.startree.thirdeye.spi.dataframe.Kernels.Operator;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import org.apache.commons.math3.stat.correlation.Covariance;
 import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
@@ -340,6 +340,29 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     return new DoubleSeries(values);
   }
 
+  /**
+   * Returns a series of {@code values} with the rows that are not valid in {@code validity}
+   * set to {@code NULL}, e.g. to import a column of a columnar format. The values are copied.
+   *
+   * <br/><b>NOTE:</b> {@code NULL} is reserved. Valid rows with this value are null as well.
+   *
+   * @param values series values
+   * @param validity validity bitmap, or {@code null} if all values are valid
+   * @return series
+   * @see Series#validity()
+   */
+  public static DoubleSeries buildFrom(double[] values, long[] validity) {
+    final double[] copy = Arrays.copyOf(values, values.length);
+    if (validity != null) {
+      for (int i = 0; i < copy.length; i++) {
+        if (!isValid(validity, i)) {
+          copy[i] = NULL;
+        }
+      }
+    }
+    return new DoubleSeries(copy);
+  }
+
   public static DoubleSeries empty() {
     return new DoubleSeries();
   }
@@ -363,8 +386,16 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
   // CAUTION: The array is final, but values are inherently modifiable
   private final double[] values;
 
+  // counted on first use. NULL_COUNT_UNKNOWN until then
+  private int nullCount;
+
   private DoubleSeries(double... values) {
+    this(values, NULL_COUNT_UNKNOWN);
+  }
+
+  private DoubleSeries(double[] values, int nullCount) {
     this.values = values;
+    this.nullCount = nullCount;
   }
 
   @Override
@@ -460,6 +491,41 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     return this.values;
   }
 
+  @Override
+  int nullCount() {
+    // racy, but all threads count the same value
+    int nullCount = this.nullCount;
+    if (nullCount == NULL_COUNT_UNKNOWN) {
+      nullCount = 0;
+      for (final double value : this.values) {
+        nullCount += isNull(value) ? 1 : 0;
+      }
+      this.nullCount = nullCount;
+    }
+    return nullCount;
+  }
+
+  /**
+   * Returns {@code true} if {@code other} is a DoubleSeries of the same size and neither series has
+   * {@code null} values. Element-wise operations on such series run on the {@link Kernels}.
+   */
+  private boolean isDenseWith(Series other) {
+    return other instanceof DoubleSeries && other.size() == this.size()
+        && !this.hasNull() && !other.hasNull();
+  }
+
+  @Override
+  public long[] validity() {
+    if (this.nullCount() == 0) {
+      return null;
+    }
+    final long[] validity = new long[validityLength(this.values.length)];
+    for (int i = 0; i < this.values.length; i++) {
+      validity[i >>> 6] |= (isNull(this.values[i]) ? 0L : 1L) << i;
+    }
+    return validity;
+  }
+
   public double value() {
     if (this.size() != 1) {
       throw new IllegalStateException("Series must contain exactly one element");
@@ -650,6 +716,9 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (other.size() == 1) {
       return this.add(other.getDouble(0));
     }
+    if (this.isDenseWith(other)) {
+      return buildFrom(Kernels.apply(Operator.ADD, this.values, other.getDoubles().values));
+    }
     return map(new DoubleFunction() {
       @Override
       public double apply(double... values) {
@@ -662,6 +731,9 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (isNull(constant)) {
       return nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return buildFrom(Kernels.apply(Operator.ADD, this.values, constant));
+    }
     return this.map(new DoubleFunction() {
       @Override
       public double apply(double... values) {
@@ -674,6 +746,9 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (other.size() == 1) {
       return this.subtract(other.getDouble(0));
     }
+    if (this.isDenseWith(other)) {
+      return buildFrom(Kernels.apply(Operator.SUBTRACT, this.values, other.getDoubles().values));
+    }
     return map(new DoubleFunction() {
       @Override
       public double apply(double... values) {
@@ -686,6 +761,9 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (isNull(constant)) {
       return nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return buildFrom(Kernels.apply(Operator.SUBTRACT, this.values, constant));
+    }
     return this.map(new DoubleFunction() {
       @Override
       public double apply(double... values) {
@@ -698,6 +776,9 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (other.size() == 1) {
       return this.multiply(other.getDouble(0));
     }
+    if (this.isDenseWith(other)) {
+      return buildFrom(Kernels.apply(Operator.MULTIPLY, this.values, other.getDoubles().values));
+    }
     return map(new DoubleFunction() {
       @Override
       public double apply(double... values) {
@@ -710,6 +791,9 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (isNull(constant)) {
       return nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return buildFrom(Kernels.apply(Operator.MULTIPLY, this.values, constant));
+    }
     return this.map(new DoubleFunction() {
       @Override
       public double apply(double... values) {
@@ -726,6 +810,9 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (o.contains(0.0d)) {
       throw new ArithmeticException("/ by zero");
     }
+    if (this.isDenseWith(o)) {
+      return buildFrom(Kernels.apply(Operator.DIVIDE, this.values, o.values));
+    }
     return map(new DoubleFunction() {
       @Override
       public double apply(double... values) {
@@ -741,6 +828,9 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (constant == 0.0d) {
       throw new ArithmeticException("/ by zero");
     }
+    if (!this.hasNull()) {
+      return buildFrom(Kernels.apply(Operator.DIVIDE, this.values, constant));
+    }
     return this.map(new DoubleFunction() {
       @Override
       public double apply(double... values) {
@@ -774,6 +864,10 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (other.size() == 1) {
       return this.eq(other.getDouble(0));
     }
+    if (this.isDenseWith(other)) {
+      return BooleanSeries.buildFrom(Kernels.compare(
+          Comparison.EQ, this.values, other.getDoubles().values));
+    }
     return map(new DoubleConditional() {
       @Override
       public boolean apply(double... values) {
@@ -786,6 +880,9 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (isNull(constant)) {
       return BooleanSeries.nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return BooleanSeries.buildFrom(Kernels.compare(Comparison.EQ, this.values, constant));
+    }
     return this.map(new DoubleConditional() {
       @Override
       public boolean apply(double... values) {
@@ -818,6 +915,9 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (isNull(constant)) {
       return BooleanSeries.nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return BooleanSeries.buildFrom(Kernels.compare(Comparison.GT, this.values, constant));
+    }
     return this.map(new DoubleConditional() {
       @Override
       public boolean apply(double... values) {
@@ -830,6 +930,10 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (other.size() == 1) {
       return this.gt(other.getLong(0));
     }
+    if (this.isDenseWith(other)) {
+      return BooleanSeries.buildFrom(Kernels.compare(
+          Comparison.GT, this.values, other.getDoubles().values));
+    }
     return map(new DoubleConditional() {
       @Override
       public boolean apply(double... values) {
@@ -842,6 +946,9 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (isNull(constant)) {
       return BooleanSeries.nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return BooleanSeries.buildFrom(Kernels.compare(Comparison.GTE, this.values, constant));
+    }
     return this.map(new DoubleConditional() {
       @Override
       public boolean apply(double... values) {
@@ -854,6 +961,10 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (other.size() == 1) {
       return this.gte(other.getLong(0));
     }
+    if (this.isDenseWith(other)) {
+      return BooleanSeries.buildFrom(Kernels.compare(
+          Comparison.GTE, this.values, other.getDoubles().values));
+    }
     return map(new DoubleConditional() {
       @Override
       public boolean apply(double... values) {
@@ -866,6 +977,9 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (isNull(constant)) {
       return BooleanSeries.nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return BooleanSeries.buildFrom(Kernels.compare(Comparison.LT, this.values, constant));
+    }
     return this.map(new DoubleConditional() {
       @Override
       public boolean apply(double... values) {
@@ -878,6 +992,10 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (other.size() == 1) {
       return this.lt(other.getLong(0));
     }
+    if (this.isDenseWith(other)) {
+      return BooleanSeries.buildFrom(Kernels.compare(
+          Comparison.LT, this.values, other.getDoubles().values));
+    }
     return map(new DoubleConditional() {
       @Override
       public boolean apply(double... values) {
@@ -890,6 +1008,9 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (isNull(constant)) {
       return BooleanSeries.nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return BooleanSeries.buildFrom(Kernels.compare(Comparison.LTE, this.values, constant));
+    }
     return this.map(new DoubleConditional() {
       @Override
       public boolean apply(double... values) {
@@ -902,6 +1023,10 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     if (other.size() == 1) {
       return this.lte(other.getLong(0));
     }
+    if (this.isDenseWith(other)) {
+      return BooleanSeries.buildFrom(Kernels.compare(
+          Comparison.LTE, this.values, other.getDoubles().values));
+    }
     return map(new DoubleConditional() {
       @Override
       public boolean apply(double... values) {
@@ -1006,12 +1131,15 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
    */
   public DoubleSeries fillNull(double value) {
     double[] values = Arrays.copyOf(this.values, this.values.length);
+    if (this.nullCount() == 0) {
+      return new DoubleSeries(values, 0);
+    }
     for (int i = 0; i < values.length; i++) {
       if (isNull(values[i])) {
         values[i] = value;
       }
     }
-    return buildFrom(values);
+    return new DoubleSeries(values, isNull(value) ? this.nullCount() : 0);
   }
 
   public DoubleSeries fillInfinite(double value) {
@@ -1027,14 +1155,17 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
   @Override
   DoubleSeries project(int[] fromIndex) {
     double[] values = new double[fromIndex.length];
+    int countMissing = 0;
     for (int i = 0; i < fromIndex.length; i++) {
       if (fromIndex[i] == -1) {
         values[i] = NULL;
+        countMissing++;
       } else {
         values[i] = this.values[fromIndex[i]];
       }
     }
-    return buildFrom(values);
+    // rows of a series without nulls are not null
+    return new DoubleSeries(values, this.nullCount == 0 ? countMissing : NULL_COUNT_UNKNOWN);
   }
 
   @Override
@@ -1103,6 +1234,15 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
   }
 
   private static DoubleSeries mapUnrolled(DoubleFunction function, Series a) {
+    if (a instanceof DoubleSeries && !a.hasNull()) {
+      final double[] values = ((DoubleSeries) a).values;
+      final double[] output = new double[values.length];
+      for (int i = 0; i < values.length; i++) {
+        output[i] = function.apply(values[i]);
+      }
+      return buildFrom(output);
+    }
+
     double[] output = new double[a.size()];
     for (int i = 0; i < a.size(); i++) {
       if (a.isNull(i)) {
@@ -1260,45 +1400,18 @@ public final class DoubleSeries extends TypedSeries<DoubleSeries> {
     }
 
     if (count <= 0 || count >= values.length) {
-      return buildFrom(values);
+      return new DoubleSeries(values, count);
     }
 
     double[] newValues = new double[values.length];
     Arrays.fill(newValues, 0, count, Double.NaN);
     System.arraycopy(values, 0, newValues, count, values.length - count);
 
-    return buildFrom(newValues);
+    return new DoubleSeries(newValues, count);
   }
 
   @Override
   int[] sortedIndex() {
-    List<DoubleSortTuple> tuples = new ArrayList<>();
-    for (int i = 0; i < this.values.length; i++) {
-      tuples.add(new DoubleSortTuple(this.values[i], i));
-    }
-
-    Collections.sort(tuples, new Comparator<DoubleSortTuple>() {
-      @Override
-      public int compare(DoubleSortTuple a, DoubleSortTuple b) {
-        return nullSafeDoubleComparator(a.value, b.value);
-      }
-    });
-
-    int[] fromIndex = new int[tuples.size()];
-    for (int i = 0; i < tuples.size(); i++) {
-      fromIndex[i] = tuples.get(i).index;
-    }
-    return fromIndex;
-  }
-
-  static final class DoubleSortTuple {
-
-    final double value;
-    final int index;
-
-    DoubleSortTuple(double value, int index) {
-      this.value = value;
-      this.index = index;
-    }
+    return IndexSort.sortDoubles(this.values);
   }
 }
@@ -16,12 +16,14 @@ package ai.startree.thirdeye.spi.dataframe;
 import ai.startree.thirdeye.spi.dataframe.Series.LongConditional;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import org.apache.commons.lang3.ArrayUtils;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -42,13 +44,31 @@ public abstract class Grouping {
   public static final String OP_MEDIAN = "MEDIAN";
   public static final String OP_STD = "STD";
 
+  /**
+   * Groupings of series with fewer rows are aggregated serially, even in parallel mode.
+   */
+  static final int PARALLEL_MIN_ROWS = 100_000;
+  private static final int CHUNKS_PER_THREAD = 4;
+
   // TODO generate keys on-demand only
   final Series keys;
 
+  // pool to aggregate groups on in parallel mode, null otherwise
+  private ForkJoinPool pool;
+
   Grouping(Series keys) {
     this.keys = keys;
   }
 
+  /**
+   * Aggregates the groups of series with at least {@code PARALLEL_MIN_ROWS} rows on
+   * {@code pool}. Ranges of groups are aggregated in separate tasks and concatenated in order.
+   * Each group is aggregated as in serial mode, so the results are identical.
+   */
+  void setPool(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
   /**
    * Applies {@code function} as aggregation function to all values per group and
    * returns the result as a new DataFrame with the number of elements equal to the size
@@ -62,11 +82,8 @@ public abstract class Grouping {
    * @return grouped aggregation series
    */
   GroupingDataFrame aggregate(Series s, Series.Function function) {
-    Series.Builder builder = s.getBuilder();
-    for (int i = 0; i < this.size(); i++) {
-      builder.addSeries(this.apply(s, i).aggregate(function));
-    }
-    return makeResult(builder.build());
+    return makeResult(this.aggregateGroups(s, s::getBuilder,
+        i -> this.apply(s, i).aggregate(function)));
   }
 
   /**
@@ -78,110 +95,139 @@ public abstract class Grouping {
    */
   GroupingDataFrame count(Series s) {
     long[] values = new long[this.size()];
-    for (int i = 0; i < this.size(); i++) {
-      values[i] = this.apply(s, i).size();
-    }
+    this.forEachGroupRange(this.chunks(s.size()), (chunk, from, to) -> {
+      for (int i = from; i < to; i++) {
+        values[i] = this.apply(s, i).size();
+      }
+    });
     return makeResult(LongSeries.buildFrom(values));
   }
 
   GroupingDataFrame sum(Series s) {
-    Series.Builder builder = s.getBuilder();
-    for (int i = 0; i < this.size(); i++) {
-      builder.addSeries(this.apply(s, i).sum());
-    }
-    return makeResult(builder.build());
+    return makeResult(this.aggregateGroups(s, s::getBuilder, i -> this.apply(s, i).sum()));
   }
 
   GroupingDataFrame sum(DataFrame source, String groupBySeriesName, String sumSeriesName) {
-    Series.Builder builder = source.get(sumSeriesName).getBuilder();
-    for (int i = 0; i < this.size(); i++) {
-      Series group = this.apply(source.get(groupBySeriesName), i);
-      builder.addSeries(
-          source.filter((LongConditional) values -> group.getLongs().contains(values[0]),
+    Series groupBy = source.get(groupBySeriesName);
+    Series sum = source.get(sumSeriesName);
+    return makeResult(this.aggregateGroups(sum, sum::getBuilder, i -> {
+      Series group = this.apply(groupBy, i);
+      return source.select((LongConditional) values -> group.getLongs().contains(values[0]),
               groupBySeriesName)
-              .dropNull(groupBySeriesName)
-              .get(sumSeriesName)
-              .sum());
-    }
-    return makeResult(builder.build(), groupBySeriesName);
+          .get(sumSeriesName)
+          .sum();
+    }), groupBySeriesName);
   }
 
   GroupingDataFrame mean(DataFrame source, String groupBySeriesName, String meanSeriesName) {
-    Series.Builder builder = source.get(meanSeriesName).getBuilder();
-    for (int i = 0; i < this.size(); i++) {
-      Series group = this.apply(source.get(groupBySeriesName), i);
-      builder.addSeries(
-          source.filter((LongConditional) values -> group.getLongs().contains(values[0]),
+    Series groupBy = source.get(groupBySeriesName);
+    Series mean = source.get(meanSeriesName);
+    return makeResult(this.aggregateGroups(mean, mean::getBuilder, i -> {
+      Series group = this.apply(groupBy, i);
+      return source.select((LongConditional) values -> group.getLongs().contains(values[0]),
               groupBySeriesName)
-              .dropNull(groupBySeriesName)
-              .get(meanSeriesName)
-              .mean());
-    }
-    return makeResult(builder.build(), groupBySeriesName);
+          .get(meanSeriesName)
+          .mean();
+    }), groupBySeriesName);
   }
 
   GroupingDataFrame product(Series s) {
-    Series.Builder builder = s.getBuilder();
-    for (int i = 0; i < this.size(); i++) {
-      builder.addSeries(this.apply(s, i).product());
-    }
-    return makeResult(builder.build());
+    return makeResult(this.aggregateGroups(s, s::getBuilder, i -> this.apply(s, i).product()));
   }
 
   GroupingDataFrame min(Series s) {
-    Series.Builder builder = s.getBuilder();
-    for (int i = 0; i < this.size(); i++) {
-      builder.addSeries(this.apply(s, i).min());
-    }
-    return makeResult(builder.build());
+    return makeResult(this.aggregateGroups(s, s::getBuilder, i -> this.apply(s, i).min()));
   }
 
   GroupingDataFrame max(Series s) {
-    Series.Builder builder = s.getBuilder();
-    for (int i = 0; i < this.size(); i++) {
-      builder.addSeries(this.apply(s, i).max());
-    }
-    return makeResult(builder.build());
+    return makeResult(this.aggregateGroups(s, s::getBuilder, i -> this.apply(s, i).max()));
   }
 
   GroupingDataFrame first(Series s) {
-    Series.Builder builder = s.getBuilder();
-    for (int i = 0; i < this.size(); i++) {
-      builder.addSeries(this.apply(s, i).first());
-    }
-    return makeResult(builder.build());
+    return makeResult(this.aggregateGroups(s, s::getBuilder, i -> this.apply(s, i).first()));
   }
 
   GroupingDataFrame last(Series s) {
-    Series.Builder builder = s.getBuilder();
-    for (int i = 0; i < this.size(); i++) {
-      builder.addSeries(this.apply(s, i).last());
-    }
-    return makeResult(builder.build());
+    return makeResult(this.aggregateGroups(s, s::getBuilder, i -> this.apply(s, i).last()));
   }
 
   GroupingDataFrame mean(Series s) {
-    Series.Builder builder = DoubleSeries.builder();
-    for (int i = 0; i < this.size(); i++) {
-      builder.addSeries(this.apply(s, i).mean());
-    }
-    return makeResult(builder.build());
+    return makeResult(this.aggregateGroups(s, DoubleSeries::builder,
+        i -> this.apply(s, i).mean()));
   }
 
   GroupingDataFrame median(Series s) {
-    Series.Builder builder = DoubleSeries.builder();
-    for (int i = 0; i < this.size(); i++) {
-      builder.addSeries(this.apply(s, i).median());
-    }
-    return makeResult(builder.build());
+    return makeResult(this.aggregateGroups(s, DoubleSeries::builder,
+        i -> this.apply(s, i).median()));
   }
 
   GroupingDataFrame std(Series s) {
-    Series.Builder builder = DoubleSeries.builder();
-    for (int i = 0; i < this.size(); i++) {
-      builder.addSeries(this.apply(s, i).std());
+    return makeResult(this.aggregateGroups(s, DoubleSeries::builder,
+        i -> this.apply(s, i).std()));
+  }
+
+  /**
+   * Returns the series of the aggregates of all groups, in group order.
+   *
+   * @param s input series
+   * @param builders builders of the output series type
+   * @param aggregation aggregate of the group with the given index
+   * @return aggregated series
+   */
+  private Series aggregateGroups(Series s, Supplier<Series.Builder> builders,
+      IntFunction<Series> aggregation) {
+    final int chunks = this.chunks(s.size());
+    final Series[] parts = new Series[chunks];
+    this.forEachGroupRange(chunks, (chunk, from, to) -> {
+      final Series.Builder builder = builders.get();
+      for (int i = from; i < to; i++) {
+        builder.addSeries(aggregation.apply(i));
+      }
+      parts[chunk] = builder.build();
+    });
+    if (chunks == 1) {
+      return parts[0];
     }
-    return makeResult(builder.build());
+    return builders.get().addSeries(parts).build();
+  }
+
+  /**
+   * Returns the number of ranges to split the groups of a series of {@code rows} rows into.
+   * Returns {@code 1} if the groups are aggregated serially.
+   */
+  int chunks(int rows) {
+    if (this.pool == null || rows < PARALLEL_MIN_ROWS || this.size() < 2) {
+      return 1;
+    }
+    return Math.min(this.size(), this.pool.getParallelism() * CHUNKS_PER_THREAD);
+  }
+
+  /**
+   * Splits the groups into {@code chunks} consecutive ranges of the same size and calls
+   * {@code range} for each of them. Ranges run on the pool if there is more than one, and
+   * this method returns when all of them are done.
+   */
+  void forEachGroupRange(int chunks, GroupRange range) {
+    if (chunks == 1) {
+      range.accept(0, 0, this.size());
+      return;
+    }
+    final List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+    for (int c = 0; c < chunks; c++) {
+      final int chunk = c;
+      final int from = (int) ((long) this.size() * c / chunks);
+      final int to = (int) ((long) this.size() * (c + 1) / chunks);
+      tasks.add(this.pool.submit(() -> range.accept(chunk, from, to)));
+    }
+    for (final ForkJoinTask<?> task : tasks) {
+      task.join();
+    }
+  }
+
+  @FunctionalInterface
+  interface GroupRange {
+
+    void accept(int chunk, int from, int to);
   }
 
   /**
@@ -253,6 +299,29 @@ public abstract class Grouping {
       return this.grouping.isEmpty();
     }
 
+    /**
+     * Aggregates groups in parallel on the common {@code ForkJoinPool}. Results are identical to
+     * the serial ones. Sources with fewer than {@code 100,000} rows are still aggregated serially.
+     * <br/><b>NOTE:</b> functions passed to {@code aggregate()} must be thread-safe.
+     *
+     * @return this SeriesGrouping
+     */
+    public SeriesGrouping parallel() {
+      return this.parallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Aggregates groups in parallel on {@code pool}.
+     *
+     * @param pool pool to run the aggregation tasks on
+     * @return this SeriesGrouping
+     * @see SeriesGrouping#parallel()
+     */
+    public SeriesGrouping parallel(ForkJoinPool pool) {
+      this.grouping.setPool(pool);
+      return this;
+    }
+
     /**
      * Returns the SeriesGrouping's source series.
      *
@@ -341,6 +410,29 @@ public abstract class Grouping {
       return this.grouping.isEmpty();
     }
 
+    /**
+     * Aggregates groups in parallel on the common {@code ForkJoinPool}. Results are identical to
+     * the serial ones. Sources with fewer than {@code 100,000} rows are still aggregated serially.
+     * <br/><b>NOTE:</b> functions passed to {@code aggregate()} must be thread-safe.
+     *
+     * @return this DataFrameGrouping
+     */
+    public DataFrameGrouping parallel() {
+      return this.parallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Aggregates groups in parallel on {@code pool}.
+     *
+     * @param pool pool to run the aggregation tasks on
+     * @return this DataFrameGrouping
+     * @see DataFrameGrouping#parallel()
+     */
+    public DataFrameGrouping parallel(ForkJoinPool pool) {
+      this.grouping.setPool(pool);
+      return this;
+    }
+
     /**
      * Returns the DataFrameGrouping's source DataFrame.
      *
@@ -620,100 +712,647 @@ public abstract class Grouping {
    * Represents a Grouping based on value. Elements are grouped into separate buckets for each
    * distinct value in the series.
    * <br/><b>NOTE:</b> the resulting keys are equivalent to calling {@code unique()} on the series.
+   *
+   * <p>Rows are assigned a group id with a hash table. Groups of a single series are ordered by
+   * value, groups of an object series or of multiple series by first appearance. Sum, count,
+   * min, max, mean and std of long and double series are computed in a single pass over the rows,
+   * without building a series per group.
    */
   public static final class GroupingByValue extends Grouping {
 
-    private final List<int[]> buckets;
+    // group id of each row
+    private final int[] groupIds;
+    // rows of group g are rows[offsets[g]] to rows[offsets[g + 1] - 1], in ascending order
+    private final int[] offsets;
+    private final int[] rows;
 
-    private GroupingByValue(Series keys, List<int[]> buckets) {
+    private GroupingByValue(Series keys, int[] groupIds) {
       super(keys);
-      this.buckets = buckets;
+      this.groupIds = groupIds;
+      this.offsets = new int[keys.size() + 1];
+      this.rows = new int[groupIds.length];
+
+      for (int groupId : groupIds) {
+        this.offsets[groupId + 1]++;
+      }
+      for (int i = 0; i < keys.size(); i++) {
+        this.offsets[i + 1] += this.offsets[i];
+      }
+      final int[] next = Arrays.copyOf(this.offsets, keys.size());
+      for (int i = 0; i < groupIds.length; i++) {
+        this.rows[next[groupIds[i]]++] = i;
+      }
     }
 
     @Override
     Series apply(Series s, int groupIndex) {
-      return s.project(this.buckets.get(groupIndex));
+      return s.project(
+          Arrays.copyOfRange(this.rows, this.offsets[groupIndex], this.offsets[groupIndex + 1]));
+    }
+
+    @Override
+    GroupingDataFrame count(Series s) {
+      long[] values = new long[this.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = this.offsets[i + 1] - this.offsets[i];
+      }
+      return super.makeResult(LongSeries.buildFrom(values));
+    }
+
+    @Override
+    GroupingDataFrame sum(Series s) {
+      switch (s.type()) {
+        case LONG:
+          return this.sumLong(s.getLongs());
+        case DOUBLE:
+          return this.sumDouble(s.getDoubles());
+      }
+      return super.sum(s);
+    }
+
+    @Override
+    GroupingDataFrame min(Series s) {
+      switch (s.type()) {
+        case LONG:
+          return this.minMaxLong(s.getLongs(), false);
+        case DOUBLE:
+          return this.minMaxDouble(s.getDoubles(), false);
+      }
+      return super.min(s);
+    }
+
+    @Override
+    GroupingDataFrame max(Series s) {
+      switch (s.type()) {
+        case LONG:
+          return this.minMaxLong(s.getLongs(), true);
+        case DOUBLE:
+          return this.minMaxDouble(s.getDoubles(), true);
+      }
+      return super.max(s);
+    }
+
+    @Override
+    GroupingDataFrame mean(Series s) {
+      switch (s.type()) {
+        case LONG:
+        case DOUBLE:
+          return this.meanStd(s.getDoubles(), false);
+      }
+      return super.mean(s);
+    }
+
+    @Override
+    GroupingDataFrame std(Series s) {
+      switch (s.type()) {
+        case LONG:
+        case DOUBLE:
+          return this.meanStd(s.getDoubles(), true);
+      }
+      return super.std(s);
+    }
+
+    // NOTE: the kernels below visit the rows in ascending order, like the aggregation functions
+    // on a projected group. Floating point results are identical. Series without null values
+    // take a path without null checks, with the group sizes as counts. In parallel mode, each
+    // task aggregates a range of groups, one group after the other, over the rows of the group.
+    // Rows are still visited in ascending order within each group.
+
+    private int[] groupSizes() {
+      final int[] sizes = new int[this.size()];
+      for (int i = 0; i < sizes.length; i++) {
+        sizes[i] = this.offsets[i + 1] - this.offsets[i];
+      }
+      return sizes;
+    }
+
+    private GroupingDataFrame sumLong(LongSeries series) {
+      final long[] values = series.values();
+      final long[] sums = new long[this.size()];
+      final int chunks = super.chunks(values.length);
+      if (chunks > 1) {
+        super.forEachGroupRange(chunks, (chunk, from, to) -> {
+          for (int g = from; g < to; g++) {
+            long sum = 0;
+            int count = 0;
+            for (int k = this.offsets[g]; k < this.offsets[g + 1]; k++) {
+              final long value = values[this.rows[k]];
+              if (!LongSeries.isNull(value)) {
+                sum += value;
+                count++;
+              }
+            }
+            sums[g] = count > 0 ? sum : LongSeries.NULL;
+          }
+        });
+        return super.makeResult(LongSeries.buildFrom(sums));
+      }
+
+      final int[] counts;
+      if (series.hasNull()) {
+        counts = new int[this.size()];
+        for (int i = 0; i < values.length; i++) {
+          if (!LongSeries.isNull(values[i])) {
+            sums[this.groupIds[i]] += values[i];
+            counts[this.groupIds[i]]++;
+          }
+        }
+      } else {
+        counts = this.groupSizes();
+        for (int i = 0; i < values.length; i++) {
+          sums[this.groupIds[i]] += values[i];
+        }
+      }
+      for (int i = 0; i < sums.length; i++) {
+        if (counts[i] == 0) {
+          sums[i] = LongSeries.NULL;
+        }
+      }
+      return super.makeResult(LongSeries.buildFrom(sums));
+    }
+
+    private GroupingDataFrame sumDouble(DoubleSeries series) {
+      final double[] values = series.values();
+      final double[] sums = new double[this.size()];
+      final int chunks = super.chunks(values.length);
+      if (chunks > 1) {
+        super.forEachGroupRange(chunks, (chunk, from, to) -> {
+          for (int g = from; g < to; g++) {
+            double sum = 0;
+            int count = 0;
+            for (int k = this.offsets[g]; k < this.offsets[g + 1]; k++) {
+              final double value = values[this.rows[k]];
+              if (!DoubleSeries.isNull(value)) {
+                sum += value;
+                count++;
+              }
+            }
+            sums[g] = count > 0 ? sum : DoubleSeries.NULL;
+          }
+        });
+        return super.makeResult(DoubleSeries.buildFrom(sums));
+      }
+
+      final int[] counts;
+      if (series.hasNull()) {
+        counts = new int[this.size()];
+        for (int i = 0; i < values.length; i++) {
+          if (!DoubleSeries.isNull(values[i])) {
+            sums[this.groupIds[i]] += values[i];
+            counts[this.groupIds[i]]++;
+          }
+        }
+      } else {
+        counts = this.groupSizes();
+        for (int i = 0; i < values.length; i++) {
+          sums[this.groupIds[i]] += values[i];
+        }
+      }
+      for (int i = 0; i < sums.length; i++) {
+        if (counts[i] == 0) {
+          sums[i] = DoubleSeries.NULL;
+        }
+      }
+      return super.makeResult(DoubleSeries.buildFrom(sums));
+    }
+
+    private GroupingDataFrame minMaxLong(LongSeries series, boolean max) {
+      final long[] values = series.values();
+      final long[] result = new long[this.size()];
+      final int chunks = super.chunks(values.length);
+      if (chunks > 1) {
+        super.forEachGroupRange(chunks, (chunk, from, to) -> {
+          for (int g = from; g < to; g++) {
+            long current = LongSeries.NULL;
+            for (int k = this.offsets[g]; k < this.offsets[g + 1]; k++) {
+              final long value = values[this.rows[k]];
+              if (!LongSeries.isNull(value) && (LongSeries.isNull(current) || (max
+                  ? value > current : value < current))) {
+                current = value;
+              }
+            }
+            result[g] = current;
+          }
+        });
+        return super.makeResult(LongSeries.buildFrom(result));
+      }
+
+      if (!series.hasNull()) {
+        // NULL is the smallest long: the max of a non-empty group is greater
+        Arrays.fill(result, max ? LongSeries.NULL : Long.MAX_VALUE);
+        for (int i = 0; i < values.length; i++) {
+          final int groupId = this.groupIds[i];
+          result[groupId] = max ? Math.max(result[groupId], values[i])
+              : Math.min(result[groupId], values[i]);
+        }
+        return super.makeResult(LongSeries.buildFrom(this.nullEmptyGroups(result)));
+      }
+
+      Arrays.fill(result, LongSeries.NULL);
+      for (int i = 0; i < values.length; i++) {
+        final long value = values[i];
+        if (LongSeries.isNull(value)) {
+          continue;
+        }
+        final int groupId = this.groupIds[i];
+        final long current = result[groupId];
+        if (LongSeries.isNull(current) || (max ? value > current : value < current)) {
+          result[groupId] = value;
+        }
+      }
+      return super.makeResult(LongSeries.buildFrom(result));
+    }
+
+    private GroupingDataFrame minMaxDouble(DoubleSeries series, boolean max) {
+      final double[] values = series.values();
+      final double[] result = new double[this.size()];
+      final int chunks = super.chunks(values.length);
+      if (chunks > 1) {
+        super.forEachGroupRange(chunks, (chunk, from, to) -> {
+          for (int g = from; g < to; g++) {
+            double current = DoubleSeries.NULL;
+            for (int k = this.offsets[g]; k < this.offsets[g + 1]; k++) {
+              final double value = values[this.rows[k]];
+              if (DoubleSeries.isNull(value)) {
+                continue;
+              }
+              if (DoubleSeries.isNull(current)) {
+                current = value;
+              } else {
+                current = max ? Math.max(current, value) : Math.min(current, value);
+              }
+            }
+            result[g] = current;
+          }
+        });
+        return super.makeResult(DoubleSeries.buildFrom(result));
+      }
+
+      if (!series.hasNull()) {
+        Arrays.fill(result, max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+        for (int i = 0; i < values.length; i++) {
+          final int groupId = this.groupIds[i];
+          result[groupId] = max ? Math.max(result[groupId], values[i])
+              : Math.min(result[groupId], values[i]);
+        }
+        return super.makeResult(DoubleSeries.buildFrom(this.nullEmptyGroups(result)));
+      }
+
+      Arrays.fill(result, DoubleSeries.NULL);
+      for (int i = 0; i < values.length; i++) {
+        final double value = values[i];
+        if (DoubleSeries.isNull(value)) {
+          continue;
+        }
+        final int groupId = this.groupIds[i];
+        final double current = result[groupId];
+        if (DoubleSeries.isNull(current)) {
+          result[groupId] = value;
+        } else {
+          result[groupId] = max ? Math.max(current, value) : Math.min(current, value);
+        }
+      }
+      return super.makeResult(DoubleSeries.buildFrom(result));
+    }
+
+    private long[] nullEmptyGroups(long[] result) {
+      for (int i = 0; i < result.length; i++) {
+        if (this.offsets[i + 1] == this.offsets[i]) {
+          result[i] = LongSeries.NULL;
+        }
+      }
+      return result;
+    }
+
+    private double[] nullEmptyGroups(double[] result) {
+      for (int i = 0; i < result.length; i++) {
+        if (this.offsets[i + 1] == this.offsets[i]) {
+          result[i] = DoubleSeries.NULL;
+        }
+      }
+      return result;
+    }
+
+    private GroupingDataFrame meanStd(DoubleSeries series, boolean std) {
+      final double[] values = series.values();
+      final int chunks = super.chunks(values.length);
+      if (chunks > 1) {
+        final double[] result = new double[this.size()];
+        super.forEachGroupRange(chunks, (chunk, from, to) -> {
+          for (int g = from; g < to; g++) {
+            result[g] = this.meanStd(values, g, std);
+          }
+        });
+        return super.makeResult(DoubleSeries.buildFrom(result));
+      }
+
+      final boolean hasNull = series.hasNull();
+      final double[] sums = new double[this.size()];
+      final int[] counts;
+      if (hasNull) {
+        counts = new int[this.size()];
+        for (int i = 0; i < values.length; i++) {
+          if (!DoubleSeries.isNull(values[i])) {
+            sums[this.groupIds[i]] += values[i];
+            counts[this.groupIds[i]]++;
+          }
+        }
+      } else {
+        counts = this.groupSizes();
+        for (int i = 0; i < values.length; i++) {
+          sums[this.groupIds[i]] += values[i];
+        }
+      }
+
+      final double[] means = new double[this.size()];
+      for (int i = 0; i < means.length; i++) {
+        means[i] = counts[i] > 0 ? sums[i] / counts[i] : DoubleSeries.NULL;
+      }
+      if (!std) {
+        return super.makeResult(DoubleSeries.buildFrom(means));
+      }
+
+      final double[] vars = new double[this.size()];
+      for (int i = 0; i < values.length; i++) {
+        if (!hasNull || !DoubleSeries.isNull(values[i])) {
+          final double delta = values[i] - means[this.groupIds[i]];
+          vars[this.groupIds[i]] += delta * delta;
+        }
+      }
+      final double[] stds = new double[this.size()];
+      for (int i = 0; i < stds.length; i++) {
+        stds[i] = counts[i] > 1 ? Math.sqrt(vars[i] / (counts[i] - 1)) : DoubleSeries.NULL;
+      }
+      return super.makeResult(DoubleSeries.buildFrom(stds));
+    }
+
+    private double meanStd(double[] values, int groupId, boolean std) {
+      final int start = this.offsets[groupId];
+      final int end = this.offsets[groupId + 1];
+      double sum = 0;
+      int count = 0;
+      for (int k = start; k < end; k++) {
+        final double value = values[this.rows[k]];
+        if (!DoubleSeries.isNull(value)) {
+          sum += value;
+          count++;
+        }
+      }
+      if (count <= 0 || (std && count <= 1)) {
+        return DoubleSeries.NULL;
+      }
+      final double mean = sum / count;
+      if (!std) {
+        return mean;
+      }
+      double var = 0;
+      for (int k = start; k < end; k++) {
+        final double value = values[this.rows[k]];
+        if (!DoubleSeries.isNull(value)) {
+          final double delta = value - mean;
+          var += delta * delta;
+        }
+      }
+      return Math.sqrt(var / (count - 1));
     }
 
     public static GroupingByValue from(Series series) {
       if (series.isEmpty()) {
-        return new GroupingByValue(series.getBuilder().build(), new ArrayList<int[]>());
+        return new GroupingByValue(series.getBuilder().build(), new int[0]);
       }
       if (Series.SeriesType.OBJECT.equals(series.type())) {
         return from(series.getObjects());
       }
+      if (series instanceof StringSeries && ((StringSeries) series).isEncoded()) {
+        return from((StringSeries) series);
+      }
 
-      List<int[]> buckets = new ArrayList<>();
-      int[] sref = series.sortedIndex();
+      final int[] groupIds = new int[series.size()];
+      final Series keys = series.project(GroupIds.assign(new Series[]{series}, groupIds));
 
-      int bucketOffset = 0;
-      for (int i = 1; i < sref.length; i++) {
-        if (!series.equals(series, sref[i - 1], sref[i])) {
-          int[] fromIndex = Arrays.copyOfRange(sref, bucketOffset, i);
-          buckets.add(fromIndex);
-          bucketOffset = i;
-        }
+      // order the groups by value, as sorting the series would
+      final int[] keysOrder = keys.sortedIndex();
+      final int[] groupRanks = new int[keysOrder.length];
+      for (int i = 0; i < keysOrder.length; i++) {
+        groupRanks[keysOrder[i]] = i;
+      }
+      for (int i = 0; i < groupIds.length; i++) {
+        groupIds[i] = groupRanks[groupIds[i]];
       }
 
-      int[] fromIndex = Arrays.copyOfRange(sref, bucketOffset, sref.length);
-      buckets.add(fromIndex);
-
-      return new GroupingByValue(series.project(keysFromBuckets(buckets)), buckets);
+      return new GroupingByValue(keys.project(keysOrder), groupIds);
     }
 
-    public static GroupingByValue from(ObjectSeries series) {
-      Map<Object, List<Integer>> dynBuckets = new LinkedHashMap<>();
+    /**
+     * Groups a dictionary-encoded series by code. The codes are in the order of the values, so
+     * are the groups.
+     */
+    private static GroupingByValue from(StringSeries series) {
+      final int[] codes = series.codes();
 
-      for (int i = 0; i < series.size(); i++) {
-        Object key = series.getObject(i);
-        if (!dynBuckets.containsKey(key)) {
-          dynBuckets.put(key, new ArrayList<Integer>());
+      // group of each code, offset by one for nulls. codes of the dictionary may be missing
+      final int[] groupOfCode = new int[series.dictionary().length + 1];
+      for (final int code : codes) {
+        groupOfCode[code + 1] = 1;
+      }
+      final int[] keyCodes = new int[groupOfCode.length];
+      int groups = 0;
+      for (int i = 0; i < groupOfCode.length; i++) {
+        if (groupOfCode[i] != 0) {
+          keyCodes[groups] = i - 1;
+          groupOfCode[i] = groups++;
         }
-        dynBuckets.get(key).add(i);
       }
 
-      List<int[]> buckets = new ArrayList<>();
-      for (Map.Entry<Object, List<Integer>> entry : dynBuckets.entrySet()) {
-        buckets.add(ArrayUtils.toPrimitive(
-            entry.getValue().toArray(new Integer[0])));
+      final int[] groupIds = new int[codes.length];
+      for (int i = 0; i < codes.length; i++) {
+        groupIds[i] = groupOfCode[codes[i] + 1];
       }
 
-      return new GroupingByValue(series.project(keysFromBuckets(buckets)), buckets);
+      final Series keys = StringSeries.buildFrom(series.dictionary(),
+          Arrays.copyOf(keyCodes, groups));
+      return new GroupingByValue(keys, groupIds);
+    }
+
+    public static GroupingByValue from(ObjectSeries series) {
+      final int[] groupIds = new int[series.size()];
+      final int[] firstRows = GroupIds.assign(new Series[]{series}, groupIds);
+      return new GroupingByValue(series.project(firstRows), groupIds);
     }
 
     public static GroupingByValue from(Series[] series) {
       Series.assertSameLength(series);
 
-      List<int[]> buckets = new ArrayList<>();
-      PrimitiveMultimap m = new PrimitiveMultimap(series);
-      BitSet b = new BitSet(series[0].size());
+      final int[] groupIds = new int[series[0].size()];
+      final int[] firstRows = GroupIds.assign(series, groupIds);
 
-      for (int i = 0; i < series[0].size(); i++) {
-        if (!b.get(i)) {
-          int[] keys = m.get(series, i, series);
-          for (int k : keys) {
-            b.set(k);
+      DataFrame.Tuple[] tuples = new DataFrame.Tuple[firstRows.length];
+      for (int i = 0; i < firstRows.length; i++) {
+        tuples[i] = DataFrame.Tuple.buildFrom(series, firstRows[i]);
+      }
+
+      return new GroupingByValue(ObjectSeries.buildFrom((Object[]) tuples), groupIds);
+    }
+  }
+
+  /**
+   * Open-addressing hash table from row values to dense group ids, linear probing. Group ids are
+   * assigned in order of first appearance of the values.
+   */
+  private static final class GroupIds {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long GROUP_MASK = 0xFFFFFFFFL;
+
+    // 0xHHHHHHHHGGGGGGGG: hash, group id + 1. 0 indicates empty
+    private long[] slots = new long[INITIAL_CAPACITY * 2];
+    private int[] firstRows = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private GroupIds() {
+      // left blank
+    }
+
+    /**
+     * Writes the group id of each row to {@code groupIds} and returns the first row of each
+     * group. Rows are in the same group if the values of all the series are equal.
+     *
+     * @param series series with the group values
+     * @param groupIds output array with the size of the series
+     * @return first row of each group, by group id
+     */
+    static int[] assign(Series[] series, int[] groupIds) {
+      final GroupIds table = new GroupIds();
+      final Series.SeriesType type = series.length == 1 ? series[0].type() : null;
+      if (type == Series.SeriesType.LONG) {
+        table.assignValues(((LongSeries) series[0]).values(), groupIds);
+      } else if (type == Series.SeriesType.DOUBLE) {
+        final double[] values = ((DoubleSeries) series[0]).values();
+        final long[] bits = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+          // same equality as Double.compare()
+          bits[i] = Double.doubleToLongBits(values[i]);
+        }
+        table.assignValues(bits, groupIds);
+      } else if (type == Series.SeriesType.STRING) {
+        table.assignValues(((StringSeries) series[0]).values(), groupIds);
+      } else {
+        table.assignRows(series, groupIds);
+      }
+      return Arrays.copyOf(table.firstRows, table.size);
+    }
+
+    private void assignValues(long[] values, int[] groupIds) {
+      for (int row = 0; row < values.length; row++) {
+        final int hash = mix(values[row]);
+        int slot = hash & (this.slots.length - 1);
+        while (true) {
+          final long entry = this.slots[slot];
+          if (entry == 0) {
+            groupIds[row] = this.add(slot, hash, row);
+            break;
+          }
+          final int groupId = (int) (entry & GROUP_MASK) - 1;
+          if ((int) (entry >>> 32) == hash && values[this.firstRows[groupId]] == values[row]) {
+            groupIds[row] = groupId;
+            break;
           }
-          buckets.add(keys);
+          slot = (slot + 1) & (this.slots.length - 1);
         }
       }
+    }
 
-      int[] keys = keysFromBuckets(buckets);
-      DataFrame.Tuple[] tuples = new DataFrame.Tuple[keys.length];
-      for (int i = 0; i < keys.length; i++) {
-        tuples[i] = DataFrame.Tuple.buildFrom(series, keys[i]);
+    private void assignValues(String[] values, int[] groupIds) {
+      for (int row = 0; row < values.length; row++) {
+        final int hash = mix(Objects.hashCode(values[row]));
+        int slot = hash & (this.slots.length - 1);
+        while (true) {
+          final long entry = this.slots[slot];
+          if (entry == 0) {
+            groupIds[row] = this.add(slot, hash, row);
+            break;
+          }
+          final int groupId = (int) (entry & GROUP_MASK) - 1;
+          if ((int) (entry >>> 32) == hash
+              && Objects.equals(values[this.firstRows[groupId]], values[row])) {
+            groupIds[row] = groupId;
+            break;
+          }
+          slot = (slot + 1) & (this.slots.length - 1);
+        }
       }
+    }
 
-      return new GroupingByValue(ObjectSeries.buildFrom((Object[]) tuples), buckets);
+    private void assignRows(Series[] series, int[] groupIds) {
+      for (int row = 0; row < series[0].size(); row++) {
+        final int hash = hashRow(series, row);
+        int slot = hash & (this.slots.length - 1);
+        while (true) {
+          final long entry = this.slots[slot];
+          if (entry == 0) {
+            groupIds[row] = this.add(slot, hash, row);
+            break;
+          }
+          final int groupId = (int) (entry & GROUP_MASK) - 1;
+          if ((int) (entry >>> 32) == hash
+              && Series.equalsMultiple(series, series, this.firstRows[groupId], row)) {
+            groupIds[row] = groupId;
+            break;
+          }
+          slot = (slot + 1) & (this.slots.length - 1);
+        }
+      }
     }
 
-    private static int[] keysFromBuckets(List<int[]> buckets) {
-      int[] keyIndex = new int[buckets.size()];
-      int i = 0;
-      for (int[] b : buckets) {
-        keyIndex[i++] = b[0];
+    private int add(int slot, int hash, int row) {
+      if (this.size == this.firstRows.length) {
+        this.firstRows = Arrays.copyOf(this.firstRows, this.size * 2);
+      }
+      final int groupId = this.size++;
+      this.firstRows[groupId] = row;
+      this.slots[slot] = ((long) hash << 32) | (groupId + 1);
+
+      // keep the load factor at or below 0.5
+      if (this.size * 2 > this.slots.length) {
+        this.rehash();
+      }
+      return groupId;
+    }
+
+    private void rehash() {
+      final long[] oldSlots = this.slots;
+      this.slots = new long[oldSlots.length * 2];
+      final int mask = this.slots.length - 1;
+      for (long entry : oldSlots) {
+        if (entry != 0) {
+          int slot = (int) (entry >>> 32) & mask;
+          while (this.slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+          }
+          this.slots[slot] = entry;
+        }
       }
-      return keyIndex;
+    }
+
+    private static int hashRow(Series[] series, int row) {
+      long hash = 0;
+      for (Series s : series) {
+        hash = hash * 31 + (s.isNull(row) ? 0 : s.hashCode(row));
+      }
+      return mix(hash);
+    }
+
+    /**
+     * Murmur3 64-bit finalizer. Spreads the bits of timestamps and other values that only differ
+     * in their high bits.
+     */
+    private static int mix(long value) {
+      value ^= value >>> 33;
+      value *= 0xff51afd7ed558ccdL;
+      value ^= value >>> 33;
+      value *= 0xc4ceb9fe1a85ec53L;
+      value ^= value >>> 33;
+      return (int) value;
     }
   }
 
@@ -845,6 +1484,11 @@ public abstract class Grouping {
    * into overlapping buckets in sequences of {@code windowSize} consecutive items. The number
    * of buckets is guaranteed to be equal to {@code series_size - moving_window_size + 1}, or
    * 0 if the window size is greater than the series size.
+   *
+   * <p>Sum, min, max, mean, median, std and quantiles of long and double series are computed in
+   * a single pass over the series, without building a series per window.
+   *
+   * @see WindowKernels
    */
   public static final class GroupingByMovingWindow extends Grouping {
 
@@ -866,6 +1510,56 @@ public abstract class Grouping {
       return s.slice(start, groupIndex + 1);
     }
 
+    @Override
+    GroupingDataFrame aggregate(Series s, Series.Function function) {
+      final Series windows = this.aggregateWindows(s, function);
+      if (windows == null) {
+        return super.aggregate(s, function);
+      }
+      // same output type as the aggregation of each window
+      return super.makeResult(s.getBuilder().addSeries(windows).build());
+    }
+
+    @Override
+    GroupingDataFrame min(Series s) {
+      final Series windows = this.aggregateWindows(s,
+          Series.SeriesType.LONG.equals(s.type()) ? LongSeries.MIN : DoubleSeries.MIN);
+      return windows != null ? super.makeResult(windows) : super.min(s);
+    }
+
+    @Override
+    GroupingDataFrame max(Series s) {
+      final Series windows = this.aggregateWindows(s,
+          Series.SeriesType.LONG.equals(s.type()) ? LongSeries.MAX : DoubleSeries.MAX);
+      return windows != null ? super.makeResult(windows) : super.max(s);
+    }
+
+    @Override
+    GroupingDataFrame mean(Series s) {
+      final Series windows = this.aggregateWindows(s, DoubleSeries.MEAN);
+      return windows != null ? super.makeResult(windows) : super.mean(s);
+    }
+
+    @Override
+    GroupingDataFrame median(Series s) {
+      final Series windows = this.aggregateWindows(s, DoubleSeries.MEDIAN);
+      return windows != null ? super.makeResult(windows) : super.median(s);
+    }
+
+    @Override
+    GroupingDataFrame std(Series s) {
+      final Series windows = this.aggregateWindows(s, DoubleSeries.STD);
+      return windows != null ? super.makeResult(windows) : super.std(s);
+    }
+
+    /**
+     * Returns the aggregation of all windows with an incremental kernel, or {@code null} if there
+     * is none for {@code function} and the series type.
+     */
+    private Series aggregateWindows(Series s, Series.Function function) {
+      return WindowKernels.aggregate(s, function, this.windowSize, false);
+    }
+
     @Override
     GroupingDataFrame sum(Series s) {
       switch (s.type()) {
@@ -967,6 +1661,11 @@ public abstract class Grouping {
    * Represents an (overlapping) Grouping based on an expanding window. Elements are grouped
    * into overlapping buckets in expanding sequences of consecutive items (always starting with
    * index {@code 0}). The number of buckets is guaranteed to be equal to {@code series_size}.
+   *
+   * <p>Sum, min, max, mean, median, std and quantiles of long and double series are computed in
+   * a single pass over the series, without building a series per window.
+   *
+   * @see WindowKernels
    */
   public static final class GroupingByExpandingWindow extends Grouping {
 
@@ -982,6 +1681,42 @@ public abstract class Grouping {
       return s.slice(0, groupIndex + 1);
     }
 
+    @Override
+    GroupingDataFrame aggregate(Series s, Series.Function function) {
+      final Series windows = this.aggregateWindows(s, function);
+      if (windows == null) {
+        return super.aggregate(s, function);
+      }
+      // same output type as the aggregation of each window
+      return super.makeResult(s.getBuilder().addSeries(windows).build());
+    }
+
+    @Override
+    GroupingDataFrame mean(Series s) {
+      final Series windows = this.aggregateWindows(s, DoubleSeries.MEAN);
+      return windows != null ? super.makeResult(windows) : super.mean(s);
+    }
+
+    @Override
+    GroupingDataFrame median(Series s) {
+      final Series windows = this.aggregateWindows(s, DoubleSeries.MEDIAN);
+      return windows != null ? super.makeResult(windows) : super.median(s);
+    }
+
+    @Override
+    GroupingDataFrame std(Series s) {
+      final Series windows = this.aggregateWindows(s, DoubleSeries.STD);
+      return windows != null ? super.makeResult(windows) : super.std(s);
+    }
+
+    /**
+     * Returns the aggregation of all windows with an incremental kernel, or {@code null} if there
+     * is none for {@code function} and the series type.
+     */
+    private Series aggregateWindows(Series s, Series.Function function) {
+      return WindowKernels.aggregate(s, function, this.size, true);
+    }
+
     @Override
     GroupingDataFrame sum(Series s) {
       switch (s.type()) {
@@ -1199,12 +1934,12 @@ public abstract class Grouping {
       final long upper = groupIndex + 1 < this.cutoffs.length ?
           this.cutoffs[groupIndex + 1] : Long.MAX_VALUE;
 
-      return s.filter(new Series.LongConditional() {
+      return s.filterCompact(new Series.LongConditional() {
         @Override
         public boolean apply(long... values) {
           return values[0] >= lower && values[0] < upper;
         }
-      }).dropNull();
+      });
     }
 
     private static long[] makeCutoffs(DateTime origin, DateTime max, Period bucketSize) {
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.dataframe;
+
+/**
+ * Stable index sorts ("argsort") on primitive arrays. Returns the permutation of row indices
+ * that sorts the values, as used by {@code Series.project()}. Rows with equal values keep their
+ * order, which multi-series sorts rely on. No object is allocated per row.
+ *
+ * <p>Longs and doubles use a LSD radix sort on 8-bit digits. Digits that are the same for all
+ * the values are skipped: sorting timestamps of a few days only runs a few passes. Other types
+ * use a merge sort on the row indices. Input that is already sorted is detected in a single scan.
+ */
+final class IndexSort {
+
+  private static final int INSERTION_SORT_THRESHOLD = 32;
+  private static final int RADIX_BITS = 8;
+  private static final int RADIX = 1 << RADIX_BITS;
+  private static final int RADIX_MASK = RADIX - 1;
+  private static final int RADIX_PASSES = Long.SIZE / RADIX_BITS;
+
+  private IndexSort() {
+  }
+
+  /**
+   * Compares the values of two rows.
+   */
+  @FunctionalInterface
+  interface IndexComparator {
+
+    int compare(int a, int b);
+  }
+
+  /**
+   * Sorts in {@code Long.compare} order. {@code LongSeries.NULL} is the lowest long.
+   */
+  static int[] sortLongs(final long[] values) {
+    if (isSorted(values)) {
+      return identity(values.length);
+    }
+    final long[] keys = new long[values.length];
+    for (int i = 0; i < values.length; i++) {
+      // flip the sign bit: the signed order becomes the unsigned order of the digits
+      keys[i] = values[i] ^ Long.MIN_VALUE;
+    }
+    return sortUnsignedKeys(keys);
+  }
+
+  /**
+   * Sorts in {@code Double.compare} order, with nulls ({@code NaN}) first.
+   */
+  static int[] sortDoubles(final double[] values) {
+    final long[] keys = new long[values.length];
+    for (int i = 0; i < values.length; i++) {
+      keys[i] = unsignedKey(values[i]);
+    }
+    if (isSortedUnsigned(keys)) {
+      return identity(values.length);
+    }
+    return sortUnsignedKeys(keys);
+  }
+
+  /**
+   * Stable merge sort of the row indices {@code [0, size)}.
+   */
+  static int[] sort(final int size, final IndexComparator comparator) {
+    final int[] index = identity(size);
+    for (int i = 1; i < size; i++) {
+      if (comparator.compare(i - 1, i) > 0) {
+        mergeSort(index, new int[size], 0, size, comparator);
+        return index;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Maps a double to a long with the same order, as an unsigned long. Positive doubles keep their
+   * bits, negative doubles have their non-sign bits flipped, so that larger magnitudes come first.
+   * -0.0 is lower than 0.0 as with {@code Double.compare}. NaN maps to 0, the lowest key: no
+   * other double maps to 0 because {@code doubleToLongBits} collapses all NaNs to one value.
+   */
+  private static long unsignedKey(final double value) {
+    if (DoubleSeries.isNull(value)) {
+      return 0L;
+    }
+    final long bits = Double.doubleToLongBits(value);
+    final long signedKey = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    return signedKey ^ Long.MIN_VALUE;
+  }
+
+  private static int[] sortUnsignedKeys(long[] keys) {
+    final int size = keys.length;
+    int[] index = identity(size);
+    if (size < INSERTION_SORT_THRESHOLD) {
+      insertionSort(keys, index);
+      return index;
+    }
+
+    // histogram of every digit in a single pass
+    final int[] counts = new int[RADIX_PASSES * RADIX];
+    for (final long key : keys) {
+      for (int pass = 0; pass < RADIX_PASSES; pass++) {
+        counts[pass * RADIX + (int) ((key >>> (pass * RADIX_BITS)) & RADIX_MASK)]++;
+      }
+    }
+
+    long[] keysBuffer = null;
+    int[] indexBuffer = null;
+    for (int pass = 0; pass < RADIX_PASSES; pass++) {
+      final int shift = pass * RADIX_BITS;
+      final int offset = pass * RADIX;
+      if (counts[offset + (int) ((keys[0] >>> shift) & RADIX_MASK)] == size) {
+        // all keys have the same digit: the pass would not move anything
+        continue;
+      }
+      if (keysBuffer == null) {
+        keysBuffer = new long[size];
+        indexBuffer = new int[size];
+      }
+
+      // counts to start positions
+      int position = 0;
+      for (int digit = 0; digit < RADIX; digit++) {
+        final int count = counts[offset + digit];
+        counts[offset + digit] = position;
+        position += count;
+      }
+      for (int i = 0; i < size; i++) {
+        final int target = counts[offset + (int) ((keys[i] >>> shift) & RADIX_MASK)]++;
+        keysBuffer[target] = keys[i];
+        indexBuffer[target] = index[i];
+      }
+
+      final long[] swapKeys = keys;
+      keys = keysBuffer;
+      keysBuffer = swapKeys;
+      final int[] swapIndex = index;
+      index = indexBuffer;
+      indexBuffer = swapIndex;
+    }
+    return index;
+  }
+
+  private static void insertionSort(final long[] keys, final int[] index) {
+    for (int i = 1; i < keys.length; i++) {
+      final long key = keys[i];
+      final int row = index[i];
+      int j = i - 1;
+      while (j >= 0 && Long.compareUnsigned(keys[j], key) > 0) {
+        keys[j + 1] = keys[j];
+        index[j + 1] = index[j];
+        j--;
+      }
+      keys[j + 1] = key;
+      index[j + 1] = row;
+    }
+  }
+
+  /**
+   * Sorts {@code index[from, to)}. {@code buffer} has the size of {@code index}.
+   */
+  private static void mergeSort(final int[] index, final int[] buffer, final int from,
+      final int to, final IndexComparator comparator) {
+    if (to - from <= INSERTION_SORT_THRESHOLD) {
+      for (int i = from + 1; i < to; i++) {
+        final int row = index[i];
+        int j = i - 1;
+        while (j >= from && comparator.compare(index[j], row) > 0) {
+          index[j + 1] = index[j];
+          j--;
+        }
+        index[j + 1] = row;
+      }
+      return;
+    }
+    final int mid = (from + to) >>> 1;
+    mergeSort(index, buffer, from, mid, comparator);
+    mergeSort(index, buffer, mid, to, comparator);
+    if (comparator.compare(index[mid - 1], index[mid]) <= 0) {
+      // halves are already in order
+      return;
+    }
+
+    System.arraycopy(index, from, buffer, from, mid - from);
+    int left = from;
+    int right = mid;
+    int target = from;
+    while (left < mid && right < to) {
+      // take from the left half on ties: stable
+      if (comparator.compare(buffer[left], index[right]) <= 0) {
+        index[target++] = buffer[left++];
+      } else {
+        index[target++] = index[right++];
+      }
+    }
+    System.arraycopy(buffer, left, index, target, mid - left);
+  }
+
+  private static boolean isSorted(final long[] values) {
+    for (int i = 1; i < values.length; i++) {
+      if (values[i - 1] > values[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isSortedUnsigned(final long[] keys) {
+    for (int i = 1; i < keys.length; i++) {
+      if (Long.compareUnsigned(keys[i - 1], keys[i]) > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int[] identity(final int size) {
+    final int[] index = new int[size];
+    for (int i = 0; i < size; i++) {
+      index[i] = i;
+    }
+    return index;
+  }
+}
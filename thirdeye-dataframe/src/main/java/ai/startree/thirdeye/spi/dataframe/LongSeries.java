@@ -13,11 +13,11 @@
  */
 package ai.startree.thirdeye.spi.dataframe;
 
+import ai.startree.thirdeye.spi.dataframe.Kernels.Comparison;
+import ai.startree.thirdeye.spi.dataframe.Kernels.Operator;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -197,6 +197,29 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     return new LongSeries(values);
   }
 
+  /**
+   * Returns a series of {@code values} with the rows that are not valid in {@code validity}
+   * set to {@code NULL}, e.g. to import a column of a columnar format. The values are copied.
+   *
+   * <br/><b>NOTE:</b> {@code NULL} is reserved. Valid rows with this value are null as well.
+   *
+   * @param values series values
+   * @param validity validity bitmap, or {@code null} if all values are valid
+   * @return series
+   * @see Series#validity()
+   */
+  public static LongSeries buildFrom(long[] values, long[] validity) {
+    final long[] copy = Arrays.copyOf(values, values.length);
+    if (validity != null) {
+      for (int i = 0; i < copy.length; i++) {
+        if (!isValid(validity, i)) {
+          copy[i] = NULL;
+        }
+      }
+    }
+    return new LongSeries(copy);
+  }
+
   public static LongSeries empty() {
     return new LongSeries();
   }
@@ -232,8 +255,16 @@ public final class LongSeries extends TypedSeries<LongSeries> {
   // CAUTION: The array is final, but values are inherently modifiable
   private final long[] values;
 
+  // counted on first use. NULL_COUNT_UNKNOWN until then
+  private int nullCount;
+
   private LongSeries(long... values) {
+    this(values, NULL_COUNT_UNKNOWN);
+  }
+
+  private LongSeries(long[] values, int nullCount) {
     this.values = values;
+    this.nullCount = nullCount;
   }
 
   @Override
@@ -326,6 +357,41 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     return this.values;
   }
 
+  @Override
+  int nullCount() {
+    // racy, but all threads count the same value
+    int nullCount = this.nullCount;
+    if (nullCount == NULL_COUNT_UNKNOWN) {
+      nullCount = 0;
+      for (final long value : this.values) {
+        nullCount += isNull(value) ? 1 : 0;
+      }
+      this.nullCount = nullCount;
+    }
+    return nullCount;
+  }
+
+  /**
+   * Returns {@code true} if {@code other} is a LongSeries of the same size and neither series has
+   * {@code null} values. Element-wise operations on such series run on the {@link Kernels}.
+   */
+  private boolean isDenseWith(Series other) {
+    return other instanceof LongSeries && other.size() == this.size()
+        && !this.hasNull() && !other.hasNull();
+  }
+
+  @Override
+  public long[] validity() {
+    if (this.nullCount() == 0) {
+      return null;
+    }
+    final long[] validity = new long[validityLength(this.values.length)];
+    for (int i = 0; i < this.values.length; i++) {
+      validity[i >>> 6] |= (isNull(this.values[i]) ? 0L : 1L) << i;
+    }
+    return validity;
+  }
+
   public long value() {
     if (this.size() != 1) {
       throw new IllegalStateException("Series must contain exactly one element");
@@ -425,6 +491,9 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (other.size() == 1) {
       return this.add(other.getLong(0));
     }
+    if (this.isDenseWith(other)) {
+      return buildFrom(Kernels.apply(Operator.ADD, this.values, other.getLongs().values));
+    }
     return map(new LongFunction() {
       @Override
       public long apply(long... values) {
@@ -437,6 +506,9 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (isNull(constant)) {
       return nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return buildFrom(Kernels.apply(Operator.ADD, this.values, constant));
+    }
     return this.map(new LongFunction() {
       @Override
       public long apply(long... values) {
@@ -449,6 +521,9 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (other.size() == 1) {
       return this.subtract(other.getLong(0));
     }
+    if (this.isDenseWith(other)) {
+      return buildFrom(Kernels.apply(Operator.SUBTRACT, this.values, other.getLongs().values));
+    }
     return map(new LongFunction() {
       @Override
       public long apply(long... values) {
@@ -461,6 +536,9 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (isNull(constant)) {
       return nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return buildFrom(Kernels.apply(Operator.SUBTRACT, this.values, constant));
+    }
     return this.map(new LongFunction() {
       @Override
       public long apply(long... values) {
@@ -473,6 +551,9 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (other.size() == 1) {
       return this.multiply(other.getLong(0));
     }
+    if (this.isDenseWith(other)) {
+      return buildFrom(Kernels.apply(Operator.MULTIPLY, this.values, other.getLongs().values));
+    }
     return map(new LongFunction() {
       @Override
       public long apply(long... values) {
@@ -485,6 +566,9 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (isNull(constant)) {
       return nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return buildFrom(Kernels.apply(Operator.MULTIPLY, this.values, constant));
+    }
     return this.map(new LongFunction() {
       @Override
       public long apply(long... values) {
@@ -497,6 +581,9 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (other.size() == 1) {
       return this.divide(other.getLong(0));
     }
+    if (this.isDenseWith(other)) {
+      return buildFrom(Kernels.apply(Operator.DIVIDE, this.values, other.getLongs().values));
+    }
     return map(new LongFunction() {
       @Override
       public long apply(long... values) {
@@ -509,6 +596,9 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (isNull(constant)) {
       return nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return buildFrom(Kernels.apply(Operator.DIVIDE, this.values, constant));
+    }
     return this.map(new LongFunction() {
       @Override
       public long apply(long... values) {
@@ -521,6 +611,10 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (other.size() == 1) {
       return this.eq(other.getLong(0));
     }
+    if (this.isDenseWith(other)) {
+      return BooleanSeries.buildFrom(Kernels.compare(
+          Comparison.EQ, this.values, other.getLongs().values));
+    }
     return map(new LongConditional() {
       @Override
       public boolean apply(long... values) {
@@ -533,6 +627,9 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (isNull(constant)) {
       return BooleanSeries.nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return BooleanSeries.buildFrom(Kernels.compare(Comparison.EQ, this.values, constant));
+    }
     return this.map(new LongConditional() {
       @Override
       public boolean apply(long... values) {
@@ -552,6 +649,9 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (isNull(constant)) {
       return BooleanSeries.nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return BooleanSeries.buildFrom(Kernels.compare(Comparison.GT, this.values, constant));
+    }
     return this.map(new LongConditional() {
       @Override
       public boolean apply(long... values) {
@@ -564,6 +664,10 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (other.size() == 1) {
       return this.gt(other.getLong(0));
     }
+    if (this.isDenseWith(other)) {
+      return BooleanSeries.buildFrom(Kernels.compare(
+          Comparison.GT, this.values, other.getLongs().values));
+    }
     return map(new LongConditional() {
       @Override
       public boolean apply(long... values) {
@@ -576,6 +680,9 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (isNull(constant)) {
       return BooleanSeries.nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return BooleanSeries.buildFrom(Kernels.compare(Comparison.GTE, this.values, constant));
+    }
     return this.map(new LongConditional() {
       @Override
       public boolean apply(long... values) {
@@ -588,6 +695,10 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (other.size() == 1) {
       return this.gte(other.getLong(0));
     }
+    if (this.isDenseWith(other)) {
+      return BooleanSeries.buildFrom(Kernels.compare(
+          Comparison.GTE, this.values, other.getLongs().values));
+    }
     return map(new LongConditional() {
       @Override
       public boolean apply(long... values) {
@@ -600,6 +711,9 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (isNull(constant)) {
       return BooleanSeries.nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return BooleanSeries.buildFrom(Kernels.compare(Comparison.LT, this.values, constant));
+    }
     return this.map(new LongConditional() {
       @Override
       public boolean apply(long... values) {
@@ -612,6 +726,10 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (other.size() == 1) {
       return this.lt(other.getLong(0));
     }
+    if (this.isDenseWith(other)) {
+      return BooleanSeries.buildFrom(Kernels.compare(
+          Comparison.LT, this.values, other.getLongs().values));
+    }
     return map(new LongConditional() {
       @Override
       public boolean apply(long... values) {
@@ -624,6 +742,9 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (isNull(constant)) {
       return BooleanSeries.nulls(this.size());
     }
+    if (!this.hasNull()) {
+      return BooleanSeries.buildFrom(Kernels.compare(Comparison.LTE, this.values, constant));
+    }
     return this.map(new LongConditional() {
       @Override
       public boolean apply(long... values) {
@@ -636,6 +757,10 @@ public final class LongSeries extends TypedSeries<LongSeries> {
     if (other.size() == 1) {
       return this.lte(other.getLong(0));
     }
+    if (this.isDenseWith(other)) {
+      return BooleanSeries.buildFrom(Kernels.compare(
+          Comparison.LTE, this.values, other.getLongs().values));
+    }
     return map(new LongConditional() {
       @Override
       public boolean apply(long... values) {
@@ -743,25 +868,31 @@ public final class LongSeries extends TypedSeries<LongSeries> {
    */
   public LongSeries fillNull(long value) {
     long[] values = Arrays.copyOf(this.values, this.values.length);
+    if (this.nullCount() == 0) {
+      return new LongSeries(values, 0);
+    }
     for (int i = 0; i < values.length; i++) {
       if (isNull(values[i])) {
         values[i] = value;
       }
     }
-    return buildFrom(values);
+    return new LongSeries(values, isNull(value) ? this.nullCount() : 0);
   }
 
   @Override
   LongSeries project(int[] fromIndex) {
     long[] values = new long[fromIndex.length];
+    int countMissing = 0;
     for (int i = 0; i < fromIndex.length; i++) {
       if (fromIndex[i] == -1) {
         values[i] = NULL;
+        countMissing++;
       } else {
         values[i] = this.values[fromIndex[i]];
       }
     }
-    return buildFrom(values);
+    // rows of a series without nulls are not null
+    return new LongSeries(values, this.nullCount == 0 ? countMissing : NULL_COUNT_UNKNOWN);
   }
 
   @Override
@@ -830,6 +961,15 @@ public final class LongSeries extends TypedSeries<LongSeries> {
   }
 
   private static LongSeries mapUnrolled(LongFunction function, Series a) {
+    if (a instanceof LongSeries && !a.hasNull()) {
+      final long[] values = ((LongSeries) a).values;
+      final long[] output = new long[values.length];
+      for (int i = 0; i < values.length; i++) {
+        output[i] = function.apply(values[i]);
+      }
+      return buildFrom(output);
+    }
+
     long[] output = new long[a.size()];
     for (int i = 0; i < a.size(); i++) {
       if (a.isNull(i)) {
@@ -947,38 +1087,11 @@ public final class LongSeries extends TypedSeries<LongSeries> {
   public LongSeries sorted() {
     long[] values = Arrays.copyOf(this.values, this.values.length);
     Arrays.sort(values);
-    return buildFrom(values);
+    return new LongSeries(values, this.nullCount);
   }
 
   @Override
   int[] sortedIndex() {
-    List<LongSortTuple> tuples = new ArrayList<>();
-    for (int i = 0; i < this.values.length; i++) {
-      tuples.add(new LongSortTuple(this.values[i], i));
-    }
-
-    Collections.sort(tuples, new Comparator<LongSortTuple>() {
-      @Override
-      public int compare(LongSortTuple a, LongSortTuple b) {
-        return Long.compare(a.value, b.value);
-      }
-    });
-
-    int[] fromIndex = new int[tuples.size()];
-    for (int i = 0; i < tuples.size(); i++) {
-      fromIndex[i] = tuples.get(i).index;
-    }
-    return fromIndex;
-  }
-
-  static final class LongSortTuple {
-
-    final long value;
-    final int index;
-
-    LongSortTuple(long value, int index) {
-      this.value = value;
-      this.index = index;
-    }
+    return IndexSort.sortLongs(this.values);
   }
 }
@@ -686,23 +686,8 @@ public class ObjectSeries extends TypedSeries<ObjectSeries> {
 
   @Override
   int[] sortedIndex() {
-    List<ObjectSortTuple> tuples = new ArrayList<>();
-    for (int i = 0; i < this.values.length; i++) {
-      tuples.add(new ObjectSortTuple(this.values[i], i));
-    }
-
-    Collections.sort(tuples, new Comparator<ObjectSortTuple>() {
-      @Override
-      public int compare(ObjectSortTuple a, ObjectSortTuple b) {
-        return nullSafeObjectComparator(a.value, b.value);
-      }
-    });
-
-    int[] fromIndex = new int[tuples.size()];
-    for (int i = 0; i < tuples.size(); i++) {
-      fromIndex[i] = tuples.get(i).index;
-    }
-    return fromIndex;
+    return IndexSort.sort(this.values.length,
+        (a, b) -> nullSafeObjectComparator(this.values[a], this.values[b]));
   }
 
   @Override
@@ -710,17 +695,6 @@ public class ObjectSeries extends TypedSeries<ObjectSeries> {
     return this.values[index].hashCode();
   }
 
-  static final class ObjectSortTuple {
-
-    final Object value;
-    final int index;
-
-    ObjectSortTuple(Object value, int index) {
-      this.value = value;
-      this.index = index;
-    }
-  }
-
   /**
    * @see DataFrame#map(Function, Series...)
    */
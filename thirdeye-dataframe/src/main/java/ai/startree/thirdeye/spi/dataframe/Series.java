@@ -41,6 +41,8 @@ public abstract class Series {
   private static final String ONE_ELEMENT = "Series must contain exactly one element";
   private static final String NOT_SUPPORTED = "Operation not supported";
 
+  static final int NULL_COUNT_UNKNOWN = -1;
+
   public static final String TOSTRING_NULL = "null";
 
   public enum SeriesType {
@@ -745,12 +747,7 @@ public abstract class Series {
    * @return {@code true} if empty, {@code false} otherwise
    */
   public final boolean hasNull() {
-    for (int i = 0; i < this.size(); i++) {
-      if (this.isNull(i)) {
-        return true;
-      }
-    }
-    return false;
+    return this.nullCount() > 0;
   }
 
   /**
@@ -759,12 +756,7 @@ public abstract class Series {
    * @return {@code true} if all null or empty, {@code false} otherwise.
    */
   public final boolean allNull() {
-    for (int i = 0; i < this.size(); i++) {
-      if (!this.isNull(i)) {
-        return false;
-      }
-    }
-    return true;
+    return this.nullCount() == this.size();
   }
 
   /**
@@ -773,13 +765,50 @@ public abstract class Series {
    * @return count of non-null values
    */
   public final int count() {
-    int countNotNull = 0;
+    return this.size() - this.nullCount();
+  }
+
+  /**
+   * Returns the validity bitmap of the series, or {@code null} if the series does not contain
+   * {@code null} values. Bit {@code i % 64} of word {@code i / 64} is set if the value at
+   * index {@code i} is not null. Written as little-endian bytes, this is the layout of the
+   * validity buffers of columnar formats such as Apache Arrow.
+   *
+   * @return validity bitmap, or {@code null} if all values are valid
+   */
+  public long[] validity() {
+    if (this.nullCount() == 0) {
+      return null;
+    }
+    final long[] validity = new long[validityLength(this.size())];
     for (int i = 0; i < this.size(); i++) {
       if (!this.isNull(i)) {
-        countNotNull++;
+        validity[i >>> 6] |= 1L << i;
       }
     }
-    return countNotNull;
+    return validity;
+  }
+
+  /**
+   * Returns the number of {@code null} values in the series. Primitive series count them once,
+   * in a single pass over their values.
+   */
+  int nullCount() {
+    int nullCount = 0;
+    for (int i = 0; i < this.size(); i++) {
+      if (this.isNull(i)) {
+        nullCount++;
+      }
+    }
+    return nullCount;
+  }
+
+  static int validityLength(int size) {
+    return (size + Long.SIZE - 1) >>> 6;
+  }
+
+  static boolean isValid(long[] validity, int index) {
+    return (validity[index >>> 6] & (1L << index)) != 0;
   }
 
   /**
@@ -915,6 +944,33 @@ public abstract class Series {
     return this.filter(this.map(conditional));
   }
 
+  /**
+   * Returns a copy of the series with only the rows for which {@code mask} is {@code true},
+   * in their original order. Unlike {@code filter(mask).dropNull()}, other rows are not
+   * copied and {@code null} values in selected rows are kept.
+   *
+   * @param mask series to filter by
+   * @return filtered and compacted series copy
+   */
+  public Series filterCompact(BooleanSeries mask) {
+    if (mask.size() != this.size()) {
+      throw new IllegalArgumentException("Mask size must be equal to series size");
+    }
+    return this.project(mask.selection());
+  }
+
+  /**
+   * Returns a copy of the series with only the rows for which the result of applying
+   * {@code conditional} to the series is {@code true}.
+   *
+   * @param conditional conditional to apply and filter by
+   * @return filtered and compacted series copy
+   * @see Series#filterCompact(BooleanSeries)
+   */
+  public Series filterCompact(Conditional conditional) {
+    return this.filterCompact(this.map(conditional));
+  }
+
   //
   // NOTE: co-variant method messiness
   //
@@ -1280,10 +1336,13 @@ public abstract class Series {
       rightTyped[i] = right[i].get(left[i].type());
     }
 
+    Series[] leftKeys = Arrays.copyOf(left, left.length);
+    StringSeries.encodeJoinKeys(leftKeys, rightTyped);
+
     PrimitiveMultimap hashRight = new PrimitiveMultimap(rightTyped);
 
     for (int i = 0; i < left[0].size(); i++) {
-      int[] rows = hashRight.get(left, i, rightTyped);
+      int[] rows = hashRight.get(leftKeys, i, rightTyped);
       if (rows.length <= 0) {
         pairs.add(i, -1);
         continue;
@@ -1404,6 +1463,80 @@ public abstract class Series {
     return pairs;
   }
 
+  /**
+   * Returns a collection of JoinPairs for an outer join performed by merging two sides sorted
+   * on the join series. Produces the same pairs in the same order as {@code hashJoinOuter()}:
+   * left rows in order with their matches, then unmatched right rows.
+   *
+   * <br/><b>NOTE:</b> both sides must be sorted in ascending order of the join series, compared
+   * lexicographically, with the right side converted to the types of the left side.
+   *
+   * @param left left side of the join
+   * @param right right side of the join
+   * @return JoinPairs
+   * @see Series#hashJoinOuter(Series[], Series[])
+   */
+  static JoinPairs mergeJoinOuter(Series[] left, Series[] right) {
+    if (left.length != right.length) {
+      throw new IllegalArgumentException(
+          "Number of series on the left side of the join must be equal to the right side");
+    }
+    if (left.length <= 0) {
+      throw new IllegalArgumentException("Must join on at least one series");
+    }
+    assertSameLength(left);
+    assertSameLength(right);
+
+    JoinPairs pairs = new JoinPairs(left[0].size());
+    BitSet touchedRight = new BitSet(right[0].size());
+
+    Series[] rightTyped = new Series[right.length];
+    for (int i = 0; i < right.length; i++) {
+      rightTyped[i] = right[i].get(left[i].type());
+    }
+
+    // codes keep the order of the values
+    final Series[] leftKeys = Arrays.copyOf(left, left.length);
+    StringSeries.encodeJoinKeys(leftKeys, rightTyped);
+
+    final int rightSize = rightTyped[0].size();
+    int runStart = 0;
+    for (int i = 0; i < leftKeys[0].size(); i++) {
+      while (runStart < rightSize && compareMultiple(leftKeys, rightTyped, i, runStart) > 0) {
+        runStart++;
+      }
+      // rows of the right run match this left row and any equal left row after it
+      int runEnd = runStart;
+      while (runEnd < rightSize && compareMultiple(leftKeys, rightTyped, i, runEnd) == 0) {
+        runEnd++;
+      }
+      if (runEnd == runStart) {
+        pairs.add(i, -1);
+        continue;
+      }
+      for (int j = runStart; j < runEnd; j++) {
+        pairs.add(i, j);
+      }
+      touchedRight.set(runStart, runEnd);
+    }
+
+    for (int i = touchedRight.nextClearBit(0); i < rightSize; i = touchedRight.nextClearBit(i + 1)) {
+      pairs.add(-1, i);
+    }
+
+    return pairs;
+  }
+
+  static int compareMultiple(Series[] left, Series[] right, int indexLeft, int indexRight) {
+    for (int i = 0; i < left.length; i++) {
+      final int result = left[i].compare(right[i], indexLeft, indexRight);
+      if (result != 0) {
+        return result;
+      }
+    }
+    return 0;
+  }
+
   static boolean equalsMultiple(Series[] left, Series[] right, int indexLeft, int indexRight) {
     for (int i = 0; i < left.length; i++) {
       if (!left[i].equals(right[i], indexLeft, indexRight)) {
@@ -1463,51 +1596,6 @@ public abstract class Series {
 //    return this.project(fromIndex);
 //  }
 
-//  // NOTE: requires ordering of elements, difficult for generic objects
-//  List<JoinPair> mergeJoin(Series other) {
-//    // NOTE: merge join
-//    int[] lref = this.sortedIndex();
-//    int[] rref = other.sortedIndex();
-//
-//    List<JoinPair> pairs = new ArrayList<>();
-//    int i = 0;
-//    int j = 0;
-//    while(i < this.size() || j < other.size()) {
-//      if(j >= other.size() || (i < this.size() && this.compare(other, lref[i], rref[j]) < 0)) {
-//        pairs.add(new JoinPair(lref[i], -1));
-//        i++;
-//      } else if(i >= this.size() || (j < other.size() && this.compare(other, lref[i], rref[j]) > 0)) {
-//        pairs.add(new JoinPair(-1, rref[j]));
-//        j++;
-//      } else if(i < this.size() && j < other.size()) {
-//        // generate cross product
-//
-//        // count similar values on the left
-//        int lcount = 1;
-//        while(i + lcount < this.size() && this.equals(this, lref[i + lcount], lref[i + lcount - 1])) {
-//          lcount++;
-//        }
-//
-//        // count similar values on the right
-//        int rcount = 1;
-//        while(j + rcount < other.size() && other.equals(other, rref[j + rcount], rref[j + rcount - 1])) {
-//          rcount++;
-//        }
-//
-//        for(int l=0; l<lcount; l++) {
-//          for(int r=0; r<rcount; r++) {
-//            pairs.add(new JoinPair(lref[i + l], rref[j + r]));
-//          }
-//        }
-//
-//        i += lcount;
-//        j += rcount;
-//      }
-//    }
-//
-//    return pairs;
-//  }
-
 //  // NOTE: too slow
 //  static List<JoinPair> productJoin(Series[] left, Series[] right) {
 //    if(left.length != right.length)
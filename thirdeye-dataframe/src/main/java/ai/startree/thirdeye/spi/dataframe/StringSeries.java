@@ -132,7 +132,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     @Override
     public Builder addSeries(Collection<Series> series) {
       for (Series s : series) {
-        this.addValues(s.getStrings().values);
+        this.addValues(s.getStrings().values());
       }
       return this;
     }
@@ -145,7 +145,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
     @Override
     public StringSeries build() {
-      return StringSeries.buildFrom(this.values.toArray(new String[0]));
+      return StringSeries.buildCompressed(this.values.toArray(new String[0]));
     }
   }
 
@@ -157,6 +157,23 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     return new StringSeries(values);
   }
 
+  /**
+   * Returns a series of the values, dictionary-encoded if there are few distinct values, such as
+   * the values of a dimension. Operations that only compare values, like group-by, join, sort
+   * and filter by value, then run on integer codes.
+   *
+   * @param values series values
+   * @return series, dictionary-encoded or not
+   */
+  public static StringSeries buildCompressed(String... values) {
+    final StringSeries encoded = encode(values);
+    return encoded != null ? encoded : buildFrom(values);
+  }
+
+  static StringSeries buildFrom(String[] dictionary, int[] codes) {
+    return new StringSeries(dictionary, codes);
+  }
+
   public static StringSeries empty() {
     return new StringSeries();
   }
@@ -169,11 +186,31 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     return builder().fillValues(size, value).build();
   }
 
+  static final int NULL_CODE = -1;
+
+  // encode only if each value appears at least this many times on average
+  private static final int ENCODING_MIN_REPEATS = 4;
+  private static final int ENCODING_MIN_SIZE = 64;
+
   // CAUTION: The array is final, but values are inherently modifiable
+  // null if the series is dictionary-encoded
   private final String[] values;
 
+  // distinct non-null values in ascending order, and the position of the value of each row in
+  // the dictionary, NULL_CODE for null. null if the series is not dictionary-encoded
+  private final String[] dictionary;
+  private final int[] codes;
+
   private StringSeries(String... values) {
     this.values = values;
+    this.dictionary = null;
+    this.codes = null;
+  }
+
+  private StringSeries(String[] dictionary, int[] codes) {
+    this.values = null;
+    this.dictionary = dictionary;
+    this.codes = codes;
   }
 
   @Override
@@ -188,7 +225,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public double getDouble(int index) {
-    return getDouble(this.values[index]);
+    return getDouble(this.get(index));
   }
 
   public static double getDouble(String value) {
@@ -200,7 +237,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public long getLong(int index) {
-    return getLong(this.values[index]);
+    return getLong(this.get(index));
   }
 
   public static long getLong(String value) {
@@ -216,7 +253,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public byte getBoolean(int index) {
-    return getBoolean(this.values[index]);
+    return getBoolean(this.get(index));
   }
 
   public static byte getBoolean(String value) {
@@ -231,7 +268,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public String getString(int index) {
-    return getString(this.values[index]);
+    return getString(this.get(index));
   }
 
   public static String getString(String string) {
@@ -240,7 +277,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public Object getObject(int index) {
-    return getObject(this.values[index]);
+    return getObject(this.get(index));
   }
 
   public static Object getObject(String value) {
@@ -251,16 +288,25 @@ public final class StringSeries extends TypedSeries<StringSeries> {
   }
 
   public String get(int index) {
+    if (this.codes != null) {
+      return this.decode(this.codes[index]);
+    }
     return this.values[index];
   }
 
   @Override
   public boolean isNull(int index) {
+    if (this.codes != null) {
+      return this.codes[index] == NULL_CODE;
+    }
     return isNull(this.values[index]);
   }
 
   @Override
   public int size() {
+    if (this.codes != null) {
+      return this.codes.length;
+    }
     return this.values.length;
   }
 
@@ -269,7 +315,20 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     return SeriesType.STRING;
   }
 
+  /**
+   * Returns the values of the series. The values of a dictionary-encoded series are decoded into
+   * a new array.
+   *
+   * @return series values
+   */
   public String[] values() {
+    if (this.codes != null) {
+      final String[] values = new String[this.codes.length];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = this.decode(this.codes[i]);
+      }
+      return values;
+    }
     return this.values;
   }
 
@@ -277,23 +336,163 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     if (this.size() != 1) {
       throw new IllegalStateException("Series must contain exactly one element");
     }
-    return this.values[0];
+    return this.get(0);
+  }
+
+  boolean isEncoded() {
+    return this.codes != null;
+  }
+
+  String[] dictionary() {
+    return this.dictionary;
+  }
+
+  int[] codes() {
+    return this.codes;
+  }
+
+  private String decode(int code) {
+    return code == NULL_CODE ? NULL : this.dictionary[code];
+  }
+
+  /**
+   * Returns the code of {@code value} in the dictionary, or a negative value other than
+   * {@code NULL_CODE} if the dictionary does not contain it.
+   */
+  private int codeOf(String value) {
+    if (isNull(value)) {
+      return NULL_CODE;
+    }
+    final int code = Arrays.binarySearch(this.dictionary, value);
+    return code >= 0 ? code : Integer.MIN_VALUE;
+  }
+
+  private String[] copyOfValues() {
+    if (this.codes != null) {
+      return this.values();
+    }
+    return Arrays.copyOf(this.values, this.values.length);
+  }
+
+  private StringSeries withCodes(int[] codes) {
+    return new StringSeries(this.dictionary, codes);
+  }
+
+  private boolean hasSameDictionary(StringSeries that) {
+    return this.codes != null && that.codes != null && this.dictionary == that.dictionary;
+  }
+
+  /**
+   * Returns the dictionary-encoded series of the values, or {@code null} if there are too many
+   * distinct values for the encoding to pay off.
+   */
+  private static StringSeries encode(String[] values) {
+    if (values.length < ENCODING_MIN_SIZE) {
+      return null;
+    }
+    final int maxCardinality = values.length / ENCODING_MIN_REPEATS;
+
+    // codes in order of first appearance
+    final Map<String, Integer> ids = new HashMap<>();
+    final int[] codes = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      final String value = values[i];
+      if (isNull(value)) {
+        codes[i] = NULL_CODE;
+        continue;
+      }
+      Integer id = ids.get(value);
+      if (id == null) {
+        if (ids.size() >= maxCardinality) {
+          return null;
+        }
+        id = ids.size();
+        ids.put(value, id);
+      }
+      codes[i] = id;
+    }
+
+    // codes in order of values
+    final String[] dictionary = ids.keySet().toArray(new String[0]);
+    Arrays.sort(dictionary);
+    final int[] remap = new int[dictionary.length];
+    for (int i = 0; i < dictionary.length; i++) {
+      remap[ids.get(dictionary[i])] = i;
+    }
+    for (int i = 0; i < codes.length; i++) {
+      if (codes[i] != NULL_CODE) {
+        codes[i] = remap[codes[i]];
+      }
+    }
+
+    return new StringSeries(dictionary, codes);
+  }
+
+  /**
+   * Replaces each pair of dictionary-encoded join series by LongSeries of codes, with the same
+   * equality and order as the string values. Left values map to twice their code, right values
+   * to twice the code of the same left value, or to an odd number between the codes of the left
+   * values around it.
+   *
+   * @param left left side of the join, replaced in place
+   * @param right right side of the join, replaced in place
+   */
+  static void encodeJoinKeys(Series[] left, Series[] right) {
+    for (int i = 0; i < left.length; i++) {
+      if (!(left[i] instanceof StringSeries) || !(right[i] instanceof StringSeries)) {
+        continue;
+      }
+      final StringSeries l = (StringSeries) left[i];
+      final StringSeries r = (StringSeries) right[i];
+      if (!l.isEncoded() || !r.isEncoded()) {
+        continue;
+      }
+
+      final long[] rightOfCode = new long[r.dictionary.length];
+      for (int j = 0; j < rightOfCode.length; j++) {
+        final int code = l.dictionary == r.dictionary ? j
+            : Arrays.binarySearch(l.dictionary, r.dictionary[j]);
+        rightOfCode[j] = code >= 0 ? 2L * code : 2L * (-code - 1) - 1;
+      }
+
+      final long[] leftCodes = new long[l.codes.length];
+      for (int j = 0; j < leftCodes.length; j++) {
+        leftCodes[j] = l.codes[j] == NULL_CODE ? LongSeries.NULL : 2L * l.codes[j];
+      }
+      final long[] rightCodes = new long[r.codes.length];
+      for (int j = 0; j < rightCodes.length; j++) {
+        rightCodes[j] = r.codes[j] == NULL_CODE ? LongSeries.NULL : rightOfCode[r.codes[j]];
+      }
+
+      left[i] = LongSeries.buildFrom(leftCodes);
+      right[i] = LongSeries.buildFrom(rightCodes);
+    }
   }
 
   @Override
   public StringSeries unique() {
-    Set<String> uniques = new HashSet<>(Arrays.asList(this.values));
+    Set<String> uniques = new HashSet<>(Arrays.asList(this.values()));
     String[] values = new String[uniques.size()];
     return StringSeries.buildFrom(uniques.toArray(values));
   }
 
   /**
    * Returns a compressed series via string de-duplication. After applying this method,
-   * equal strings in the series reference the same string instance.
+   * equal strings in the series reference the same string instance. If there are few distinct
+   * values, the series is dictionary-encoded.
    *
    * @return compressed string series
+   * @see StringSeries#buildCompressed(String...)
    */
   public StringSeries compress() {
+    if (this.codes != null) {
+      return this;
+    }
+    final StringSeries encoded = encode(this.values);
+    if (encoded != null) {
+      return encoded;
+    }
+
     Map<String, String> map = new HashMap<>();
 
     String[] values = new String[this.values.length];
@@ -314,7 +513,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
    * @return list of series elements
    */
   public List<String> toList() {
-    return Arrays.asList(this.values);
+    return Arrays.asList(this.values());
   }
 
   /**
@@ -332,7 +531,8 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     boolean isLong = true;
     boolean isDouble = true;
 
-    for (String s : this.values) {
+    // nulls are not in the dictionary, they do not change the type
+    for (String s : this.codes != null ? this.dictionary : this.values) {
       isBoolean &= (s == null) || (s.length() <= 0) || (s.compareToIgnoreCase("true") == 0
           || s.compareToIgnoreCase("false") == 0);
       isLong &=
@@ -367,6 +567,9 @@ public final class StringSeries extends TypedSeries<StringSeries> {
   public StringSeries slice(int from, int to) {
     from = Math.max(Math.min(this.size(), from), 0);
     to = Math.max(Math.min(this.size(), to), 0);
+    if (this.codes != null) {
+      return this.withCodes(Arrays.copyOfRange(this.codes, from, to));
+    }
     return StringSeries.buildFrom(Arrays.copyOfRange(this.values, from, to));
   }
 
@@ -447,6 +650,18 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     if (isNull(constant)) {
       return BooleanSeries.nulls(this.size());
     }
+    if (this.codes != null) {
+      final int code = this.codeOf(constant);
+      final byte[] values = new byte[this.codes.length];
+      for (int i = 0; i < values.length; i++) {
+        if (this.codes[i] == NULL_CODE) {
+          values[i] = BooleanSeries.NULL;
+        } else {
+          values[i] = BooleanSeries.valueOf(this.codes[i] == code);
+        }
+      }
+      return BooleanSeries.buildFrom(values);
+    }
     return this.map(new StringConditional() {
       @Override
       public boolean apply(String... values) {
@@ -462,8 +677,8 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     }
     assertSameLength(this, mask, other);
 
-    String[] values = Arrays.copyOf(this.values, this.values.length);
-    for (int i = 0; i < this.values.length; i++) {
+    String[] values = this.copyOfValues();
+    for (int i = 0; i < values.length; i++) {
       if (BooleanSeries.isTrue(mask.getBoolean(i))) {
         values[i] = other.getString(i);
       }
@@ -473,18 +688,38 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   public StringSeries set(BooleanSeries mask, String value) {
     assertSameLength(this, mask);
-    String[] values = new String[this.values.length];
+    if (this.codes != null && (isNull(value) || this.codeOf(value) >= 0)) {
+      final int code = this.codeOf(value);
+      final int[] codes = new int[this.codes.length];
+      for (int i = 0; i < mask.size(); i++) {
+        codes[i] = BooleanSeries.isTrue(mask.getBoolean(i)) ? code : this.codes[i];
+      }
+      return this.withCodes(codes);
+    }
+
+    String[] values = new String[this.size()];
     for (int i = 0; i < mask.size(); i++) {
       if (BooleanSeries.isTrue(mask.getBoolean(i))) {
         values[i] = value;
       } else {
-        values[i] = this.values[i];
+        values[i] = this.get(i);
       }
     }
     return buildFrom(values);
   }
 
   public int count(String value) {
+    if (this.codes != null) {
+      final int code = this.codeOf(value);
+      int count = 0;
+      for (int c : this.codes) {
+        if (c == code) {
+          count++;
+        }
+      }
+      return count;
+    }
+
     int count = 0;
     for (String v : this.values) {
       if (nullSafeStringComparator(v, value) == 0) {
@@ -514,7 +749,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
   public String toString() {
     StringBuilder builder = new StringBuilder();
     builder.append("StringSeries{");
-    for (String s : this.values) {
+    for (String s : this.values()) {
       if (isNull(s)) {
         builder.append("null ");
       } else {
@@ -532,7 +767,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     if (this.isNull(index)) {
       return TOSTRING_NULL;
     }
-    return this.values[index];
+    return this.get(index);
   }
 
   @Override
@@ -548,7 +783,18 @@ public final class StringSeries extends TypedSeries<StringSeries> {
    * @return series copy without nulls
    */
   public StringSeries fillNull(String value) {
-    String[] values = Arrays.copyOf(this.values, this.values.length);
+    if (this.codes != null && (isNull(value) || this.codeOf(value) >= 0)) {
+      final int code = this.codeOf(value);
+      final int[] codes = Arrays.copyOf(this.codes, this.codes.length);
+      for (int i = 0; i < codes.length; i++) {
+        if (codes[i] == NULL_CODE) {
+          codes[i] = code;
+        }
+      }
+      return this.withCodes(codes);
+    }
+
+    String[] values = this.copyOfValues();
     for (int i = 0; i < values.length; i++) {
       if (isNull(values[i])) {
         values[i] = value;
@@ -559,6 +805,14 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   StringSeries project(int[] fromIndex) {
+    if (this.codes != null) {
+      final int[] codes = new int[fromIndex.length];
+      for (int i = 0; i < fromIndex.length; i++) {
+        codes[i] = fromIndex[i] == -1 ? NULL_CODE : this.codes[fromIndex[i]];
+      }
+      return this.withCodes(codes);
+    }
+
     String[] values = new String[fromIndex.length];
     for (int i = 0; i < fromIndex.length; i++) {
       if (fromIndex[i] == -1) {
@@ -581,22 +835,29 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
     StringSeries that = (StringSeries) o;
 
-    return Arrays.equals(this.values, that.values);
+    if (this.hasSameDictionary(that)) {
+      return Arrays.equals(this.codes, that.codes);
+    }
+    return Arrays.equals(this.values(), that.values());
   }
 
   @Override
   int compare(Series that, int indexThis, int indexThat) {
-    return nullSafeStringComparator(this.values[indexThis], that.getString(indexThat));
+    if (that instanceof StringSeries && this.hasSameDictionary((StringSeries) that)) {
+      // the dictionary is sorted and NULL_CODE is the smallest code
+      return Integer.compare(this.codes[indexThis], ((StringSeries) that).codes[indexThat]);
+    }
+    return nullSafeStringComparator(this.get(indexThis), that.getString(indexThat));
   }
 
   @Override
   public int hashCode() {
-    return Arrays.hashCode(this.values);
+    return Arrays.hashCode(this.values());
   }
 
   @Override
   int hashCode(int index) {
-    return Objects.hashCode(this.values[index]);
+    return Objects.hashCode(this.get(index));
   }
 
   /**
@@ -710,7 +971,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
    * @see Series#aggregate(Function)
    */
   public static StringSeries aggregate(StringFunction function, Series series) {
-    return buildFrom(function.apply(series.dropNull().getStrings().values));
+    return buildFrom(function.apply(series.dropNull().getStrings().values()));
   }
 
   /**
@@ -718,7 +979,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
    */
   public static BooleanSeries aggregate(StringConditional function, Series series) {
     return BooleanSeries.builder()
-        .addBooleanValues(function.apply(series.dropNull().getStrings().values)).build();
+        .addBooleanValues(function.apply(series.dropNull().getStrings().values())).build();
   }
 
   public static boolean isNull(String value) {
@@ -748,6 +1009,20 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public StringSeries shift(int offset) {
+    if (this.codes != null) {
+      final int[] codes = new int[this.codes.length];
+      if (offset >= 0) {
+        Arrays.fill(codes, 0, Math.min(offset, codes.length), NULL_CODE);
+        System.arraycopy(this.codes, 0, codes, Math.min(offset, codes.length),
+            Math.max(codes.length - offset, 0));
+      } else {
+        System.arraycopy(this.codes, Math.min(-offset, codes.length), codes, 0,
+            Math.max(codes.length + offset, 0));
+        Arrays.fill(codes, Math.max(codes.length + offset, 0), codes.length, NULL_CODE);
+      }
+      return this.withCodes(codes);
+    }
+
     String[] values = new String[this.values.length];
     if (offset >= 0) {
       Arrays.fill(values, 0, Math.min(offset, values.length), NULL);
@@ -763,6 +1038,10 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public StringSeries sorted() {
+    if (this.codes != null) {
+      return this.project(this.sortedIndex());
+    }
+
     String[] values = Arrays.copyOf(this.values, this.values.length);
     Arrays.sort(values, new Comparator<String>() {
       @Override
@@ -775,33 +1054,28 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   int[] sortedIndex() {
-    List<StringSortTuple> tuples = new ArrayList<>();
-    for (int i = 0; i < this.values.length; i++) {
-      tuples.add(new StringSortTuple(this.values[i], i));
-    }
-
-    Collections.sort(tuples, new Comparator<StringSortTuple>() {
-      @Override
-      public int compare(StringSortTuple a, StringSortTuple b) {
-        return nullSafeStringComparator(a.value, b.value);
-      }
-    });
-
-    int[] fromIndex = new int[tuples.size()];
-    for (int i = 0; i < tuples.size(); i++) {
-      fromIndex[i] = tuples.get(i).index;
+    if (this.codes != null) {
+      return this.sortedIndexByCodes();
     }
-    return fromIndex;
+    return IndexSort.sort(this.values.length,
+        (a, b) -> nullSafeStringComparator(this.values[a], this.values[b]));
   }
 
-  static final class StringSortTuple {
-
-    final String value;
-    final int index;
-
-    StringSortTuple(String value, int index) {
-      this.value = value;
-      this.index = index;
+  /**
+   * Stable counting sort on the codes, in the order of the dictionary, nulls first.
+   */
+  private int[] sortedIndexByCodes() {
+    final int[] offsets = new int[this.dictionary.length + 2];
+    for (final int code : this.codes) {
+      offsets[code + 2]++;
+    }
+    for (int i = 2; i < offsets.length; i++) {
+      offsets[i] += offsets[i - 1];
+    }
+    final int[] index = new int[this.codes.length];
+    for (int i = 0; i < this.codes.length; i++) {
+      index[offsets[this.codes[i] + 1]++] = i;
     }
+    return index;
   }
 }
@@ -76,6 +76,16 @@ public abstract class TypedSeries<T extends Series> extends Series {
     return (T) super.filter(conditional);
   }
 
+  @Override
+  public T filterCompact(BooleanSeries mask) {
+    return (T) super.filterCompact(mask);
+  }
+
+  @Override
+  public T filterCompact(Conditional conditional) {
+    return (T) super.filterCompact(conditional);
+  }
+
   @Override
   public T first() {
     return (T) super.first();
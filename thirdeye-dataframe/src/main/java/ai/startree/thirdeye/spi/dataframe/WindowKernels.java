@@ -0,0 +1,440 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.dataframe;
+
+import java.util.Arrays;
+
+/**
+ * Incremental aggregations over sliding windows of primitive arrays. The window of row
+ * {@code i} is rows {@code [i - windowSize + 1, i]}, clipped at row {@code 0}. Null values are
+ * skipped, and a window without values aggregates to {@code null}, as with the aggregation
+ * functions on a slice of the series.
+ *
+ * <p>Each row enters and leaves the window once: min and max keep a monotonic deque of rows,
+ * mean and std keep running sums, median and quantiles keep the window's rows in a Fenwick tree
+ * indexed by value rank. Min, max, median and quantiles pick values of the window and return
+ * the same results as the aggregation functions. So do means of expanding windows and means of
+ * long values whose window sums fit in 53 bits. Other means and stds are close to the results of
+ * the aggregation functions: values leaving the window are subtracted instead of summing the
+ * window again. Means use a compensated sum, so that the low bits of small values are not lost
+ * next to a large value that leaves the window later. Stds use values shifted by a recent value
+ * of the window, so that a large constant offset does not cancel out the variance, and are
+ * recomputed from the window when the shift leaves the window or when a value much larger than
+ * the rest of the window leaves it. Running sums are recomputed from the window at most about
+ * once every {@code windowSize} rows besides such outliers, in {@code O(1)} per row, so that
+ * rounding errors do not grow along the series.
+ */
+final class WindowKernels {
+
+  // long values up to this magnitude are represented exactly as doubles
+  private static final long MAX_EXACT_DOUBLE = 1L << 53;
+  // running sums are recomputed from the window when the largest magnitude added since they were
+  // last recomputed is this many times larger than the magnitudes of the window: their rounding
+  // errors scale with the former, and would be too large relative to the window
+  private static final double MEAN_REBUILD_RATIO = 1 << 26;
+  // same for the squared shifts of stds
+  private static final double STD_REBUILD_RATIO = 1 << 20;
+
+  private WindowKernels() {
+  }
+
+  /**
+   * Returns the aggregation of the windows of {@code s} with {@code function}, or {@code null}
+   * if there is no kernel for the function or for the series type.
+   *
+   * @param s input series
+   * @param function aggregation function
+   * @param windowSize window size
+   * @param partial whether the first {@code windowSize - 1} rows are aggregated over their
+   *     shorter window. If not, they aggregate to {@code null}.
+   * @return aggregated series, or {@code null}
+   */
+  static Series aggregate(Series s, Series.Function function, int windowSize, boolean partial) {
+    if (s.type() != Series.SeriesType.LONG && s.type() != Series.SeriesType.DOUBLE) {
+      return null;
+    }
+
+    if (function == LongSeries.MIN || function == LongSeries.MAX) {
+      if (s.type() != Series.SeriesType.LONG) {
+        return null;
+      }
+      long[] values = minMax(s.getLongs().values(), windowSize, function == LongSeries.MAX);
+      return LongSeries.buildFrom(nullPartial(values, windowSize, partial));
+    }
+
+    final double[] values;
+    if (function == DoubleSeries.MIN || function == DoubleSeries.MAX) {
+      values = minMax(s.getDoubles().values(), windowSize, function == DoubleSeries.MAX);
+    } else if (function == DoubleSeries.MEAN) {
+      values = s.type() == Series.SeriesType.LONG ? mean(s.getLongs().values(), windowSize)
+          : mean(s.getDoubles().values(), windowSize);
+    } else if (function == DoubleSeries.STD) {
+      values = std(s.getDoubles().values(), windowSize);
+    } else if (function == DoubleSeries.MEDIAN) {
+      values = quantile(s.getDoubles().values(), windowSize, 0.5, true);
+    } else if (function instanceof DoubleSeries.DoubleQuantile) {
+      values = quantile(s.getDoubles().values(), windowSize,
+          ((DoubleSeries.DoubleQuantile) function).q, false);
+    } else {
+      return null;
+    }
+    return DoubleSeries.buildFrom(nullPartial(values, windowSize, partial));
+  }
+
+  static long[] minMax(long[] values, int windowSize, boolean max) {
+    final long[] output = new long[values.length];
+    // rows of the window with decreasing (min) or increasing (max) values
+    final int[] deque = new int[values.length];
+    int head = 0;
+    int tail = 0;
+    for (int i = 0; i < values.length; i++) {
+      final long value = values[i];
+      if (!LongSeries.isNull(value)) {
+        while (tail > head && (max ? values[deque[tail - 1]] <= value
+            : values[deque[tail - 1]] >= value)) {
+          tail--;
+        }
+        deque[tail++] = i;
+      }
+      if (tail > head && deque[head] <= i - windowSize) {
+        head++;
+      }
+      output[i] = tail > head ? values[deque[head]] : LongSeries.NULL;
+    }
+    return output;
+  }
+
+  /**
+   * Values are compared as with {@code Double.compare}: -0.0 is lower than 0.0, as with
+   * {@code Math.min()} and {@code Math.max()}.
+   */
+  static double[] minMax(double[] values, int windowSize, boolean max) {
+    final double[] output = new double[values.length];
+    final int[] deque = new int[values.length];
+    int head = 0;
+    int tail = 0;
+    for (int i = 0; i < values.length; i++) {
+      final double value = values[i];
+      if (!DoubleSeries.isNull(value)) {
+        while (tail > head && (max ? Double.compare(values[deque[tail - 1]], value) <= 0
+            : Double.compare(values[deque[tail - 1]], value) >= 0)) {
+          tail--;
+        }
+        deque[tail++] = i;
+      }
+      if (tail > head && deque[head] <= i - windowSize) {
+        head++;
+      }
+      output[i] = tail > head ? values[deque[head]] : DoubleSeries.NULL;
+    }
+    return output;
+  }
+
+  static double[] mean(long[] values, int windowSize) {
+    long maxAbs = 0;
+    for (long value : values) {
+      if (!LongSeries.isNull(value)) {
+        maxAbs = Math.max(maxAbs, Math.abs(value));
+      }
+    }
+    if (maxAbs > MAX_EXACT_DOUBLE / Math.max(Math.min(windowSize, values.length), 1)) {
+      final double[] doubles = new double[values.length];
+      for (int i = 0; i < values.length; i++) {
+        doubles[i] = LongSeries.isNull(values[i]) ? DoubleSeries.NULL : (double) values[i];
+      }
+      return mean(doubles, windowSize);
+    }
+
+    // the sums of the window are exact as doubles: same result as summing the window
+    final double[] output = new double[values.length];
+    long sum = 0;
+    int count = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (!LongSeries.isNull(values[i])) {
+        sum += values[i];
+        count++;
+      }
+      if (i >= windowSize && !LongSeries.isNull(values[i - windowSize])) {
+        sum -= values[i - windowSize];
+        count--;
+      }
+      output[i] = count > 0 ? (double) sum / count : DoubleSeries.NULL;
+    }
+    return output;
+  }
+
+  /**
+   * Running sum with Neumaier's compensation: the low bits of a value lost next to a much larger
+   * one are kept when the larger one leaves the window. Until a value leaves the window, the
+   * plain running sum is the sum of the window. The sum is recomputed from the window every
+   * {@code windowSize} rows, so that rounding errors do not accumulate over the series, and when
+   * the values much larger than the rest of the window have left it: the compensation is a double
+   * too, and loses the low bits of small values next to the rounding error of a very large one.
+   */
+  static double[] mean(double[] values, int windowSize) {
+    final double[] output = new double[values.length];
+    double sum = 0;
+    double compensation = 0;
+    double absSum = 0;
+    double maxAbs = 0;
+    boolean removed = false;
+    int count = 0;
+    for (int i = 0; i < values.length; i++) {
+      boolean rebuild = isRebuild(i, windowSize);
+      if (!rebuild) {
+        if (!DoubleSeries.isNull(values[i])) {
+          final double value = values[i];
+          final double next = sum + value;
+          compensation += roundingError(sum, value, next);
+          sum = next;
+          absSum += Math.abs(value);
+          maxAbs = Math.max(maxAbs, Math.abs(value));
+          count++;
+        }
+        if (i >= windowSize && !DoubleSeries.isNull(values[i - windowSize])) {
+          final double value = -values[i - windowSize];
+          final double next = sum + value;
+          compensation += roundingError(sum, value, next);
+          sum = next;
+          absSum -= Math.abs(value);
+          removed = true;
+          count--;
+          if (count == 0) {
+            sum = 0;
+            compensation = 0;
+            absSum = 0;
+            maxAbs = 0;
+            removed = false;
+          } else {
+            rebuild = maxAbs > MEAN_REBUILD_RATIO * absSum;
+          }
+        }
+      }
+
+      if (rebuild) {
+        sum = 0;
+        compensation = 0;
+        absSum = 0;
+        maxAbs = 0;
+        removed = false;
+        count = 0;
+        for (int j = Math.max(i - windowSize + 1, 0); j <= i; j++) {
+          if (!DoubleSeries.isNull(values[j])) {
+            final double next = sum + values[j];
+            compensation += roundingError(sum, values[j], next);
+            sum = next;
+            absSum += Math.abs(values[j]);
+            maxAbs = Math.max(maxAbs, Math.abs(values[j]));
+            count++;
+          }
+        }
+      }
+      output[i] = count > 0 ? (removed ? sum + compensation : sum) / count : DoubleSeries.NULL;
+    }
+    return output;
+  }
+
+  /**
+   * Exact rounding error of {@code next = sum + value}: Neumaier's compensation term.
+   */
+  private static double roundingError(double sum, double value, double next) {
+    return Math.abs(sum) >= Math.abs(value) ? (sum - next) + value : (value - next) + sum;
+  }
+
+  /**
+   * Sample standard deviation from the running sums of the values and of their squares, shifted
+   * by a reference value of the window. Shifted values are small next to a large constant offset
+   * of the series, so the variance does not cancel out.
+   *
+   * <p>The sums are recomputed from the window, with its last value as the new reference, when
+   * the reference leaves the window: an outlier can't stay the reference of the values after it.
+   * They are also recomputed when the values much larger than the rest of the window have left
+   * it: the low bits of the other values were lost next to them.
+   */
+  static double[] std(double[] values, int windowSize) {
+    final double[] output = new double[values.length];
+    double reference = DoubleSeries.NULL;
+    int referenceRow = -1;
+    double sum = 0;
+    double sumSquares = 0;
+    double maxSquare = 0;
+    int count = 0;
+    for (int i = 0; i < values.length; i++) {
+      boolean rebuild = i >= windowSize && referenceRow == i - windowSize;
+      if (!rebuild) {
+        final double value = values[i];
+        if (!DoubleSeries.isNull(value)) {
+          if (DoubleSeries.isNull(reference)) {
+            reference = value;
+            referenceRow = i;
+          }
+          final double delta = value - reference;
+          sum += delta;
+          sumSquares += delta * delta;
+          maxSquare = Math.max(maxSquare, delta * delta);
+          count++;
+        }
+        if (i >= windowSize && !DoubleSeries.isNull(values[i - windowSize])) {
+          final double delta = values[i - windowSize] - reference;
+          sum -= delta;
+          sumSquares -= delta * delta;
+          count--;
+          if (count == 0) {
+            reference = DoubleSeries.NULL;
+            referenceRow = -1;
+            sum = 0;
+            sumSquares = 0;
+            maxSquare = 0;
+          } else {
+            rebuild = maxSquare > STD_REBUILD_RATIO * sumSquares;
+          }
+        }
+      }
+
+      if (rebuild) {
+        reference = DoubleSeries.NULL;
+        referenceRow = -1;
+        sum = 0;
+        sumSquares = 0;
+        maxSquare = 0;
+        count = 0;
+        final int from = Math.max(i - windowSize + 1, 0);
+        for (int j = i; j >= from; j--) {
+          if (!DoubleSeries.isNull(values[j])) {
+            if (DoubleSeries.isNull(reference)) {
+              reference = values[j];
+              referenceRow = j;
+            }
+            final double delta = values[j] - reference;
+            sum += delta;
+            sumSquares += delta * delta;
+            maxSquare = Math.max(maxSquare, delta * delta);
+            count++;
+          }
+        }
+      }
+      output[i] = count > 1
+          ? Math.sqrt(Math.max(sumSquares - sum * sum / count, 0) / (count - 1))
+          : DoubleSeries.NULL;
+    }
+    return output;
+  }
+
+  /**
+   * Returns whether the running sums are recomputed from the window at row {@code i}: once per
+   * {@code windowSize} rows, after values started leaving the window. Costs {@code O(1)} per row.
+   */
+  private static boolean isRebuild(int i, int windowSize) {
+    return i >= windowSize && i % windowSize == 0;
+  }
+
+  /**
+   * Median or quantile {@code q} of each window, computed as {@code DoubleMedian} and
+   * {@code DoubleQuantile} do on the sorted values of the window.
+   */
+  static double[] quantile(double[] values, int windowSize, double q, boolean median) {
+    // ranks in Double.compare order: the k-th value of the window is sorted[k-th rank]
+    final int[] order = IndexSort.sortDoubles(values);
+    final double[] sorted = new double[values.length];
+    final int[] ranks = new int[values.length];
+    for (int k = 0; k < order.length; k++) {
+      sorted[k] = values[order[k]];
+      ranks[order[k]] = k;
+    }
+
+    final RankTree window = new RankTree(values.length);
+    final double[] output = new double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      if (!DoubleSeries.isNull(values[i])) {
+        window.add(ranks[i], 1);
+      }
+      if (i >= windowSize && !DoubleSeries.isNull(values[i - windowSize])) {
+        window.add(ranks[i - windowSize], -1);
+      }
+
+      final int count = window.count;
+      if (count <= 0) {
+        output[i] = DoubleSeries.NULL;
+      } else if (median) {
+        if (count % 2 == 1) {
+          output[i] = sorted[window.select(count / 2)];
+        } else {
+          output[i] = (sorted[window.select(count / 2 - 1)] + sorted[window.select(count / 2)])
+              / 2;
+        }
+      } else {
+        final double index = (count - 1) * q;
+        final int lo = (int) Math.floor(index);
+        final int hi = (int) Math.ceil(index);
+        final double low = sorted[window.select(lo)];
+        final double diff = sorted[window.select(hi)] - low;
+        output[i] = low + diff * (index - lo);
+      }
+    }
+    return output;
+  }
+
+  private static long[] nullPartial(long[] values, int windowSize, boolean partial) {
+    if (!partial) {
+      Arrays.fill(values, 0, Math.min(windowSize - 1, values.length), LongSeries.NULL);
+    }
+    return values;
+  }
+
+  private static double[] nullPartial(double[] values, int windowSize, boolean partial) {
+    if (!partial) {
+      Arrays.fill(values, 0, Math.min(windowSize - 1, values.length), DoubleSeries.NULL);
+    }
+    return values;
+  }
+
+  /**
+   * Fenwick tree of the number of window rows with each rank. Selects the k-th lowest rank of
+   * the window in {@code O(log n)}.
+   */
+  private static final class RankTree {
+
+    private final int[] tree;
+    private final int topBit;
+    private int count;
+
+    private RankTree(int size) {
+      this.tree = new int[size + 1];
+      this.topBit = size > 0 ? Integer.highestOneBit(size) : 0;
+    }
+
+    private void add(int rank, int delta) {
+      for (int i = rank + 1; i < this.tree.length; i += i & -i) {
+        this.tree[i] += delta;
+      }
+      this.count += delta;
+    }
+
+    /**
+     * Returns the rank of the {@code k}-th (0-based) lowest value of the window.
+     */
+    private int select(int k) {
+      int position = 0;
+      int remaining = k + 1;
+      for (int bit = this.topBit; bit > 0; bit >>= 1) {
+        final int next = position + bit;
+        if (next < this.tree.length && this.tree[next] < remaining) {
+          position = next;
+          remaining -= this.tree[next];
+        }
+      }
+      return position;
+    }
+  }
+}
@@ -36,6 +36,7 @@ public class DataFrameBenchmark {
   private static final int N_NULLS = 100_000;
   private static final int N_WINDOW = 1000;
   private static final int N_GROUPS = 1000;
+  private static final int N_GROUPS_HIGH_CARDINALITY = 1_000_000;
 
   private static final String[] SERIES_NAMES = new String[]{"task", "min", "mid", "max", "outer",
       "checksum", "samples"};
@@ -404,6 +405,64 @@ public class DataFrameBenchmark {
     logResults("benchmarkMapFourArrays", checksum);
   }
 
+  private void benchmarkBoundsDoubleSeries() {
+    startTimerOuter();
+    long checksum = 0;
+
+    for (int r = 0; r < N_ROUNDS; r++) {
+      DoubleSeries current = DoubleSeries.buildFrom(generateDoubleData(N_ELEMENTS));
+      DoubleSeries mean = current.add(0.1);
+      DoubleSeries std = current.multiply(0.2);
+
+      startTimer();
+      DoubleSeries upper = mean.add(std.multiply(3.0));
+      DoubleSeries lower = mean.subtract(std.multiply(3.0));
+      BooleanSeries outsideUpper = current.gt(upper);
+      BooleanSeries outsideLower = current.lt(lower);
+      stopTimer();
+
+      checksum ^= checksum(upper.values());
+      checksum ^= checksum(lower.values());
+      checksum ^= outsideUpper.count() + outsideLower.count();
+    }
+
+    logResults("benchmarkBoundsDoubleSeries", checksum);
+  }
+
+  private void benchmarkBoundsDoubleArray() {
+    startTimerOuter();
+    long checksum = 0;
+
+    for (int r = 0; r < N_ROUNDS; r++) {
+      double[] current = generateDoubleData(N_ELEMENTS);
+      double[] mean = new double[N_ELEMENTS];
+      double[] std = new double[N_ELEMENTS];
+      for (int i = 0; i < N_ELEMENTS; i++) {
+        mean[i] = current[i] + 0.1;
+        std[i] = current[i] * 0.2;
+      }
+
+      startTimer();
+      double[] upper = new double[N_ELEMENTS];
+      double[] lower = new double[N_ELEMENTS];
+      boolean[] outsideUpper = new boolean[N_ELEMENTS];
+      boolean[] outsideLower = new boolean[N_ELEMENTS];
+      for (int i = 0; i < N_ELEMENTS; i++) {
+        upper[i] = mean[i] + std[i] * 3.0;
+        lower[i] = mean[i] - std[i] * 3.0;
+        outsideUpper[i] = current[i] > upper[i];
+        outsideLower[i] = current[i] < lower[i];
+      }
+      stopTimer();
+
+      checksum ^= checksum(upper);
+      checksum ^= checksum(lower);
+      checksum ^= outsideUpper.length + outsideLower.length;
+    }
+
+    logResults("benchmarkBoundsDoubleArray", checksum);
+  }
+
   private void benchmarkMinMaxLongSeries() {
     startTimerOuter();
     long checksum = 0;
@@ -860,6 +919,42 @@ public class DataFrameBenchmark {
     logResults("benchmarkMovingWindowSumLongArray", checksum);
   }
 
+  private void benchmarkMovingWindowMaxDoubleSeries() {
+    startTimerOuter();
+    long checksum = 0;
+
+    for (int r = 0; r < N_ROUNDS; r++) {
+      double[] doubleValues = generateDoubleData(N_ELEMENTS);
+      DoubleSeries series = DoubleSeries.buildFrom(doubleValues);
+
+      startTimer();
+      DoubleSeries out = series.groupByMovingWindow(N_WINDOW).max().getValues().getDoubles();
+      stopTimer();
+
+      checksum ^= checksum(out.values());
+    }
+
+    logResults("benchmarkMovingWindowMaxDoubleSeries", checksum);
+  }
+
+  private void benchmarkMovingWindowMedianDoubleSeries() {
+    startTimerOuter();
+    long checksum = 0;
+
+    for (int r = 0; r < N_ROUNDS_SLOW; r++) {
+      double[] doubleValues = generateDoubleData(N_ELEMENTS);
+      DoubleSeries series = DoubleSeries.buildFrom(doubleValues);
+
+      startTimer();
+      DoubleSeries out = series.groupByMovingWindow(N_WINDOW).median().getValues().getDoubles();
+      stopTimer();
+
+      checksum ^= checksum(out.values());
+    }
+
+    logResults("benchmarkMovingWindowMedianDoubleSeries", checksum);
+  }
+
   private void benchmarkHashJoinOuterLongSeries() {
     startTimerOuter();
     long checksum = 0;
@@ -962,6 +1057,36 @@ public class DataFrameBenchmark {
     logResults("benchmarkGroupByValueLongSeries", checksum);
   }
 
+  private void benchmarkGroupByValueLongSeriesParallel() {
+    startTimerOuter();
+    long checksum = 0;
+
+    for (int r = 0; r < N_ROUNDS; r++) {
+      long[] longValues = generateLongData(N_ELEMENTS);
+      long[] keyValues = new long[N_ELEMENTS];
+      for (int i = 0; i < N_ELEMENTS; i++) {
+        keyValues[i] = i % N_GROUPS;
+      }
+
+      DataFrame df = new DataFrame();
+      df.addSeries("key", keyValues);
+      df.addSeries("value", longValues);
+
+      startTimer();
+      Grouping.GroupingDataFrame result = df.groupByValue("key").parallel().sum("value");
+      stopTimer();
+
+      if (result.size() != N_GROUPS) {
+        throw new IllegalStateException(String
+            .format("GroupBy incorrect (got %d keys, should be %d)", result.size(), N_GROUPS));
+      }
+
+      checksum ^= checksum(result.getValues().getLongs().values());
+    }
+
+    logResults("benchmarkGroupByValueLongSeriesParallel", checksum);
+  }
+
   private void benchmarkGroupByValueMultipleSeries() {
     startTimerOuter();
     long checksum = 0;
@@ -995,9 +1120,42 @@ public class DataFrameBenchmark {
     logResults("benchmarkGroupByValueMultipleSeries", checksum);
   }
 
+  private void benchmarkGroupByValueStringSeriesHighCardinality() {
+    startTimerOuter();
+    long checksum = 0;
+
+    for (int r = 0; r < N_ROUNDS_SLOW; r++) {
+      double[] doubleValues = generateDoubleData(N_ELEMENTS);
+      String[] keyValues = new String[N_ELEMENTS];
+      for (int i = 0; i < N_ELEMENTS; i++) {
+        keyValues[i] = "key" + (i % N_GROUPS_HIGH_CARDINALITY);
+      }
+
+      DataFrame df = new DataFrame();
+      df.addSeries("key", keyValues);
+      df.addSeries("value", doubleValues);
+
+      startTimer();
+      Grouping.GroupingDataFrame result = df.groupByValue("key").mean("value");
+      stopTimer();
+
+      if (result.size() != N_GROUPS_HIGH_CARDINALITY) {
+        throw new IllegalStateException(String
+            .format("GroupBy incorrect (got %d keys, should be %d)", result.size(),
+                N_GROUPS_HIGH_CARDINALITY));
+      }
+
+      checksum ^= checksum(result.getValues().getDoubles().values());
+    }
+
+    logResults("benchmarkGroupByValueStringSeriesHighCardinality", checksum);
+  }
+
   private void benchmarkAll() {
     benchmarkGroupByValueLongSeries();
+    benchmarkGroupByValueLongSeriesParallel();
     benchmarkGroupByValueMultipleSeries();
+    benchmarkGroupByValueStringSeriesHighCardinality();
     benchmarkHashJoinOuterLongSeries();
     benchmarkHashJoinOuterGuavaLongSeries();
     benchmarkHashJoinInnerLongSeries();
@@ -1023,6 +1181,8 @@ public class DataFrameBenchmark {
     benchmarkExpandingWindowMaxLongArray();
     benchmarkMovingWindowSumLongSeries();
     benchmarkMovingWindowSumLongArray();
+    benchmarkMovingWindowMaxDoubleSeries();
+    benchmarkMovingWindowMedianDoubleSeries();
     benchmarkMapDoubleSeries();
     benchmarkMapDoubleSeriesOperation();
     benchmarkMapDoubleArray();
@@ -1038,6 +1198,8 @@ public class DataFrameBenchmark {
     benchmarkMapThreeArrays();
     benchmarkMapFourSeriesGeneric();
     benchmarkMapFourArrays();
+    benchmarkBoundsDoubleSeries();
+    benchmarkBoundsDoubleArray();
   }
 
   private void startTimer() {
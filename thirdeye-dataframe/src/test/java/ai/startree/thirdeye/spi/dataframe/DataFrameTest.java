@@ -27,6 +27,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -149,6 +150,24 @@ public class DataFrameTest {
     }
   }
 
+  private static String[] repeat(String[] values, int times) {
+    String[] repeated = new String[values.length * times];
+    for (int i = 0; i < repeated.length; i++) {
+      repeated[i] = values[i % values.length];
+    }
+    return repeated;
+  }
+
+  private static void assertEqualPairs(Series.JoinPairs actual, Series.JoinPairs expected) {
+    if (actual.size() != expected.size()) {
+      Assert.fail(String
+          .format("expected pairs size [%d] but found [%d]", expected.size(), actual.size()));
+    }
+    for (int i = 0; i < actual.size(); i++) {
+      Assert.assertEquals(actual.get(i), expected.get(i), "index=" + i);
+    }
+  }
+
   private static void assertEquals(ObjectSeries actual, Object... expected) {
     assertEqualsObjects(actual.getObjects().values(), expected);
   }
@@ -659,6 +678,64 @@ public class DataFrameTest {
     assertEquals(in.sorted(), ONULL, "a", "aa", "ab", "b", "ba");
   }
 
+  @Test
+  public void testSortedIndexLongIsStable() {
+    LongSeries in = DataFrame.toSeries(3, LNULL, 1, 3, Long.MAX_VALUE, 1, LNULL, -5);
+    Assert.assertEquals(in.sortedIndex(), new int[]{1, 6, 7, 2, 5, 0, 3, 4});
+  }
+
+  @Test
+  public void testSortedIndexDoubleIsStable() {
+    DoubleSeries in = DataFrame.toSeries(0.0, DNULL, -0.0, 1.5, Double.NEGATIVE_INFINITY, 0.0,
+        DNULL, -1.5);
+    Assert.assertEquals(in.sortedIndex(), new int[]{1, 6, 4, 7, 2, 0, 5, 3});
+  }
+
+  @Test
+  public void testSortedIndexStringIsStable() {
+    StringSeries in = DataFrame.toSeries("b", SNULL, "a", "b", "a", SNULL);
+    Assert.assertEquals(in.sortedIndex(), new int[]{1, 5, 2, 4, 0, 3});
+  }
+
+  @Test
+  public void testSortedIndexAlreadySorted() {
+    Assert.assertEquals(DataFrame.toSeries(LNULL, 1, 1, 2).sortedIndex(), new int[]{0, 1, 2, 3});
+    Assert.assertEquals(DataFrame.toSeries(DNULL, -0.0, 0.0, 2).sortedIndex(),
+        new int[]{0, 1, 2, 3});
+    Assert.assertEquals(DataFrame.toSeries(SNULL, "a", "a", "b").sortedIndex(),
+        new int[]{0, 1, 2, 3});
+  }
+
+  @Test
+  public void testSortedIndexLargeSeries() {
+    // larger than the insertion sort threshold: radix and merge sorts
+    final int size = 10_000;
+    final java.util.Random random = new java.util.Random(42);
+    final long[] longs = new long[size];
+    final double[] doubles = new double[size];
+    final String[] strings = new String[size];
+    for (int i = 0; i < size; i++) {
+      longs[i] = random.nextInt(20) == 0 ? LNULL : random.nextInt(100) - 50L;
+      doubles[i] = random.nextInt(20) == 0 ? DNULL : random.nextGaussian();
+      strings[i] = random.nextInt(20) == 0 ? SNULL : String.valueOf(random.nextInt(100));
+    }
+
+    assertSortedStable(LongSeries.buildFrom(longs));
+    assertSortedStable(DoubleSeries.buildFrom(doubles));
+    assertSortedStable(StringSeries.buildFrom(strings));
+  }
+
+  private static void assertSortedStable(final Series series) {
+    final int[] index = series.sortedIndex();
+    Assert.assertEquals(index.length, series.size());
+    Assert.assertEquals(series.project(index), series.sorted());
+    for (int i = 1; i < index.length; i++) {
+      if (series.equals(series, index[i - 1], index[i])) {
+        Assert.assertTrue(index[i - 1] < index[i], "rows with equal values keep their order");
+      }
+    }
+  }
+
   @Test
   public void testProject() {
     int[] fromIndex = new int[]{1, -1, 4, 0};
@@ -928,6 +1005,143 @@ public class DataFrameTest {
     assertEquals(grouping.apply("b", 2).getObjects(), 2.0d, 2.0d);
   }
 
+  @Test
+  public void testMultipleGroupByValueNullObject() {
+    DataFrame df = new DataFrame();
+    df.addSeries("a", DataFrame.toSeries(1, 1, 1, 2));
+    df.addSeriesObjects("b", "x", ONULL, ONULL, "x");
+
+    Grouping.DataFrameGrouping grouping = df.groupByValue("a", "b");
+
+    Assert.assertEquals(grouping.size(), 3);
+    Assert.assertEquals(grouping.grouping.keys.getObject(1), DataFrame.Tuple.buildFrom(1L, null));
+    assertEquals(grouping.count().getValues().getLongs(), 1, 2, 1);
+  }
+
+  @Test
+  public void testDoubleGroupByValue() {
+    DoubleSeries in = DataFrame.toSeries(1.5, 0.0, DNULL, -0.0, 1.5, DNULL, 0.0);
+    Grouping.SeriesGrouping grouping = in.groupByValue();
+
+    assertEquals(grouping.grouping.keys.getDoubles(), DNULL, -0.0, 0.0, 1.5);
+    assertEquals(grouping.count().getValues().getLongs(), 2, 1, 2, 2);
+  }
+
+  @Test
+  public void testGroupByValueAggregations() {
+    DataFrame df = new DataFrame();
+    df.addSeries("key", DataFrame.toSeries(1L << 40, 2L << 40, LNULL, 1L << 40, 2L << 40,
+        3L << 40, 1L << 40, 3L << 40));
+    df.addSeries("long", DataFrame.toSeries(5, LNULL, 7, -3, 4, LNULL, 9, LNULL));
+    df.addSeries("double", DataFrame.toSeries(0.5, 2.25, DNULL, -1.0, 3.5, DNULL, 1e9, 7.0));
+
+    Grouping.DataFrameGrouping grouping = df.groupByValue("key");
+
+    assertEquals(grouping.count().getValues().getLongs(), 1, 3, 2, 2);
+    assertEquals(grouping.sum("long").getValues().getLongs(), 7, 11, 4, LNULL);
+    assertEquals(grouping.min("long").getValues().getLongs(), 7, -3, 4, LNULL);
+    assertEquals(grouping.max("long").getValues().getLongs(), 7, 9, 4, LNULL);
+    assertEquals(grouping.sum("double").getValues().getDoubles(), DNULL, 1e9 - 0.5, 5.75, 7.0);
+    assertEquals(grouping.min("double").getValues().getDoubles(), DNULL, -1.0, 2.25, 7.0);
+    assertEquals(grouping.max("double").getValues().getDoubles(), DNULL, 1e9, 3.5, 7.0);
+
+    // same results as the aggregation of each group
+    for (String name : Arrays.asList("long", "double")) {
+      double[] means = new double[grouping.size()];
+      double[] stds = new double[grouping.size()];
+      for (int i = 0; i < grouping.size(); i++) {
+        means[i] = grouping.apply(name, i).mean().getDouble(0);
+        stds[i] = grouping.apply(name, i).std().getDouble(0);
+      }
+      assertEquals(grouping.mean(name).getValues().getDoubles(), means);
+      assertEquals(grouping.std(name).getValues().getDoubles(), stds);
+    }
+  }
+
+  @Test
+  public void testGroupByValueParallel() {
+    final DataFrame df = randomFrame(Grouping.PARALLEL_MIN_ROWS + 1, 7);
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (String key : Arrays.asList("key", "string")) {
+        assertParallelEquals(df.groupByValue(key), df.groupByValue(key).parallel(pool));
+      }
+      assertParallelEquals(df.groupByValue("key", "string"),
+          df.groupByValue("key", "string").parallel(pool));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testGroupByWindowParallel() {
+    final DataFrame df = randomFrame(Grouping.PARALLEL_MIN_ROWS, 11);
+    final ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      assertParallelEquals(df.groupByMovingWindow(7), df.groupByMovingWindow(7).parallel(pool));
+      assertParallelEquals(df.groupByCount(13), df.groupByCount(13).parallel(pool));
+      assertParallelEquals(df.groupByPeriod("time", DateTimeZone.UTC, Period.days(1)),
+          df.groupByPeriod("time", DateTimeZone.UTC, Period.days(1)).parallel(pool));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testGroupByParallelSmallSerial() {
+    final Grouping.DataFrameGrouping grouping = randomFrame(100, 1).groupByValue("key")
+        .parallel();
+    Assert.assertEquals(grouping.grouping.chunks(grouping.source().size()), 1);
+    Assert.assertTrue(grouping.grouping.chunks(Grouping.PARALLEL_MIN_ROWS) > 1);
+  }
+
+  private static DataFrame randomFrame(final int size, final long seed) {
+    final java.util.Random random = new java.util.Random(seed);
+    final long[] keys = new long[size];
+    final long[] longs = new long[size];
+    final double[] doubles = new double[size];
+    final double[] dense = new double[size];
+    final String[] strings = new String[size];
+    final long[] times = new long[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = random.nextInt(50) == 0 ? LNULL : random.nextInt(2000);
+      longs[i] = random.nextInt(10) == 0 ? LNULL : random.nextInt(1000) - 500L;
+      doubles[i] = random.nextInt(10) == 0 ? DNULL : random.nextGaussian() * 1e6;
+      dense[i] = random.nextDouble() - 0.5;
+      strings[i] = random.nextInt(20) == 0 ? SNULL : String.valueOf(random.nextInt(7));
+      times[i] = i * 60_000L;
+    }
+    return new DataFrame()
+        .addSeries("key", keys)
+        .addSeries("long", longs)
+        .addSeries("double", doubles)
+        .addSeries("dense", dense)
+        .addSeries("string", strings)
+        .addSeries("time", times);
+  }
+
+  private static void assertParallelEquals(final Grouping.DataFrameGrouping serial,
+      final Grouping.DataFrameGrouping parallel) {
+    Assert.assertEquals(parallel.count(), serial.count());
+    // first() and last() fail on empty groups
+    final boolean hasEmptyGroups = serial.count().getValues().getLongs().min().longValue() == 0;
+    for (String name : Arrays.asList("long", "double", "dense")) {
+      Assert.assertEquals(parallel.sum(name), serial.sum(name), name);
+      Assert.assertEquals(parallel.min(name), serial.min(name), name);
+      Assert.assertEquals(parallel.max(name), serial.max(name), name);
+      Assert.assertEquals(parallel.mean(name), serial.mean(name), name);
+      Assert.assertEquals(parallel.std(name), serial.std(name), name);
+      if (!hasEmptyGroups) {
+        Assert.assertEquals(parallel.first(name), serial.first(name), name);
+        Assert.assertEquals(parallel.last(name), serial.last(name), name);
+      }
+      Assert.assertEquals(parallel.aggregate(name, DoubleSeries.MEDIAN),
+          serial.aggregate(name, DoubleSeries.MEDIAN), name);
+    }
+    Assert.assertEquals(parallel.aggregate("string", StringSeries.CONCAT),
+        serial.aggregate("string", StringSeries.CONCAT));
+  }
+
   @Test
   public void testLongGroupByMovingWindow() {
     LongSeries in = DataFrame.toSeries(3, 4, 5, 5, 3, 1, 5, LNULL);
@@ -1107,6 +1321,146 @@ public class DataFrameTest {
     Assert.assertEquals(grouping.max(), grouping.aggregate(LongSeries.MAX));
   }
 
+  @Test
+  public void testGroupByWindowKernels() {
+    final java.util.Random random = new java.util.Random(3);
+    for (int size : new int[]{0, 1, 10, 500}) {
+      final long[] longs = new long[size];
+      final double[] doubles = new double[size];
+      for (int i = 0; i < size; i++) {
+        longs[i] = random.nextInt(10) == 0 ? LNULL : random.nextInt(40) - 20L;
+        // duplicates and signed zeros, which only differ in order
+        doubles[i] = random.nextInt(10) == 0 ? DNULL
+            : random.nextBoolean() ? random.nextInt(9) * (random.nextBoolean() ? 0.5 : -0.5)
+                : random.nextGaussian() * 1e3;
+      }
+
+      for (Series series : Arrays.asList(LongSeries.buildFrom(longs),
+          DoubleSeries.buildFrom(doubles))) {
+        for (int window : new int[]{1, 2, 3, 8, 100, 600}) {
+          final Grouping.SeriesGrouping grouping = series.groupByMovingWindow(window);
+          assertWindowKernels(grouping);
+          Assert.assertEquals(grouping.min(), grouping.aggregate(perWindow(series.type(), true)));
+          Assert.assertEquals(grouping.max(), grouping.aggregate(perWindow(series.type(), false)));
+          if (series.type() == SeriesType.LONG) {
+            // window sums of small longs are exact
+            Assert.assertEquals(grouping.mean().getValues(), perWindow(grouping, Series::mean));
+          }
+        }
+        final Grouping.SeriesGrouping grouping = series.groupByExpandingWindow();
+        assertWindowKernels(grouping);
+        // no value leaves an expanding window: the running sum is the sum of the window
+        Assert.assertEquals(grouping.mean().getValues(), perWindow(grouping, Series::mean));
+      }
+    }
+  }
+
+  @Test
+  public void testGroupByWindowKernelsLargeLongMean() {
+    final LongSeries in = DataFrame.toSeries(Long.MAX_VALUE / 2, 1L << 60, LNULL, 3, -(1L << 55),
+        Long.MAX_VALUE / 3);
+    final Grouping.SeriesGrouping grouping = in.groupByMovingWindow(2);
+    assertEquals(grouping.mean().getValues().getDoubles(),
+        perWindow(grouping, Series::mean).getDoubles().values());
+  }
+
+  @Test
+  public void testGroupByWindowKernelsStdLargeOffset() {
+    // the per-window two-pass std has its own rounding error at large offsets
+    final double[] offsets = {1e9, 1e12, 1e14};
+    final double[] tolerances = {1e-6, 1e-6, 1e-2};
+    for (int o = 0; o < offsets.length; o++) {
+      final java.util.Random random = new java.util.Random(7);
+      final double[] values = new double[3000];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = random.nextInt(15) == 0 ? DNULL : offsets[o] + random.nextGaussian();
+      }
+      final DoubleSeries series = DoubleSeries.buildFrom(values);
+      for (Grouping.SeriesGrouping grouping : Arrays.asList(series.groupByMovingWindow(30),
+          series.groupByExpandingWindow())) {
+        final double[] actual = grouping.std().getValues().getDoubles().values();
+        final double[] expected = perWindow(grouping, Series::std).getDoubles().values();
+        for (int i = 0; i < values.length; i++) {
+          if (DoubleSeries.isNull(expected[i])) {
+            Assert.assertTrue(DoubleSeries.isNull(actual[i]), "index=" + i);
+            continue;
+          }
+          Assert.assertEquals(actual[i], expected[i], expected[i] * tolerances[o],
+              "offset=" + offsets[o] + " index=" + i);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testGroupByWindowKernelsLargeOutlier() {
+    // the low bits of the values next to an outlier are lost in the running sums, until it leaves
+    final List<Series> inputs = Arrays.asList(
+        DataFrame.toSeries(1, 2, 1e17, 1, 2, 3, 4, 5, 6),
+        DataFrame.toSeries(1, 2, 3, 4, 1e20, 1, 2, 3, 4, 5, 6, 7, 8),
+        DataFrame.toSeries(4, 1e33, 1e29, -1e22, 3, 5, DNULL, 4, 2, -1e10, 3, 1),
+        DataFrame.toSeries(1, 2, 4611686018427387900L, -2, -3, 0, 5, LNULL, 7),
+        DataFrame.toSeries(1, 1L << 60, 3, -2, 7, 1, 0));
+    for (Series in : inputs) {
+      for (int window : new int[]{2, 3, 5}) {
+        final Grouping.SeriesGrouping grouping = in.groupByMovingWindow(window);
+        final double[] means = perWindow(grouping, Series::mean).getDoubles().values();
+        final double[] stds = perWindow(grouping, Series::std).getDoubles().values();
+        for (int i = 0; i < grouping.size(); i++) {
+          final String message = in + " window=" + window + " index=" + i;
+          Assert.assertEquals(grouping.mean().getValues().getDouble(i), means[i],
+              Math.abs(means[i]) * 1e-9, message);
+          if (DoubleSeries.isNull(stds[i])) {
+            Assert.assertTrue(grouping.std().getValues().isNull(i), message);
+            continue;
+          }
+          Assert.assertEquals(grouping.std().getValues().getDouble(i), stds[i], stds[i] * 1e-9,
+              message);
+        }
+      }
+    }
+  }
+
+  private static void assertWindowKernels(final Grouping.SeriesGrouping grouping) {
+    // kernels pick values of the window: same results as the function on each window
+    for (Series.DoubleFunction function : Arrays.asList(DoubleSeries.MIN, DoubleSeries.MAX,
+        DoubleSeries.MEDIAN, new DoubleSeries.DoubleQuantile(0.0),
+        new DoubleSeries.DoubleQuantile(0.3), new DoubleSeries.DoubleQuantile(1.0))) {
+      Assert.assertEquals(grouping.aggregate(function), grouping.aggregate(perWindow(function)));
+    }
+    Assert.assertEquals(grouping.median().getValues(), perWindow(grouping, Series::median));
+
+    // running sums may differ in the last bits
+    assertEquals(grouping.mean().getValues().getDoubles(),
+        perWindow(grouping, Series::mean).getDoubles().values());
+    assertEquals(grouping.std().getValues().getDoubles(),
+        perWindow(grouping, Series::std).getDoubles().values());
+  }
+
+  private static Series perWindow(final Grouping.SeriesGrouping grouping,
+      final java.util.function.Function<Series, Series> aggregation) {
+    final Series.Builder builder = DoubleSeries.builder();
+    for (int i = 0; i < grouping.size(); i++) {
+      builder.addSeries(aggregation.apply(grouping.apply(i)));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns a function that is not a built-in, so that each window is aggregated separately.
+   */
+  private static Series.DoubleFunction perWindow(final Series.DoubleFunction function) {
+    return values -> function.apply(values);
+  }
+
+  private static Series.Function perWindow(final SeriesType type, final boolean min) {
+    if (type == SeriesType.LONG) {
+      final Series.LongFunction function = min ? LongSeries.MIN : LongSeries.MAX;
+      return (Series.LongFunction) values -> function.apply(values);
+    }
+    return perWindow(min ? DoubleSeries.MIN : DoubleSeries.MAX);
+  }
+
   @Test
   public void testLongGroupByPeriod() {
     LongSeries in = LongSeries.buildFrom(
@@ -1424,6 +1778,70 @@ public class DataFrameTest {
     assertEquals(sdfb.getLongs("index"), 5, 6, 7, 8, 1, 2, 3, 4);
   }
 
+  @Test
+  public void testSortByDescending() {
+    DataFrame mydf = new DataFrame(1, 2, 3, 4, 5, 6)
+        .addSeries("long", 1, LNULL, 3, 1, 3, 2);
+
+    // stable, nulls last
+    DataFrame sdf = mydf.sortedBy("-long");
+    assertEquals(sdf.getLongs("index"), 3, 5, 6, 1, 4, 2);
+    assertEquals(sdf.getLongs("long"), 3, 3, 2, 1, 1, LNULL);
+  }
+
+  @Test
+  public void testSortByDescendingMultiSeries() {
+    DataFrame mydf = new DataFrame(1, 2, 3, 4, 5, 6, 7, 8)
+        .addSeries("double", 1.0, 1.0, 2.0, 2.0, 1.0, 1.0, 2.0, 2.0)
+        .addSeries("string", "b", "a", "b", "a", "a", "b", SNULL, "a");
+
+    DataFrame sdfa = mydf.sortedBy("-double", "string");
+    assertEquals(sdfa.getLongs("index"), 7, 4, 8, 3, 2, 5, 1, 6);
+
+    DataFrame sdfb = mydf.sortedBy("double", "-string");
+    assertEquals(sdfb.getLongs("index"), 1, 6, 2, 5, 3, 4, 8, 7);
+  }
+
+  @Test
+  public void testSortByExistingSeriesWithMinusPrefix() {
+    DataFrame mydf = new DataFrame(1, 2, 3)
+        .addSeries("long", 1, 2, 3)
+        .addSeries("-long", 3, 1, 2);
+
+    assertEquals(mydf.sortedBy("-long").getLongs("index"), 2, 3, 1);
+  }
+
+  @Test
+  public void testSortByAlreadySorted() {
+    DataFrame mydf = new DataFrame(1, 2, 3, 4)
+        .addSeries("long", 1, 1, 2, 3)
+        .addSeries("string", "d", "c", "b", "a");
+
+    DataFrame sdf = mydf.sortedBy("long", "-string");
+    Assert.assertNotSame(sdf, mydf);
+    Assert.assertSame(sdf.get("long"), mydf.get("long"));
+    Assert.assertSame(sdf.get("string"), mydf.get("string"));
+    Assert.assertSame(sdf.get("index"), mydf.get("index"));
+  }
+
+  @Test
+  public void testSortByReusesSortOrder() {
+    DataFrame mydf = new DataFrame(1, 2, 3, 4)
+        .addSeries("long", 3, 1, 2, 1)
+        .addSeries("string", "a", "b", "c", "a");
+
+    DataFrame sdf = mydf.sortedBy("long", "string");
+    assertEquals(sdf.getLongs("index"), 4, 2, 3, 1);
+
+    // sorted by a prefix of the known order: no copy
+    DataFrame prefix = sdf.sortedBy("long");
+    Assert.assertSame(prefix.get("index"), sdf.get("index"));
+
+    // a replaced series invalidates the known order
+    sdf.addSeries("long", 1, 2, 3, 0);
+    assertEquals(sdf.sortedBy("long").getLongs("index"), 1, 4, 2, 3);
+  }
+
   @Test(expectedExceptions = IllegalArgumentException.class)
   public void testFilterUnequalLengthFail() {
     df.filter(DataFrame.toSeries(false, true));
@@ -1466,6 +1884,88 @@ public class DataFrameTest {
     Assert.assertEquals(df.dropNull().size(), 1);
   }
 
+  @Test
+  public void testFilterCompact() {
+    df = df.filterCompact(DataFrame.toSeries(true, false, true, true, false));
+
+    Assert.assertEquals(df.size(), 3);
+    assertEquals(df.getLongs("index"), -1, -2, 4);
+    assertEquals(df.getDoubles("double"), -2.1, 0.0, 0.5);
+    assertEquals(df.getLongs("long"), -2, 0, 1);
+    assertEquals(df.getStrings("string"), "-2.3", "0.0", "0.5");
+    assertEquals(df.getBooleans("boolean"), TRUE, FALSE, TRUE);
+    assertEquals(df.getObjects("object"), "-2.3", 0L, 0.5d);
+  }
+
+  @Test
+  public void testFilterCompactNull() {
+    Assert.assertEquals(df.filterCompact(DataFrame.toSeries(BNULL, FALSE, TRUE, BNULL, FALSE))
+        .size(), 1);
+    Assert.assertEquals(df.filterCompact(DataFrame.toSeries(false, false, false, false, false))
+        .size(), 0);
+
+    // null values in selected rows are kept
+    DataFrame mdf = new DataFrame(1, 2, 3).addSeries("value", 1.0, DNULL, 3.0);
+    assertEquals(mdf.filterCompact(DataFrame.toSeries(false, true, true)).getDoubles("value"),
+        DNULL, 3.0);
+  }
+
+  @Test
+  public void testFilterCompactConditional() {
+    df = df.filterCompact((Series.LongConditional) values -> values[0] >= 0, "long");
+    assertEquals(df.getLongs("index"), 1, -2, 4, 3);
+    assertEquals(df.getLongs("long"), 1, 0, 1, 2);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testFilterCompactUnequalLengthFail() {
+    df.filterCompact(DataFrame.toSeries(false, true));
+  }
+
+  @Test
+  public void testSelection() {
+    DataFrame.Selection selection = df.select(DataFrame.toSeries(true, false, true, true, true));
+    Assert.assertEquals(selection.rows(), new int[]{0, 2, 3, 4});
+
+    DataFrame.Selection filtered = selection
+        .filter(DataFrame.toSeries(true, true, false, true, true))
+        .filter((Series.LongConditional) values -> values[0] != 4, "index");
+    Assert.assertEquals(filtered.rows(), new int[]{0, 4});
+    assertEquals(filtered.get("long").getLongs(), -2, 2);
+    assertEquals(filtered.toDataFrame().getStrings("string"), "-2.3", "0.13e1");
+
+    DataFrame.Selection other = df.select(DataFrame.toSeries(false, true, true, false, true));
+    Assert.assertEquals(selection.and(other).rows(), new int[]{2, 4});
+    Assert.assertEquals(filtered.and(other).rows(), new int[]{4});
+    Assert.assertTrue(other.filter(DataFrame.toSeries(true, false, false, true, false)).isEmpty());
+  }
+
+  @Test
+  public void testSelectionKeepsSortOrder() {
+    DataFrame sdf = new DataFrame()
+        .addSeries("time", 1, 2, 3, 4, 5)
+        .addSeries("value", 5, 3, 4, 1, 2)
+        .sortedBy("value");
+    DataFrame filtered = sdf.filterCompact((Series.LongConditional) values -> values[0] != 3,
+        "time");
+    assertEquals(filtered.getLongs("value"), 1, 2, 3, 5);
+    assertEquals(filtered.sortedBy("value").getLongs("time"), 4, 5, 2, 1);
+    assertEquals(filtered.sortedBy("time").getLongs("value"), 5, 3, 1, 2);
+  }
+
+  @Test
+  public void testSeriesFilterCompact() {
+    LongSeries base = DataFrame.toSeries(LNULL, 0, 0, 5, 10);
+    assertEquals(base.filterCompact(DataFrame.toSeries(TRUE, TRUE, FALSE, FALSE, BNULL)), LNULL,
+        0);
+    assertEquals(base.filterCompact(new Series.LongConditional() {
+      @Override
+      public boolean apply(long... values) {
+        return values[0] >= 0 && values[0] <= 5;
+      }
+    }), 0, 0, 5);
+  }
+
   @Test
   public void testRenameSeries() {
     df = df.renameSeries("double", "new");
@@ -1733,6 +2233,73 @@ public class DataFrameTest {
     assertEquals(s6.shift(-100), SNULL, SNULL, SNULL, SNULL, SNULL);
   }
 
+  @Test
+  public void testStringBuildCompressed() {
+    String[] values = repeat(new String[]{"b", SNULL, "c", "a", "b"}, 20);
+
+    StringSeries encoded = StringSeries.buildCompressed(values);
+    Assert.assertTrue(encoded.isEncoded());
+    assertEquals(encoded, values);
+    Assert.assertEquals(encoded, StringSeries.buildFrom(values));
+    Assert.assertEquals(encoded.hashCode(), StringSeries.buildFrom(values).hashCode());
+    Assert.assertTrue(StringSeries.buildFrom(values).compress().isEncoded());
+
+    // too few rows, too many distinct values
+    Assert.assertFalse(StringSeries.buildCompressed("a", "a", "b").isEncoded());
+    String[] distinct = new String[100];
+    for (int i = 0; i < distinct.length; i++) {
+      distinct[i] = String.valueOf(i);
+    }
+    Assert.assertFalse(StringSeries.buildCompressed(distinct).isEncoded());
+  }
+
+  @Test
+  public void testStringEncodedOperations() {
+    String[] values = repeat(new String[]{"b", SNULL, "c", "a", "b"}, 20);
+    StringSeries plain = StringSeries.buildFrom(values);
+    StringSeries encoded = StringSeries.buildCompressed(values);
+
+    Assert.assertEquals(encoded.sortedIndex(), plain.sortedIndex());
+    Assert.assertEquals(encoded.sorted(), plain.sorted());
+    Assert.assertEquals(encoded.eq("b"), plain.eq("b"));
+    Assert.assertEquals(encoded.eq("x"), plain.eq("x"));
+    Assert.assertEquals(encoded.count("c"), 20);
+    Assert.assertEquals(encoded.fillNull("a"), plain.fillNull("a"));
+    Assert.assertEquals(encoded.fillNull("x"), plain.fillNull("x"));
+    Assert.assertEquals(encoded.shift(3), plain.shift(3));
+    Assert.assertEquals(encoded.slice(3, 9), plain.slice(3, 9));
+    Assert.assertEquals(encoded.project(new int[]{4, -1, 0}), plain.project(new int[]{4, -1, 0}));
+    Assert.assertEquals(encoded.inferType(), SeriesType.STRING);
+    Assert.assertTrue(encoded.slice(3, 9).isEncoded());
+  }
+
+  @Test
+  public void testStringEncodedGroupByAndJoin() {
+    String[] values = repeat(new String[]{"b", SNULL, "c", "a", "b"}, 20);
+    DataFrame plain = new DataFrame()
+        .addSeries("key", StringSeries.buildFrom(values))
+        .addSeries("value", LongSeries.sequence(0, values.length));
+    DataFrame encoded = new DataFrame()
+        .addSeries("key", StringSeries.buildCompressed(values))
+        .addSeries("value", LongSeries.sequence(0, values.length));
+
+    DataFrame grouped = encoded.groupByValue("key").aggregate("value:sum");
+    Assert.assertEquals(grouped, plain.groupByValue("key").aggregate("value:sum"));
+    assertEquals(grouped.getStrings("key"), SNULL, "a", "b", "c");
+
+    // the right side has its own dictionary, with a value missing on the left
+    DataFrame right = new DataFrame()
+        .addSeries("key", StringSeries.buildCompressed(repeat(new String[]{"c", "d", "b"}, 30)))
+        .addSeries("other", LongSeries.sequence(0, 90));
+    DataFrame rightPlain = new DataFrame()
+        .addSeries("key", StringSeries.buildFrom(right.getStrings("key").values()))
+        .addSeries("other", LongSeries.sequence(0, 90));
+
+    Assert.assertEquals(encoded.joinOuter(right, "key"), plain.joinOuter(rightPlain, "key"));
+    Assert.assertEquals(encoded.sortedBy("key").joinInner(right.sortedBy("key"), "key"),
+        plain.sortedBy("key").joinInner(rightPlain.sortedBy("key"), "key"));
+  }
+
   @Test
   public void testDoubleMapNullConditional() {
     DoubleSeries in = DataFrame.toSeries(1.0, DNULL, 2.0);
@@ -1829,6 +2396,73 @@ public class DataFrameTest {
     Assert.assertEquals(df.dropNull().size(), df.size());
   }
 
+  @Test
+  public void testDropNullRowsMultipleWords() {
+    long[] longValues = new long[150];
+    double[] doubleValues = new double[150];
+    for (int i = 0; i < longValues.length; i++) {
+      longValues[i] = i % 3 == 0 ? LNULL : i;
+      doubleValues[i] = i == 149 ? DNULL : i;
+    }
+    DataFrame mdf = new DataFrame()
+        .addSeries("long", longValues)
+        .addSeries("double", doubleValues);
+
+    DataFrame ddf = mdf.dropNull();
+    Assert.assertEquals(ddf.size(), 99);
+    Assert.assertEquals(ddf.getLongs("long").getLong(0), 1);
+    Assert.assertEquals(ddf.getLongs("long").getLong(98), 148);
+    Assert.assertFalse(ddf.getLongs("long").hasNull());
+    Assert.assertFalse(ddf.getDoubles("double").hasNull());
+  }
+
+  @Test
+  public void testValidity() {
+    Assert.assertNull(LongSeries.buildFrom(1, 2, 3).validity());
+    Assert.assertNull(DoubleSeries.buildFrom(1.0, 2.0).validity());
+    Assert.assertNull(LongSeries.empty().validity());
+
+    long[] values = new long[70];
+    values[1] = LNULL;
+    values[64] = LNULL;
+    long[] validity = LongSeries.buildFrom(values).validity();
+    Assert.assertEquals(validity.length, 2);
+    Assert.assertEquals(validity[0], ~2L);
+    Assert.assertEquals(validity[1], 0x3EL);
+
+    assertEquals(DoubleSeries.buildFrom(DNULL, 1.0, DNULL).validity(), 2L);
+    assertEquals(StringSeries.buildFrom("a", SNULL, "c").validity(), 5L);
+  }
+
+  @Test
+  public void testBuildFromValidity() {
+    LongSeries s = LongSeries.buildFrom(new long[]{1, 2, 3, 4}, new long[]{0b1010L});
+    assertEquals(s, LNULL, 2, LNULL, 4);
+    Assert.assertEquals(s.count(), 2);
+    assertEquals(s.validity(), 0b1010L);
+
+    DoubleSeries d = DoubleSeries.buildFrom(new double[]{1.0, 2.0, 3.0}, null);
+    assertEquals(d, 1.0, 2.0, 3.0);
+    Assert.assertFalse(d.hasNull());
+  }
+
+  @Test
+  public void testNullCountDerived() {
+    LongSeries s = LongSeries.buildFrom(3, LNULL, 1, LNULL);
+    Assert.assertEquals(s.count(), 2);
+    Assert.assertEquals(s.sorted().count(), 2);
+    Assert.assertTrue(s.sorted().hasNull());
+    Assert.assertFalse(s.fillNull(0).hasNull());
+    Assert.assertEquals(s.fillNull(LNULL).count(), 2);
+    Assert.assertEquals(s.fillNull(0).shift(1).count(), 3);
+    Assert.assertTrue(s.fillNull(0).shift(1).isNull(0));
+
+    DoubleSeries d = DoubleSeries.buildFrom(DNULL, 1.0, DNULL);
+    Assert.assertEquals(d.sorted().count(), 1);
+    Assert.assertFalse(d.sorted().allNull());
+    Assert.assertEquals(d.fillNull(2.0).count(), 3);
+  }
+
   @Test
   public void testDropNullColumns() {
     DataFrame mdf = new DataFrame()
@@ -1988,6 +2622,47 @@ public class DataFrameTest {
     Assert.assertEquals(pairs.get(7), 0x0000000300000002L);
   }
 
+  @Test
+  public void testMergeJoin() {
+    Series sLeft = DataFrame.toSeries(LNULL, 1, 2, 2, 4);
+    Series sRight = DataFrame.toSeries(LNULL, 0, 2, 2, 3, 4);
+
+    Series.JoinPairs pairs = Series.mergeJoinOuter(new Series[]{sLeft}, new Series[]{sRight});
+
+    Assert.assertEquals(pairs.size(), 9);
+    Assert.assertEquals(pairs.get(0), 0x0000000000000000L);
+    Assert.assertEquals(pairs.get(1), 0x00000001FFFFFFFFL);
+    Assert.assertEquals(pairs.get(2), 0x0000000200000002L);
+    Assert.assertEquals(pairs.get(3), 0x0000000200000003L);
+    Assert.assertEquals(pairs.get(4), 0x0000000300000002L);
+    Assert.assertEquals(pairs.get(5), 0x0000000300000003L);
+    Assert.assertEquals(pairs.get(6), 0x0000000400000005L);
+    Assert.assertEquals(pairs.get(7), 0xFFFFFFFF00000001L);
+    Assert.assertEquals(pairs.get(8), 0xFFFFFFFF00000004L);
+
+    assertEqualPairs(pairs, Series.hashJoinOuter(new Series[]{sLeft}, new Series[]{sRight}));
+  }
+
+  @Test
+  public void testMergeJoinMultiple() {
+    Series[] left = new Series[]{DataFrame.toSeries("a", "a", "b", "c"),
+        DataFrame.toSeries(1, 2, 1, 1)};
+    Series[] right = new Series[]{DataFrame.toSeries("a", "b", "b", "d"),
+        DataFrame.toSeries(2, 0, 1, 1)};
+
+    Series.JoinPairs pairs = Series.mergeJoinOuter(left, right);
+
+    Assert.assertEquals(pairs.size(), 6);
+    Assert.assertEquals(pairs.get(0), 0x00000000FFFFFFFFL);
+    Assert.assertEquals(pairs.get(1), 0x0000000100000000L);
+    Assert.assertEquals(pairs.get(2), 0x0000000200000002L);
+    Assert.assertEquals(pairs.get(3), 0x00000003FFFFFFFFL);
+    Assert.assertEquals(pairs.get(4), 0xFFFFFFFF00000001L);
+    Assert.assertEquals(pairs.get(5), 0xFFFFFFFF00000003L);
+
+    assertEqualPairs(pairs, Series.hashJoinOuter(left, right));
+  }
+
   @Test
   public void testJoinInner() {
     DataFrame left = new DataFrame()
@@ -2078,6 +2753,63 @@ public class DataFrameTest {
     assertEquals(joined.getStrings("rightValue"), SNULL, "4", "3");
   }
 
+  @Test
+  public void testJoinInnerSorted() {
+    DataFrame left = new DataFrame()
+        .addSeries("timestamp", 1, 2, 2, 3, 5)
+        .addSeries("leftValue", "a", "b", "c", "d", "e");
+
+    DataFrame right = new DataFrame()
+        .addSeries("timestamp", 0, 2, 3, 3, 5)
+        .addSeries("rightValue", "v", "w", "x", "y", "z");
+
+    DataFrame joined = left.joinInner(right, "timestamp");
+
+    Assert.assertEquals(joined.size(), 5);
+    assertEquals(joined.getLongs("timestamp"), 2, 2, 3, 3, 5);
+    assertEquals(joined.getStrings("leftValue"), "b", "c", "d", "d", "e");
+    assertEquals(joined.getStrings("rightValue"), "w", "w", "x", "y", "z");
+
+    // sorted on the join series
+    assertEquals(joined.sortedBy("timestamp").getStrings("rightValue"), "w", "w", "x", "y", "z");
+  }
+
+  @Test
+  public void testJoinOuterSorted() {
+    DataFrame left = new DataFrame()
+        .addSeries("timestamp", LNULL, 1, 2, 2, 5)
+        .addSeries("leftValue", "a", "b", "c", "d", "e");
+
+    DataFrame right = new DataFrame()
+        .addSeries("timestamp", LNULL, 0, 2, 3)
+        .addSeries("rightValue", "w", "x", "y", "z");
+
+    DataFrame joined = left.joinOuter(right, "timestamp");
+
+    Assert.assertEquals(joined.size(), 7);
+    assertEquals(joined.getLongs("timestamp"), LNULL, 1, 2, 2, 5, 0, 3);
+    assertEquals(joined.getStrings("leftValue"), "a", "b", "c", "d", "e", SNULL, SNULL);
+    assertEquals(joined.getStrings("rightValue"), "w", SNULL, "y", "y", SNULL, "x", "z");
+  }
+
+  @Test
+  public void testJoinSortedAndUnsorted() {
+    DataFrame left = new DataFrame()
+        .addSeries("timestamp", 1, 2, 3, 4)
+        .addSeries("leftValue", "a", "b", "c", "d");
+
+    DataFrame right = new DataFrame()
+        .addSeries("timestamp", 4, 2, 0, 3)
+        .addSeries("rightValue", "w", "x", "y", "z");
+
+    DataFrame joined = left.joinLeft(right, "timestamp");
+    DataFrame joinedSorted = left.joinLeft(right.sortedBy("timestamp"), "timestamp");
+
+    Assert.assertEquals(joined, joinedSorted);
+    assertEquals(joined.getLongs("timestamp"), 1, 2, 3, 4);
+    assertEquals(joined.getStrings("rightValue"), SNULL, "x", "z", "w");
+  }
+
   @Test
   public void testJoinSameName() {
     DataFrame left = new DataFrame()
@@ -2902,6 +3634,32 @@ public class DataFrameTest {
     }), DNULL, 1, 1, DNULL, 0.003);
   }
 
+  @Test
+  public void testDoubleOperationsWithoutNull() {
+    DoubleSeries a = DataFrame.toSeries(1.5, -0.0, Double.POSITIVE_INFINITY, 3, 1e-300);
+    DoubleSeries b = DataFrame.toSeries(0.5, 0.0, Double.POSITIVE_INFINITY, -3, 1e300);
+    Assert.assertFalse(a.hasNull());
+
+    assertEquals(a.add(b), 2.0, 0.0, Double.POSITIVE_INFINITY, 0, 1e300);
+    assertEquals(a.subtract(b), 1.0, -0.0, DNULL, 6, -1e300);
+    assertEquals(a.multiply(b), 0.75, -0.0, Double.POSITIVE_INFINITY, -9, 1.0);
+    assertEquals(a.divide(2), 0.75, -0.0, Double.POSITIVE_INFINITY, 1.5, 5e-301);
+    assertEquals(a.eq(b), false, true, true, false, false);
+    assertEquals(a.gt(b), true, false, false, true, false);
+    assertEquals(a.lte(0.0), false, true, false, false, false);
+    assertEquals(a.map(new Series.DoubleFunction() {
+      @Override
+      public double apply(double... values) {
+        return values[0] * 2;
+      }
+    }), 3.0, -0.0, Double.POSITIVE_INFINITY, 6, 2e-300);
+  }
+
+  @Test(expectedExceptions = ArithmeticException.class)
+  public void testLongDivideByZeroWithoutNull() {
+    DataFrame.toSeries(1, 2, 3).divide(DataFrame.toSeries(1, 0, 1));
+  }
+
   @Test
   public void testDoubleAggregation() {
     DoubleSeries base = DataFrame.toSeries(DNULL, 1, 1, 1.5, 0.003);
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.dataframe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the hash join and the merge join of two timeseries on their timestamps, e.g. a
+ * current and a baseline timeseries. The right side misses some timestamps and has some
+ * timestamps of its own.
+ */
+public class JoinBenchmark {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JoinBenchmark.class);
+
+  private static final int[] N_ELEMENTS = new int[]{10_000, 1_000_000};
+  // same number of joined rows for each size
+  private static final long N_ROWS_PER_BENCHMARK = 20_000_000;
+  private static final int MIN_ROUNDS = 3;
+  private static final double MISSING_RATIO = 0.05;
+  private static final long TIMESTAMP_START = 1_700_000_000_000L;
+  private static final long TIMESTAMP_STEP = 60 * 1000L;
+
+  private static final String[] JOIN_SERIES = new String[]{"timestamp"};
+  private static final String[] SERIES_NAMES = new String[]{"task", "size", "min", "mid", "max",
+      "checksum"};
+
+  private static final long SEED = System.nanoTime();
+
+  private long tStart;
+  private List<Long> times = new ArrayList<>();
+  private final DataFrame.Builder results = DataFrame.builder(SERIES_NAMES);
+
+  private void benchmarkJoinPairs(final int size) {
+    final Random r = new Random(SEED);
+    final Series[] left = new Series[]{generateTimeseries(r, size).get("timestamp")};
+    final Series[] right = new Series[]{generateTimeseries(r, size).get("timestamp")};
+
+    long checksum = 0;
+    for (int i = 0; i < rounds(size); i++) {
+      startTimer();
+      final Series.JoinPairs pairs = Series.hashJoinOuter(left, right);
+      stopTimer();
+      checksum += checksum(pairs);
+    }
+    logResults("pairsHash", size, checksum);
+    final long hashChecksum = checksum;
+
+    checksum = 0;
+    for (int i = 0; i < rounds(size); i++) {
+      startTimer();
+      final Series.JoinPairs pairs = Series.mergeJoinOuter(left, right);
+      stopTimer();
+      checksum += checksum(pairs);
+    }
+    logResults("pairsMerge", size, checksum);
+    checkSameRows("pairs", hashChecksum, checksum);
+  }
+
+  private void benchmarkJoin(final int size, final Series.JoinType joinType) {
+    final Random r = new Random(SEED);
+    final DataFrame current = generateTimeseries(r, size);
+    final DataFrame baseline = generateTimeseries(r, size);
+
+    // one swapped row: the sides are not sorted and the join falls back to hashing
+    final DataFrame currentUnsorted = swapFirstRows(current);
+
+    long checksum = 0;
+    for (int i = 0; i < rounds(size); i++) {
+      startTimer();
+      final DataFrame joined = DataFrame.join(currentUnsorted, baseline, JOIN_SERIES,
+          JOIN_SERIES, joinType);
+      stopTimer();
+      checksum += checksum(joined);
+    }
+    logResults("join" + joinType + "Hash", size, checksum);
+    final long hashChecksum = checksum;
+
+    checksum = 0;
+    for (int i = 0; i < rounds(size); i++) {
+      // new DataFrames each round: the sort order is not known yet and is checked by a scan
+      final DataFrame left = new DataFrame(current);
+      final DataFrame right = new DataFrame(baseline);
+      startTimer();
+      final DataFrame joined = DataFrame.join(left, right, JOIN_SERIES, JOIN_SERIES, joinType);
+      stopTimer();
+      checksum += checksum(joined);
+    }
+    logResults("join" + joinType + "Merge", size, checksum);
+    checkSameRows("join" + joinType, hashChecksum, checksum);
+  }
+
+  private void benchmarkAll() {
+    for (final int size : N_ELEMENTS) {
+      benchmarkJoinPairs(size);
+      benchmarkJoin(size, Series.JoinType.INNER);
+      benchmarkJoin(size, Series.JoinType.LEFT);
+      benchmarkJoin(size, Series.JoinType.OUTER);
+    }
+  }
+
+  private static DataFrame generateTimeseries(final Random r, final int size) {
+    final long[] timestamps = new long[size];
+    final double[] values = new double[size];
+    long timestamp = TIMESTAMP_START;
+    for (int i = 0; i < size; i++) {
+      while (r.nextDouble() < MISSING_RATIO) {
+        timestamp += TIMESTAMP_STEP;
+      }
+      timestamps[i] = timestamp;
+      values[i] = r.nextInt(1000);
+      timestamp += TIMESTAMP_STEP;
+    }
+    return new DataFrame()
+        .addSeries("timestamp", timestamps)
+        .addSeries("value", values);
+  }
+
+  private static DataFrame swapFirstRows(final DataFrame df) {
+    final int[] fromIndex = new int[df.size()];
+    for (int i = 0; i < fromIndex.length; i++) {
+      fromIndex[i] = i;
+    }
+    fromIndex[0] = 1;
+    fromIndex[1] = 0;
+    return df.project(fromIndex);
+  }
+
+  /**
+   * Both joins must return the same rows. Also keeps the results alive.
+   */
+  private static void checkSameRows(final String name, final long expected, final long actual) {
+    if (expected != actual) {
+      throw new IllegalStateException(String.format(
+          "%s: merge join checksum %d differs from the hash join checksum %d", name, actual,
+          expected));
+    }
+  }
+
+  private static int rounds(final int size) {
+    return (int) Math.max(MIN_ROUNDS, N_ROWS_PER_BENCHMARK / size);
+  }
+
+  private void startTimer() {
+    this.tStart = System.nanoTime();
+  }
+
+  private void stopTimer() {
+    long tDelta = System.nanoTime() - this.tStart;
+    this.times.add(tDelta);
+  }
+
+  private void logResults(final String name, final int size, final long checksum) {
+    Collections.sort(this.times);
+    long tMid = this.times.get(this.times.size() / 2);
+    long tMin = Collections.min(this.times);
+    long tMax = Collections.max(this.times);
+    LOG.info("{} ({} rows): min/mid/max = {}us {}us {}us [chk={}, cnt={}]", name, size,
+        tMin / 1000, tMid / 1000, tMax / 1000, checksum % 1000, this.times.size());
+    this.results.append(name, size, tMin / 1000, tMid / 1000, tMax / 1000, checksum % 1000);
+
+    // reset timer stats
+    this.times = new ArrayList<>();
+  }
+
+  public static void main(String[] args) throws Exception {
+    LOG.info("Running join benchmark ...");
+    JoinBenchmark b = new JoinBenchmark();
+    b.benchmarkAll();
+
+    LOG.info("Summary (us):\n{}", b.results.build().toString(40, SERIES_NAMES));
+    LOG.info("done.");
+  }
+
+  /**
+   * Checksums don't depend on the order of the rows: the hash join and the merge join may
+   * return them in a different order.
+   */
+  private static long checksum(final Series.JoinPairs pairs) {
+    long bits = 0;
+    for (int i = 0; i < pairs.size(); i++) {
+      bits += mix(pairs.get(i));
+    }
+    return bits;
+  }
+
+  private static long checksum(final DataFrame df) {
+    final List<String> names = new ArrayList<>(df.getSeriesNames());
+    Collections.sort(names);
+    final List<double[]> columns = new ArrayList<>();
+    for (final String name : names) {
+      columns.add(df.getDoubles(name).values());
+    }
+    long bits = 0;
+    for (int i = 0; i < df.size(); i++) {
+      long row = 0;
+      for (final double[] column : columns) {
+        row = row * 31 + Double.doubleToLongBits(column[i]);
+      }
+      bits += mix(row);
+    }
+    return bits;
+  }
+
+  private static long mix(final long value) {
+    final long bits = value * 0x9E3779B97F4A7C15L;
+    return bits ^ (bits >>> 32);
+  }
+}
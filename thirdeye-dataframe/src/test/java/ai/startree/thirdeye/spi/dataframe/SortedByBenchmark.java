@@ -0,0 +1,202 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.dataframe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares {@code DataFrame.sortedBy()} on several series with the previous implementation: one
+ * stable sort and one projection of the whole DataFrame per series, from the last to the first.
+ */
+public class SortedByBenchmark {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SortedByBenchmark.class);
+
+  private static final int[] N_ELEMENTS = new int[]{10_000, 1_000_000};
+  // same number of sorted rows for each size
+  private static final long N_ROWS_PER_BENCHMARK = 20_000_000;
+  private static final int MIN_ROUNDS = 3;
+  private static final int N_VALUE_SERIES = 7;
+  private static final int N_DIMENSION_VALUES = 100;
+  private static final long TIMESTAMP_START = 1_700_000_000_000L;
+  private static final long TIMESTAMP_STEP = 3600 * 1000L;
+
+  private static final String[] SORT_SERIES = new String[]{"dimension", "timestamp", "value0"};
+  private static final String[] SERIES_NAMES = new String[]{"task", "size", "min", "mid", "max",
+      "checksum"};
+
+  private static final long SEED = System.nanoTime();
+
+  private long tStart;
+  private List<Long> times = new ArrayList<>();
+  private final DataFrame.Builder results = DataFrame.builder(SERIES_NAMES);
+
+  private void benchmarkSortedBy(final int size) {
+    final DataFrame df = generateDataFrame(size);
+
+    long checksum = 0;
+    for (int r = 0; r < rounds(size); r++) {
+      startTimer();
+      final DataFrame sorted = legacySortedBy(df, SORT_SERIES);
+      stopTimer();
+      checksum += checksum(sorted);
+    }
+    logResults("multiSeriesLegacy", size, checksum);
+    final long legacyChecksum = checksum;
+
+    checksum = 0;
+    for (int r = 0; r < rounds(size); r++) {
+      // a new DataFrame each round: the sort order is not known yet
+      final DataFrame unsorted = new DataFrame(df);
+      startTimer();
+      final DataFrame sorted = unsorted.sortedBy(SORT_SERIES);
+      stopTimer();
+      checksum += checksum(sorted);
+    }
+    logResults("multiSeriesSortedBy", size, checksum);
+    checkSameOrder("multiSeriesSortedBy", legacyChecksum, checksum);
+
+    final DataFrame sortedDf = legacySortedBy(df, SORT_SERIES);
+    checksum = 0;
+    for (int r = 0; r < rounds(size); r++) {
+      startTimer();
+      final DataFrame sorted = legacySortedBy(sortedDf, SORT_SERIES);
+      stopTimer();
+      checksum += checksum(sorted);
+    }
+    logResults("alreadySortedLegacy", size, checksum);
+    checkSameOrder("alreadySortedLegacy", legacyChecksum, checksum);
+
+    checksum = 0;
+    for (int r = 0; r < rounds(size); r++) {
+      final DataFrame unknownOrder = new DataFrame(sortedDf);
+      startTimer();
+      final DataFrame sorted = unknownOrder.sortedBy(SORT_SERIES);
+      stopTimer();
+      checksum += checksum(sorted);
+    }
+    logResults("alreadySortedSortedBy", size, checksum);
+    checkSameOrder("alreadySortedSortedBy", legacyChecksum, checksum);
+
+    final DataFrame knownOrder = df.sortedBy(SORT_SERIES);
+    checksum = 0;
+    for (int r = 0; r < rounds(size); r++) {
+      startTimer();
+      final DataFrame sorted = knownOrder.sortedBy(SORT_SERIES);
+      stopTimer();
+      checksum += checksum(sorted);
+    }
+    logResults("knownOrderSortedBy", size, checksum);
+    checkSameOrder("knownOrderSortedBy", legacyChecksum, checksum);
+  }
+
+  private void benchmarkAll() {
+    for (final int size : N_ELEMENTS) {
+      benchmarkSortedBy(size);
+    }
+  }
+
+  /**
+   * Previous implementation of sortedBy.
+   */
+  private static DataFrame legacySortedBy(final DataFrame df, final String... seriesNames) {
+    DataFrame sorted = df;
+    for (int i = seriesNames.length - 1; i >= 0; i--) {
+      sorted = sorted.project(sorted.get(seriesNames[i]).sortedIndex());
+    }
+    return sorted;
+  }
+
+  private static DataFrame generateDataFrame(final int size) {
+    final Random r = new Random(SEED);
+    final String[] dimensions = new String[size];
+    final long[] timestamps = new long[size];
+    for (int i = 0; i < size; i++) {
+      dimensions[i] = "dimension" + r.nextInt(N_DIMENSION_VALUES);
+      timestamps[i] = TIMESTAMP_START + r.nextInt(size / N_DIMENSION_VALUES + 1) * TIMESTAMP_STEP;
+    }
+    final DataFrame df = new DataFrame(size)
+        .addSeries("dimension", dimensions)
+        .addSeries("timestamp", timestamps);
+    for (int s = 0; s < N_VALUE_SERIES; s++) {
+      final double[] values = new double[size];
+      for (int i = 0; i < size; i++) {
+        values[i] = r.nextInt(10);
+      }
+      df.addSeries("value" + s, values);
+    }
+    return df;
+  }
+
+  /**
+   * Every variant sorts the same rows: they must return the same order. Also keeps the results
+   * alive.
+   */
+  private static void checkSameOrder(final String name, final long expected, final long actual) {
+    if (expected != actual) {
+      throw new IllegalStateException(String.format(
+          "%s: checksum %d differs from the legacy sortedBy checksum %d", name, actual,
+          expected));
+    }
+  }
+
+  private static int rounds(final int size) {
+    return (int) Math.max(MIN_ROUNDS, N_ROWS_PER_BENCHMARK / size);
+  }
+
+  private void startTimer() {
+    this.tStart = System.nanoTime();
+  }
+
+  private void stopTimer() {
+    long tDelta = System.nanoTime() - this.tStart;
+    this.times.add(tDelta);
+  }
+
+  private void logResults(final String name, final int size, final long checksum) {
+    Collections.sort(this.times);
+    long tMid = this.times.get(this.times.size() / 2);
+    long tMin = Collections.min(this.times);
+    long tMax = Collections.max(this.times);
+    LOG.info("{} ({} rows): min/mid/max = {}us {}us {}us [chk={}, cnt={}]", name, size,
+        tMin / 1000, tMid / 1000, tMax / 1000, checksum % 1000, this.times.size());
+    this.results.append(name, size, tMin / 1000, tMid / 1000, tMax / 1000, checksum % 1000);
+
+    // reset timer stats
+    this.times = new ArrayList<>();
+  }
+
+  public static void main(String[] args) throws Exception {
+    LOG.info("Running sortedBy benchmark ...");
+    SortedByBenchmark b = new SortedByBenchmark();
+    b.benchmarkAll();
+
+    LOG.info("Summary (us):\n{}", b.results.build().toString(40, SERIES_NAMES));
+    LOG.info("done.");
+  }
+
+  private static long checksum(final DataFrame df) {
+    final long[] values = df.getLongs(DataFrame.COLUMN_INDEX_DEFAULT).values();
+    long bits = 0;
+    for (int i = 0; i < values.length; i++) {
+      bits ^= values[i] * (i + 1);
+    }
+    return bits;
+  }
+}
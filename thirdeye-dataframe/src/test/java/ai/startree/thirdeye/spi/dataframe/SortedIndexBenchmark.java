@@ -0,0 +1,254 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.dataframe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares {@code Series.sortedIndex()} with the previous implementation: one tuple object per
+ * row sorted with {@code Collections.sort}.
+ */
+public class SortedIndexBenchmark {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SortedIndexBenchmark.class);
+
+  private static final int[] N_ELEMENTS = new int[]{10_000, 1_000_000, 10_000_000};
+  // same number of sorted rows for each size
+  private static final long N_ROWS_PER_BENCHMARK = 50_000_000;
+  private static final int MIN_ROUNDS = 3;
+  private static final int N_STRING_VALUES = 10_000;
+  private static final long TIMESTAMP_START = 1_700_000_000_000L;
+  private static final long TIMESTAMP_RANGE = 7 * 24 * 3600 * 1000L;
+
+  private static final String[] SERIES_NAMES = new String[]{"task", "size", "min", "mid", "max",
+      "checksum"};
+
+  private static final long SEED = System.nanoTime();
+
+  private long tStart;
+  private List<Long> times = new ArrayList<>();
+  private final DataFrame.Builder results = DataFrame.builder(SERIES_NAMES);
+
+  private void benchmarkLongRandom(final int size) {
+    final long[] values = generateLongData(size);
+    benchmarkLong("longRandom", LongSeries.buildFrom(values), size);
+  }
+
+  private void benchmarkLongTimestamps(final int size) {
+    final Random r = new Random(SEED);
+    final long[] values = new long[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = TIMESTAMP_START + (long) (r.nextDouble() * TIMESTAMP_RANGE);
+    }
+    benchmarkLong("longTimestamps", LongSeries.buildFrom(values), size);
+  }
+
+  private void benchmarkLongSorted(final int size) {
+    final long[] values = generateLongData(size);
+    Arrays.sort(values);
+    benchmarkLong("longSorted", LongSeries.buildFrom(values), size);
+  }
+
+  private void benchmarkLong(final String name, final LongSeries series, final int size) {
+    final long[] values = series.values();
+    long checksum = 0;
+    for (int r = 0; r < rounds(size); r++) {
+      startTimer();
+      final int[] index = legacySortedIndex(size, (a, b) -> Long.compare(values[a], values[b]));
+      stopTimer();
+      checksum += checksum(index);
+    }
+    logResults(name + "Tuples", size, checksum);
+    final long tuplesChecksum = checksum;
+
+    checksum = 0;
+    for (int r = 0; r < rounds(size); r++) {
+      startTimer();
+      final int[] index = series.sortedIndex();
+      stopTimer();
+      checksum += checksum(index);
+    }
+    logResults(name + "SortedIndex", size, checksum);
+    checkSameIndex(name, tuplesChecksum, checksum);
+  }
+
+  private void benchmarkDoubleRandom(final int size) {
+    final Random r = new Random(SEED);
+    final double[] values = new double[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = r.nextInt(100) == 0 ? DoubleSeries.NULL : r.nextGaussian();
+    }
+    final DoubleSeries series = DoubleSeries.buildFrom(values);
+
+    long checksum = 0;
+    for (int round = 0; round < rounds(size); round++) {
+      startTimer();
+      final int[] index = legacySortedIndex(size, (a, b) -> {
+        if (DoubleSeries.isNull(values[a]) || DoubleSeries.isNull(values[b])) {
+          return Boolean.compare(!DoubleSeries.isNull(values[a]), !DoubleSeries.isNull(values[b]));
+        }
+        return Double.compare(values[a], values[b]);
+      });
+      stopTimer();
+      checksum += checksum(index);
+    }
+    logResults("doubleRandomTuples", size, checksum);
+    final long tuplesChecksum = checksum;
+
+    checksum = 0;
+    for (int round = 0; round < rounds(size); round++) {
+      startTimer();
+      final int[] index = series.sortedIndex();
+      stopTimer();
+      checksum += checksum(index);
+    }
+    logResults("doubleRandomSortedIndex", size, checksum);
+    checkSameIndex("doubleRandom", tuplesChecksum, checksum);
+  }
+
+  private void benchmarkStringRandom(final int size) {
+    final Random r = new Random(SEED);
+    final String[] pool = new String[N_STRING_VALUES];
+    for (int i = 0; i < pool.length; i++) {
+      pool[i] = "value" + r.nextInt();
+    }
+    final String[] values = new String[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = pool[r.nextInt(pool.length)];
+    }
+    final StringSeries series = StringSeries.buildFrom(values);
+
+    long checksum = 0;
+    for (int round = 0; round < rounds(size); round++) {
+      startTimer();
+      final int[] index = legacySortedIndex(size, (a, b) -> values[a].compareTo(values[b]));
+      stopTimer();
+      checksum += checksum(index);
+    }
+    logResults("stringRandomTuples", size, checksum);
+    final long tuplesChecksum = checksum;
+
+    checksum = 0;
+    for (int round = 0; round < rounds(size); round++) {
+      startTimer();
+      final int[] index = series.sortedIndex();
+      stopTimer();
+      checksum += checksum(index);
+    }
+    logResults("stringRandomSortedIndex", size, checksum);
+    checkSameIndex("stringRandom", tuplesChecksum, checksum);
+  }
+
+  private void benchmarkAll() {
+    for (final int size : N_ELEMENTS) {
+      benchmarkLongRandom(size);
+      benchmarkLongTimestamps(size);
+      benchmarkLongSorted(size);
+      benchmarkDoubleRandom(size);
+      benchmarkStringRandom(size);
+    }
+  }
+
+  /**
+   * Previous implementation of sortedIndex: one tuple per row, boxed sort.
+   */
+  private static int[] legacySortedIndex(final int size, final IndexSort.IndexComparator comparator) {
+    final List<int[]> tuples = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      tuples.add(new int[]{i});
+    }
+    Collections.sort(tuples, new Comparator<int[]>() {
+      @Override
+      public int compare(final int[] a, final int[] b) {
+        return comparator.compare(a[0], b[0]);
+      }
+    });
+    final int[] fromIndex = new int[size];
+    for (int i = 0; i < size; i++) {
+      fromIndex[i] = tuples.get(i)[0];
+    }
+    return fromIndex;
+  }
+
+  /**
+   * Both sorts are stable: they must return the same index. Also keeps the results alive.
+   */
+  private static void checkSameIndex(final String name, final long expected, final long actual) {
+    if (expected != actual) {
+      throw new IllegalStateException(String.format(
+          "%s: sortedIndex checksum %d differs from the tuples sort checksum %d", name, actual,
+          expected));
+    }
+  }
+
+  private static int rounds(final int size) {
+    return (int) Math.max(MIN_ROUNDS, N_ROWS_PER_BENCHMARK / size);
+  }
+
+  private void startTimer() {
+    this.tStart = System.nanoTime();
+  }
+
+  private void stopTimer() {
+    long tDelta = System.nanoTime() - this.tStart;
+    this.times.add(tDelta);
+  }
+
+  private void logResults(final String name, final int size, final long checksum) {
+    Collections.sort(this.times);
+    long tMid = this.times.get(this.times.size() / 2);
+    long tMin = Collections.min(this.times);
+    long tMax = Collections.max(this.times);
+    LOG.info("{} ({} rows): min/mid/max = {}us {}us {}us [chk={}, cnt={}]", name, size,
+        tMin / 1000, tMid / 1000, tMax / 1000, checksum % 1000, this.times.size());
+    this.results.append(name, size, tMin / 1000, tMid / 1000, tMax / 1000, checksum % 1000);
+
+    // reset timer stats
+    this.times = new ArrayList<>();
+  }
+
+  public static void main(String[] args) throws Exception {
+    LOG.info("Running sortedIndex benchmark ...");
+    SortedIndexBenchmark b = new SortedIndexBenchmark();
+    b.benchmarkAll();
+
+    LOG.info("Summary (us):\n{}", b.results.build().toString(40, SERIES_NAMES));
+    LOG.info("done.");
+  }
+
+  private static long[] generateLongData(int n) {
+    Random r = new Random();
+    r.setSeed(SEED);
+    long[] values = new long[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = r.nextLong();
+    }
+    return values;
+  }
+
+  private static long checksum(int... values) {
+    long bits = 0;
+    for (int i = 0; i < values.length; i++) {
+      bits ^= (long) values[i] * (i + 1);
+    }
+    return bits;
+  }
+}
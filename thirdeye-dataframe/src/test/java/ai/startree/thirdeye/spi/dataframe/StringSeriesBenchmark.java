@@ -0,0 +1,206 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.dataframe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares plain and dictionary-encoded string series of dimension values, as returned by a
+ * datasource: one string instance per row. Reports the retained heap of each series and the
+ * time of the operations that run on codes.
+ */
+public class StringSeriesBenchmark {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StringSeriesBenchmark.class);
+
+  private static final int N_ELEMENTS = 1_000_000;
+  private static final int[] N_DISTINCT_VALUES = new int[]{5, 1000};
+  private static final int N_ROUNDS = 20;
+  private static final String FILTER_VALUE = "dimension_value_3";
+
+  private static final String[] SERIES_NAMES = new String[]{"task", "distinct", "min", "mid",
+      "max", "checksum"};
+
+  private static final long SEED = System.nanoTime();
+
+  private long tStart;
+  private List<Long> times = new ArrayList<>();
+  private final DataFrame.Builder results = DataFrame.builder(SERIES_NAMES);
+  // checksums of the plain series, by task - the encoded series must get the same
+  private final Map<String, Long> plainChecksums = new HashMap<>();
+
+  private void benchmarkMemory(final int distinct) {
+    final String[] values = generateValues(distinct);
+    final long before = usedMemory();
+    final StringSeries plain = StringSeries.buildFrom(generateValues(distinct));
+    final long plainBytes = usedMemory() - before;
+    final StringSeries encoded = StringSeries.buildCompressed(generateValues(distinct));
+    final long encodedBytes = usedMemory() - before - plainBytes;
+    LOG.info("memory ({} distinct): plain = {}KB, encoded = {}KB [size={}]", distinct,
+        plainBytes / 1024, encodedBytes / 1024, plain.size() + encoded.size() + values.length);
+  }
+
+  private void benchmarkOperations(final int distinct) {
+    final StringSeries plain = StringSeries.buildFrom(generateValues(distinct));
+    final StringSeries encoded = StringSeries.buildCompressed(generateValues(distinct));
+    final DataFrame lookup = new DataFrame()
+        .addSeries("dimension", StringSeries.buildFrom(plain.unique().values()))
+        .addSeries("label", LongSeries.sequence(0, plain.unique().size()));
+
+    for (final StringSeries series : new StringSeries[]{plain, encoded}) {
+      final String name = series.isEncoded() ? "Encoded" : "Plain";
+      final DataFrame df = new DataFrame()
+          .addSeries("dimension", series)
+          .addSeries("value", LongSeries.sequence(0, series.size()));
+
+      long checksum = 0;
+      for (int r = 0; r < N_ROUNDS; r++) {
+        startTimer();
+        final int[] index = series.sortedIndex();
+        stopTimer();
+        checksum += checksum(index);
+      }
+      logResults("sortedIndex" + name, distinct, checksum);
+      checkSameResult("sortedIndex", series, distinct, checksum);
+
+      checksum = 0;
+      for (int r = 0; r < N_ROUNDS; r++) {
+        startTimer();
+        final DataFrame grouped = df.groupByValue("dimension").aggregate("value:sum");
+        stopTimer();
+        checksum += grouped.size() * 31L + grouped.getLongs("value").sum().longValue();
+      }
+      logResults("groupBySum" + name, distinct, checksum);
+      checkSameResult("groupBySum", series, distinct, checksum);
+
+      checksum = 0;
+      for (int r = 0; r < N_ROUNDS; r++) {
+        startTimer();
+        final DataFrame filtered = df.filterEquals("dimension", FILTER_VALUE);
+        stopTimer();
+        checksum += filtered.getLongs("value").sum().longValue();
+      }
+      logResults("filterEquals" + name, distinct, checksum);
+      checkSameResult("filterEquals", series, distinct, checksum);
+
+      // the small side of a lookup join is encoded as well if the large side is
+      final DataFrame right = series.isEncoded()
+          ? new DataFrame(lookup).addSeries("dimension",
+          lookup.getStrings("dimension").compress().getStrings())
+          : lookup;
+      checksum = 0;
+      for (int r = 0; r < N_ROUNDS; r++) {
+        startTimer();
+        final DataFrame joined = df.joinInner(right, "dimension");
+        stopTimer();
+        checksum += joined.getLongs("label").sum().longValue() * 31L
+            + joined.getLongs("value").sum().longValue();
+      }
+      logResults("joinInner" + name, distinct, checksum);
+      checkSameResult("joinInner", series, distinct, checksum);
+    }
+  }
+
+  private void benchmarkAll() {
+    for (final int distinct : N_DISTINCT_VALUES) {
+      benchmarkMemory(distinct);
+    }
+    for (final int distinct : N_DISTINCT_VALUES) {
+      benchmarkOperations(distinct);
+    }
+  }
+
+  /**
+   * Operations on codes must return the same result as on strings. Also keeps the results
+   * alive.
+   */
+  private void checkSameResult(final String task, final StringSeries series, final int distinct,
+      final long checksum) {
+    final String key = task + distinct;
+    if (!series.isEncoded()) {
+      plainChecksums.put(key, checksum);
+      return;
+    }
+    final long expected = plainChecksums.get(key);
+    if (expected != checksum) {
+      throw new IllegalStateException(String.format(
+          "%s (%d distinct): encoded checksum %d differs from the plain checksum %d", task,
+          distinct, checksum, expected));
+    }
+  }
+
+  private static long checksum(final int[] values) {
+    long bits = 0;
+    for (int i = 0; i < values.length; i++) {
+      bits ^= (long) values[i] * (i + 1);
+    }
+    return bits;
+  }
+
+  private static String[] generateValues(final int distinct) {
+    final Random r = new Random(SEED);
+    final String[] values = new String[N_ELEMENTS];
+    for (int i = 0; i < N_ELEMENTS; i++) {
+      // a new instance for each row, like values parsed from a query response
+      values[i] = new StringBuilder("dimension_value_").append(r.nextInt(distinct)).toString();
+    }
+    return values;
+  }
+
+  private static long usedMemory() {
+    final Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private void startTimer() {
+    this.tStart = System.nanoTime();
+  }
+
+  private void stopTimer() {
+    long tDelta = System.nanoTime() - this.tStart;
+    this.times.add(tDelta);
+  }
+
+  private void logResults(final String name, final int distinct, final long checksum) {
+    Collections.sort(this.times);
+    long tMid = this.times.get(this.times.size() / 2);
+    long tMin = Collections.min(this.times);
+    long tMax = Collections.max(this.times);
+    LOG.info("{} ({} distinct): min/mid/max = {}us {}us {}us [chk={}, cnt={}]", name, distinct,
+        tMin / 1000, tMid / 1000, tMax / 1000, checksum % 1000, this.times.size());
+    this.results.append(name, distinct, tMin / 1000, tMid / 1000, tMax / 1000, checksum % 1000);
+
+    // reset timer stats
+    this.times = new ArrayList<>();
+  }
+
+  public static void main(String[] args) throws Exception {
+    LOG.info("Running string series benchmark ...");
+    StringSeriesBenchmark b = new StringSeriesBenchmark();
+    b.benchmarkAll();
+
+    LOG.info("Summary (us):\n{}", b.results.build().toString(40, SERIES_NAMES));
+    LOG.info("done.");
+  }
+}
@@ -15,10 +15,14 @@ package ai.startree.thirdeye.detectionpipeline;
 
 import ai.startree.thirdeye.datalayer.core.EnumerationItemMaintainer;
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.datasource.cache.RequestBatcher;
+import ai.startree.thirdeye.detectionpipeline.components.GenericDataFetcher.BatchKey;
 import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
 import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
 import ai.startree.thirdeye.spi.datalayer.bao.EventManager;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import java.util.concurrent.ExecutorService;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 public record ApplicationContext(DataSourceCache dataSourceCache,
                                  DetectionRegistry detectionRegistry,
@@ -27,4 +31,5 @@ public record ApplicationContext(DataSourceCache dataSourceCache,
                                  DatasetConfigManager datasetConfigManager,
                                  ExecutorService subTaskExecutor,
                                  DetectionPipelineConfiguration configuration,
-                                 EnumerationItemMaintainer enumerationItemMaintainer) {}
+                                 EnumerationItemMaintainer enumerationItemMaintainer,
+                                 @Nullable RequestBatcher<BatchKey, String, DataTable> dataFetchBatcher) {}
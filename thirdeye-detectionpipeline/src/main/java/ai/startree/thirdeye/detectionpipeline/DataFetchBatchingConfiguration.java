@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline;
+
+import java.time.Duration;
+
+/**
+ * Batching of the data fetches of enumeration items that only differ by the value of an equality
+ * filter. Disabled by default: batched queries are rewritten, see QueryPreparer.
+ */
+public class DataFetchBatchingConfiguration {
+
+  private boolean enabled = false;
+  private Duration window = Duration.ofMillis(50);
+  private Integer maxBatchSize = 100;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public DataFetchBatchingConfiguration setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  public Duration getWindow() {
+    return window;
+  }
+
+  public DataFetchBatchingConfiguration setWindow(final Duration window) {
+    this.window = window;
+    return this;
+  }
+
+  public Integer getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  public DataFetchBatchingConfiguration setMaxBatchSize(final Integer maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+    return this;
+  }
+}
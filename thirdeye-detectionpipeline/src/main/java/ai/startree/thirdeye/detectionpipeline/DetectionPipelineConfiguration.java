@@ -16,6 +16,7 @@ package ai.startree.thirdeye.detectionpipeline;
 public class DetectionPipelineConfiguration {
 
   private ForkJoinConfiguration forkjoin = new ForkJoinConfiguration();
+  private DataFetchBatchingConfiguration batching = new DataFetchBatchingConfiguration();
 
   public ForkJoinConfiguration getForkjoin() {
     return forkjoin;
@@ -26,4 +27,14 @@ public class DetectionPipelineConfiguration {
     this.forkjoin = forkjoin;
     return this;
   }
+
+  public DataFetchBatchingConfiguration getBatching() {
+    return batching;
+  }
+
+  public DetectionPipelineConfiguration setBatching(
+      final DataFetchBatchingConfiguration batching) {
+    this.batching = batching;
+    return this;
+  }
 }
@@ -21,16 +21,22 @@ import static java.util.Collections.emptyList;
 
 import ai.startree.thirdeye.datalayer.core.EnumerationItemMaintainer;
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.datasource.cache.RequestBatcher;
+import ai.startree.thirdeye.datasource.limiter.PriorityPropagatingExecutorService;
+import ai.startree.thirdeye.detectionpipeline.components.GenericDataFetcher;
+import ai.startree.thirdeye.detectionpipeline.components.GenericDataFetcher.BatchKey;
 import ai.startree.thirdeye.detectionpipeline.persistence.CachedDatasetConfigManager;
 import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
 import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
 import ai.startree.thirdeye.spi.datalayer.bao.EventManager;
 import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean;
 import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean.InputBean;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import ai.startree.thirdeye.spi.detection.v2.OperatorResult;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import java.util.HashMap;
@@ -39,6 +45,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 @Singleton
 public class PlanExecutor implements AutoCloseable {
@@ -57,6 +64,7 @@ public class PlanExecutor implements AutoCloseable {
   private final EnumerationItemMaintainer enumerationItemMaintainer;
 
   private final ExecutorService subTaskExecutor;
+  private final @Nullable RequestBatcher<BatchKey, String, DataTable> dataFetchBatcher;
 
   @Inject
   public PlanExecutor(final PlanNodeFactory planNodeFactory,
@@ -78,9 +86,28 @@ public class PlanExecutor implements AutoCloseable {
     this.enumerationItemMaintainer = enumerationItemMaintainer;
 
     final int nThreads = detectionPipelineConfiguration.getForkjoin().getParallelism();
-    subTaskExecutor = Executors.newFixedThreadPool(nThreads, threadsNamed("fork-join-%d"));
-    new ExecutorServiceMetrics(subTaskExecutor, "fork-join", emptyList()).bindTo(
+    final ExecutorService subTaskPool = Executors.newFixedThreadPool(nThreads,
+        threadsNamed("fork-join-%d"));
+    new ExecutorServiceMetrics(subTaskPool, "fork-join", emptyList()).bindTo(
         Metrics.globalRegistry);
+    // subtasks query the datasources with the priority of the task that submits them
+    subTaskExecutor = new PriorityPropagatingExecutorService(subTaskPool);
+    dataFetchBatcher = buildDataFetchBatcher(detectionPipelineConfiguration.getBatching());
+  }
+
+  private static @Nullable RequestBatcher<BatchKey, String, DataTable> buildDataFetchBatcher(
+      final DataFetchBatchingConfiguration configuration) {
+    if (!configuration.isEnabled()) {
+      return null;
+    }
+    final DistributionSummary batchSize = DistributionSummary.builder(
+            "thirdeye_datafetcher_batch_size")
+        .description("Number of enumeration item fetches merged in a single query.")
+        .register(Metrics.globalRegistry);
+    return new RequestBatcher<>(configuration.getWindow(),
+        configuration.getMaxBatchSize(),
+        GenericDataFetcher::copyOf,
+        batchSize::record);
   }
 
   @VisibleForTesting
@@ -140,7 +167,8 @@ public class PlanExecutor implements AutoCloseable {
         new CachedDatasetConfigManager(datasetConfigManager),
         subTaskExecutor,
         detectionPipelineConfiguration,
-        enumerationItemMaintainer);
+        enumerationItemMaintainer,
+        dataFetchBatcher);
   }
 
   /**
@@ -18,11 +18,15 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.datasource.cache.RequestBatcher;
 import ai.startree.thirdeye.datasource.query.QueryPredicate;
 import ai.startree.thirdeye.detectionpipeline.spec.DataFetcherSpec;
-import ai.startree.thirdeye.detectionpipeline.sql.filter.FilterEngine;
-import ai.startree.thirdeye.detectionpipeline.sql.macro.MacroEngine;
+import ai.startree.thirdeye.detectionpipeline.sql.QueryPreparer;
+import ai.startree.thirdeye.detectionpipeline.sql.QueryPreparer.BatchRequest;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.Predicate.OPER;
 import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
 import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
 import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
@@ -34,13 +38,18 @@ import ai.startree.thirdeye.spi.datasource.macro.SqlExpressionBuilder;
 import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
 import ai.startree.thirdeye.spi.detection.DataFetcher;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
 import ai.startree.thirdeye.spi.metric.DimensionType;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +69,11 @@ public class GenericDataFetcher implements DataFetcher<DataFetcherSpec> {
   private ThirdEyeDataSource thirdEyeDataSource;
   private DatasetConfigDTO datasetConfigDTO;
   private List<QueryPredicate> timeseriesFilters = List.of();
+  private @Nullable RequestBatcher<BatchKey, String, DataTable> dataFetchBatcher;
+  /**
+   * The equality filter that differs between enumeration items. Null if the fetch is not batched.
+   */
+  private @Nullable QueryPredicate batchedFilter;
 
   public String getQuery() {
     return query;
@@ -114,41 +128,153 @@ public class GenericDataFetcher implements DataFetcher<DataFetcherSpec> {
           .map(this::toQueryPredicate)
           .collect(Collectors.toList());
     }
+    initBatching(dataFetcherSpec.getDataFetchBatcher());
+  }
+
+  /**
+   * Enables batching if the filters contain exactly one equality filter - the enumeration item
+   * value - and the query can be rewritten for several values.
+   */
+  private void initBatching(
+      final @Nullable RequestBatcher<BatchKey, String, DataTable> dataFetchBatcher) {
+    if (dataFetchBatcher == null || !macrosSupported()) {
+      return;
+    }
+    final List<QueryPredicate> equalityFilters = timeseriesFilters.stream()
+        .filter(f -> f.getPredicate().getOper() == OPER.EQ)
+        .filter(f -> f.getPredicate().getRhs() instanceof String)
+        .filter(f -> f.getMetricType() == DimensionType.STRING)
+        .toList();
+    if (equalityFilters.size() != 1
+        || !QueryPreparer.isBatchable(query, thirdEyeDataSource.getSqlLanguage())) {
+      return;
+    }
+    this.dataFetchBatcher = dataFetchBatcher;
+    this.batchedFilter = equalityFilters.get(0);
   }
 
   @Override
   public DataTable getDataTable(Interval detectionInterval) throws Exception {
-    String queryWithFilters = injectFilters(query);
-    DataSourceRequest preparedRequest = applyMacros(detectionInterval, queryWithFilters);
+    if (dataFetchBatcher != null && batchedFilter != null) {
+      final List<QueryPredicate> otherFilters = new ArrayList<>(timeseriesFilters);
+      otherFilters.remove(batchedFilter);
+      final BatchKey key = new BatchKey(thirdEyeDataSource,
+          query,
+          detectionInterval,
+          optional(datasetConfigDTO).map(DatasetConfigDTO::getId).orElse(null),
+          otherFilters,
+          batchedFilter.getPredicate().getLhs());
+      return dataFetchBatcher.execute(key,
+          (String) batchedFilter.getPredicate().getRhs(),
+          () -> fetch(detectionInterval),
+          values -> fetchBatch(detectionInterval, otherFilters, values));
+    }
+    return fetch(detectionInterval);
+  }
+
+  private DataTable fetch(final Interval detectionInterval) throws Exception {
+    DataSourceRequest preparedRequest = prepareRequest(detectionInterval);
     DataTable result = thirdEyeDataSource.fetchDataTable(preparedRequest);
     result.addProperties(preparedRequest.getProperties());
     return result;
   }
 
-  private String injectFilters(final String query) {
-    if (timeseriesFilters.isEmpty()) {
-      return query;
+  private Map<String, DataTable> fetchBatch(final Interval detectionInterval,
+      final List<QueryPredicate> otherFilters, final List<String> values) throws Exception {
+    final BatchRequest batchRequest = QueryPreparer.prepareBatchRequest(
+        thirdEyeDataSource.getSqlLanguage(),
+        thirdEyeDataSource.getSqlExpressionBuilder(),
+        detectionInterval,
+        datasetConfigDTO,
+        query,
+        otherFilters,
+        requireNonNull(batchedFilter),
+        values);
+    final DataTable result = thirdEyeDataSource.fetchDataTable(batchRequest.request());
+    final DataFrame dataFrame = result.getDataFrame();
+    checkArgument(dataFrame.size() < batchRequest.limit() * values.size(),
+        "Batched query reached its limit. The result of some values may be truncated.");
+
+    final Map<String, DataTable> dataTables = new HashMap<>();
+    for (final Map.Entry<String, DataFrame> e : splitByBatchKey(dataFrame, values,
+        batchRequest.limit()).entrySet()) {
+      final DataTable dataTable = SimpleDataTable.fromDataFrame(e.getValue());
+      dataTable.addProperties(result.getProperties());
+      dataTable.addProperties(batchRequest.request().getProperties());
+      dataTables.put(e.getKey(), dataTable);
     }
-    SqlLanguage sqlLanguage = thirdEyeDataSource.getSqlLanguage();
-    checkArgument(sqlLanguage != null,
-        "Sql manipulation not supported for datasource %s, but filters list is not empty. Cannot apply filters.",
-        thirdEyeDataSource.getName());
-    return new FilterEngine(sqlLanguage, query, timeseriesFilters).prepareQuery();
+    return dataTables;
   }
 
-  private DataSourceRequest applyMacros(final Interval detectionInterval,
-      final String queryWithFilters) {
+  /**
+   * Splits the result of a batched query by the value of the {@link QueryPreparer#BATCH_KEY_COLUMN}
+   * column. Rows keep their order. The key column is dropped. A value without rows gets an empty
+   * DataFrame with the same columns.
+   *
+   * @param limit the LIMIT of the original query. The batched query returns up to limit * number
+   *     of values rows: only the first limit rows of each value are kept, as the original query
+   *     would return.
+   */
+  @VisibleForTesting
+  static Map<String, DataFrame> splitByBatchKey(final DataFrame dataFrame,
+      final List<String> values, final long limit) {
+    checkArgument(dataFrame.contains(QueryPreparer.BATCH_KEY_COLUMN),
+        "Batched result does not contain the batch key column %s",
+        QueryPreparer.BATCH_KEY_COLUMN);
+    final StringSeries keys = dataFrame.getStrings(QueryPreparer.BATCH_KEY_COLUMN);
+    final Map<String, List<Integer>> rowsByValue = new LinkedHashMap<>();
+    values.forEach(v -> rowsByValue.put(v, new ArrayList<>()));
+    for (int i = 0; i < keys.size(); i++) {
+      final List<Integer> rows = rowsByValue.get(keys.getString(i));
+      // eg a numeric column returned as 1.0 for the value 1: the rows can't be attributed safely
+      checkArgument(rows != null, "Batched result contains an unexpected key: %s",
+          keys.getString(i));
+      if (rows.size() < limit) {
+        rows.add(i);
+      }
+    }
+
+    final DataFrame withoutKey = new DataFrame(dataFrame).dropSeries(
+        QueryPreparer.BATCH_KEY_COLUMN);
+    final Map<String, DataFrame> split = new HashMap<>();
+    for (final Map.Entry<String, List<Integer>> e : rowsByValue.entrySet()) {
+      final int[] rows = e.getValue().stream().mapToInt(Integer::intValue).toArray();
+      split.put(e.getKey(), withoutKey.project(rows));
+    }
+    return split;
+  }
+
+  /**
+   * Copy for callers that get the same result from the batcher. Series are immutable, only the
+   * DataFrame and the properties are copied.
+   */
+  public static DataTable copyOf(final DataTable dataTable) {
+    final DataTable copy = SimpleDataTable.fromDataFrame(new DataFrame(dataTable.getDataFrame()));
+    copy.addProperties(dataTable.getProperties());
+    return copy;
+  }
+
+  private boolean macrosSupported() {
+    return thirdEyeDataSource.getSqlLanguage() != null
+        && thirdEyeDataSource.getSqlExpressionBuilder() != null;
+  }
+
+  private DataSourceRequest prepareRequest(final Interval detectionInterval) {
     SqlLanguage sqlLanguage = thirdEyeDataSource.getSqlLanguage();
     SqlExpressionBuilder sqlExpressionBuilder = thirdEyeDataSource.getSqlExpressionBuilder();
-    boolean macrosSupported = sqlLanguage != null && sqlExpressionBuilder != null;
-    if (macrosSupported) {
-      return new MacroEngine(sqlLanguage,
+    if (macrosSupported()) {
+      // filters and macros are applied on a single parse of the query
+      return QueryPreparer.prepareRequest(sqlLanguage,
           sqlExpressionBuilder,
           detectionInterval,
           datasetConfigDTO,
-          queryWithFilters).prepareRequest();
+          query,
+          timeseriesFilters);
     }
 
+    checkArgument(timeseriesFilters.isEmpty(),
+        "Sql manipulation not supported for datasource %s, but filters list is not empty. Cannot apply filters.",
+        thirdEyeDataSource.getName());
     final Map<String, String> customOptions = Map.of(); // custom query options not implemented in MinMaxTimeLoader
     return new DataSourceRequest(tableName, query, customOptions, ImmutableMap.of());
   }
@@ -166,4 +292,16 @@ public class GenericDataFetcher implements DataFetcher<DataFetcherSpec> {
     // todo fetch info from database with a DAO
     return DimensionType.STRING;
   }
+
+  /**
+   * Fetches with the same key only differ by the value of the batched filter.
+   *
+   * @param dataSource compared by identity: a datasource is re-created when it is updated
+   */
+  public record BatchKey(ThirdEyeDataSource dataSource,
+                         String query,
+                         Interval detectionInterval,
+                         @Nullable Long datasetId,
+                         List<QueryPredicate> otherFilters,
+                         String batchedColumn) {}
 }
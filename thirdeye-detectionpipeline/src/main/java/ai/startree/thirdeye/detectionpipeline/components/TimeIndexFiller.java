@@ -173,11 +173,10 @@ public class TimeIndexFiller implements IndexFiller<TimeIndexFillerSpec> {
 
   private DataFrame replaceNullData(final DateTime start, final DataFrame dataFrame) {
     // only apply replacer *before* the detection period - on detection period, replace nulls by zeroes
-    DataFrame beforeDetectionStart = dataFrame.filter(
-        (LongConditional) values -> values[0] < start.getMillis(), timeColumn).dropNull(timeColumn);
-    DataFrame afterDetectionStart = dataFrame.filter(
-            (LongConditional) values -> values[0] >= start.getMillis(), timeColumn)
-        .dropNull(timeColumn);
+    DataFrame beforeDetectionStart = dataFrame.filterCompact(
+        (LongConditional) values -> values[0] < start.getMillis(), timeColumn);
+    DataFrame afterDetectionStart = dataFrame.filterCompact(
+        (LongConditional) values -> values[0] >= start.getMillis(), timeColumn);
 
     return DataFrame.concatenate(nullReplacer.replaceNulls(beforeDetectionStart),
         WITH_ZERO_NULL_REPLACER.replaceNulls(afterDetectionStart));
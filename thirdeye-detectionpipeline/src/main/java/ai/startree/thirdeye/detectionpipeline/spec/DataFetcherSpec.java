@@ -14,10 +14,13 @@
 package ai.startree.thirdeye.detectionpipeline.spec;
 
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.datasource.cache.RequestBatcher;
+import ai.startree.thirdeye.detectionpipeline.components.GenericDataFetcher.BatchKey;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
 import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
 import ai.startree.thirdeye.spi.detection.AbstractSpec;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.util.List;
 
@@ -61,7 +64,12 @@ public class DataFetcherSpec extends AbstractSpec {
    * Expected to be set during DataFetcherOperator init.
    */
   private String namespace;
-  
+
+  /**
+   * Expected to be set during DataFetcherOperator init. Null if batching is disabled.
+   */
+  private RequestBatcher<BatchKey, String, DataTable> dataFetchBatcher;
+
 
   public String getDataSource() {
     return dataSource;
@@ -135,4 +143,14 @@ public class DataFetcherSpec extends AbstractSpec {
     this.dataSourceDao = dataSourceDao;
     return this;
   }
+
+  public RequestBatcher<BatchKey, String, DataTable> getDataFetchBatcher() {
+    return dataFetchBatcher;
+  }
+
+  public DataFetcherSpec setDataFetchBatcher(
+      final RequestBatcher<BatchKey, String, DataTable> dataFetchBatcher) {
+    this.dataFetchBatcher = dataFetchBatcher;
+    return this;
+  }
 }
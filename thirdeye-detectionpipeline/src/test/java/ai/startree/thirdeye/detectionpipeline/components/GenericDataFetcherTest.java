@@ -14,11 +14,16 @@
 package ai.startree.thirdeye.detectionpipeline.components;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import ai.startree.thirdeye.datasource.query.QueryPredicate;
+import ai.startree.thirdeye.detectionpipeline.sql.QueryPreparer;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.Predicate.OPER;
 import ai.startree.thirdeye.spi.metric.DimensionType;
+import java.util.List;
+import java.util.Map;
 import org.testng.annotations.Test;
 
 public class GenericDataFetcherTest {
@@ -38,4 +43,55 @@ public class GenericDataFetcherTest {
     assertThat(res.getDataset()).isEqualTo(TABLE_NAME);
     assertThat(res.getMetricType()).isEqualTo(DimensionType.STRING);
   }
+
+  @Test
+  public void testSplitByBatchKey() {
+    final DataFrame batched = new DataFrame()
+        .addSeries("ts", 1000L, 1000L, 2000L, 2000L)
+        .addSeries("met", 1.0, 10.0, 2.0, 20.0)
+        .addSeries(QueryPreparer.BATCH_KEY_COLUMN, "a", "b", "a", "b");
+
+    final Map<String, DataFrame> split = GenericDataFetcher.splitByBatchKey(batched,
+        List.of("a", "b", "c"), 10L);
+
+    assertThat(split.get("a")).isEqualTo(new DataFrame()
+        .addSeries("ts", 1000L, 2000L)
+        .addSeries("met", 1.0, 2.0));
+    assertThat(split.get("b")).isEqualTo(new DataFrame()
+        .addSeries("ts", 1000L, 2000L)
+        .addSeries("met", 10.0, 20.0));
+    assertThat(split.get("c").size()).isEqualTo(0);
+    assertThat(split.get("c").getSeriesNames()).containsExactlyInAnyOrder("ts", "met");
+    // the batched result is not modified
+    assertThat(batched.contains(QueryPreparer.BATCH_KEY_COLUMN)).isTrue();
+  }
+
+  @Test
+  public void testSplitByBatchKeyFailsOnUnknownKey() {
+    final DataFrame batched = new DataFrame()
+        .addSeries("met", 1.0)
+        .addSeries(QueryPreparer.BATCH_KEY_COLUMN, "1.0");
+
+    assertThatThrownBy(() -> GenericDataFetcher.splitByBatchKey(batched, List.of("1"), 10L))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testSplitByBatchKeyKeepsLimitRowsPerKey() {
+    // LIMIT 2 batched for 2 values: the query returns up to 4 rows, 3 of them for a
+    final DataFrame batched = new DataFrame()
+        .addSeries("ts", 1000L, 2000L, 1000L, 3000L)
+        .addSeries("met", 1.0, 2.0, 10.0, 3.0)
+        .addSeries(QueryPreparer.BATCH_KEY_COLUMN, "a", "a", "b", "a");
+
+    final Map<String, DataFrame> split = GenericDataFetcher.splitByBatchKey(batched,
+        List.of("a", "b"), 2L);
+
+    assertThat(split.get("a")).isEqualTo(new DataFrame()
+        .addSeries("ts", 1000L, 2000L)
+        .addSeries("met", 1.0, 2.0));
+    assertThat(split.get("b")).isEqualTo(new DataFrame()
+        .addSeries("ts", 1000L)
+        .addSeries("met", 10.0));
+  }
 }
@@ -82,7 +82,8 @@ public class DataFetcherOperatorTest {
                 datasetDao,
                 mock(ExecutorService.class),
                 new DetectionPipelineConfiguration(),
-                mock(EnumerationItemMaintainer.class))
+                mock(EnumerationItemMaintainer.class),
+                null)
     ));
   }
 
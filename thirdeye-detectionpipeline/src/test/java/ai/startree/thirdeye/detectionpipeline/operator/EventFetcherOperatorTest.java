@@ -104,7 +104,8 @@ public class EventFetcherOperatorTest {
                 mock(DatasetConfigManager.class),
                 mock(ExecutorService.class),
                 new DetectionPipelineConfiguration(),
-                mock(EnumerationItemMaintainer.class))
+                mock(EnumerationItemMaintainer.class),
+                null)
         ));
   }
 
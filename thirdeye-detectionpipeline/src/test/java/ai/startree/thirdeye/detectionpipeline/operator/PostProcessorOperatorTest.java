@@ -91,7 +91,8 @@ public class PostProcessorOperatorTest {
                 mock(DatasetConfigManager.class),
                 mock(ExecutorService.class),
                 new DetectionPipelineConfiguration(),
-                mock(EnumerationItemMaintainer.class))));
+                mock(EnumerationItemMaintainer.class),
+                null)));
   }
 
   @Test
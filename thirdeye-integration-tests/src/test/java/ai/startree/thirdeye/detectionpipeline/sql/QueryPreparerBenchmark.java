@@ -0,0 +1,145 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.sql;
+
+import ai.startree.thirdeye.datasource.query.QueryPredicate;
+import ai.startree.thirdeye.detectionpipeline.sql.filter.FilterEngine;
+import ai.startree.thirdeye.detectionpipeline.sql.macro.MacroEngine;
+import ai.startree.thirdeye.plugins.datasource.pinot.PinotSqlExpressionBuilder;
+import ai.startree.thirdeye.plugins.datasource.pinot.PinotSqlLanguage;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.Predicate.OPER;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datasource.macro.SqlExpressionBuilder;
+import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
+import ai.startree.thirdeye.spi.metric.DimensionType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Throughput of the query rewrite of a data fetch: filter injection and macro expansion.
+ * Compares the two-pass rewrite - parse and unparse in each engine - with the single pass over a
+ * cached parsed query.
+ */
+public class QueryPreparerBenchmark {
+
+  private static final Logger LOG = LoggerFactory.getLogger(QueryPreparerBenchmark.class);
+
+  private static final int N_ROUNDS = 15;
+  private static final int N_QUERIES = 10_000;
+
+  private static final SqlLanguage SQL_LANGUAGE = new PinotSqlLanguage();
+  private static final SqlExpressionBuilder SQL_EXPRESSION_BUILDER = new PinotSqlExpressionBuilder();
+  private static final DatasetConfigDTO DATASET_CONFIG_DTO = new DatasetConfigDTO()
+      .setDataset("tableName")
+      .setTimeColumn("timeCol")
+      .setTimeFormat("1:MILLISECONDS:EPOCH");
+  private static final String QUERY = "SELECT __timeGroup(timeCol, 'EPOCH', 'P1D') AS ts, "
+      + "SUM(metric) AS met FROM tableName WHERE __timeFilter(timeCol, 'EPOCH') "
+      + "GROUP BY 1 ORDER BY 1 LIMIT 1000";
+  private static final long DAY_MILLIS = 86_400_000L;
+
+  private long tStart;
+  private List<Long> times = new ArrayList<>();
+
+  private static List<QueryPredicate> filters(final int i) {
+    // one filter value per enumeration item
+    return List.of(QueryPredicate.of(new Predicate("browser", OPER.EQ, "browser" + (i % 100)),
+        DimensionType.STRING,
+        "tableName"));
+  }
+
+  private static Interval interval(final int i) {
+    return new Interval(i * DAY_MILLIS, (i + 1) * DAY_MILLIS, DateTimeZone.UTC);
+  }
+
+  private void benchmarkTwoPasses() {
+    long checksum = 0;
+    for (int r = 0; r < N_ROUNDS; r++) {
+      startTimer();
+      for (int i = 0; i < N_QUERIES; i++) {
+        final String queryWithFilters = new FilterEngine(SQL_LANGUAGE, QUERY, filters(i))
+            .prepareQuery();
+        final String preparedQuery = new MacroEngine(SQL_LANGUAGE,
+            SQL_EXPRESSION_BUILDER,
+            interval(i),
+            DATASET_CONFIG_DTO,
+            queryWithFilters).prepareRequest().getQuery();
+        checksum += preparedQuery.length();
+      }
+      stopTimer();
+    }
+    logResults("benchmarkTwoPasses", checksum);
+  }
+
+  private void benchmarkQueryPreparer() {
+    long checksum = 0;
+    for (int r = 0; r < N_ROUNDS; r++) {
+      startTimer();
+      for (int i = 0; i < N_QUERIES; i++) {
+        final String preparedQuery = QueryPreparer.prepareRequest(SQL_LANGUAGE,
+            SQL_EXPRESSION_BUILDER,
+            interval(i),
+            DATASET_CONFIG_DTO,
+            QUERY,
+            filters(i)).getQuery();
+        checksum += preparedQuery.length();
+      }
+      stopTimer();
+    }
+    logResults("benchmarkQueryPreparer", checksum);
+  }
+
+  private void startTimer() {
+    this.tStart = System.nanoTime();
+  }
+
+  private void stopTimer() {
+    long tDelta = System.nanoTime() - this.tStart;
+    this.times.add(tDelta);
+  }
+
+  private void logResults(String name, long checksum) {
+    Collections.sort(this.times);
+    long tMid = this.times.get(this.times.size() / 2);
+    long tMin = Collections.min(this.times);
+    long tMax = Collections.max(this.times);
+    LOG.info("{}: min/mid/max = {}ms {}ms {}ms [queries/s={}, chk={}, cnt={}]", name,
+        tMin / 1000000, tMid / 1000000, tMax / 1000000, N_QUERIES * 1_000_000_000L / tMid,
+        checksum % 1000, this.times.size());
+
+    // reset timer stats
+    this.times = new ArrayList<>();
+  }
+
+  public static void main(String[] args) throws Exception {
+    LOG.info("Press Enter key to start.");
+    System.in.read();
+
+    LOG.info("Running query rewrite benchmark ...");
+    QueryPreparerBenchmark b = new QueryPreparerBenchmark();
+    // warm up
+    b.benchmarkTwoPasses();
+    b.benchmarkQueryPreparer();
+
+    b.benchmarkTwoPasses();
+    b.benchmarkQueryPreparer();
+    LOG.info("done.");
+  }
+}
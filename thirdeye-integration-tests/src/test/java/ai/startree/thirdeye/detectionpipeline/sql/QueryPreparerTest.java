@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.sql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import ai.startree.thirdeye.datasource.query.QueryPredicate;
+import ai.startree.thirdeye.detectionpipeline.sql.QueryPreparer.BatchRequest;
+import ai.startree.thirdeye.detectionpipeline.sql.filter.FilterEngine;
+import ai.startree.thirdeye.detectionpipeline.sql.macro.MacroEngine;
+import ai.startree.thirdeye.plugins.datasource.pinot.PinotSqlExpressionBuilder;
+import ai.startree.thirdeye.plugins.datasource.pinot.PinotSqlLanguage;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.Predicate.OPER;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
+import ai.startree.thirdeye.spi.datasource.macro.SqlExpressionBuilder;
+import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
+import ai.startree.thirdeye.spi.metric.DimensionType;
+import java.util.List;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.util.Litmus;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.testng.annotations.Test;
+
+/**
+ * Tests are performed with Pinot language implementation.
+ */
+public class QueryPreparerTest {
+
+  private static final SqlLanguage SQL_LANGUAGE = new PinotSqlLanguage();
+  private static final SqlExpressionBuilder SQL_EXPRESSION_BUILDER = new PinotSqlExpressionBuilder();
+  private static final DatasetConfigDTO DATASET_CONFIG_DTO = new DatasetConfigDTO()
+      .setDataset("tableName")
+      .setTimeColumn("timeCol")
+      .setTimeFormat("1:MILLISECONDS:EPOCH");
+  private static final String QUERY = "SELECT __timeGroup(timeCol, 'EPOCH', 'P1D') AS ts, "
+      + "SUM(metric) AS met FROM tableName WHERE __timeFilter(timeCol, 'EPOCH') "
+      + "AND \"date\" > 0 GROUP BY 1 ORDER BY 1 LIMIT 1000";
+  private static final List<QueryPredicate> FILTERS = List.of(
+      QueryPredicate.of(new Predicate("browser", OPER.EQ, "chrome"),
+          DimensionType.STRING,
+          "tableName"),
+      QueryPredicate.of(new Predicate("country", OPER.IN, new String[]{"US", "FR"}),
+          DimensionType.STRING,
+          "tableName"));
+
+  private static DataSourceRequest twoPassRequest(final Interval interval,
+      final List<QueryPredicate> filters) {
+    final String queryWithFilters = filters.isEmpty()
+        ? QUERY
+        : new FilterEngine(SQL_LANGUAGE, QUERY, filters).prepareQuery();
+    return new MacroEngine(SQL_LANGUAGE,
+        SQL_EXPRESSION_BUILDER,
+        interval,
+        DATASET_CONFIG_DTO,
+        queryWithFilters).prepareRequest();
+  }
+
+  private static DataSourceRequest singlePassRequest(final Interval interval,
+      final List<QueryPredicate> filters) {
+    return QueryPreparer.prepareRequest(SQL_LANGUAGE,
+        SQL_EXPRESSION_BUILDER,
+        interval,
+        DATASET_CONFIG_DTO,
+        QUERY,
+        filters);
+  }
+
+  @Test
+  public void testPrepareRequestIsEquivalentToTwoPasses() {
+    final Interval interval = new Interval(1_000_000L, 2_000_000L, DateTimeZone.UTC);
+    for (final List<QueryPredicate> filters : List.of(List.<QueryPredicate>of(), FILTERS)) {
+      final DataSourceRequest expected = twoPassRequest(interval, filters);
+      final DataSourceRequest output = singlePassRequest(interval, filters);
+
+      assertThat(output.getTable()).isEqualTo(expected.getTable());
+      assertThat(output.getQuery()).isEqualTo(expected.getQuery());
+      assertThat(output.getProperties()).isEqualTo(expected.getProperties());
+    }
+  }
+
+  @Test
+  public void testCachedTemplateIsNotModified() {
+    final Interval firstInterval = new Interval(1_000_000L, 2_000_000L, DateTimeZone.UTC);
+    final Interval secondInterval = new Interval(3_000_000L, 4_000_000L, DateTimeZone.UTC);
+
+    // bind filters and a first interval on the cached template
+    singlePassRequest(firstInterval, FILTERS);
+    final DataSourceRequest output = singlePassRequest(secondInterval, List.of());
+
+    assertThat(output.getQuery()).isEqualTo(twoPassRequest(secondInterval, List.of()).getQuery());
+    assertThat(output.getQuery()).doesNotContain("browser").doesNotContain("1000000");
+  }
+
+  @Test
+  public void testDeepCopy() {
+    final SqlNode parsed = QueryPreparer.parse(QUERY, SQL_LANGUAGE);
+    final SqlNode copy = QueryPreparer.deepCopy(parsed);
+
+    assertThat(copy).isNotSameAs(parsed);
+    assertThat(copy.equalsDeep(parsed, Litmus.IGNORE)).isTrue();
+    assertThat(QueryPreparer.parse(QUERY, SQL_LANGUAGE)).isNotSameAs(parsed);
+  }
+
+  @Test
+  public void testPrepareBatchRequest() {
+    final Interval interval = new Interval(1_000_000L, 2_000_000L, DateTimeZone.UTC);
+    final BatchRequest output = QueryPreparer.prepareBatchRequest(SQL_LANGUAGE,
+        SQL_EXPRESSION_BUILDER,
+        interval,
+        DATASET_CONFIG_DTO,
+        QUERY,
+        List.of(FILTERS.get(1)),
+        FILTERS.get(0),
+        List.of("chrome", "firefox"));
+
+    assertThat(output.limit()).isEqualTo(1000L);
+    assertThat(output.request().getQuery())
+        .contains("'chrome', 'firefox'")
+        .doesNotContain("= 'chrome'")
+        .contains("'US', 'FR'")
+        .contains(QueryPreparer.BATCH_KEY_COLUMN)
+        .contains("LIMIT 2000");
+    // the batched column is grouped
+    assertThat(output.request().getQuery().substring(
+        output.request().getQuery().indexOf("GROUP BY"))).contains("browser");
+  }
+
+  @Test
+  public void testIsBatchable() {
+    assertThat(QueryPreparer.isBatchable(QUERY, SQL_LANGUAGE)).isTrue();
+    assertThat(QueryPreparer.isBatchable(
+        "SELECT * FROM tableName WHERE __timeFilter(timeCol, 'EPOCH')", SQL_LANGUAGE)).isFalse();
+    assertThat(QueryPreparer.isBatchable(
+        "SELECT ts, met FROM tableName WHERE __timeFilter(timeCol, 'EPOCH') ORDER BY ts "
+            + "LIMIT 10 OFFSET 10", SQL_LANGUAGE)).isFalse();
+    // an aggregation without GROUP BY returns a row even for a value without data
+    assertThat(QueryPreparer.isBatchable(
+        "SELECT SUM(met) FROM tableName WHERE __timeFilter(timeCol, 'EPOCH')",
+        SQL_LANGUAGE)).isFalse();
+    assertThat(QueryPreparer.isBatchable(
+        "SELECT ts, met FROM tableName WHERE __timeFilter(timeCol, 'EPOCH') LIMIT 10",
+        SQL_LANGUAGE)).isTrue();
+    // without LIMIT, a default limit of the data source could truncate the batched result
+    assertThat(QueryPreparer.isBatchable(
+        "SELECT ts, met FROM tableName WHERE __timeFilter(timeCol, 'EPOCH') ORDER BY ts",
+        SQL_LANGUAGE)).isFalse();
+    assertThat(QueryPreparer.isBatchable(
+        "SELECT ts, SUM(met) FROM tableName WHERE __timeFilter(timeCol, 'EPOCH') GROUP BY ts",
+        SQL_LANGUAGE)).isFalse();
+  }
+
+  @Test
+  public void testPrepareBatchRequestFailsOnAggregationWithoutGroupBy() {
+    final Interval interval = new Interval(1_000_000L, 2_000_000L, DateTimeZone.UTC);
+
+    assertThatThrownBy(() -> QueryPreparer.prepareBatchRequest(SQL_LANGUAGE,
+        SQL_EXPRESSION_BUILDER,
+        interval,
+        DATASET_CONFIG_DTO,
+        "SELECT SUM(met) FROM tableName WHERE __timeFilter(timeCol, 'EPOCH')",
+        List.of(),
+        FILTERS.get(0),
+        List.of("chrome", "firefox")))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
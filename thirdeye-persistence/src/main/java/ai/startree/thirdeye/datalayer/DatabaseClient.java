@@ -25,6 +25,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.sql.DataSource;
@@ -43,6 +44,8 @@ public class DatabaseClient {
   private final Counter dbCallCounter;
   private final io.micrometer.core.instrument.Counter dbTransactionCounterOfSuccess;
   private final io.micrometer.core.instrument.Counter dbTransactionCounterOfException;
+  // transaction of the unit of work running on the current thread - not set if there is none
+  private final ThreadLocal<UnitOfWorkTransaction> currentUnitOfWork = new ThreadLocal<>();
 
   @Inject
   public DatabaseClient(final DataSource dataSource, final MetricRegistry metricRegistry) {
@@ -64,6 +67,10 @@ public class DatabaseClient {
 
   public <T> T executeTransaction(final DBOperation<T> operation, final T defaultReturn)
       throws SQLException {
+    final UnitOfWorkTransaction unitOfWork = currentUnitOfWork.get();
+    if (unitOfWork != null) {
+      return unitOfWork.join(operation, defaultReturn);
+    }
     dbCallCounter.inc();
     try (Connection connection = dataSource.getConnection()) {
       try {
@@ -89,6 +96,59 @@ public class DatabaseClient {
     }
   }
 
+  /**
+   * Runs a unit of work in a single transaction. Calls to
+   * {@link #executeTransaction(DBOperation, Object)} done by the unit of work on the current thread
+   * use the connection of the unit of work and do not commit.
+   *
+   * If one of these operations fails, the unit of work is marked as failed: the operation returns
+   * its default value as usual, but the whole unit of work is rolled back at the end, and an
+   * exception is thrown. A unit of work started inside another one joins it.
+   */
+  public <T> T executeUnitOfWork(final Callable<T> unitOfWork) throws Exception {
+    if (currentUnitOfWork.get() != null) {
+      return unitOfWork.call();
+    }
+    dbCallCounter.inc();
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      final UnitOfWorkTransaction transaction = new UnitOfWorkTransaction(connection);
+      currentUnitOfWork.set(transaction);
+      try {
+        final T t = unitOfWork.call();
+        transaction.checkNoFailure();
+        connection.commit();
+        dbTransactionCounterOfSuccess.increment();
+        return t;
+      } catch (final Exception e) {
+        LOG.error("Exception while executing unit of work. Rolling back.", e);
+        dbTransactionCounterOfException.increment();
+        dbExceptionCounter.inc();
+        try {
+          connection.rollback();
+        } catch (final SQLException e1) {
+          LOG.error("Failed to rollback SQL execution", e1);
+        }
+        transaction.runRollbackActions();
+        throw e;
+      } finally {
+        currentUnitOfWork.remove();
+      }
+    }
+  }
+
+  /**
+   * Registers an action to run if the unit of work running on the current thread is rolled back.
+   * Used to revert the changes done on in-memory entities, eg the generated ids.
+   * Does nothing if no unit of work is running.
+   */
+  public void onRollback(final Runnable action) {
+    final UnitOfWorkTransaction unitOfWork = currentUnitOfWork.get();
+    if (unitOfWork != null) {
+      unitOfWork.rollbackActions.add(action);
+    }
+  }
+
   public boolean validate() {
     try (final ResultSet resultSet = executeQuery("SELECT 1")) {
       return resultSet.next();
@@ -147,4 +207,45 @@ public class DatabaseClient {
 
     T handle(Connection connection) throws Exception;
   }
+
+  private static class UnitOfWorkTransaction {
+
+    private final Connection connection;
+    private final List<Runnable> rollbackActions = new ArrayList<>();
+    private Exception failure = null;
+
+    private UnitOfWorkTransaction(final Connection connection) {
+      this.connection = connection;
+    }
+
+    private <T> T join(final DBOperation<T> operation, final T defaultReturn) {
+      try {
+        return operation.handle(connection);
+      } catch (final Exception e) {
+        LOG.error("Exception while executing query task in unit of work", e);
+        // callers may ignore the default return - the whole unit of work will be rolled back
+        if (failure == null) {
+          failure = e;
+        }
+        return defaultReturn;
+      }
+    }
+
+    private void checkNoFailure() throws SQLException {
+      if (failure != null) {
+        throw new SQLException("A database operation of the unit of work failed.", failure);
+      }
+    }
+
+    private void runRollbackActions() {
+      // reverse order: the last change is reverted first
+      for (int i = rollbackActions.size() - 1; i >= 0; i--) {
+        try {
+          rollbackActions.get(i).run();
+        } catch (final RuntimeException e) {
+          LOG.error("Failed to run rollback action", e);
+        }
+      }
+    }
+  }
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer;
+
+import ai.startree.thirdeye.spi.datalayer.UnitOfWork;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.concurrent.Callable;
+
+@Singleton
+public class DatabaseUnitOfWork implements UnitOfWork {
+
+  private final DatabaseClient databaseClient;
+
+  @Inject
+  public DatabaseUnitOfWork(final DatabaseClient databaseClient) {
+    this.databaseClient = databaseClient;
+  }
+
+  @Override
+  public <T> T execute(final Callable<T> operations) throws Exception {
+    return databaseClient.executeUnitOfWork(operations);
+  }
+}
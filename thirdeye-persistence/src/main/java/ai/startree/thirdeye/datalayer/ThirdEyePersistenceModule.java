@@ -57,6 +57,7 @@ import ai.startree.thirdeye.datalayer.entity.RcaInvestigationIndex;
 import ai.startree.thirdeye.datalayer.entity.RootcauseTemplateIndex;
 import ai.startree.thirdeye.datalayer.entity.TaskEntity;
 import ai.startree.thirdeye.datalayer.util.EntityMappingHolder;
+import ai.startree.thirdeye.spi.datalayer.UnitOfWork;
 import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
 import ai.startree.thirdeye.spi.datalayer.bao.AlertTemplateManager;
 import ai.startree.thirdeye.spi.datalayer.bao.AnomalyManager;
@@ -153,6 +154,7 @@ public class ThirdEyePersistenceModule extends AbstractModule {
     bind(AnomalySubscriptionGroupNotificationManager.class)
         .to(AnomalySubscriptionGroupNotificationManagerImpl.class)
         .in(Scopes.SINGLETON);
+    bind(UnitOfWork.class).to(DatabaseUnitOfWork.class).in(Scopes.SINGLETON);
   }
 
   @Singleton
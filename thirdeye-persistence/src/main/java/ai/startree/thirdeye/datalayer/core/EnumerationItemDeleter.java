@@ -15,6 +15,7 @@ package ai.startree.thirdeye.datalayer.core;
 
 import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toSet;
 
 import ai.startree.thirdeye.spi.datalayer.AnomalyFilter;
 import ai.startree.thirdeye.spi.datalayer.bao.AnomalyManager;
@@ -26,7 +27,9 @@ import ai.startree.thirdeye.spi.datalayer.dto.SubscriptionGroupDTO;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Singleton
 public class EnumerationItemDeleter {
@@ -46,20 +49,38 @@ public class EnumerationItemDeleter {
 
   public EnumerationItemDTO delete(final EnumerationItemDTO dto) {
     requireNonNull(dto.getId(), "EnumerationItemDTO.id cannot be null for deletion");
-    disassociateFromSubscriptionGroups(dto.getId());
+    disassociateFromSubscriptionGroups(Set.of(dto.getId()));
     deleteAssociatedAnomalies(dto.getId());
 
     enumerationItemManager.delete(dto);
     return dto;
   }
 
+  /**
+   * Deletes the enumeration items. Subscription groups are read and updated once for all the
+   * items, and the items are deleted with a single statement.
+   */
+  public void delete(final Collection<EnumerationItemDTO> dtos) {
+    if (dtos.isEmpty()) {
+      return;
+    }
+    final Set<Long> ids = dtos.stream()
+        .map(dto -> requireNonNull(dto.getId(),
+            "EnumerationItemDTO.id cannot be null for deletion"))
+        .collect(toSet());
+    disassociateFromSubscriptionGroups(ids);
+    ids.forEach(this::deleteAssociatedAnomalies);
+
+    enumerationItemManager.deleteByIds(List.copyOf(ids));
+  }
+
   public void deleteAssociatedAnomalies(final Long enumerationItemId) {
     final List<AnomalyDTO> anomalies = anomalyManager.filter(
         new AnomalyFilter().setEnumerationItemId(enumerationItemId));
     anomalies.forEach(anomalyManager::delete);
   }
 
-  private void disassociateFromSubscriptionGroups(final Long enumerationItemId) {
+  private void disassociateFromSubscriptionGroups(final Set<Long> enumerationItemIds) {
     final List<SubscriptionGroupDTO> allSubscriptionGroups = subscriptionGroupManager.findAll();
 
     final List<SubscriptionGroupDTO> updated = new ArrayList<>();
@@ -67,7 +88,7 @@ public class EnumerationItemDeleter {
       optional(sg.getAlertAssociations())
           .map(aas -> aas.removeIf(aa ->
               aa.getEnumerationItem() != null &&
-                  enumerationItemId.equals(aa.getEnumerationItem().getId())))
+                  enumerationItemIds.contains(aa.getEnumerationItem().getId())))
           .filter(b -> b)
           .ifPresent(b -> updated.add(sg));
     }
@@ -20,12 +20,14 @@ import static ai.startree.thirdeye.spi.util.SpiUtils.enumerationItemRef;
 import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 import static java.util.Collections.emptyList;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 
 import ai.startree.thirdeye.spi.datalayer.AnomalyFilter;
 import ai.startree.thirdeye.spi.datalayer.EnumerationItemFilter;
+import ai.startree.thirdeye.spi.datalayer.UnitOfWork;
 import ai.startree.thirdeye.spi.datalayer.bao.AnomalyManager;
 import ai.startree.thirdeye.spi.datalayer.bao.EnumerationItemManager;
 import ai.startree.thirdeye.spi.datalayer.bao.SubscriptionGroupManager;
@@ -35,6 +37,8 @@ import ai.startree.thirdeye.spi.util.ExceptionHandledRunnable;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -55,6 +59,7 @@ public class EnumerationItemMaintainer {
   private final AnomalyManager anomalyManager;
   private final SubscriptionGroupManager subscriptionGroupManager;
   private final EnumerationItemDeleter enumerationItemDeleter;
+  private final UnitOfWork unitOfWork;
 
   /* To perform clean up operations */
   private final ExecutorService executorService = Executors.newSingleThreadExecutor(
@@ -64,11 +69,13 @@ public class EnumerationItemMaintainer {
   public EnumerationItemMaintainer(final EnumerationItemManager enumerationItemManager,
       final AnomalyManager anomalyManager,
       final SubscriptionGroupManager subscriptionGroupManager,
-      final EnumerationItemDeleter enumerationItemDeleter) {
+      final EnumerationItemDeleter enumerationItemDeleter,
+      final UnitOfWork unitOfWork) {
     this.enumerationItemManager = enumerationItemManager;
     this.anomalyManager = anomalyManager;
     this.subscriptionGroupManager = subscriptionGroupManager;
     this.enumerationItemDeleter = enumerationItemDeleter;
+    this.unitOfWork = unitOfWork;
   }
 
   public static boolean matches(final EnumerationItemDTO o1, final EnumerationItemDTO o2) {
@@ -117,17 +124,30 @@ public class EnumerationItemMaintainer {
     return candidate.orElse(eiList.get(0));
   }
 
+  /**
+   * The existing enumeration items of the alert are read with a single query and indexed, so that
+   * each item is matched in constant time. Created and updated items are written in a single
+   * transaction.
+   */
   public List<EnumerationItemDTO> sync(
       final List<EnumerationItemDTO> enumerationItems,
       final List<String> idKeys,
       final Long alertId) {
     final List<EnumerationItemDTO> existing = enumerationItemManager.filter(
         new EnumerationItemFilter().setAlertId(alertId));
+    final ExistingEnumerationItems index = new ExistingEnumerationItems(existing, idKeys);
 
-    final List<EnumerationItemDTO> synced = enumerationItems.stream()
-        .map(source -> source.setAlert(alertRef(alertId)))
-        .map(source -> findExistingOrCreate(source, idKeys, existing))
-        .collect(toList());
+    final List<EnumerationItemDTO> synced;
+    try {
+      synced = unitOfWork.execute(() -> enumerationItems.stream()
+          .map(source -> source.setAlert(alertRef(alertId)))
+          .map(source -> findExistingOrCreate(source, idKeys, index))
+          .collect(toList()));
+    } catch (final RuntimeException e) {
+      throw e;
+    } catch (final Exception e) {
+      throw new RuntimeException("Failed to sync enumeration items of alert " + alertId, e);
+    }
 
     runAsync(() -> performCleanup(existing, synced));
     return synced;
@@ -143,10 +163,11 @@ public class EnumerationItemMaintainer {
         .map(EnumerationItemDTO::getId)
         .collect(toSet());
 
-    existing.stream()
+    final List<EnumerationItemDTO> toDelete = existing.stream()
         .filter(ei -> !syncedEnumerationItemIds.contains(ei.getId()))
         .peek(EnumerationItemMaintainer::logDeleteOperation)
-        .forEach(enumerationItemDeleter::delete);
+        .collect(toList());
+    enumerationItemDeleter.delete(toDelete);
   }
 
   @VisibleForTesting
@@ -156,12 +177,13 @@ public class EnumerationItemMaintainer {
         new EnumerationItemFilter().setAlertId(
             source.getAlert().getId()));
 
-    return findExistingOrCreate(source, idKeys, enumerationItemsForAlert);
+    return findExistingOrCreate(source, idKeys,
+        new ExistingEnumerationItems(enumerationItemsForAlert, idKeys));
   }
 
-  public EnumerationItemDTO findExistingOrCreate(final EnumerationItemDTO source,
+  private EnumerationItemDTO findExistingOrCreate(final EnumerationItemDTO source,
       final List<String> idKeys,
-      final List<EnumerationItemDTO> existingEnumerationItems) {
+      final ExistingEnumerationItems existingEnumerationItems) {
     requireNonNull(source.getName(), "enumeration item name does not exist!");
     requireNonNull(source.getAlert(), "enumeration item needs a source alert!");
 
@@ -182,9 +204,16 @@ public class EnumerationItemMaintainer {
       /* Create new */
       enumerationItemManager.save(source);
       requireNonNull(source.getId(), "expecting a generated ID");
+      existingEnumerationItems.add(source);
       return source;
     }
 
+    /* The item already exists for the alert: no need to look for legacy items */
+    final EnumerationItemDTO existingForAlert = existingEnumerationItems.findMatching(source);
+    if (existingForAlert != null) {
+      return existingForAlert;
+    }
+
     /*
      * If there exists an EnumerationItem with the same name, check if it has the same params.
      */
@@ -214,6 +243,7 @@ public class EnumerationItemMaintainer {
     /* Create new */
     enumerationItemManager.save(source);
     requireNonNull(source.getId(), "expecting a generated ID");
+    existingEnumerationItems.add(source);
 
     /* Find enumeration item candidate which don't have an alert field set.
      * These are legacy enumeration items which need to be migrated to the new alert field
@@ -250,23 +280,25 @@ public class EnumerationItemMaintainer {
     final List<EnumerationItemDTO> enumerationItemsForAlert = enumerationItemManager.filter(
         new EnumerationItemFilter().setAlertId(
             source.getAlert().getId()));
-    return findUsingIdKeys(source, idKeys, enumerationItemsForAlert);
+    return findUsingIdKeys(source, idKeys,
+        new ExistingEnumerationItems(enumerationItemsForAlert, idKeys));
   }
 
   private EnumerationItemDTO findUsingIdKeys(final EnumerationItemDTO source,
       final List<String> idKeys,
-      final List<EnumerationItemDTO> existingEnumerationItems) {
+      final ExistingEnumerationItems existingEnumerationItems) {
     final var sourceKey = key(source, idKeys);
-    final List<EnumerationItemDTO> filtered = existingEnumerationItems.stream()
-        .filter(e -> sourceKey.equals(key(e, idKeys)))
-        .collect(toList());
+    final List<EnumerationItemDTO> filtered = existingEnumerationItems.findByKey(sourceKey);
 
     if (filtered.size() > 1) {
       LOG.warn("Found more than one EnumerationItem for: {} ids: {}. Attempting to fix..",
           source,
           filtered.stream().map(EnumerationItemDTO::getId).collect(toList()));
 
-      return handleConflicts(source, filtered);
+      final EnumerationItemDTO matching = handleConflicts(source, filtered);
+      // the other items were deleted
+      existingEnumerationItems.replaceByKey(sourceKey, matching);
+      return matching;
     }
     return filtered.stream().findFirst().orElse(null);
   }
@@ -352,4 +384,54 @@ public class EnumerationItemMaintainer {
   public void close() throws Exception {
     shutdownExecutionService(executorService);
   }
+
+  /**
+   * Existing enumeration items of an alert, indexed by id keys and by name and params.
+   * Keys are compared with the same equality as {@link #key} and {@link #matches}.
+   * Items created during a sync are added, so that duplicates in the input are not created twice.
+   */
+  private static class ExistingEnumerationItems {
+
+    private final List<String> idKeys;
+    private final Map<Map<String, Object>, List<EnumerationItemDTO>> byKey;
+    private final Map<NameAndParams, EnumerationItemDTO> byNameAndParams = new HashMap<>();
+
+    private ExistingEnumerationItems(final List<EnumerationItemDTO> existing,
+        final List<String> idKeys) {
+      this.idKeys = optional(idKeys).orElse(emptyList());
+      byKey = this.idKeys.isEmpty()
+          ? new HashMap<>()
+          : existing.stream().collect(groupingBy(e -> key(e, this.idKeys), HashMap::new, toList()));
+      // keep the first item if there are duplicates - like a linear search would
+      existing.forEach(e -> byNameAndParams.putIfAbsent(NameAndParams.of(e), e));
+    }
+
+    private List<EnumerationItemDTO> findByKey(final Map<String, Object> key) {
+      return byKey.getOrDefault(key, emptyList());
+    }
+
+    private EnumerationItemDTO findMatching(final EnumerationItemDTO source) {
+      return byNameAndParams.get(NameAndParams.of(source));
+    }
+
+    private void replaceByKey(final Map<String, Object> key, final EnumerationItemDTO item) {
+      final List<EnumerationItemDTO> items = new ArrayList<>();
+      items.add(item);
+      byKey.put(key, items);
+    }
+
+    private void add(final EnumerationItemDTO item) {
+      if (!idKeys.isEmpty()) {
+        byKey.computeIfAbsent(key(item, idKeys), k -> new ArrayList<>()).add(item);
+      }
+      byNameAndParams.putIfAbsent(NameAndParams.of(item), item);
+    }
+  }
+
+  private record NameAndParams(String name, Map<String, Object> params) {
+
+    private static NameAndParams of(final EnumerationItemDTO e) {
+      return new NameAndParams(e.getName(), e.getParams());
+    }
+  }
 }
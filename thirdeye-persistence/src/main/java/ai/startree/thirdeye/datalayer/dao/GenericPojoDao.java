@@ -114,6 +114,8 @@ public class GenericPojoDao {
         final Class<? extends AbstractIndexEntity> indexClass = BEAN_INDEX_MAP.get(pojo.getClass());
         final Long generatedKey = databaseOrm.save(e, connection);
         pojo.setId(generatedKey);
+        // in a unit of work, the row may be rolled back after this transaction
+        databaseClient.onRollback(() -> pojo.setId(null));
         if (indexClass != null) {
           final AbstractIndexEntity abstractIndexEntity = toAbstractIndexEntity(
               pojo,
@@ -169,6 +171,7 @@ public class GenericPojoDao {
     /* Update updateTime before DB update. Restore if update fails */
     final Timestamp lastUpdateTime = pojo.getUpdateTime();
     pojo.setUpdateTime(new Timestamp(System.currentTimeMillis()));
+    databaseClient.onRollback(() -> pojo.setUpdateTime(lastUpdateTime));
 
     try {
       final GenericJsonEntity genericJsonEntity = toGenericJsonEntity(pojo);
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.UnitOfWork;
+import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
+import ai.startree.thirdeye.spi.datalayer.bao.AnomalyManager;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AnomalyDTO;
+import com.google.inject.Injector;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestUnitOfWork {
+
+  private static final long INITIAL_LAST_TIMESTAMP = 1000L;
+  private static final long NEW_LAST_TIMESTAMP = 2000L;
+
+  private UnitOfWork unitOfWork;
+  private DatabaseClient databaseClient;
+  private AlertManager alertManager;
+  private AnomalyManager anomalyManager;
+  private AlertDTO alert;
+
+  @BeforeClass
+  void beforeClass() {
+    final Injector injector = MySqlTestDatabase.sharedInjector();
+    unitOfWork = injector.getInstance(UnitOfWork.class);
+    databaseClient = injector.getInstance(DatabaseClient.class);
+    alertManager = injector.getInstance(AlertManager.class);
+    anomalyManager = injector.getInstance(AnomalyManager.class);
+  }
+
+  @BeforeMethod
+  void beforeMethod() {
+    alert = new AlertDTO().setName("unit-of-work-test").setLastTimestamp(INITIAL_LAST_TIMESTAMP);
+    alertManager.save(alert);
+  }
+
+  @AfterMethod(alwaysRun = true)
+  void afterMethod() {
+    anomalyManager.findAll().forEach(anomalyManager::delete);
+    alertManager.findAll().forEach(alertManager::delete);
+  }
+
+  @AfterClass(alwaysRun = true)
+  void afterClass() {
+    afterMethod();
+  }
+
+  private List<AnomalyDTO> anomalies() {
+    final AnomalyDTO child = new AnomalyDTO()
+        .setDetectionConfigId(alert.getId())
+        .setStartTime(1000L)
+        .setEndTime(1500L)
+        .setChild(true);
+    final AnomalyDTO parent = new AnomalyDTO()
+        .setDetectionConfigId(alert.getId())
+        .setStartTime(1000L)
+        .setEndTime(2000L)
+        .setChildren(Set.of(child));
+    final AnomalyDTO other = new AnomalyDTO()
+        .setDetectionConfigId(alert.getId())
+        .setStartTime(1500L)
+        .setEndTime(2000L);
+    return List.of(parent, other);
+  }
+
+  private void persistResults(final List<AnomalyDTO> anomalies) {
+    alert.setLastTimestamp(NEW_LAST_TIMESTAMP);
+    anomalies.forEach(anomalyManager::save);
+    alertManager.update(alert);
+  }
+
+  private long persistedAnomalyCount() {
+    return anomalyManager.count(Predicate.EQ("detectionConfigId", alert.getId()));
+  }
+
+  private long persistedLastTimestamp() {
+    return alertManager.findById(alert.getId()).getLastTimestamp();
+  }
+
+  @Test
+  public void testCommit() throws Exception {
+    final List<AnomalyDTO> anomalies = anomalies();
+
+    unitOfWork.execute(() -> {
+      persistResults(anomalies);
+      return null;
+    });
+
+    // parent, child and other anomaly
+    assertThat(persistedAnomalyCount()).isEqualTo(3);
+    assertThat(anomalies).allSatisfy(a -> assertThat(a.getId()).isNotNull());
+    assertThat(persistedLastTimestamp()).isEqualTo(NEW_LAST_TIMESTAMP);
+  }
+
+  @Test
+  public void testRollbackWhenOperationsThrow() {
+    final List<AnomalyDTO> anomalies = anomalies();
+
+    assertThatThrownBy(() -> unitOfWork.execute(() -> {
+      persistResults(anomalies);
+      throw new IllegalStateException("injected failure");
+    })).isInstanceOf(IllegalStateException.class);
+
+    assertThat(persistedAnomalyCount()).isEqualTo(0);
+    assertThat(persistedLastTimestamp()).isEqualTo(INITIAL_LAST_TIMESTAMP);
+    // ids of rows that were rolled back are reset, so that a retry creates the rows again
+    assertThat(anomalies).allSatisfy(a -> assertThat(a.getId()).isNull());
+    assertThat(anomalies.get(0).getChildren()).allSatisfy(a -> assertThat(a.getId()).isNull());
+  }
+
+  @Test
+  public void testRollbackWhenDatabaseOperationFails() throws Exception {
+    final List<AnomalyDTO> anomalies = anomalies();
+
+    assertThatThrownBy(() -> unitOfWork.execute(() -> {
+      persistResults(anomalies);
+      // the failure is swallowed by the client, like managers do
+      final int res = databaseClient.executeTransaction(connection -> {
+        throw new SQLException("injected failure");
+      }, 0);
+      assertThat(res).isEqualTo(0);
+      return null;
+    })).isInstanceOf(SQLException.class);
+
+    assertThat(persistedAnomalyCount()).isEqualTo(0);
+    assertThat(persistedLastTimestamp()).isEqualTo(INITIAL_LAST_TIMESTAMP);
+    assertThat(anomalies).allSatisfy(a -> assertThat(a.getId()).isNull());
+  }
+
+  @Test
+  public void testRetryAfterFailureDoesNotCreateDuplicates() throws Exception {
+    final List<AnomalyDTO> anomalies = anomalies();
+    assertThatThrownBy(() -> unitOfWork.execute(() -> {
+      persistResults(anomalies);
+      throw new IllegalStateException("injected failure");
+    })).isInstanceOf(IllegalStateException.class);
+
+    // retry with the same instances - as if the task was retried in-process
+    unitOfWork.execute(() -> {
+      persistResults(anomalies);
+      return null;
+    });
+
+    assertThat(persistedAnomalyCount()).isEqualTo(3);
+    assertThat(persistedLastTimestamp()).isEqualTo(NEW_LAST_TIMESTAMP);
+  }
+
+  @Test
+  public void testNestedUnitOfWorkJoinsOuterTransaction() {
+    final List<AnomalyDTO> anomalies = anomalies();
+
+    assertThatThrownBy(() -> unitOfWork.execute(() -> {
+      unitOfWork.execute(() -> {
+        anomalies.forEach(anomalyManager::save);
+        return null;
+      });
+      throw new IllegalStateException("injected failure");
+    })).isInstanceOf(IllegalStateException.class);
+
+    assertThat(persistedAnomalyCount()).isEqualTo(0);
+  }
+}
@@ -26,8 +26,10 @@ import ai.startree.thirdeye.spi.datalayer.dto.AuthorizationConfigurationDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.SubscriptionGroupDTO;
 import com.google.inject.Injector;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -39,6 +41,7 @@ public class EnumerationItemMaintainerTest {
   private SubscriptionGroupManager subscriptionGroupManager;
   private EnumerationItemMaintainer enumerationItemMaintainer;
   private EnumerationItemManager enumerationItemManager;
+  private EnumerationItemDeleter enumerationItemDeleter;
 
   private static EnumerationItemDTO ei(final String name, final Map<String, Object> m) {
     return new EnumerationItemDTO().setName(name).setParams(m);
@@ -78,6 +81,7 @@ public class EnumerationItemMaintainerTest {
     subscriptionGroupManager = injector.getInstance(SubscriptionGroupManager.class);
     enumerationItemMaintainer = injector.getInstance(EnumerationItemMaintainer.class);
     enumerationItemManager = injector.getInstance(EnumerationItemManager.class);
+    enumerationItemDeleter = injector.getInstance(EnumerationItemDeleter.class);
   }
 
   @AfterMethod
@@ -340,4 +344,74 @@ public class EnumerationItemMaintainerTest {
     assertThat(synced.get(0).getParams()).isEqualTo(items.get(0).getParams());
     assertThat(synced.get(0).getAuth()).isNull();
   }
+
+  @Test
+  public void testSyncMatchesExistingItemsWithIdKeys() {
+    final List<String> idKeys = List.of("key");
+    final List<EnumerationItemDTO> firstSync = enumerationItemMaintainer.sync(
+        IntStream.range(0, 50).mapToObj(i -> ei("ei" + i, Map.of("key", i))).toList(),
+        idKeys,
+        ALERT_ID);
+    assertThat(firstSync.size()).isEqualTo(50);
+
+    // new instances with the same keys: nothing is created
+    final List<EnumerationItemDTO> secondSync = enumerationItemMaintainer.sync(
+        IntStream.range(0, 50).mapToObj(i -> ei("ei" + i, Map.of("key", i))).toList(),
+        idKeys,
+        ALERT_ID);
+    assertThat(secondSync.stream().map(EnumerationItemDTO::getId).toList())
+        .isEqualTo(firstSync.stream().map(EnumerationItemDTO::getId).toList());
+    assertThat(enumerationItemManager.findAll().size()).isEqualTo(50);
+  }
+
+  @Test
+  public void testSyncWithoutIdKeysDoesNotCreateDuplicates() {
+    final List<EnumerationItemDTO> items = List.of(
+        ei("ei1", Map.of("a", 1)),
+        ei("ei2", Map.of("a", 2)),
+        // duplicate in the input
+        ei("ei1", Map.of("a", 1)));
+
+    final List<EnumerationItemDTO> synced = enumerationItemMaintainer.sync(items, null, ALERT_ID);
+    assertThat(synced.get(2).getId()).isEqualTo(synced.get(0).getId());
+    assertThat(enumerationItemManager.findAll().size()).isEqualTo(2);
+
+    final List<EnumerationItemDTO> resynced = enumerationItemMaintainer.sync(
+        List.of(ei("ei1", Map.of("a", 1)), ei("ei2", Map.of("a", 2))), null, ALERT_ID);
+    assertThat(resynced.get(0).getId()).isEqualTo(synced.get(0).getId());
+    assertThat(resynced.get(1).getId()).isEqualTo(synced.get(1).getId());
+    assertThat(enumerationItemManager.findAll().size()).isEqualTo(2);
+  }
+
+  @Test
+  public void testDeleteMany() {
+    final var ei1 = ei("ei1", Map.of("a", 1)).setAlert(alertRef(ALERT_ID));
+    final var ei2 = ei("ei2", Map.of("a", 2)).setAlert(alertRef(ALERT_ID));
+    final var ei3 = ei("ei3", Map.of("a", 3)).setAlert(alertRef(ALERT_ID));
+    List.of(ei1, ei2, ei3).forEach(enumerationItemManager::save);
+
+    final var a1 = anomaly().setDetectionConfigId(ALERT_ID).setEnumerationItem(ei1);
+    final var a3 = anomaly().setDetectionConfigId(ALERT_ID).setEnumerationItem(ei3);
+    List.of(a1, a3).forEach(anomalyManager::save);
+
+    final var sg = new SubscriptionGroupDTO()
+        .setName("sg")
+        .setAlertAssociations(new ArrayList<>(List.of(
+            new AlertAssociationDto().setAlert(alertRef(ALERT_ID)).setEnumerationItem(ei1),
+            new AlertAssociationDto().setAlert(alertRef(ALERT_ID)).setEnumerationItem(ei2),
+            new AlertAssociationDto().setAlert(alertRef(ALERT_ID)).setEnumerationItem(ei3))));
+    subscriptionGroupManager.save(sg);
+
+    enumerationItemDeleter.delete(List.of(ei1, ei2));
+
+    assertThat(enumerationItemManager.findById(ei1.getId())).isNull();
+    assertThat(enumerationItemManager.findById(ei2.getId())).isNull();
+    assertThat(enumerationItemManager.findById(ei3.getId())).isNotNull();
+    assertThat(anomalyManager.findById(a1.getId())).isNull();
+    assertThat(anomalyManager.findById(a3.getId())).isNotNull();
+    final var sgUpdated = subscriptionGroupManager.findById(sg.getId());
+    assertThat(sgUpdated.getAlertAssociations().size()).isEqualTo(1);
+    assertThat(sgUpdated.getAlertAssociations().get(0).getEnumerationItem().getId())
+        .isEqualTo(ei3.getId());
+  }
 }
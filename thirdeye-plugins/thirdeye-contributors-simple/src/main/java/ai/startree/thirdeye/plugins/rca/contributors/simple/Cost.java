@@ -13,52 +13,57 @@
  */
 package ai.startree.thirdeye.plugins.rca.contributors.simple;
 
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+
+/**
+ * Cost of each row of a breakdown. Computed on whole columns.
+ */
 public enum Cost {
   VALUE_CHANGE {
     @Override
-    public double compute(final double valueChangePercentage,
-        final double contributionChangePercentage,
-        final double contributionToOverallChangePercentage) {
-      return Math.abs(valueChangePercentage);
+    public DoubleSeries compute(final DoubleSeries valueChangePercentage,
+        final DoubleSeries contributionChangePercentage,
+        final DoubleSeries contributionToOverallChangePercentage) {
+      return valueChangePercentage.abs();
     }
   }, CONTRIBUTION_CHANGE {
     @Override
-    public double compute(final double valueChangePercentage,
-        final double contributionChangePercentage,
-        final double contributionToOverallChangePercentage) {
-      return Math.abs(contributionChangePercentage);
+    public DoubleSeries compute(final DoubleSeries valueChangePercentage,
+        final DoubleSeries contributionChangePercentage,
+        final DoubleSeries contributionToOverallChangePercentage) {
+      return contributionChangePercentage.abs();
     }
   }, CONTRIBUTION_TO_OVERALL_CHANGE {
     @Override
-    public double compute(final double valueChangePercentage,
-        final double contributionChangePercentage,
-        final double contributionToOverallChangePercentage) {
-      if (Math.abs(contributionToOverallChangePercentage)
-          < MINIMUM_CONTRIBUTION_OF_INTEREST_PERCENTAGE) {
-        // users don't care about nodes with small contribution to overall change
-        return 0;
-      }
-      return Math.abs(contributionToOverallChangePercentage);
+    public DoubleSeries compute(final DoubleSeries valueChangePercentage,
+        final DoubleSeries contributionChangePercentage,
+        final DoubleSeries contributionToOverallChangePercentage) {
+      final DoubleSeries contributionToOverallChange = contributionToOverallChangePercentage.abs();
+      // users don't care about nodes with small contribution to overall change
+      return contributionToOverallChange.set(
+          contributionToOverallChange.lt(MINIMUM_CONTRIBUTION_OF_INTEREST_PERCENTAGE), 0);
     }
   }, BAlANCED_SIMPLE {
     @Override
-    public double compute(final double valueChangePercentage,
-        final double contributionChangePercentage,
-        final double contributionToOverallChangePercentage) {
-      if (Math.abs(contributionToOverallChangePercentage)
-          < MINIMUM_CONTRIBUTION_OF_INTEREST_PERCENTAGE) {
-        // users don't care about nodes with small contribution to overall change
-        return 0;
-      }
+    public DoubleSeries compute(final DoubleSeries valueChangePercentage,
+        final DoubleSeries contributionChangePercentage,
+        final DoubleSeries contributionToOverallChangePercentage) {
+      final DoubleSeries contributionToOverallChange = contributionToOverallChangePercentage.abs();
       // rule of thumb formula: contributionTo overall change is more important, but take into account dimension contribution change
-      return Math.abs(contributionToOverallChangePercentage) + Math.abs(
-          contributionChangePercentage);
+      return contributionToOverallChange
+          .add(contributionChangePercentage.abs())
+          // users don't care about nodes with small contribution to overall change
+          .set(contributionToOverallChange.lt(MINIMUM_CONTRIBUTION_OF_INTEREST_PERCENTAGE), 0);
     }
   };
 
   public static final int MINIMUM_CONTRIBUTION_OF_INTEREST_PERCENTAGE = 3;
 
-  public abstract double compute(final double valueChangePercentage,
-      final double contributionChangePercentage,
-      final double contributionToOverallChangePercentage);
+  /**
+   * Series are aligned: row i of each series is the same (dimension, value) tuple. A null in an
+   * input row gives a null cost, unless the row is set to 0 for having a small contribution.
+   */
+  public abstract DoubleSeries compute(final DoubleSeries valueChangePercentage,
+      final DoubleSeries contributionChangePercentage,
+      final DoubleSeries contributionToOverallChangePercentage);
 }
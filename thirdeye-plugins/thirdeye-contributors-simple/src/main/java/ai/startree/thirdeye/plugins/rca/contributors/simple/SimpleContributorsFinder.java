@@ -104,9 +104,8 @@ public class SimpleContributorsFinder implements ContributorsFinder {
           .filter(changeSide.conditional, "change");
     }
 
-    stats = stats.addSeries(COL_COST, computeCost(stats))
-        .sortedBy(COL_COST)
-        .slice(stats.size() - searchConfiguration.getSummarySize(), stats.size());
+    stats = stats.addSeries(COL_COST, computeCost(simpleConfiguration.getCostFunction(), stats));
+    stats = topByCost(stats, searchConfiguration.getSummarySize());
 
     return new SimpleContributorsFinderResult(stats,
         searchConfiguration.getMetricConfigDTO().getName(),
@@ -151,22 +150,107 @@ public class SimpleContributorsFinder implements ContributorsFinder {
     return stats;
   }
 
-  private DoubleSeries computeCost(final DataFrame stats) {
-    final Cost costFunction = simpleConfiguration.getCostFunction();
-    DoubleSeries.Builder builder = DoubleSeries.builder();
-    for (int i = 0; i < stats.size(); i++) {
-      final double valueChangePercentage = stats.getDouble(COL_VALUE_CHANGE_PERCENTAGE, i);
-      final double contributionChangePercentage = stats.getDouble(
-          COL_CONTRIBUTION_CHANGE_PERCENTAGE,
-          i);
-      final double contributionToOverallChangePercentage = stats.getDouble(
-          COL_CONTRIBUTION_TO_OVERALL_CHANGE_PERCENTAGE,
-          i);
-      builder.addValues(costFunction.compute(valueChangePercentage,
-          contributionChangePercentage,
-          contributionToOverallChangePercentage));
+  @VisibleForTesting
+  static DoubleSeries computeCost(final Cost costFunction, final DataFrame stats) {
+    return costFunction.compute(stats.getDoubles(COL_VALUE_CHANGE_PERCENTAGE),
+        stats.getDoubles(COL_CONTRIBUTION_CHANGE_PERCENTAGE),
+        stats.getDoubles(COL_CONTRIBUTION_TO_OVERALL_CHANGE_PERCENTAGE));
+  }
+
+  /**
+   * Returns the k rows with the highest cost, in ascending cost order. Same result as a stable
+   * sort by cost followed by a slice of the last k rows, without sorting all the rows.
+   */
+  @VisibleForTesting
+  static DataFrame topByCost(final DataFrame stats, final int k) {
+    return stats.project(topIndex(stats.getDoubles(COL_COST).values(), k));
+  }
+
+  /**
+   * Bounded selection with a min-heap of k row indices. Rows are compared by value, then by
+   * index. Nulls are the lowest values. O(n log k).
+   *
+   * @return the indices of the k highest values, in ascending order
+   */
+  private static int[] topIndex(final double[] values, final int k) {
+    final int size = Math.max(0, Math.min(k, values.length));
+    final int[] heap = new int[size];
+    if (size == 0) {
+      return heap;
+    }
+    for (int i = 0; i < size; i++) {
+      heap[i] = i;
+      siftUp(values, heap, i);
+    }
+    for (int i = size; i < values.length; i++) {
+      // the root is the lowest of the top k
+      if (compare(values, i, heap[0]) > 0) {
+        heap[0] = i;
+        siftDown(values, heap, size);
+      }
+    }
+    // heap sort: each pop moves the lowest remaining row to the end
+    for (int last = size - 1; last > 0; last--) {
+      final int root = heap[0];
+      heap[0] = heap[last];
+      siftDown(values, heap, last);
+      heap[last] = root;
+    }
+    // a min-heap sorts in descending order
+    for (int i = 0, j = size - 1; i < j; i++, j--) {
+      final int tmp = heap[i];
+      heap[i] = heap[j];
+      heap[j] = tmp;
     }
-    return builder.build();
+    return heap;
+  }
+
+  private static void siftUp(final double[] values, final int[] heap, int pos) {
+    while (pos > 0) {
+      final int parent = (pos - 1) / 2;
+      if (compare(values, heap[pos], heap[parent]) >= 0) {
+        return;
+      }
+      swap(heap, pos, parent);
+      pos = parent;
+    }
+  }
+
+  private static void siftDown(final double[] values, final int[] heap, final int size) {
+    int pos = 0;
+    while (true) {
+      final int left = 2 * pos + 1;
+      if (left >= size) {
+        return;
+      }
+      final int right = left + 1;
+      final int child =
+          right < size && compare(values, heap[right], heap[left]) < 0 ? right : left;
+      if (compare(values, heap[pos], heap[child]) <= 0) {
+        return;
+      }
+      swap(heap, pos, child);
+      pos = child;
+    }
+  }
+
+  private static int compare(final double[] values, final int i, final int j) {
+    final double a = values[i];
+    final double b = values[j];
+    final boolean aNull = DoubleSeries.isNull(a);
+    final boolean bNull = DoubleSeries.isNull(b);
+    if (aNull != bNull) {
+      return aNull ? -1 : 1;
+    }
+    final int cmp = aNull ? 0 : Double.compare(a, b);
+    // ties are ordered by index, as with a stable sort
+    return cmp != 0 ? cmp : Integer.compare(i, j);
+  }
+
+  private static void swap(final int[] heap, final int i, final int j) {
+    final int tmp = heap[i];
+    heap[i] = heap[j];
+    heap[j] = tmp;
   }
 
   @VisibleForTesting
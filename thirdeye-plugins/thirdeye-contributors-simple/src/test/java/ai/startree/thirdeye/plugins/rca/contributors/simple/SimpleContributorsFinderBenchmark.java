@@ -0,0 +1,204 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.rca.contributors.simple;
+
+import static ai.startree.thirdeye.plugins.rca.contributors.simple.SimpleContributorsFinder.COL_CONTRIBUTION_CHANGE_PERCENTAGE;
+import static ai.startree.thirdeye.plugins.rca.contributors.simple.SimpleContributorsFinder.COL_CONTRIBUTION_TO_OVERALL_CHANGE_PERCENTAGE;
+import static ai.startree.thirdeye.plugins.rca.contributors.simple.SimpleContributorsFinder.COL_COST;
+import static ai.startree.thirdeye.spi.Constants.COL_VALUE;
+import static ai.startree.thirdeye.spi.datasource.loader.AggregationLoader.COL_DIMENSION_NAME;
+import static ai.startree.thirdeye.spi.datasource.loader.AggregationLoader.COL_DIMENSION_VALUE;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cost computation and top-k selection of SimpleContributorsFinder on a synthetic breakdown.
+ * Run the main method.
+ */
+public class SimpleContributorsFinderBenchmark {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SimpleContributorsFinderBenchmark.class);
+
+  private static final int N_ROUNDS = 10;
+  private static final int N_DIMENSIONS = 20;
+  private static final int N_VALUES_PER_DIMENSION = 50_000;
+  private static final int SUMMARY_SIZE = 10;
+
+  private static final long SEED = System.nanoTime();
+
+  private long tStart;
+  private List<Long> times = new ArrayList<>();
+
+  private void benchmarkComputeStats() {
+    long checksum = 0;
+    for (int r = 0; r < N_ROUNDS; r++) {
+      final DataFrame baseline = generateBreakdown(r);
+      final DataFrame current = generateBreakdown(r + 1);
+      final double baselineTotal = SimpleContributorsFinder.getTotalFromBreakdown(baseline);
+      final double currentTotal = SimpleContributorsFinder.getTotalFromBreakdown(current);
+
+      startTimer();
+      final DataFrame stats = SimpleContributorsFinder.computeStats(baseline,
+          baselineTotal,
+          current,
+          currentTotal);
+      stopTimer();
+
+      checksum ^= stats.size();
+    }
+    logResults("benchmarkComputeStats", checksum);
+  }
+
+  private void benchmarkCostRowLoopAndSort() {
+    long checksum = 0;
+    for (int r = 0; r < N_ROUNDS; r++) {
+      final DataFrame stats = generateStats(r);
+
+      startTimer();
+      // previous implementation: one cost per row through a builder, then a full sort
+      final DoubleSeries.Builder builder = DoubleSeries.builder();
+      for (int i = 0; i < stats.size(); i++) {
+        final double contributionChangePercentage = stats.getDouble(
+            COL_CONTRIBUTION_CHANGE_PERCENTAGE, i);
+        final double contributionToOverallChangePercentage = stats.getDouble(
+            COL_CONTRIBUTION_TO_OVERALL_CHANGE_PERCENTAGE, i);
+        builder.addValues(Math.abs(contributionToOverallChangePercentage)
+            < Cost.MINIMUM_CONTRIBUTION_OF_INTEREST_PERCENTAGE ? 0
+            : Math.abs(contributionToOverallChangePercentage) + Math.abs(
+                contributionChangePercentage));
+      }
+      final DataFrame top = stats.addSeries(COL_COST, builder.build())
+          .sortedBy(COL_COST)
+          .slice(stats.size() - SUMMARY_SIZE, stats.size());
+      stopTimer();
+
+      checksum ^= checksum(top.getDoubles(COL_COST).values());
+    }
+    logResults("benchmarkCostRowLoopAndSort", checksum);
+  }
+
+  private void benchmarkCostColumnarAndTopK() {
+    long checksum = 0;
+    for (int r = 0; r < N_ROUNDS; r++) {
+      final DataFrame stats = generateStats(r);
+
+      startTimer();
+      final DataFrame top = SimpleContributorsFinder.topByCost(stats.addSeries(COL_COST,
+              SimpleContributorsFinder.computeCost(Cost.BAlANCED_SIMPLE, stats)),
+          SUMMARY_SIZE);
+      stopTimer();
+
+      checksum ^= checksum(top.getDoubles(COL_COST).values());
+    }
+    logResults("benchmarkCostColumnarAndTopK", checksum);
+  }
+
+  private void benchmarkAll() {
+    benchmarkComputeStats();
+    benchmarkCostRowLoopAndSort();
+    benchmarkCostColumnarAndTopK();
+  }
+
+  private static DataFrame generateStats(final int round) {
+    final DataFrame baseline = generateBreakdown(round);
+    final DataFrame current = generateBreakdown(round + 1);
+    return SimpleContributorsFinder.computeStats(baseline,
+        SimpleContributorsFinder.getTotalFromBreakdown(baseline),
+        current,
+        SimpleContributorsFinder.getTotalFromBreakdown(current));
+  }
+
+  /**
+   * N_DIMENSIONS x N_VALUES_PER_DIMENSION rows. Each dimension sums to the same total.
+   */
+  private static DataFrame generateBreakdown(final int round) {
+    final Random r = new Random(SEED + round);
+    final int size = N_DIMENSIONS * N_VALUES_PER_DIMENSION;
+    final String[] names = new String[size];
+    final String[] values = new String[size];
+    final double[] metric = new double[size];
+    final double[] valueWeights = new double[N_VALUES_PER_DIMENSION];
+    for (int v = 0; v < N_VALUES_PER_DIMENSION; v++) {
+      valueWeights[v] = r.nextDouble() * 1000;
+    }
+    for (int d = 0; d < N_DIMENSIONS; d++) {
+      final int[] permutation = shuffledIndices(r);
+      for (int v = 0; v < N_VALUES_PER_DIMENSION; v++) {
+        final int i = d * N_VALUES_PER_DIMENSION + v;
+        names[i] = "dim" + d;
+        values[i] = "value" + v;
+        metric[i] = valueWeights[permutation[v]];
+      }
+    }
+    return new DataFrame()
+        .addSeries(COL_DIMENSION_NAME, StringSeries.buildFrom(names))
+        .addSeries(COL_DIMENSION_VALUE, StringSeries.buildFrom(values))
+        .addSeries(COL_VALUE, DoubleSeries.buildFrom(metric));
+  }
+
+  private static int[] shuffledIndices(final Random r) {
+    final int[] indices = new int[N_VALUES_PER_DIMENSION];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = i;
+    }
+    for (int i = indices.length - 1; i > 0; i--) {
+      final int j = r.nextInt(i + 1);
+      final int tmp = indices[j];
+      indices[j] = indices[i];
+      indices[i] = tmp;
+    }
+    return indices;
+  }
+
+  private void startTimer() {
+    this.tStart = System.nanoTime();
+  }
+
+  private void stopTimer() {
+    this.times.add(System.nanoTime() - this.tStart);
+  }
+
+  private void logResults(final String name, final long checksum) {
+    Collections.sort(this.times);
+    final long tMid = this.times.get(this.times.size() / 2);
+    final long tMin = Collections.min(this.times);
+    final long tMax = Collections.max(this.times);
+    LOG.info("{}: min/mid/max = {}ms {}ms {}ms [chk={}, cnt={}]", name, tMin / 1000000,
+        tMid / 1000000, tMax / 1000000, checksum % 1000, this.times.size());
+    this.times = new ArrayList<>();
+  }
+
+  private static long checksum(final double... values) {
+    long bits = 0;
+    for (final double v : values) {
+      bits ^= Double.doubleToLongBits(v);
+    }
+    return bits;
+  }
+
+  public static void main(final String[] args) {
+    LOG.info("Running SimpleContributorsFinder benchmark on {} rows ...",
+        N_DIMENSIONS * N_VALUES_PER_DIMENSION);
+    new SimpleContributorsFinderBenchmark().benchmarkAll();
+    LOG.info("done.");
+  }
+}
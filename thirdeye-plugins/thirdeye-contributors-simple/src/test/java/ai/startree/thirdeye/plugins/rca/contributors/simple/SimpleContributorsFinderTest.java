@@ -14,6 +14,8 @@
 package ai.startree.thirdeye.plugins.rca.contributors.simple;
 
 import static ai.startree.thirdeye.plugins.rca.contributors.simple.SimpleContributorsFinder.COL_CONTRIBUTION_CHANGE_PERCENTAGE;
+import static ai.startree.thirdeye.plugins.rca.contributors.simple.SimpleContributorsFinder.COL_CONTRIBUTION_TO_OVERALL_CHANGE_PERCENTAGE;
+import static ai.startree.thirdeye.plugins.rca.contributors.simple.SimpleContributorsFinder.COL_COST;
 import static ai.startree.thirdeye.plugins.rca.contributors.simple.SimpleContributorsFinder.COL_VALUE_CHANGE_PERCENTAGE;
 import static ai.startree.thirdeye.spi.Constants.COL_TIME;
 import static ai.startree.thirdeye.spi.Constants.COL_VALUE;
@@ -210,4 +212,36 @@ public class SimpleContributorsFinderTest {
     assertThat(stats.get(COL_CONTRIBUTION_CHANGE_PERCENTAGE).getDoubles().values()).isEqualTo(
         new double[]{0D, -50, 50});
   }
+
+  @Test
+  public void testComputeCost() {
+    final DataFrame stats = new DataFrame()
+        .addSeries(COL_VALUE_CHANGE_PERCENTAGE, -10D, 20D, 5D, Double.NaN)
+        .addSeries(COL_CONTRIBUTION_CHANGE_PERCENTAGE, -4D, 1D, -2D, 3D)
+        .addSeries(COL_CONTRIBUTION_TO_OVERALL_CHANGE_PERCENTAGE, 2D, -5D, Double.NaN, 4D);
+
+    assertThat(SimpleContributorsFinder.computeCost(Cost.VALUE_CHANGE, stats).values())
+        .isEqualTo(new double[]{10D, 20D, 5D, Double.NaN});
+    assertThat(SimpleContributorsFinder.computeCost(Cost.CONTRIBUTION_CHANGE, stats).values())
+        .isEqualTo(new double[]{4D, 1D, 2D, 3D});
+    assertThat(SimpleContributorsFinder.computeCost(Cost.CONTRIBUTION_TO_OVERALL_CHANGE,
+        stats).values()).isEqualTo(new double[]{0D, 5D, Double.NaN, 4D});
+    assertThat(SimpleContributorsFinder.computeCost(Cost.BAlANCED_SIMPLE, stats).values())
+        .isEqualTo(new double[]{0D, 6D, Double.NaN, 7D});
+  }
+
+  @Test
+  public void testTopByCostIsTheEndOfAStableSort() {
+    final DataFrame stats = new DataFrame()
+        .addSeries(COL_DIMENSION_VALUE, "a", "b", "c", "d", "e", "f", "g")
+        .addSeries(COL_COST, 3D, Double.NaN, 1D, 3D, 0D, 5D, 1D);
+
+    for (int k = 0; k <= stats.size() + 1; k++) {
+      final DataFrame expected = stats.sortedBy(COL_COST)
+          .slice(stats.size() - k, stats.size());
+      assertThat(SimpleContributorsFinder.topByCost(stats, k)).isEqualTo(expected);
+    }
+    assertThat(SimpleContributorsFinder.topByCost(stats, 3).getStrings(COL_DIMENSION_VALUE)
+        .toList()).containsExactly("a", "d", "f");
+  }
 }
@@ -14,6 +14,8 @@
 package ai.startree.thirdeye.plugins.datasource.pinot;
 
 import static ai.startree.thirdeye.spi.Constants.DEFAULT_CHRONOLOGY;
+import static ai.startree.thirdeye.spi.util.ExecutorUtils.threadsNamed;
+import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
@@ -30,6 +32,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -51,12 +61,17 @@ public class PinotDatasetReader {
   private static final String BYTES_STRING = "BYTES";
   private static final String NON_ADDITIVE = "non_additive";
   private static final String PINOT_PRE_AGGREGATED_KEYWORD = "*";
+  private static final int PROGRESS_LOG_INTERVAL = 100;
 
   private final PinotControllerRestClient pinotControllerRestClient;
+  private final PinotOnboardingConfiguration onboardingConfiguration;
 
   @Inject
-  public PinotDatasetReader(final PinotControllerRestClient pinotControllerRestClient) {
+  public PinotDatasetReader(final PinotControllerRestClient pinotControllerRestClient,
+      final PinotThirdEyeDataSourceConfig config) {
     this.pinotControllerRestClient = pinotControllerRestClient;
+    this.onboardingConfiguration = optional(config.getOnboarding())
+        .orElse(new PinotOnboardingConfiguration());
   }
 
   public static DatasetConfigDTO generateDatasetConfig(final String dataset, final Schema schema,
@@ -119,19 +134,84 @@ public class PinotDatasetReader {
   }
 
   public List<DatasetConfigDTO> getAll(final String dataSourceName) throws IOException {
-    final List<String> allTables = getAllTableNames();
+    return getAll(dataSourceName, tableName -> true);
+  }
+
+  /**
+   * Reads the tables matching the filter in parallel. The schema and table config of the tables
+   * that are filtered out are not fetched from the controller.
+   *
+   * A table that fails or that takes longer than the configured table timeout is skipped: the
+   * other tables are still returned.
+   */
+  public List<DatasetConfigDTO> getAll(final String dataSourceName,
+      final Predicate<String> tableNameFilter) throws IOException {
+    final List<String> tables = getAllTableNames().stream()
+        .filter(tableNameFilter)
+        .toList();
+    if (tables.isEmpty()) {
+      return List.of();
+    }
+
+    final int parallelism = Math.max(1,
+        Math.min(onboardingConfiguration.getParallelism(), tables.size()));
+    final ExecutorService executorService = Executors.newFixedThreadPool(parallelism,
+        threadsNamed("pinot-dataset-reader-" + dataSourceName + "-%d"));
+    try {
+      final AtomicInteger readCount = new AtomicInteger();
+      final List<CompletableFuture<DatasetConfigDTO>> futures = tables.stream()
+          .map(tableName -> readAsync(tableName, dataSourceName, executorService))
+          .map(future -> future.whenComplete((d, e) -> logProgress(readCount.incrementAndGet(),
+              tables.size(), dataSourceName)))
+          .toList();
+
+      final List<DatasetConfigDTO> onboarded = new ArrayList<>();
+      for (int i = 0; i < tables.size(); i++) {
+        final String tableName = tables.get(i);
+        try {
+          onboarded.add(requireNonNull(futures.get(i).join(), "Dataset config is null"));
+        } catch (final CompletionException e) {
+          // Log the exception and continue to onboard other tables
+          if (e.getCause() instanceof TimeoutException) {
+            LOG.error("Timeout of {} ms reached while onboarding table: {}. Skipping it.",
+                onboardingConfiguration.getTableTimeoutMs(), tableName);
+          } else {
+            LOG.error("Failed to onboard table: " + tableName, e.getCause());
+          }
+        } catch (final Exception e) {
+          LOG.error("Failed to onboard table: " + tableName, e);
+        }
+      }
+      return onboarded;
+    } finally {
+      // tables that timed out may still be running - don't wait for them
+      executorService.shutdownNow();
+    }
+  }
 
-    final List<DatasetConfigDTO> onboarded = new ArrayList<>();
-    for (final String tableName : allTables) {
+  /**
+   * The table timeout starts when the table is picked by a thread of the pool, not when it is
+   * queued.
+   */
+  private CompletableFuture<DatasetConfigDTO> readAsync(final String tableName,
+      final String dataSourceName, final ExecutorService executorService) {
+    final CompletableFuture<DatasetConfigDTO> future = new CompletableFuture<>();
+    executorService.execute(() -> {
+      future.orTimeout(onboardingConfiguration.getTableTimeoutMs(), TimeUnit.MILLISECONDS);
       try {
-        final DatasetConfigDTO datasetConfigDTO = getTable(tableName, dataSourceName);
-        onboarded.add(requireNonNull(datasetConfigDTO, "Dataset config is null"));
+        future.complete(getTable(tableName, dataSourceName));
       } catch (final Exception e) {
-        // Catch the exception and continue to onboard other tables
-        LOG.error("Failed to onboard table: " + tableName, e);
+        future.completeExceptionally(e);
       }
+    });
+    return future;
+  }
+
+  private static void logProgress(final int readCount, final int total,
+      final String dataSourceName) {
+    if (readCount % PROGRESS_LOG_INTERVAL == 0 || readCount == total) {
+      LOG.info("Read {}/{} tables of datasource {}", readCount, total, dataSourceName);
     }
-    return onboarded;
   }
 
   public DatasetConfigDTO getTable(final String tableName, final String dataSourceName)
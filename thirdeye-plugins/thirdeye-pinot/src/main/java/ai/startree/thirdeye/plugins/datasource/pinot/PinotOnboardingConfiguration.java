@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.datasource.pinot;
+
+/**
+ * Configures how the tables of the Pinot cluster are read when datasets are onboarded.
+ */
+public class PinotOnboardingConfiguration {
+
+  /**
+   * Number of tables read in parallel from the controller.
+   */
+  private int parallelism = 8;
+  /**
+   * Max time to read the schema and table config of a single table. Tables that take longer are
+   * skipped.
+   */
+  private long tableTimeoutMs = 30_000;
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public PinotOnboardingConfiguration setParallelism(final int parallelism) {
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  public long getTableTimeoutMs() {
+    return tableTimeoutMs;
+  }
+
+  public PinotOnboardingConfiguration setTableTimeoutMs(final long tableTimeoutMs) {
+    this.tableTimeoutMs = tableTimeoutMs;
+    return this;
+  }
+}
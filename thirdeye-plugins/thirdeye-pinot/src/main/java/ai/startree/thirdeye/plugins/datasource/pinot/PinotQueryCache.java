@@ -0,0 +1,159 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.datasource.pinot;
+
+import static java.util.Objects.requireNonNull;
+
+import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSetGroup;
+import ai.startree.thirdeye.spi.datasource.cache.DataTableCodec;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of Pinot query results stored outside of the java heap.
+ *
+ * <p>The first result set of a query is encoded with {@link DataTableCodec} into a direct
+ * {@link ByteBuffer}. Cached results do not put pressure on the garbage collector, and the cache
+ * is bounded by the encoded size in bytes instead of an estimated number of cells.
+ * A hit decodes a fresh {@link DataTable} from the buffer, so callers can't alter the cached
+ * value.
+ */
+public class PinotQueryCache {
+
+  /**
+   * Cached for a query that returns no result set. The error is thrown when the cache is read,
+   * not by the loader: the cache would wrap it in an UncheckedExecutionException.
+   */
+  private static final ByteBuffer NO_RESULT = ByteBuffer.allocateDirect(0);
+
+  private final String dataSourceName;
+  private final PinotQueryExecutor queryExecutor;
+  private final Cache<PinotQuery, ByteBuffer> cache;
+  private final MeterRegistry meterRegistry;
+  private final Timer loadTimer;
+  private final List<Meter> meters;
+
+  public PinotQueryCache(final String dataSourceName,
+      final PinotQueryExecutor queryExecutor,
+      final long maxSizeInBytes,
+      final MeterRegistry meterRegistry) {
+    this.dataSourceName = dataSourceName;
+    this.queryExecutor = requireNonNull(queryExecutor, "A query executor is required.");
+    this.meterRegistry = meterRegistry;
+    cache = CacheBuilder.newBuilder()
+        .expireAfterWrite(15, TimeUnit.MINUTES)
+        .maximumWeight(maxSizeInBytes)
+        .weigher((PinotQuery query, ByteBuffer buffer) -> buffer.capacity())
+        .recordStats()
+        .build();
+
+    loadTimer = Timer.builder("thirdeye_pinot_query_cache_load")
+        .description("Time spent running a query in Pinot and encoding its result on a cache miss")
+        .tag("datasource", dataSourceName)
+        .register(meterRegistry);
+    meters = List.of(
+        loadTimer,
+        Gauge.builder("thirdeye_pinot_query_cache_bytes", this, PinotQueryCache::sizeInBytes)
+            .description("Off-heap bytes used by the Pinot query cache")
+            .baseUnit("bytes")
+            .tag("datasource", dataSourceName)
+            .register(meterRegistry),
+        Gauge.builder("thirdeye_pinot_query_cache_entries", cache, Cache::size)
+            .tag("datasource", dataSourceName)
+            .register(meterRegistry),
+        FunctionCounter.builder("thirdeye_pinot_query_cache",
+                cache, c -> c.stats().hitCount())
+            .tag("datasource", dataSourceName)
+            .tag("result", "hit")
+            .register(meterRegistry),
+        FunctionCounter.builder("thirdeye_pinot_query_cache",
+                cache, c -> c.stats().missCount())
+            .tag("datasource", dataSourceName)
+            .tag("result", "miss")
+            .register(meterRegistry),
+        FunctionCounter.builder("thirdeye_pinot_query_cache_evictions",
+                cache, c -> c.stats().evictionCount())
+            .tag("datasource", dataSourceName)
+            .register(meterRegistry)
+    );
+  }
+
+  /**
+   * Returns the result of the query, running it in Pinot if it is not cached.
+   *
+   * @throws ExecutionException is thrown if failed to connect to Pinot or gets results from
+   *     Pinot.
+   */
+  public DataTable get(final PinotQuery pinotQuery) throws ExecutionException {
+    final ByteBuffer buffer = cache.get(pinotQuery, () -> load(pinotQuery));
+    if (buffer == NO_RESULT) {
+      throw new RuntimeException("Query returned no result. Table is empty? Original query: %s"
+          .formatted(pinotQuery.getQuery()));
+    }
+    // duplicate: concurrent readers must not share the buffer position
+    return DataTableCodec.decode(buffer.duplicate());
+  }
+
+  private ByteBuffer load(final PinotQuery pinotQuery) {
+    final Timer.Sample sample = Timer.start(meterRegistry);
+    try {
+      final ThirdEyeResultSetGroup resultSetGroup = queryExecutor.load(pinotQuery);
+      if (resultSetGroup.size() < 1) {
+        return NO_RESULT;
+      }
+      final byte[] bytes = DataTableCodec.encode(
+          new ThirdEyeResultSetDataTable(resultSetGroup.get(0)));
+      return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    } finally {
+      sample.stop(loadTimer);
+    }
+  }
+
+  public long sizeInBytes() {
+    return cache.asMap().values().stream().mapToLong(ByteBuffer::capacity).sum();
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Drops the cached buffers and unregisters the metrics of this cache. A datasource is
+   * re-created on update, so the metrics of the new instance must not collide with these.
+   */
+  public void close() {
+    cache.invalidateAll();
+    meters.forEach(meterRegistry::remove);
+  }
+
+  @Override
+  public String toString() {
+    return "PinotQueryCache{dataSourceName='" + dataSourceName + "'}";
+  }
+}
@@ -14,34 +14,29 @@
 package ai.startree.thirdeye.plugins.datasource.pinot;
 
 import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
-import static java.util.Objects.requireNonNull;
 
-import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSet;
 import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSetGroup;
 import ai.startree.thirdeye.spi.Constants;
 import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
 import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
-import ai.startree.thirdeye.spi.datasource.RelationalQuery;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSourceContext;
 import ai.startree.thirdeye.spi.datasource.macro.SqlExpressionBuilder;
 import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
-import com.google.common.base.Preconditions;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import io.micrometer.core.instrument.Metrics;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.io.FileUtils;
+import org.apache.pinot.client.PinotClientException;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,7 +53,8 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
   private final SqlExpressionBuilder sqlExpressionBuilder;
   private final SqlLanguage sqlLanguage;
   private final PinotDatasetReader datasetReader;
-  private final LoadingCache<PinotQuery, ThirdEyeResultSetGroup> queryCache;
+  private final PinotQueryExecutor queryExecutor;
+  private final PinotQueryCache queryCache;
   private final PinotThirdEyeDataSourceConfig config;
   private final PinotConnectionManager connectionManager;
 
@@ -82,45 +78,23 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
     name = context.getDataSourceDTO().getName();
     this.connectionManager = connectionManager;
 
-    /* Uses LoadingCache to cache queries */
-    queryCache = requireNonNull(buildQueryCache(queryExecutor),
-        String.format("%s doesn't connect to Pinot or cache is not initialized.", getName()));
-    this.config = config;
-  }
-
-  private static LoadingCache<PinotQuery, ThirdEyeResultSetGroup> buildQueryCache(
-      final CacheLoader<PinotQuery, ThirdEyeResultSetGroup> cacheLoader) {
-    Preconditions.checkNotNull(cacheLoader, "A cache loader is required.");
-
-    // ResultSetGroup Cache. The size of this cache is limited by the total number of buckets in all ResultSetGroup.
-    // We estimate that 1 bucket (including overhead) consumes 1KB and this cache is allowed to use up to 50% of max
-    // heap space.
-    final long maxBucketNumber = getApproximateMaxBucketNumber(
+    this.queryExecutor = queryExecutor;
+    final long maxCacheSizeInBytes = getApproximateMaxCacheSizeInBytes(
         Constants.DEFAULT_HEAP_PERCENTAGE_FOR_RESULTSETGROUP_CACHE);
-    LOG.debug("Max bucket number for {}'s cache is set to {}", cacheLoader,
-        maxBucketNumber);
-
-    return CacheBuilder.newBuilder()
-        .expireAfterWrite(15, TimeUnit.MINUTES)
-        .maximumWeight(maxBucketNumber)
-        .weigher(PinotThirdEyeDataSource::cacheWeigher)
-        .recordStats()
-        .build(cacheLoader);
-  }
-
-  private static int cacheWeigher(final RelationalQuery relationalQuery,
-      final ThirdEyeResultSetGroup resultSetGroup) {
-    final int resultSetCount = resultSetGroup.size();
-    int weight = 0;
-    for (int idx = 0; idx < resultSetCount; ++idx) {
-      final ThirdEyeResultSet resultSet = resultSetGroup.get(idx);
-      weight += ((resultSet.getColumnCount() + resultSet.getGroupKeyLength()) * resultSet
-          .getRowCount());
-    }
-    return weight;
+    LOG.debug("Max query cache size for {} is set to {} bytes", name, maxCacheSizeInBytes);
+    queryCache = new PinotQueryCache(name,
+        queryExecutor,
+        maxCacheSizeInBytes,
+        Metrics.globalRegistry);
+    this.config = config;
   }
 
-  private static long getApproximateMaxBucketNumber(final int percentage) {
+  /**
+   * The size of the query cache is a percentage of the max heap size. The cache lives in direct
+   * memory, which is limited by default by the same value as the heap, see
+   * -XX:MaxDirectMemorySize.
+   */
+  private static long getApproximateMaxCacheSizeInBytes(final int percentage) {
     long jvmMaxMemoryInBytes = Runtime.getRuntime().maxMemory();
     if (jvmMaxMemoryInBytes == Long.MAX_VALUE) { // Check upper bound
       jvmMaxMemoryInBytes = Constants.DEFAULT_UPPER_BOUND_OF_RESULTSETGROUP_CACHE_SIZE_IN_MB
@@ -133,7 +107,7 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
         jvmMaxMemoryInBytes = lowerBoundInBytes;
       }
     }
-    return (jvmMaxMemoryInBytes / 102400) * percentage;
+    return jvmMaxMemoryInBytes / 100 * percentage;
   }
 
   @Override
@@ -147,24 +121,25 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
   }
 
   /**
-   * Returns the cached ResultSetGroup corresponding to the given Pinot query.
+   * Returns the cached result corresponding to the given Pinot query.
    *
    * @param pinotQuery the query that is specifically constructed for Pinot.
-   * @return the corresponding ResultSetGroup to the given Pinot query.
+   * @return the result of the given Pinot query.
    * @throws ExecutionException is thrown if failed to connect to Pinot or gets results from
    *     Pinot.
    */
-  private ThirdEyeResultSetGroup executeSQL(final PinotQuery pinotQuery) throws ExecutionException {
+  private DataTable executeSQL(final PinotQuery pinotQuery) throws ExecutionException {
     try {
-      final ThirdEyeResultSetGroup thirdEyeResultSetGroup = queryCache.get(pinotQuery);
+      final DataTable dataTable = queryCache.get(pinotQuery);
       final long current = System.currentTimeMillis();
 
       /* Log query stats with min interval of x minutes */
       if (current - queryCacheTs > Duration.ofMinutes(5).toMillis()) {
-        LOG.info("queryCache.stats: {}", queryCache.stats());
+        LOG.info("queryCache.stats: {}, sizeInBytes: {}", queryCache.stats(),
+            queryCache.sizeInBytes());
         queryCacheTs = current;
       }
-      return thirdEyeResultSetGroup;
+      return dataTable;
     } catch (final ExecutionException e) {
       LOG.error("Failed to execute SQL: {} with options {}", pinotQuery.getQuery(),
           pinotQuery.getOptions());
@@ -177,28 +152,23 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
   public DataTable fetchDataTable(final DataSourceRequest request) throws Exception {
     final Map<String, String> options = new HashMap<>(dataSourceDTO.getDefaultQueryOptions());
     options.putAll(request.getOptions());
-    final ThirdEyeResultSetGroup thirdEyeResultSetGroup = executeSQL(new PinotQuery(
+    return executeSQL(new PinotQuery(
         request.getQuery(),
         request.getTable(),
         options));
-    if (thirdEyeResultSetGroup.size() < 1) {
-      throw new RuntimeException("Query returned no result. Table is empty? Original query: %s".formatted(request.getQuery()));
-    }
-    final ThirdEyeResultSet thirdEyeResultSet = thirdEyeResultSetGroup.get(0);
-    return new ThirdEyeResultSetDataTable(thirdEyeResultSet);
   }
 
   @Override
   public boolean validate() {
     try {
       return validate0();
-    } catch (final ExecutionException | IOException | ArrayIndexOutOfBoundsException e) {
+    } catch (final IOException | PinotClientException | ArrayIndexOutOfBoundsException e) {
       LOG.error("Exception while performing pinot datasource validation.", e);
     }
     return false;
   }
 
-  private boolean validate0() throws IOException, ExecutionException {
+  private boolean validate0() throws IOException {
     final PinotHealthCheckConfiguration healthCheck = config.getHealthCheck();
     if (healthCheck == null || !healthCheck.isEnabled()) {
       return true;
@@ -216,8 +186,7 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
     final PinotQuery pinotQuery = new PinotQuery(query, null, dataSourceDTO.getDefaultQueryOptions());
 
     /* Disable caching for validate queries */
-    queryCache.refresh(pinotQuery);
-    final ThirdEyeResultSetGroup result = executeSQL(pinotQuery);
+    final ThirdEyeResultSetGroup result = queryExecutor.load(pinotQuery);
     return result.size() > 0 && result.get(0).getRowCount() > 0;
   }
 
@@ -242,6 +211,15 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
     }
   }
 
+  @Override
+  public List<DatasetConfigDTO> getDatasets(final Predicate<String> datasetNameFilter) {
+    try {
+      return datasetReader.getAll(name, datasetNameFilter);
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   @Override
   public DatasetConfigDTO getDataset(final String datasetName) {
     try {
@@ -253,6 +231,7 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
 
   @Override
   public void close() {
+    queryCache.close();
     connectionManager.close();
     datasetReader.close();
   }
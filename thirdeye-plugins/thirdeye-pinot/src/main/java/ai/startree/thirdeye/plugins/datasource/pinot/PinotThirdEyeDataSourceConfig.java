@@ -23,6 +23,7 @@ public class PinotThirdEyeDataSourceConfig {
 
   private PinotOauthConfiguration oauth;
   private PinotHealthCheckConfiguration healthCheck = new PinotHealthCheckConfiguration();
+  private PinotOnboardingConfiguration onboarding = new PinotOnboardingConfiguration();
   private String zookeeperUrl;
   private String controllerHost;
   private int controllerPort;
@@ -57,6 +58,16 @@ public class PinotThirdEyeDataSourceConfig {
     return this;
   }
 
+  public PinotOnboardingConfiguration getOnboarding() {
+    return onboarding;
+  }
+
+  public PinotThirdEyeDataSourceConfig setOnboarding(
+      final PinotOnboardingConfiguration onboarding) {
+    this.onboarding = onboarding;
+    return this;
+  }
+
   public String getZookeeperUrl() {
     return zookeeperUrl;
   }
@@ -57,7 +57,7 @@ public class ThirdEyeResultSetDataTable extends AbstractDataTableImpl {
       for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
         vals[rowIdx] = thirdEyeResultSet.getGroupKeyColumnValue(rowIdx, colIdx);
       }
-      df.addSeries(columnName, StringSeries.buildFrom(vals));
+      df.addSeries(columnName, StringSeries.buildCompressed(vals));
     }
     for (int colIdx = 0; colIdx < thirdEyeResultSet.getColumnCount(); colIdx++) {
       final String columnName = thirdEyeResultSet.getColumnName(colIdx);
@@ -97,7 +97,7 @@ public class ThirdEyeResultSetDataTable extends AbstractDataTableImpl {
           for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
             sVals[rowIdx] = stringOrNull(thirdEyeResultSet, rowIdx, colIdx);
           }
-          df.addSeries(columnName, StringSeries.buildFrom(sVals));
+          df.addSeries(columnName, StringSeries.buildCompressed(sVals));
           break;
         case OBJECT:
           // hotfix for https://github.com/apache/pinot/issues/12091 and https://startree.atlassian.net/browse/TE-1955?focusedCommentId=24634
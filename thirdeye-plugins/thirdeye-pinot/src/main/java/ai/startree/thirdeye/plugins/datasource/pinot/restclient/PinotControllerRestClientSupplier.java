@@ -18,6 +18,7 @@ import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 import static java.util.Objects.requireNonNull;
 
 import ai.startree.thirdeye.plugins.datasource.pinot.PinotOauthTokenSupplier;
+import ai.startree.thirdeye.plugins.datasource.pinot.PinotOnboardingConfiguration;
 import ai.startree.thirdeye.plugins.datasource.pinot.PinotThirdEyeDataSourceConfig;
 import java.io.IOException;
 import java.security.KeyManagementException;
@@ -36,6 +37,7 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.net.ssl.SSLContext;
 import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
@@ -64,7 +66,10 @@ public class PinotControllerRestClientSupplier {
     tokenSupplier = pinotOauthTokenSupplier.getTokenSupplier();
   }
 
-  public CloseableHttpClient get() {
+  /**
+   * Synchronized: tables are read by several threads when datasets are onboarded.
+   */
+  public synchronized CloseableHttpClient get() {
     if (isNewClientReqd()) {
       if (pinotControllerClient != null) {
         executorService.submit(this::closeClient);
@@ -101,12 +106,28 @@ public class PinotControllerRestClientSupplier {
 
   private CloseableHttpClient buildPinotControllerClient() {
     final HttpClientBuilder builder = HttpClients.custom();
+    configureConnections(builder);
     configureHeaders(builder);
     configureHttps(builder);
 
     return builder.build();
   }
 
+  private void configureConnections(final HttpClientBuilder builder) {
+    final PinotOnboardingConfiguration onboarding = optional(config.getOnboarding())
+        .orElse(new PinotOnboardingConfiguration());
+    // the default pool allows 2 connections per route: it would serialize the onboarding calls
+    final int maxConnections = Math.max(2, onboarding.getParallelism());
+    final int timeoutMs = Math.toIntExact(onboarding.getTableTimeoutMs());
+    builder.setMaxConnPerRoute(maxConnections)
+        .setMaxConnTotal(maxConnections)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectTimeout(timeoutMs)
+            .setConnectionRequestTimeout(timeoutMs)
+            .setSocketTimeout(timeoutMs)
+            .build());
+  }
+
   private void configureHeaders(final HttpClientBuilder builder) {
     final Map<String, String> headers = new HashMap<>(
         optional(config.getHeaders()).orElse(Collections.emptyMap()));
@@ -141,7 +162,7 @@ public class PinotControllerRestClientSupplier {
     }
   }
 
-  public void close() {
+  public synchronized void close() {
     if (pinotControllerClient != null) {
       try {
         pinotControllerClient.close();
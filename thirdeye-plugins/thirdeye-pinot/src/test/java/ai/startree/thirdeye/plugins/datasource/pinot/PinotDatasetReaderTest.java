@@ -0,0 +1,151 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.datasource.pinot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.plugins.datasource.pinot.restclient.PinotControllerRestClient;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.MetricConfigDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.testng.annotations.Test;
+
+public class PinotDatasetReaderTest {
+
+  private static final String DATA_SOURCE_NAME = "pinot";
+
+  private static Schema schema(final String tableName) {
+    return new Schema.SchemaBuilder()
+        .setSchemaName(tableName)
+        .addSingleValueDimension("country", DataType.STRING)
+        .addMetric("views", DataType.LONG)
+        .addDateTime("ts", DataType.LONG, "1:MILLISECONDS:EPOCH", "1:MILLISECONDS")
+        .build();
+  }
+
+  private static PinotControllerRestClient restClient(final List<String> tables)
+      throws IOException {
+    final PinotControllerRestClient restClient = mock(PinotControllerRestClient.class);
+    when(restClient.getAllTablesFromPinot()).thenReturn(tables);
+    for (final String table : tables) {
+      when(restClient.getSchemaFromPinot(table)).thenReturn(schema(table));
+    }
+    when(restClient.getTableConfigFromPinotEndpoint(anyString()))
+        .thenReturn(new ObjectMapper().createObjectNode());
+    when(restClient.extractTimeColumnFromPinotTable(any())).thenReturn("ts");
+    when(restClient.extractCustomConfigsFromPinotTable(any())).thenReturn(Map.of());
+    return restClient;
+  }
+
+  private static PinotDatasetReader reader(final PinotControllerRestClient restClient,
+      final int parallelism, final long tableTimeoutMs) {
+    final PinotThirdEyeDataSourceConfig config = new PinotThirdEyeDataSourceConfig()
+        .setOnboarding(new PinotOnboardingConfiguration()
+            .setParallelism(parallelism)
+            .setTableTimeoutMs(tableTimeoutMs));
+    return new PinotDatasetReader(restClient, config);
+  }
+
+  private static List<String> names(final List<DatasetConfigDTO> datasets) {
+    return datasets.stream().map(DatasetConfigDTO::getDataset).toList();
+  }
+
+  @Test
+  public void testGetAll() throws IOException {
+    final PinotControllerRestClient restClient = restClient(List.of("t1", "t2", "t3"));
+    final PinotDatasetReader reader = reader(restClient, 2, 10_000);
+
+    final List<DatasetConfigDTO> datasets = reader.getAll(DATA_SOURCE_NAME);
+
+    // the order of the controller response is kept
+    assertThat(names(datasets)).containsExactly("t1", "t2", "t3");
+    final DatasetConfigDTO dataset = datasets.get(0);
+    assertThat(dataset.getDataSource()).isEqualTo(DATA_SOURCE_NAME);
+    assertThat(dataset.getTimeColumn()).isEqualTo("ts");
+    assertThat(dataset.getDimensions().getValue()).containsExactly("country");
+    assertThat(dataset.getMetrics()).extracting(MetricConfigDTO::getName)
+        .containsExactly("views");
+  }
+
+  @Test
+  public void testGetAllSkipsFailingTable() throws IOException {
+    final PinotControllerRestClient restClient = restClient(List.of("t1", "t2", "t3"));
+    when(restClient.getSchemaFromPinot("t2")).thenThrow(new IOException("injected failure"));
+    final PinotDatasetReader reader = reader(restClient, 2, 10_000);
+
+    assertThat(names(reader.getAll(DATA_SOURCE_NAME))).containsExactly("t1", "t3");
+  }
+
+  @Test
+  public void testGetAllDoesNotReadFilteredTables() throws IOException {
+    final PinotControllerRestClient restClient = restClient(List.of("t1", "t2", "t3"));
+    final PinotDatasetReader reader = reader(restClient, 2, 10_000);
+
+    final List<DatasetConfigDTO> datasets = reader.getAll(DATA_SOURCE_NAME,
+        tableName -> !tableName.equals("t2"));
+
+    assertThat(names(datasets)).containsExactly("t1", "t3");
+    verify(restClient, never()).getSchemaFromPinot("t2");
+    verify(restClient, never()).getTableConfigFromPinotEndpoint(eq("t2"));
+  }
+
+  @Test(timeOut = 10_000)
+  public void testGetAllReadsTablesInParallel() throws IOException {
+    final List<String> tables = List.of("t1", "t2", "t3", "t4");
+    final PinotControllerRestClient restClient = restClient(tables);
+    // each schema call waits for the 3 others: it only succeeds if the 4 tables run concurrently
+    final CyclicBarrier barrier = new CyclicBarrier(tables.size());
+    for (final String table : tables) {
+      when(restClient.getSchemaFromPinot(table)).thenAnswer(invocation -> {
+        barrier.await(5, TimeUnit.SECONDS);
+        return schema(table);
+      });
+    }
+    final PinotDatasetReader reader = reader(restClient, tables.size(), 10_000);
+
+    assertThat(names(reader.getAll(DATA_SOURCE_NAME))).containsExactlyElementsOf(tables);
+  }
+
+  @Test(timeOut = 10_000)
+  public void testGetAllSkipsTableReachingTimeout() throws IOException {
+    final PinotControllerRestClient restClient = restClient(List.of("t1", "t2", "t3"));
+    final CountDownLatch release = new CountDownLatch(1);
+    when(restClient.getSchemaFromPinot("t2")).thenAnswer(invocation -> {
+      release.await();
+      return schema("t2");
+    });
+    final PinotDatasetReader reader = reader(restClient, 3, 200);
+
+    try {
+      assertThat(names(reader.getAll(DATA_SOURCE_NAME))).containsExactly("t1", "t3");
+    } finally {
+      release.countDown();
+    }
+  }
+}
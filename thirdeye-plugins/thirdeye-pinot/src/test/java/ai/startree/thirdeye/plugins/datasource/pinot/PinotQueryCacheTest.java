@@ -0,0 +1,121 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.datasource.pinot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeDataFrameResultSet;
+import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSetGroup;
+import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSetMetaData;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType.ColumnDataType;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.testng.annotations.Test;
+
+public class PinotQueryCacheTest {
+
+  private static final PinotQuery QUERY = new PinotQuery("SELECT ts, value FROM t", "t", Map.of());
+
+  private static ThirdEyeResultSetGroup resultSetGroup() {
+    final ThirdEyeResultSetMetaData metaData = new ThirdEyeResultSetMetaData(List.of(),
+        List.of("ts", "value"),
+        List.of(),
+        List.of(new ColumnType(ColumnDataType.LONG), new ColumnType(ColumnDataType.DOUBLE)));
+    final DataFrame df = new DataFrame()
+        .addSeries("ts", 1000L, 2000L, 3000L)
+        .addSeries("value", 1.5, 2.5, 3.5);
+    return new ThirdEyeResultSetGroup(List.of(new ThirdEyeDataFrameResultSet(metaData, df)));
+  }
+
+  @Test
+  public void testGetCachesEncodedResult() throws Exception {
+    final PinotQueryExecutor queryExecutor = mock(PinotQueryExecutor.class);
+    when(queryExecutor.load(any())).thenReturn(resultSetGroup());
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final PinotQueryCache cache = new PinotQueryCache("ds", queryExecutor, 1_000_000, registry);
+
+    final DataTable first = cache.get(QUERY);
+    final DataTable second = cache.get(QUERY);
+
+    verify(queryExecutor, times(1)).load(any());
+    final DataFrame expected = new DataFrame()
+        .addSeries("ts", 1000L, 2000L, 3000L)
+        .addSeries("value", 1.5, 2.5, 3.5);
+    assertThat(first.getDataFrame()).isEqualTo(expected);
+    assertThat(second.getDataFrame()).isEqualTo(expected);
+    // every hit decodes a new DataFrame
+    assertThat(second.getDataFrame()).isNotSameAs(first.getDataFrame());
+
+    assertThat(cache.sizeInBytes()).isPositive();
+    assertThat(registry.get("thirdeye_pinot_query_cache_bytes").gauge().value())
+        .isEqualTo((double) cache.sizeInBytes());
+    assertThat(registry.get("thirdeye_pinot_query_cache").tag("result", "hit")
+        .functionCounter().count()).isEqualTo(1);
+    assertThat(registry.get("thirdeye_pinot_query_cache").tag("result", "miss")
+        .functionCounter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void testGetIsBoundedByBytes() throws Exception {
+    final PinotQueryExecutor queryExecutor = mock(PinotQueryExecutor.class);
+    when(queryExecutor.load(any())).thenReturn(resultSetGroup());
+    final PinotQueryCache cache = new PinotQueryCache("ds", queryExecutor, 10,
+        new SimpleMeterRegistry());
+
+    cache.get(QUERY);
+    cache.get(QUERY);
+
+    // an entry larger than the max size is evicted immediately
+    verify(queryExecutor, times(2)).load(any());
+    assertThat(cache.sizeInBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testGetThrowsUnwrappedExceptionOnNoResult() throws Exception {
+    final PinotQueryExecutor queryExecutor = mock(PinotQueryExecutor.class);
+    when(queryExecutor.load(any())).thenReturn(new ThirdEyeResultSetGroup(List.of()));
+    final PinotQueryCache cache = new PinotQueryCache("ds", queryExecutor, 1_000_000,
+        new SimpleMeterRegistry());
+
+    for (int i = 0; i < 2; i++) {
+      assertThatThrownBy(() -> cache.get(QUERY))
+          .isExactlyInstanceOf(RuntimeException.class)
+          .hasMessageContaining("Query returned no result");
+    }
+    // the empty result is cached, like a result set
+    verify(queryExecutor, times(1)).load(any());
+  }
+
+  @Test
+  public void testCloseRemovesMeters() {
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final PinotQueryCache cache = new PinotQueryCache("ds", mock(PinotQueryExecutor.class),
+        1_000_000, registry);
+    assertThat(registry.getMeters()).isNotEmpty();
+
+    cache.close();
+
+    assertThat(registry.getMeters()).isEmpty();
+  }
+}
@@ -13,7 +13,6 @@
  */
 package ai.startree.thirdeye.scheduler;
 
-import static ai.startree.thirdeye.spi.Constants.DEFAULT_CHRONOLOGY;
 import static ai.startree.thirdeye.spi.util.AlertMetadataUtils.getDateTimeZone;
 import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 
@@ -23,7 +22,6 @@ import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
 import ai.startree.thirdeye.spi.datalayer.bao.TaskManager;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertMetadataDTO;
-import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.DetectionPipelineTaskInfo;
 import ai.startree.thirdeye.spi.datalayer.dto.TaskDTO;
@@ -35,9 +33,9 @@ import com.google.inject.Singleton;
 import java.io.IOException;
 import java.util.List;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Chronology;
 import org.joda.time.DateTime;
-import org.joda.time.Interval;
 import org.joda.time.Period;
 import org.quartz.JobKey;
 import org.slf4j.Logger;
@@ -46,7 +44,6 @@ import org.slf4j.LoggerFactory;
 @Singleton
 public class JobSchedulerService {
 
-  public static final Interval UNUSED_DETECTION_INTERVAL = new Interval(0, 0, DEFAULT_CHRONOLOGY);
   private static final Logger LOG = LoggerFactory.getLogger(JobSchedulerService.class);
   private final TaskManager taskManager;
   private final AlertManager alertManager;
@@ -68,8 +65,8 @@ public class JobSchedulerService {
   }
 
   @NonNull
-  private static Period getMutabilityPeriod(final AlertTemplateDTO templateWithProperties) {
-    return optional(templateWithProperties.getMetadata())
+  private static Period getMutabilityPeriod(final @Nullable AlertMetadataDTO metadata) {
+    return optional(metadata)
         .map(AlertMetadataDTO::getDataset)
         .map(DatasetConfigDTO::getMutabilityPeriod)
         .map(TimeUtils::isoPeriod)
@@ -103,12 +100,12 @@ public class JobSchedulerService {
   @VisibleForTesting
   protected long computeTaskStart(final AlertDTO alert, final long endTime) {
     try {
-      final AlertTemplateDTO templateWithProperties = alertTemplateRenderer.renderAlert(alert,
-          UNUSED_DETECTION_INTERVAL);
-      final Chronology chronology = getDateTimeZone(templateWithProperties.getMetadata());
+      // only the metadata is needed - the template is not rendered
+      final AlertMetadataDTO metadata = alertTemplateRenderer.renderMetadata(alert);
+      final Chronology chronology = getDateTimeZone(metadata);
       final DateTime defaultStartTime = new DateTime(alert.getLastTimestamp(), chronology);
       final DateTime endDateTime = new DateTime(endTime, chronology);
-      final Period mutabilityPeriod = getMutabilityPeriod(templateWithProperties);
+      final Period mutabilityPeriod = getMutabilityPeriod(metadata);
       final DateTime mutabilityStart = endDateTime.minus(mutabilityPeriod);
       if (mutabilityStart.isBefore(defaultStartTime)) {
         LOG.info(
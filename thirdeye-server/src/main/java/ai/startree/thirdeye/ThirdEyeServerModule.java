@@ -59,7 +59,8 @@ public class ThirdEyeServerModule extends AbstractModule {
         configuration.getCacheConfig(),
         configuration.getRcaConfiguration(),
         configuration.getUiConfiguration(),
-        configuration.getTimeConfiguration()));
+        configuration.getTimeConfiguration(),
+        configuration.getDataSourceLimiterConfiguration()));
     install(new ThirdEyeNotificationModule(configuration.getNotificationConfiguration()));
     install(new ThirdEyeDetectionPipelineModule(configuration.getDetectionPipelineConfiguration()));
     install(new ThirdEyeWorkerModule(configuration.getTaskDriverConfiguration()));
@@ -102,7 +102,6 @@ public class DetectionPipelineOutputPostProcessor {
 
   private DataFrame filterStartEnd(final DataFrame df, final long start, final long end) {
     return df
-        .filter((LongConditional) v -> v[0] >= start && v[0] <= end, Constants.COL_TIME)
-        .dropNull(Constants.COL_TIME);
+        .filterCompact((LongConditional) v -> v[0] >= start && v[0] <= end, Constants.COL_TIME);
   }
 }
@@ -71,6 +71,9 @@ public class ThirdEyeServerConfiguration extends Configuration {
   @JsonProperty("time")
   private TimeConfiguration timeConfiguration = new TimeConfiguration();
 
+  @JsonProperty("dataSourceLimiter")
+  private DataSourceLimiterConfiguration dataSourceLimiterConfiguration = new DataSourceLimiterConfiguration();
+
   @JsonProperty("accessControl")
   private AccessControlConfiguration accessControlConfiguration = new AccessControlConfiguration();
 
@@ -245,6 +248,16 @@ public class ThirdEyeServerConfiguration extends Configuration {
     return this;
   }
 
+  public DataSourceLimiterConfiguration getDataSourceLimiterConfiguration() {
+    return dataSourceLimiterConfiguration;
+  }
+
+  public ThirdEyeServerConfiguration setDataSourceLimiterConfiguration(
+      final DataSourceLimiterConfiguration dataSourceLimiterConfiguration) {
+    this.dataSourceLimiterConfiguration = dataSourceLimiterConfiguration;
+    return this;
+  }
+
   public DetectionPipelineConfiguration getDetectionPipelineConfiguration() {
     return detectionPipelineConfiguration;
   }
@@ -40,6 +40,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javax.inject.Inject;
 import org.joda.time.Interval;
 import org.joda.time.Period;
@@ -176,7 +177,14 @@ public class HeatmapCalculator {
     final Future<DataFrame> future = aggregationLoader.loadAggregateAsync(slice,
         Collections.emptyList(),
         2);
-    DataFrame df = future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    DataFrame df;
+    try {
+      df = future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (final TimeoutException e) {
+      // free the aggregation loader thread
+      future.cancel(true);
+      throw e;
+    }
     if (df.isEmpty()) {
       df = new DataFrame().addSeries(Constants.COL_VALUE, Double.NaN);
     } else if (df.size() > 1) {
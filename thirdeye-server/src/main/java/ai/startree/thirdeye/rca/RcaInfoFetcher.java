@@ -13,6 +13,7 @@
  */
 package ai.startree.thirdeye.rca;
 
+import static ai.startree.thirdeye.spi.Constants.METRICS_TIMER_PERCENTILES;
 import static ai.startree.thirdeye.spi.ThirdEyeStatus.ERR_DATASET_NOT_FOUND_IN_NAMESPACE;
 import static ai.startree.thirdeye.spi.ThirdEyeStatus.ERR_MISSING_CONFIGURATION_FIELD;
 import static ai.startree.thirdeye.spi.metric.MetricAggFunction.COUNT;
@@ -40,13 +41,23 @@ import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.EventContextDto;
 import ai.startree.thirdeye.spi.datalayer.dto.MetricConfigDTO;
+import ai.startree.thirdeye.spi.json.ThirdEyeSerialization;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.StringUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Chronology;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Interval;
@@ -63,6 +74,9 @@ public class RcaInfoFetcher {
   private static final Interval UNUSED_DETECTION_INTERVAL = new Interval(0L, 0L, DateTimeZone.UTC);
   private static final Logger LOG = LoggerFactory.getLogger(RcaInfoFetcher.class);
   private static final EventContextDto EMPTY_CONTEXT_DTO = new EventContextDto();
+  private static final int CACHE_MAX_SIZE = 1024;
+  private static final long CACHE_EXPIRE_MINUTES = 10;
+
   private final AnomalyManager mergedAnomalyDAO;
   private final AlertManager alertDAO;
   private final DatasetConfigManager datasetDAO;
@@ -71,6 +85,16 @@ public class RcaInfoFetcher {
   private final EnumerationItemManager enumerationItemManager;
   private final DataSourceManager dataSourceManager;
 
+  // key is the anomaly id - entries are checked against the versions of the entities they were resolved from
+  // the expiration bounds the staleness for changes that are not versioned, eg an update of the alert template
+  private final Cache<Long, CachedRcaInfo> rcaInfoCache = CacheBuilder.newBuilder()
+      .maximumSize(CACHE_MAX_SIZE)
+      .expireAfterWrite(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+      .build();
+  private final Counter rcaInfoCacheHitCounter;
+  private final Counter rcaInfoCacheMissCounter;
+  private final Timer rcaInfoResolutionTimer;
+
   @Inject
   public RcaInfoFetcher(final AnomalyManager mergedAnomalyDAO,
       final AlertManager alertDAO,
@@ -86,6 +110,19 @@ public class RcaInfoFetcher {
     this.alertTemplateRenderer = alertTemplateRenderer;
     this.enumerationItemManager = enumerationItemManager;
     this.dataSourceManager = dataSourceManager;
+
+    this.rcaInfoCacheHitCounter = Counter.builder("thirdeye_rca_info_cache")
+        .description("Number of RCA info lookups. Tag result: hit or miss.")
+        .tag("result", "hit")
+        .register(Metrics.globalRegistry);
+    this.rcaInfoCacheMissCounter = Counter.builder("thirdeye_rca_info_cache")
+        .description("Number of RCA info lookups. Tag result: hit or miss.")
+        .tag("result", "miss")
+        .register(Metrics.globalRegistry);
+    this.rcaInfoResolutionTimer = Timer.builder("thirdeye_rca_info_resolution")
+        .description("Start: a RCA info is not found in the cache. End: the RCA info is resolved from the alert, the template, the metric, the dataset and the datasource.")
+        .publishPercentiles(METRICS_TIMER_PERCENTILES)
+        .register(Metrics.globalRegistry);
   }
 
   private static <E> boolean templatableListIsNotEmpty(
@@ -103,6 +140,9 @@ public class RcaInfoFetcher {
    * This method gets the metric and dataset info from the alert template.
    * It could be more intelligent: metric and dataset could be inferred from the query.
    *
+   * The resolved info is cached by anomaly id. A cached entry is reused as long as the alert,
+   * the enumeration item and the dataset it was resolved from have not changed.
+   *
    * Consumer of this method should ensure authz on the anomaly entity.
    */
   public RcaInfo getRcaInfo(final AnomalyDTO anomalyDTO)
@@ -114,6 +154,40 @@ public class RcaInfoFetcher {
         .map(enumerationItemManager::findById)
         .orElse(null);
 
+    final Long anomalyId = anomalyDTO.getId();
+    final CachedRcaInfo cached = anomalyId == null ? null : rcaInfoCache.getIfPresent(anomalyId);
+    if (cached != null && cached.isValid(alertDTO,
+        enumerationItemDTO,
+        datasetDAO.findById(cached.dataset().getId()))) {
+      rcaInfoCacheHitCounter.increment();
+      return cached.toRcaInfo(anomalyDTO, alertDTO);
+    }
+    rcaInfoCacheMissCounter.increment();
+
+    final Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+    try {
+      final RcaInfo rcaInfo = resolveRcaInfo(anomalyDTO, alertDTO, enumerationItemDTO);
+      final CachedRcaInfo resolved = new CachedRcaInfo(EntityVersion.of(alertDTO),
+          EntityVersion.of(enumerationItemDTO),
+          EntityVersion.of(rcaInfo.dataset()),
+          copy(rcaInfo.metric(), MetricConfigDTO.class),
+          copy(rcaInfo.dataset(), DatasetConfigDTO.class),
+          rcaInfo.dataSourceDto(),
+          rcaInfo.chronology(),
+          rcaInfo.granularity(),
+          rcaInfo.eventContext());
+      if (anomalyId != null) {
+        rcaInfoCache.put(anomalyId, resolved);
+      }
+      return rcaInfo;
+    } finally {
+      sample.stop(rcaInfoResolutionTimer);
+    }
+  }
+
+  private RcaInfo resolveRcaInfo(final AnomalyDTO anomalyDTO, final AlertDTO alertDTO,
+      final @Nullable EnumerationItemDTO enumerationItemDTO)
+      throws IOException, ClassNotFoundException {
     final AlertTemplateDTO templateWithProperties = alertTemplateRenderer.renderAlert(alertDTO,
         UNUSED_DETECTION_INTERVAL,
         enumerationItemDTO);
@@ -189,6 +263,14 @@ public class RcaInfoFetcher {
         eventContext);
   }
 
+  /**
+   * Consumers override some fields of the metric and dataset, eg the RCA dimensions.
+   * Cached entities are never returned directly.
+   */
+  private static <T> T copy(final T dto, final Class<T> clazz) {
+    return ThirdEyeSerialization.getObjectMapper().convertValue(dto, clazz);
+  }
+
   @SuppressWarnings("unchecked")
   private EventContextDto findFromAlert(final AlertDTO alertDTO,
       final EnumerationItemDTO enumerationItem) {
@@ -234,4 +316,44 @@ public class RcaInfoFetcher {
     optional(metadataMetricDTO.getDefaultAggFunction()).filter(StringUtils::isNotBlank)
         .ifPresent(metricConfigDTO::setDefaultAggFunction);
   }
+
+  private record EntityVersion(Long id, int version, Timestamp updateTime) {
+
+    private static @Nullable EntityVersion of(final @Nullable AbstractDTO dto) {
+      return dto == null ? null : new EntityVersion(dto.getId(), dto.getVersion(),
+          dto.getUpdateTime());
+    }
+  }
+
+  private record CachedRcaInfo(
+      @Nullable EntityVersion alertVersion,
+      @Nullable EntityVersion enumerationItemVersion,
+      @Nullable EntityVersion datasetVersion,
+      MetricConfigDTO metric,
+      DatasetConfigDTO dataset,
+      DataSourceDTO dataSourceDto,
+      Chronology chronology,
+      Period granularity,
+      EventContextDto eventContext) {
+
+    private boolean isValid(final AlertDTO alert,
+        final @Nullable EnumerationItemDTO enumerationItem,
+        final @Nullable DatasetConfigDTO dataset) {
+      return dataset != null
+          && Objects.equals(alertVersion, EntityVersion.of(alert))
+          && Objects.equals(enumerationItemVersion, EntityVersion.of(enumerationItem))
+          && Objects.equals(datasetVersion, EntityVersion.of(dataset));
+    }
+
+    private RcaInfo toRcaInfo(final AnomalyDTO anomaly, final AlertDTO alert) {
+      return new RcaInfo(anomaly,
+          alert,
+          copy(metric, MetricConfigDTO.class),
+          copy(dataset, DatasetConfigDTO.class),
+          dataSourceDto,
+          chronology,
+          granularity,
+          eventContext);
+    }
+  }
 }
@@ -15,10 +15,31 @@ package ai.startree.thirdeye.rca;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
-
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.alert.AlertTemplateRenderer;
 import ai.startree.thirdeye.spi.datalayer.Templatable;
+import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
+import ai.startree.thirdeye.spi.datalayer.bao.AnomalyManager;
+import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
+import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
+import ai.startree.thirdeye.spi.datalayer.bao.EnumerationItemManager;
+import ai.startree.thirdeye.spi.datalayer.bao.MetricConfigManager;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertMetadataDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AnomalyDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.MetricConfigDTO;
+import java.sql.Timestamp;
 import java.util.List;
+import java.util.Map;
 import org.testng.annotations.Test;
 
 public class RcaInfoFetcherTest {
@@ -112,4 +133,58 @@ public class RcaInfoFetcherTest {
     RcaInfoFetcher.addCustomFields(updatedConfig,metadataConfig);
     assertThat(updatedConfig.getRcaExcludedDimensions()).isEqualTo(newExcludedDimensions);
   }
+
+  @Test
+  public void testGetRcaInfoIsCachedUntilAlertChanges() throws Exception {
+    final AlertDTO alert = new AlertDTO().setTemplateProperties(Map.of());
+    alert.setId(1L);
+    alert.setUpdateTime(new Timestamp(1000L));
+    final DatasetConfigDTO dataset = new DatasetConfigDTO().setDataset("dataset")
+        .setDataSource("datasource");
+    dataset.setId(2L);
+    final MetricConfigDTO metric = new MetricConfigDTO().setName("metric")
+        .setDataset("dataset")
+        .setDatasetConfig(dataset);
+    final AlertTemplateDTO renderedTemplate = new AlertTemplateDTO().setMetadata(
+        new AlertMetadataDTO()
+            .setMetric(new MetricConfigDTO().setName("metric"))
+            .setDataset(new DatasetConfigDTO().setDataset("dataset"))
+            .setGranularity("P1D"));
+
+    final AlertManager alertManager = mock(AlertManager.class);
+    when(alertManager.findById(1L)).thenReturn(alert);
+    final DatasetConfigManager datasetManager = mock(DatasetConfigManager.class);
+    when(datasetManager.findById(2L)).thenReturn(dataset);
+    final MetricConfigManager metricManager = mock(MetricConfigManager.class);
+    when(metricManager.findBy("metric", "dataset", null)).thenReturn(metric);
+    final DataSourceManager dataSourceManager = mock(DataSourceManager.class);
+    when(dataSourceManager.findUniqueByNameAndNamespace("datasource", null)).thenReturn(
+        new DataSourceDTO().setName("datasource"));
+    final AlertTemplateRenderer renderer = mock(AlertTemplateRenderer.class);
+    when(renderer.renderAlert(eq(alert), any(), any())).thenReturn(renderedTemplate);
+
+    final RcaInfoFetcher rcaInfoFetcher = new RcaInfoFetcher(mock(AnomalyManager.class),
+        alertManager,
+        datasetManager,
+        metricManager,
+        renderer,
+        mock(EnumerationItemManager.class),
+        dataSourceManager);
+    final AnomalyDTO anomaly = new AnomalyDTO().setDetectionConfigId(1L);
+    anomaly.setId(3L);
+
+    final RcaInfo first = rcaInfoFetcher.getRcaInfo(anomaly);
+    // consumers override the dataset - this must not leak in the cache
+    first.dataset().setDimensions(Templatable.of(List.of(DIM_1)));
+    final RcaInfo second = rcaInfoFetcher.getRcaInfo(anomaly);
+    verify(renderer, times(1)).renderAlert(eq(alert), any(), any());
+    assertThat(second.metric().getName()).isEqualTo("metric");
+    assertThat(second.dataset().getDataset()).isEqualTo("dataset");
+    assertThat(second.dataset().getDimensions()).isNull();
+    assertThat(second.anomaly()).isSameAs(anomaly);
+
+    alert.setUpdateTime(new Timestamp(2000L));
+    rcaInfoFetcher.getRcaInfo(anomaly);
+    verify(renderer, times(2)).renderAlert(eq(alert), any(), any());
+  }
 }
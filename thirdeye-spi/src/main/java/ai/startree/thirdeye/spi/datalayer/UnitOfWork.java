@@ -0,0 +1,33 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datalayer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Runs several persistence operations in a single database transaction.
+ */
+public interface UnitOfWork {
+
+  /**
+   * Runs the operations in a single transaction. The managers called by the operations on the
+   * current thread join the transaction instead of committing on their own.
+   *
+   * The transaction is committed if the operations complete. It is rolled back if the operations
+   * throw or if one of the database operations fails, even if the failure was handled by a
+   * manager. In this case, an exception is thrown and the ids generated for new entities are
+   * reset to null.
+   */
+  <T> T execute(Callable<T> operations) throws Exception;
+}
@@ -18,6 +18,7 @@ import ai.startree.thirdeye.spi.datasource.macro.SqlExpressionBuilder;
 import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import java.util.List;
+import java.util.function.Predicate;
 
 public interface ThirdEyeDataSource {
 
@@ -42,6 +43,20 @@ public interface ThirdEyeDataSource {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Onboard the datasets available in the data source whose name matches the filter.
+   * Data sources should override this method to not read the metadata of the datasets that are
+   * filtered out.
+   *
+   * @param datasetNameFilter returns true for the names of the datasets to onboard
+   * @return ThirdEye dataset describing available dimensions and metrics.
+   */
+  default List<DatasetConfigDTO> getDatasets(final Predicate<String> datasetNameFilter) {
+    return getDatasets().stream()
+        .filter(d -> datasetNameFilter.test(d.getDataset()))
+        .toList();
+  }
+
   /**
    * Fetch metadata about the dataset.
    *
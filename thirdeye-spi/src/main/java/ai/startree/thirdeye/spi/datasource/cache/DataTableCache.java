@@ -0,0 +1,46 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datasource.cache;
+
+import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
+import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Cache of query results, at the {@link ThirdEyeDataSource#fetchDataTable(DataSourceRequest)}
+ * boundary.
+ *
+ * Implementations must be thread-safe. Returned {@link DataTable} may be shared between
+ * callers: consumers should not mutate the returned DataFrame in place.
+ */
+public interface DataTableCache {
+
+  /**
+   * Returns the cached result for the key, or null if the result is not in the cache.
+   */
+  @Nullable DataTable get(DataTableCacheKey key);
+
+  void put(DataTableCacheKey key, DataTable dataTable);
+
+  /**
+   * Removes all entries of a datasource.
+   *
+   * @param dataSource datasource name, as in {@link DataTableCacheKey#dataSource()}
+   */
+  void invalidate(String dataSource);
+
+  default void close() {
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datasource.cache;
+
+import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Key of a {@link DataTableCache} entry.
+ *
+ * @param dataSource name of the datasource
+ * @param table table of the request. Can be null.
+ * @param query fully rendered query - after macros and filters are applied.
+ * @param options query options
+ * @param timeBucket bucket of the time at which the query is run. Results are reused only
+ *     within the same bucket.
+ */
+public record DataTableCacheKey(
+    @NonNull String dataSource,
+    String table,
+    @NonNull String query,
+    @NonNull Map<String, String> options,
+    long timeBucket) {
+
+  public static DataTableCacheKey from(final String dataSource, final DataSourceRequest request,
+      final long timeBucket) {
+    // options are sorted to get a stable hash
+    final Map<String, String> options = request.getOptions() == null
+        ? Map.of()
+        : new TreeMap<>(request.getOptions());
+    return new DataTableCacheKey(dataSource, request.getTable(), request.getQuery(), options,
+        timeBucket);
+  }
+
+  /**
+   * Stable hash of the key. Can be used as a file name or as a key of an external store.
+   * Implementations should still check the key on read to protect against collisions.
+   */
+  public String hash() {
+    final Hasher hasher = Hashing.sha256().newHasher()
+        .putString(dataSource, StandardCharsets.UTF_8)
+        .putChar('\0')
+        .putString(String.valueOf(table), StandardCharsets.UTF_8)
+        .putChar('\0')
+        .putString(query, StandardCharsets.UTF_8)
+        .putChar('\0')
+        .putLong(timeBucket);
+    new TreeMap<>(options).forEach((k, v) -> hasher
+        .putString(k, StandardCharsets.UTF_8)
+        .putChar('=')
+        .putString(String.valueOf(v), StandardCharsets.UTF_8)
+        .putChar('\0'));
+    return hasher.hash().toString();
+  }
+}
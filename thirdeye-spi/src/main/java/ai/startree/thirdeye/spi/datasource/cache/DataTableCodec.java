@@ -0,0 +1,215 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datasource.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import ai.startree.thirdeye.spi.dataframe.BooleanSeries;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import ai.startree.thirdeye.spi.dataframe.Series.SeriesType;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Compact columnar binary format for {@link DataTable}.
+ *
+ * Layout: header, properties, index names, then one block per column: name, type and the
+ * values of the column stored contiguously. Primitive columns are read back with bulk copies.
+ * {@link SeriesType#OBJECT} columns are not supported.
+ */
+public class DataTableCodec {
+
+  private static final int MAGIC = 0x54454454; // TEDT
+  private static final byte FORMAT_VERSION = 1;
+  private static final int NULL_LENGTH = -1;
+  private static final int MAX_INITIAL_BUFFER_SIZE = 64 * 1024 * 1024;
+
+  public static boolean isSupported(final DataTable dataTable) {
+    return dataTable.getDataFrame().getSeries().values().stream()
+        .noneMatch(s -> s.type() == SeriesType.OBJECT);
+  }
+
+  public static byte[] encode(final DataTable dataTable) {
+    final DataFrame df = dataTable.getDataFrame();
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(estimateSize(df));
+    try (final DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeByte(FORMAT_VERSION);
+
+      final Map<String, String> properties = dataTable.getProperties();
+      out.writeInt(properties.size());
+      for (final Entry<String, String> e : properties.entrySet()) {
+        writeString(out, e.getKey());
+        writeString(out, e.getValue());
+      }
+
+      final List<String> indexNames = df.getIndexNames();
+      out.writeInt(indexNames.size());
+      for (final String indexName : indexNames) {
+        writeString(out, indexName);
+      }
+
+      final int size = df.size();
+      out.writeInt(size);
+      out.writeInt(df.getSeriesCount());
+      for (final Entry<String, Series> e : df.getSeries().entrySet()) {
+        writeString(out, e.getKey());
+        writeSeries(out, e.getValue(), size);
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public static DataTable decode(final byte[] bytes) {
+    return decode(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Decodes a DataTable from the current position of the buffer.
+   * The buffer can be a heap, a direct or a memory-mapped buffer.
+   */
+  public static DataTable decode(final ByteBuffer buffer) {
+    checkArgument(buffer.getInt() == MAGIC, "Not an encoded DataTable.");
+    final byte formatVersion = buffer.get();
+    checkArgument(formatVersion == FORMAT_VERSION, "Unsupported DataTable format version: %s",
+        formatVersion);
+
+    final int propertiesCount = buffer.getInt();
+    final Map<String, String> properties = new HashMap<>(propertiesCount);
+    for (int i = 0; i < propertiesCount; i++) {
+      properties.put(readString(buffer), readString(buffer));
+    }
+
+    final int indexCount = buffer.getInt();
+    final List<String> indexNames = new ArrayList<>(indexCount);
+    for (int i = 0; i < indexCount; i++) {
+      indexNames.add(readString(buffer));
+    }
+
+    final int size = buffer.getInt();
+    final int seriesCount = buffer.getInt();
+    final DataFrame df = new DataFrame();
+    for (int i = 0; i < seriesCount; i++) {
+      final String name = readString(buffer);
+      df.addSeries(name, readSeries(buffer, size));
+    }
+    if (!indexNames.isEmpty()) {
+      df.setIndex(indexNames);
+    }
+
+    final DataTable dataTable = SimpleDataTable.fromDataFrame(df);
+    dataTable.addProperties(properties);
+    return dataTable;
+  }
+
+  private static void writeSeries(final DataOutputStream out, final Series series,
+      final int size) throws IOException {
+    final SeriesType type = series.type();
+    out.writeByte(type.ordinal());
+    switch (type) {
+      case LONG -> {
+        final ByteBuffer buffer = ByteBuffer.allocate(size * Long.BYTES);
+        buffer.asLongBuffer().put(((LongSeries) series).values());
+        out.write(buffer.array());
+      }
+      case DOUBLE -> {
+        final ByteBuffer buffer = ByteBuffer.allocate(size * Double.BYTES);
+        buffer.asDoubleBuffer().put(((DoubleSeries) series).values());
+        out.write(buffer.array());
+      }
+      case BOOLEAN -> out.write(((BooleanSeries) series).values());
+      case STRING -> {
+        for (final String value : ((StringSeries) series).values()) {
+          writeString(out, value);
+        }
+      }
+      default -> throw new IllegalArgumentException("Unsupported series type: " + type);
+    }
+  }
+
+  private static Series readSeries(final ByteBuffer buffer, final int size) {
+    final SeriesType type = SeriesType.values()[buffer.get()];
+    switch (type) {
+      case LONG -> {
+        final long[] values = new long[size];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + size * Long.BYTES);
+        return LongSeries.buildFrom(values);
+      }
+      case DOUBLE -> {
+        final double[] values = new double[size];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + size * Double.BYTES);
+        return DoubleSeries.buildFrom(values);
+      }
+      case BOOLEAN -> {
+        final byte[] values = new byte[size];
+        buffer.get(values);
+        return BooleanSeries.buildFrom(values);
+      }
+      case STRING -> {
+        final String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+          values[i] = readString(buffer);
+        }
+        return StringSeries.buildCompressed(values);
+      }
+      default -> throw new IllegalArgumentException("Unsupported series type: " + type);
+    }
+  }
+
+  private static void writeString(final DataOutputStream out, final String value)
+      throws IOException {
+    if (value == null) {
+      out.writeInt(NULL_LENGTH);
+      return;
+    }
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(final ByteBuffer buffer) {
+    final int length = buffer.getInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    final byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int estimateSize(final DataFrame df) {
+    // 8 bytes per cell is exact for numeric columns and a lower bound for string columns
+    final long estimate = 64L + df.getSeriesCount() * (32L + (long) df.size() * Long.BYTES);
+    return (int) Math.min(estimate, MAX_INITIAL_BUFFER_SIZE);
+  }
+}
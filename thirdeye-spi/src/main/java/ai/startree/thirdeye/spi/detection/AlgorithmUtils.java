@@ -350,19 +350,19 @@ public class AlgorithmUtils {
     List<DataFrame> segments = new ArrayList<>();
     long prevTimestamp = timestamps.min().longValue();
     for (Long changePoint : myChangePoints) {
-      segments.add(df.filter(timestamps.between(prevTimestamp, changePoint)).dropNull(COL_TIME));
+      segments.add(df.filterCompact(timestamps.between(prevTimestamp, changePoint)));
       prevTimestamp = changePoint;
     }
 
-    segments.add(df.filter(timestamps.gte(prevTimestamp)).dropNull(COL_TIME));
+    segments.add(df.filterCompact(timestamps.gte(prevTimestamp)));
 
     // compute median
     List<Double> medians = new ArrayList<>();
     for (DataFrame segment : segments) {
       long start = segment.getLong(COL_TIME, 0);
       long cutoff = lookForward > 0 ? (start + lookForward) : Long.MAX_VALUE;
-      medians.add(segment.filter(segment.getLongs(COL_TIME).lt(cutoff)).dropNull(COL_TIME)
-          .getDoubles(COL_VALUE).median().doubleValue());
+      medians.add(segment.select(segment.getLongs(COL_TIME).lt(cutoff))
+          .get(COL_VALUE).getDoubles().median().doubleValue());
     }
 
     // rescale time series
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datasource.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import org.testng.annotations.Test;
+
+public class DataTableCodecTest {
+
+  @Test
+  public void testEncodeDecode() {
+    final DataFrame df = new DataFrame()
+        .addSeries("ts", 1000L, 2000L, LongSeries.NULL)
+        .addSeries("value", 1.5, DoubleSeries.NULL, 3.)
+        .addSeries("dim", "a", null, "c")
+        .addSeries("flag", true, false, true)
+        .setIndex("ts");
+    final DataTable dataTable = SimpleDataTable.fromDataFrame(df);
+    dataTable.addProperties(Map.of("key", "value"));
+
+    final DataTable decoded = DataTableCodec.decode(DataTableCodec.encode(dataTable));
+
+    assertThat(decoded.getDataFrame()).isEqualTo(df);
+    assertThat(decoded.getDataFrame().getIndexNames()).containsExactly("ts");
+    assertThat(decoded.getProperties()).isEqualTo(Map.of("key", "value"));
+  }
+
+  @Test
+  public void testEncodeDecodeEmpty() {
+    final DataTable decoded = DataTableCodec.decode(DataTableCodec.encode(
+        SimpleDataTable.fromDataFrame(new DataFrame())));
+
+    assertThat(decoded.getDataFrame().size()).isEqualTo(0);
+    assertThat(decoded.getDataFrame().getSeriesCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testDecodeFromDirectBuffer() {
+    final DataFrame df = new DataFrame().addSeries("value", 1., 2., 3.);
+    final byte[] bytes = DataTableCodec.encode(SimpleDataTable.fromDataFrame(df));
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes).flip();
+
+    assertThat(DataTableCodec.decode(buffer).getDataFrame()).isEqualTo(df);
+  }
+
+  @Test
+  public void testObjectSeriesIsNotSupported() {
+    final DataFrame df = new DataFrame().addSeriesObjects("object", new Object());
+
+    assertThat(DataTableCodec.isSupported(SimpleDataTable.fromDataFrame(df))).isFalse();
+  }
+}
@@ -20,8 +20,11 @@ import static java.util.Objects.requireNonNull;
 
 import ai.startree.thirdeye.alert.AlertDetectionIntervalCalculator;
 import ai.startree.thirdeye.alert.AlertTemplateRenderer;
+import ai.startree.thirdeye.alert.PreparedAlertTemplate;
+import ai.startree.thirdeye.datasource.limiter.QueryPriority;
 import ai.startree.thirdeye.detectionpipeline.DetectionPipelineContext;
 import ai.startree.thirdeye.detectionpipeline.PlanExecutor;
+import ai.startree.thirdeye.spi.datalayer.UnitOfWork;
 import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
 import ai.startree.thirdeye.spi.datalayer.bao.AnomalyManager;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
@@ -40,6 +43,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import org.joda.time.DateTime;
@@ -52,12 +56,14 @@ import org.slf4j.LoggerFactory;
 public class DetectionPipelineTaskRunner implements TaskRunner {
 
   private final Logger LOG = LoggerFactory.getLogger(DetectionPipelineTaskRunner.class);
+  private static final Duration BACKFILL_MIN_DURATION = Duration.ofDays(7);
 
   private final AlertManager alertManager;
   private final AlertDetectionIntervalCalculator alertDetectionIntervalCalculator;
   private final AnomalyManager anomalyManager;
   private final PlanExecutor planExecutor;
   private final AlertTemplateRenderer alertTemplateRenderer;
+  private final UnitOfWork unitOfWork;
 
   @Deprecated
   private final Counter detectionTaskExceptionCounter;
@@ -76,12 +82,14 @@ public class DetectionPipelineTaskRunner implements TaskRunner {
       final AlertDetectionIntervalCalculator alertDetectionIntervalCalculator,
       final AnomalyManager anomalyManager,
       final PlanExecutor planExecutor,
-      final AlertTemplateRenderer alertTemplateRenderer) {
+      final AlertTemplateRenderer alertTemplateRenderer,
+      final UnitOfWork unitOfWork) {
     this.alertManager = alertManager;
     this.alertDetectionIntervalCalculator = alertDetectionIntervalCalculator;
     this.anomalyManager = anomalyManager;
     this.planExecutor = planExecutor;
     this.alertTemplateRenderer = alertTemplateRenderer;
+    this.unitOfWork = unitOfWork;
 
     // TODO CYRIL WARNING - REMOVE AT THE END OF THE MIGRATION TO MICROMETER ONLY - USED IN IMPORTANT PRODUCTION ALERTS
     // deprecated metrics - use thirdeye_detection_task
@@ -134,11 +142,15 @@ public class DetectionPipelineTaskRunner implements TaskRunner {
     final AlertDTO alert = requireNonNull(alertManager.findById(info.getConfigId()),
         String.format("Could not resolve config id %d", info.getConfigId()));
 
+    // the template is prepared once - then only the detection interval is bound
+    final PreparedAlertTemplate preparedTemplate = alertTemplateRenderer.prepare(alert);
     final Interval detectionInterval = alertDetectionIntervalCalculator.getCorrectedInterval(
         alert,
+        preparedTemplate,
         info.getStart(), info.getEnd());
 
-    final OperatorResult result = run(alert, detectionInterval);
+    final OperatorResult result = queryPriority(info, alert, detectionInterval)
+        .call(() -> run(alert, preparedTemplate, detectionInterval));
 
     if (result.getLastTimestamp() < 0) {
       // notice lastTimestamp is not updated
@@ -159,14 +171,25 @@ public class DetectionPipelineTaskRunner implements TaskRunner {
         detectionInterval.getEndMillis(),
         alert.getLastTimestamp());
 
+    /*
+     * lastTimestamp and updateTime are used by consumers to known when an alert has run. The
+     * anomalies and the watermark are saved in a single transaction: if the task fails, nothing is
+     * persisted, and the retry runs on the same interval without creating duplicate anomalies.
+     */
+    final long previousLastTimestamp = alert.getLastTimestamp();
     alert.setLastTimestamp(newLastTimestamp);
-    // TODO CYRIL: lastTimestamp and updateTime are used by consumers to known when an alert has run
-    //  to improve consistency the anomaly save and the update of the alert should be in a single
-    //  transaction this would also improve failure cases
-    optional(result.getAnomalies())
-        .orElse(Collections.emptyList())
-        .forEach(anomalyManager::save);
-    alertManager.update(alert);
+    try {
+      unitOfWork.execute(() -> {
+        optional(result.getAnomalies())
+            .orElse(Collections.emptyList())
+            .forEach(anomalyManager::save);
+        alertManager.update(alert);
+        return null;
+      });
+    } catch (final Exception e) {
+      alert.setLastTimestamp(previousLastTimestamp);
+      throw e;
+    }
 
     LOG.info("Completed detection task for id {} between {} and {}. Detected {} anomalies.",
         alert.getId(),
@@ -177,12 +200,28 @@ public class DetectionPipelineTaskRunner implements TaskRunner {
     return Collections.emptyList();
   }
 
+  /**
+   * Replays of an already processed period and long catch-ups are sent to the datasources as
+   * backfill, so that they don't delay the regular detection runs.
+   */
+  private static QueryPriority queryPriority(final DetectionPipelineTaskInfo info,
+      final AlertDTO alert, final Interval detectionInterval) {
+    final boolean isReplay = info.getStart() < alert.getLastTimestamp();
+    final boolean isLong = detectionInterval.toDurationMillis() > BACKFILL_MIN_DURATION.toMillis();
+    return isReplay || isLong ? QueryPriority.BACKFILL : QueryPriority.DETECTION;
+  }
+
   public OperatorResult run(final AlertDTO alert, final Interval detectionInterval)
       throws Exception {
+    return run(alert, alertTemplateRenderer.prepare(alert), detectionInterval);
+  }
+
+  private OperatorResult run(final AlertDTO alert, final PreparedAlertTemplate preparedTemplate,
+      final Interval detectionInterval) throws Exception {
     LOG.info(String.format("Running detection pipeline for alert: %d, start: %s, end: %s",
         alert.getId(), detectionInterval.getStart(), detectionInterval.getEnd()));
 
-    final AlertTemplateDTO templateWithProperties = alertTemplateRenderer.renderAlert(alert,
+    final AlertTemplateDTO templateWithProperties = alertTemplateRenderer.render(preparedTemplate,
         detectionInterval);
 
     final DetectionPipelineContext context = new DetectionPipelineContext()